@@ -16,29 +16,327 @@
 
 package net.adamcin.oakpal.api;
 
+import org.apache.jackrabbit.vault.packaging.PackageId;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 /**
  * Simple collector of violations for use by {@link ProgressCheck} implementations.
+ * <p>
+ * The number of violations retained by a collector can be capped with {@link #setMaxViolations(int)}, and the number
+ * retained by all collectors during a scan with {@link #openScanScope(int)}. Beyond either cap, violations with the
+ * same severity and description template are aggregated into a single violation, which counts the occurrences and
+ * keeps a few sample arguments, so that memory scales with the number of distinct issues rather than occurrences.
+ * <p>
+ * A scan scope may also be opened with a {@link Listener}, which receives each violation reported to any collector on
+ * the thread as it is reported, attributed to the reporter set by {@link #attributeTo(ViolationReporter)}.
  */
 public final class ReportCollector implements ViolationReporter {
+    private static final int MAX_SAMPLES = 3;
+    private static final ThreadLocal<Scope> SCAN_SCOPE = new ThreadLocal<>();
+
     private final List<Violation> violations = new ArrayList<>();
+    private final Map<AggregateKey, Aggregate> aggregates = new LinkedHashMap<>();
+    private final Map<PackageId, PackageId> packageIds = new HashMap<>();
+    private int maxViolations;
+    private Scope acquiredScope;
+    private int acquired;
+
+    /**
+     * Open a new scan scope for the current thread, which caps the number of violations retained by all collectors
+     * until the scope is closed.
+     *
+     * @param maxViolations the maximum number of violations to retain. violations are not capped when this is less
+     *                      than 1.
+     * @return the scope to close when the scan has finished
+     * @since 2.3.0
+     */
+    @NotNull
+    public static Scope openScanScope(final int maxViolations) {
+        return openScanScope(maxViolations, null);
+    }
+
+    /**
+     * Open a new scan scope for the current thread, which caps the number of violations retained by all collectors
+     * and notifies the listener of each violation reported to them until the scope is closed.
+     *
+     * @param maxViolations the maximum number of violations to retain. violations are not capped when this is less
+     *                      than 1.
+     * @param listener      the listener to notify of each reported violation, or null
+     * @return the scope to close when the scan has finished
+     * @since 2.3.0
+     */
+    @NotNull
+    public static Scope openScanScope(final int maxViolations, final @Nullable Listener listener) {
+        final Scope scope = new Scope(SCAN_SCOPE.get(), maxViolations, listener);
+        SCAN_SCOPE.set(scope);
+        return scope;
+    }
+
+    /**
+     * Attribute the violations subsequently reported on the current thread to the given reporter, for the
+     * {@link Listener} of the current scan scope. This has no effect if no scope is open.
+     *
+     * @param reporter the reporter to attribute violations to, or null
+     * @return the previous reporter, to restore when the reporter has finished handling an event
+     * @since 2.3.0
+     */
+    @Nullable
+    public static ViolationReporter attributeTo(final @Nullable ViolationReporter reporter) {
+        final Scope scope = SCAN_SCOPE.get();
+        if (scope == null) {
+            return null;
+        }
+        final ViolationReporter previous = scope.reporter;
+        scope.reporter = reporter;
+        return previous;
+    }
+
+    /**
+     * Cap the number of violations retained by this collector. Violations are not capped when this is less than 1.
+     *
+     * @param maxViolations the maximum number of violations to retain
+     * @since 2.3.0
+     */
+    public void setMaxViolations(final int maxViolations) {
+        this.maxViolations = Math.max(0, maxViolations);
+    }
+
+    /**
+     * Get the maximum number of violations retained by this collector.
+     *
+     * @return the maximum number of violations, or 0 if unlimited
+     * @since 2.3.0
+     */
+    public int getMaxViolations() {
+        return maxViolations;
+    }
 
     public void reportViolation(Violation violation) {
-        violations.add(violation);
+        final boolean summarized;
+        if ((maxViolations < 1 || violations.size() < maxViolations) && tryAcquire()) {
+            violations.add(retain(violation));
+            summarized = false;
+        } else {
+            summarized = aggregates.computeIfAbsent(new AggregateKey(violation), key -> new Aggregate())
+                    .add(violation, this::retain) > 1;
+        }
+        final Scope scope = SCAN_SCOPE.get();
+        if (scope != null && scope.listener != null) {
+            scope.listener.reportedViolation(scope.reporter, violation, summarized);
+        }
+    }
+
+    /**
+     * Drop the arguments of a violation built by {@link SimpleViolation#builder()} once it is retained, since they are
+     * only needed to sample the arguments of aggregated violations, and share equal package ids between the retained
+     * violations of this collector.
+     *
+     * @param violation the violation
+     * @return the violation to retain
+     */
+    Violation retain(final @NotNull Violation violation) {
+        return violation instanceof SimpleViolation
+                ? ((SimpleViolation) violation).retained(packageId -> packageIds.computeIfAbsent(packageId, key -> key))
+                : violation;
+    }
+
+    private boolean tryAcquire() {
+        final Scope scope = SCAN_SCOPE.get();
+        if (scope == null) {
+            return true;
+        }
+        if (!scope.tryAcquire()) {
+            return false;
+        }
+        if (acquiredScope != scope) {
+            acquiredScope = scope;
+            acquired = 0;
+        }
+        acquired++;
+        return true;
     }
 
     @SuppressWarnings("WeakerAccess")
     public void clearViolations() {
+        if (acquiredScope != null && acquiredScope == SCAN_SCOPE.get()) {
+            acquiredScope.release(acquired);
+        }
+        acquiredScope = null;
+        acquired = 0;
         this.violations.clear();
+        this.aggregates.clear();
+        this.packageIds.clear();
     }
 
     @Override
     public Collection<Violation> getReportedViolations() {
         List<Violation> toReturn = new ArrayList<>(this.violations);
+        for (Aggregate aggregate : this.aggregates.values()) {
+            toReturn.add(aggregate.toViolation());
+        }
         return Collections.unmodifiableList(toReturn);
     }
+
+    /**
+     * Receives the violations reported to any collector on the thread of a scan scope, as they are reported.
+     *
+     * @since 2.3.0
+     */
+    @FunctionalInterface
+    public interface Listener {
+
+        /**
+         * Called when a violation is reported to a collector.
+         *
+         * @param reporter   the reporter set by {@link #attributeTo(ViolationReporter)}, or null
+         * @param violation  the violation
+         * @param summarized true if the violation is only counted in the aggregate of an earlier violation of the
+         *                   same kind, and so will not be returned by the collector individually
+         */
+        void reportedViolation(@Nullable ViolationReporter reporter, @NotNull Violation violation, boolean summarized);
+    }
+
+    /**
+     * A scan scope opened by {@link #openScanScope(int, Listener)}, which restores the previous scope of the thread
+     * when closed.
+     *
+     * @since 2.3.0
+     */
+    public static final class Scope implements AutoCloseable {
+        private final Scope previous;
+        private final int maxViolations;
+        private final Listener listener;
+        private ViolationReporter reporter;
+        private int retained;
+
+        private Scope(final @Nullable Scope previous, final int maxViolations, final @Nullable Listener listener) {
+            this.previous = previous;
+            this.maxViolations = Math.max(0, maxViolations);
+            this.listener = listener;
+        }
+
+        /**
+         * Get the maximum number of violations retained by all collectors in this scope.
+         *
+         * @return the maximum number of violations, or 0 if unlimited
+         */
+        public int getMaxViolations() {
+            return maxViolations;
+        }
+
+        private boolean tryAcquire() {
+            if (maxViolations > 0 && retained >= maxViolations) {
+                return false;
+            }
+            retained++;
+            return true;
+        }
+
+        private void release(final int count) {
+            retained = Math.max(0, retained - count);
+        }
+
+        @Override
+        public void close() {
+            if (previous != null) {
+                SCAN_SCOPE.set(previous);
+            } else {
+                SCAN_SCOPE.remove();
+            }
+        }
+    }
+
+    /**
+     * Violations are aggregated by severity and description template, or by description if the violation has no
+     * template.
+     */
+    static final class AggregateKey {
+        private final Severity severity;
+        private final String template;
+
+        AggregateKey(final @NotNull Violation violation) {
+            this.severity = violation.getSeverity();
+            this.template = violation instanceof SimpleViolation && ((SimpleViolation) violation).getTemplate() != null
+                    ? ((SimpleViolation) violation).getTemplate()
+                    : violation.getDescription();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            AggregateKey that = (AggregateKey) o;
+            return severity == that.severity && Objects.equals(template, that.template);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(severity, template);
+        }
+    }
+
+    /**
+     * Counts the occurrences of violations with the same key, keeping the first violation, the packages of all of
+     * them, and the arguments of the first few that follow it. The summary violation is rebuilt only when another
+     * occurrence has been counted, so that it is the same instance until then.
+     */
+    static final class Aggregate {
+        private final Set<PackageId> packages = new LinkedHashSet<>();
+        private final List<List<Object>> samples = new ArrayList<>();
+        private Violation first;
+        private Violation summary;
+        private int count;
+
+        int add(final @NotNull Violation violation, final @NotNull UnaryOperator<Violation> retain) {
+            summary = null;
+            if (first == null) {
+                first = retain.apply(violation);
+            } else if (samples.size() < MAX_SAMPLES && violation instanceof SimpleViolation
+                    && !((SimpleViolation) violation).getArguments().isEmpty()) {
+                samples.add(((SimpleViolation) violation).getArguments());
+            }
+            count++;
+            if (violation.getPackages() != null) {
+                packages.addAll(violation.getPackages());
+            }
+            return count;
+        }
+
+        @NotNull
+        Violation toViolation() {
+            if (count == 1) {
+                return first;
+            }
+            if (summary == null) {
+                summary = summarize();
+            }
+            return summary;
+        }
+
+        @NotNull
+        private Violation summarize() {
+            final StringBuilder description = new StringBuilder(String.valueOf(first.getDescription()))
+                    .append(" [and ").append(count - 1).append(" more like it");
+            if (!samples.isEmpty()) {
+                description.append(", for example with arguments ")
+                        .append(samples.stream().map(String::valueOf).collect(Collectors.joining(", ")));
+            }
+            description.append(']');
+            return new SimpleViolation(first.getSeverity(), description.toString(), new ArrayList<>(packages));
+        }
+    }
 }
@@ -20,6 +20,7 @@ import org.jetbrains.annotations.NotNull;
 import org.osgi.annotation.versioning.ProviderType;
 
 import javax.json.JsonObject;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.regex.Pattern;
 
@@ -34,7 +35,16 @@ import java.util.regex.Pattern;
  * <dt>{@code pattern}</dt>
  * <dd>A regular expression pattern matched against the full context value (start [{@code ^}] and end [{@code $}]
  * are assumed).</dd>
+ * <dt>{@code prefix}</dt>
+ * <dd>(since 2.3.0) Instead of {@code pattern}, a literal string that matches any value that starts with it.</dd>
+ * <dt>{@code glob}</dt>
+ * <dd>(since 2.3.0) Instead of {@code pattern}, a path glob matched against the full context value, in which
+ * {@code ?} matches one character other than {@code /}, {@code *} matches zero or more characters other than
+ * {@code /}, and {@code **} matches zero or more characters of any kind. A trailing {@code /**} also matches the path
+ * preceding it, so that {@code /apps/mysite/**} matches {@code /apps/mysite} and all of its descendants.</dd>
  * </dl>
+ * Rules with a {@code prefix}, or with a {@code glob} whose only wildcard is a trailing {@code **} or {@code /**}, are
+ * evaluated by {@link RuleSet} without regular expressions.
  */
 @ProviderType
 public class Rule implements JsonObjectConvertible {
@@ -43,6 +53,19 @@ public class Rule implements JsonObjectConvertible {
         String type();
 
         String pattern();
+
+        String prefix();
+
+        String glob();
+    }
+
+    /**
+     * The syntax of the expression that a rule was created from.
+     *
+     * @since 2.3.0
+     */
+    public enum Syntax {
+        REGEX, PREFIX, GLOB
     }
 
     private static final JsonKeys KEYS = new JsonKeys() {
@@ -55,6 +78,16 @@ public class Rule implements JsonObjectConvertible {
         public String pattern() {
             return "pattern";
         }
+
+        @Override
+        public String prefix() {
+            return "prefix";
+        }
+
+        @Override
+        public String glob() {
+            return "glob";
+        }
     };
 
     @NotNull
@@ -64,6 +97,8 @@ public class Rule implements JsonObjectConvertible {
 
     private final RuleType type;
     private final Pattern pattern;
+    private final Syntax syntax;
+    private final String expression;
 
     /**
      * Create a new rule.
@@ -73,6 +108,10 @@ public class Rule implements JsonObjectConvertible {
      * @param pattern a compiled regular expression pattern
      */
     public Rule(final RuleType type, final Pattern pattern) {
+        this(type, pattern, Syntax.REGEX, pattern != null ? pattern.pattern() : null);
+    }
+
+    Rule(final RuleType type, final Pattern pattern, final Syntax syntax, final String expression) {
         if (type == null) {
             throw new NullPointerException("RuleType type");
         }
@@ -81,16 +120,46 @@ public class Rule implements JsonObjectConvertible {
         }
         this.type = type;
         this.pattern = pattern;
+        this.syntax = syntax;
+        this.expression = expression;
     }
 
     public RuleType getType() {
         return type;
     }
 
+    /**
+     * Get the regular expression pattern of the rule. For {@link Syntax#PREFIX} and {@link Syntax#GLOB} rules, this is
+     * an equivalent pattern translated from the expression.
+     *
+     * @return the pattern
+     */
     public Pattern getPattern() {
         return pattern;
     }
 
+    /**
+     * Get the syntax of the expression that the rule was created from.
+     *
+     * @return the syntax
+     * @since 2.3.0
+     */
+    @NotNull
+    public Syntax getSyntax() {
+        return syntax;
+    }
+
+    /**
+     * Get the expression that the rule was created from, which is the pattern string for {@link Syntax#REGEX} rules.
+     *
+     * @return the expression
+     * @since 2.3.0
+     */
+    @NotNull
+    public String getExpression() {
+        return expression;
+    }
+
     /**
      * Readability alias for {@link #isAllow()} when the rule is used in the more abstract context of scope
      * definition.
@@ -149,11 +218,23 @@ public class Rule implements JsonObjectConvertible {
      */
     @Override
     public JsonObject toJson() {
-        return JavaxJson.key(keys().type(), getType().name()).key(keys().pattern(), getPattern().pattern()).get();
+        switch (getSyntax()) {
+            case PREFIX:
+                return JavaxJson.key(keys().type(), getType().name()).key(keys().prefix(), getExpression()).get();
+            case GLOB:
+                return JavaxJson.key(keys().type(), getType().name()).key(keys().glob(), getExpression()).get();
+            case REGEX:
+            default:
+                return JavaxJson.key(keys().type(), getType().name()).key(keys().pattern(), getPattern().pattern())
+                        .get();
+        }
     }
 
     @Override
     public String toString() {
+        if (getSyntax() != Syntax.REGEX) {
+            return getType().name() + ":" + getSyntax().name().toLowerCase(Locale.ROOT) + ":" + getExpression();
+        }
         return getType().name() + ":" + getPattern().pattern();
     }
 
@@ -163,6 +244,7 @@ public class Rule implements JsonObjectConvertible {
         if (o == null || getClass() != o.getClass()) return false;
         Rule rule = (Rule) o;
         return type == rule.type &&
+                syntax == rule.syntax &&
                 pattern.pattern().equals(rule.pattern.pattern());
     }
 
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.osgi.annotation.versioning.ProviderType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, memoizing cache of {@link RuleSet#lastMatch(String)} results, keyed by rule set and value. Equal rule
+ * sets share entries, so checks that are instantiated more than once with the same rules, or that see the same path
+ * imported by more than one package, evaluate each path only once. The least recently used entry is evicted when the
+ * cache exceeds its maximum size.
+ * <p>
+ * The scan engine opens a scan-scoped cache for the scanning thread with {@link #openScanScope(int)}. Progress checks
+ * should use {@link #forCurrentScan()} to retrieve it, which returns a pass-through cache when no scan is in progress.
+ *
+ * @since 2.3.0
+ */
+@ProviderType
+public final class RuleMatchCache {
+    /**
+     * The default maximum number of entries of a scan-scoped cache.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 16384;
+
+    private static final RuleMatchCache PASS_THROUGH = new RuleMatchCache(0);
+    private static final ThreadLocal<RuleMatchCache> SCAN_SCOPE = new ThreadLocal<>();
+
+    private final int maxEntries;
+    private final Map<Key, Rule> entries;
+
+    /**
+     * Create a new cache.
+     *
+     * @param maxEntries the maximum number of entries to retain. the cache does not memoize when this is less than 1.
+     */
+    public RuleMatchCache(final int maxEntries) {
+        this.maxEntries = Math.max(0, maxEntries);
+        this.entries = new LinkedHashMap<Key, Rule>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, Rule> eldest) {
+                return size() > RuleMatchCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get the cache of the scan in progress on the current thread.
+     *
+     * @return the scan-scoped cache, or a pass-through cache if no scan is in progress
+     */
+    @NotNull
+    public static RuleMatchCache forCurrentScan() {
+        final RuleMatchCache cache = SCAN_SCOPE.get();
+        return cache != null ? cache : PASS_THROUGH;
+    }
+
+    /**
+     * Open a new scan scope for the current thread, which is returned by {@link #forCurrentScan()} until the scope is
+     * closed.
+     *
+     * @param maxEntries the maximum number of entries to retain
+     * @return the scope to close when the scan has finished
+     */
+    @NotNull
+    public static Scope openScanScope(final int maxEntries) {
+        final Scope scope = new Scope(SCAN_SCOPE.get(), new RuleMatchCache(maxEntries));
+        SCAN_SCOPE.set(scope.cache);
+        return scope;
+    }
+
+    /**
+     * Evaluate the rule set against the value, returning a memoized result if one is present.
+     *
+     * @param ruleSet the rule set
+     * @param value   the string value to match against
+     * @return the last rule in the rule set that matches the value, or the default rule
+     */
+    @NotNull
+    public Rule lastMatch(final @NotNull RuleSet ruleSet, final @NotNull String value) {
+        if (maxEntries < 1) {
+            return ruleSet.lastMatch(value);
+        }
+        final Key key = new Key(ruleSet, value);
+        synchronized (entries) {
+            final Rule cached = entries.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        final Rule lastMatch = ruleSet.lastMatch(value);
+        synchronized (entries) {
+            entries.put(key, lastMatch);
+        }
+        return lastMatch;
+    }
+
+    /**
+     * Get the maximum number of entries.
+     *
+     * @return the maximum number of entries
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Get the current number of entries.
+     *
+     * @return the current number of entries
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * A scan scope opened by {@link #openScanScope(int)}, which restores the previous scope of the thread when closed.
+     */
+    public static final class Scope implements AutoCloseable {
+        private final RuleMatchCache previous;
+        private final RuleMatchCache cache;
+
+        private Scope(final RuleMatchCache previous, final @NotNull RuleMatchCache cache) {
+            this.previous = previous;
+            this.cache = cache;
+        }
+
+        /**
+         * Get the cache of this scope.
+         *
+         * @return the scan-scoped cache
+         */
+        @NotNull
+        public RuleMatchCache getCache() {
+            return cache;
+        }
+
+        @Override
+        public void close() {
+            cache.clear();
+            if (previous != null) {
+                SCAN_SCOPE.set(previous);
+            } else {
+                SCAN_SCOPE.remove();
+            }
+        }
+    }
+
+    static final class Key {
+        private final RuleSet ruleSet;
+        private final String value;
+        private final int hashCode;
+
+        Key(final @NotNull RuleSet ruleSet, final @NotNull String value) {
+            this.ruleSet = ruleSet;
+            this.value = value;
+            this.hashCode = 31 * ruleSet.hashCode() + value.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return hashCode == key.hashCode && value.equals(key.value)
+                    && (ruleSet == key.ruleSet || ruleSet.equals(key.ruleSet));
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
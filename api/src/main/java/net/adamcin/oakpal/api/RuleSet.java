@@ -0,0 +1,660 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.osgi.annotation.versioning.ProviderType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A list of {@link Rule}s compiled for repeated evaluation with the same results as
+ * {@link Rules#lastMatch(List, String, Function)}.
+ * <p>
+ * Rules with {@link Rule.Syntax#PREFIX} syntax, rules with {@link Rule.Syntax#GLOB} syntax whose only wildcard is a
+ * trailing {@code **}, and regex rules whose patterns are plain literals, literal prefixes followed by {@code .*}, or
+ * literal paths followed by {@code (/.*)?} are indexed in a character trie, which finds the last of them to match a
+ * value in time proportional to the length of the value. The remaining patterns are combined into alternations that
+ * are evaluated by one {@link Matcher} each, from last to first, only until the trie result can no longer be
+ * superseded.
+ * <p>
+ * Instances are immutable and safe for concurrent use.
+ *
+ * @since 2.3.0
+ */
+@ProviderType
+public final class RuleSet {
+    static final String GROUP_PREFIX = "oakpalRuleSet";
+
+    private final List<Rule> rules;
+    private final Rule defaultRule;
+    private final LiteralTrie literals;
+    private final Segment[] segments;
+    private final int hashCode;
+
+    private RuleSet(final @NotNull List<Rule> rules, final @NotNull Rule defaultRule,
+                    final @NotNull LiteralTrie literals, final @NotNull Segment[] segments) {
+        this.rules = rules;
+        this.defaultRule = defaultRule;
+        this.literals = literals;
+        this.segments = segments;
+        this.hashCode = 31 * rules.hashCode() + defaultRule.hashCode();
+    }
+
+    /**
+     * Compile the list of rules, using {@link Rules#fuzzyDefaultInclude(List)} to select the default rule when none
+     * match.
+     *
+     * @param rules the list of rules
+     * @return a compiled rule set
+     */
+    @NotNull
+    public static RuleSet compile(final @Nullable List<Rule> rules) {
+        return compile(rules, Rules::fuzzyDefaultInclude);
+    }
+
+    /**
+     * Compile the list of rules, using the provided selector function to select the default rule when none match.
+     *
+     * @param rules         the list of rules
+     * @param selectDefault a function to select the default rule based on the specified list of rules.
+     * @return a compiled rule set
+     */
+    @NotNull
+    public static RuleSet compile(final @Nullable List<Rule> rules,
+                                  final @Nullable Function<List<Rule>, Rule> selectDefault) {
+        final List<Rule> ruleList = rules != null
+                ? Collections.unmodifiableList(new ArrayList<>(rules))
+                : Collections.emptyList();
+        final Rule defaultRule = Optional.ofNullable(selectDefault)
+                .map(func -> func.apply(ruleList)).orElse(Rules.DEFAULT_INCLUDE);
+        final LiteralTrie.Builder trie = new LiteralTrie.Builder();
+        final List<Segment> segments = new ArrayList<>();
+        final List<Integer> regexRun = new ArrayList<>();
+        for (int i = 0; i < ruleList.size(); i++) {
+            final Rule rule = ruleList.get(i);
+            final Literal literal = Literal.tryCompile(i, rule);
+            if (literal != null) {
+                trie.add(literal);
+            } else if (rule.getPattern().flags() == 0 && isCombinable(rule.getPattern().pattern())) {
+                regexRun.add(i);
+            } else {
+                flushRegexRun(ruleList, regexRun, segments);
+                segments.add(new RegexSegment(i, rule.getPattern()));
+            }
+        }
+        flushRegexRun(ruleList, regexRun, segments);
+        return new RuleSet(ruleList, defaultRule, trie.build(), segments.toArray(new Segment[0]));
+    }
+
+    private static void flushRegexRun(final @NotNull List<Rule> rules, final @NotNull List<Integer> regexRun,
+                                      final @NotNull List<Segment> segments) {
+        if (regexRun.isEmpty()) {
+            return;
+        }
+        final Segment combined = regexRun.size() > 1 ? CombinedSegment.tryCompile(rules, regexRun) : null;
+        if (combined != null) {
+            segments.add(combined);
+        } else {
+            for (Integer index : regexRun) {
+                segments.add(new RegexSegment(index, rules.get(index).getPattern()));
+            }
+        }
+        regexRun.clear();
+    }
+
+    /**
+     * Get the compiled rules.
+     *
+     * @return the unmodifiable list of rules
+     */
+    @NotNull
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Get the default rule returned by {@link #lastMatch(String)} when no rule matches.
+     *
+     * @return the default rule
+     */
+    @NotNull
+    public Rule getDefaultRule() {
+        return defaultRule;
+    }
+
+    /**
+     * Evaluate the rules against the String value.
+     *
+     * @param value the string value to match against.
+     * @return the last rule in the list that matches the value, or the default rule
+     */
+    @NotNull
+    public Rule lastMatch(final @NotNull String value) {
+        final int index = lastMatchIndex(value);
+        return index >= 0 ? rules.get(index) : defaultRule;
+    }
+
+    int lastMatchIndex(final @NotNull String value) {
+        return lastMatchIndex(value, literals.lastMatchIndex(value));
+    }
+
+    /**
+     * Return the index of the last rule to match the value, given the index of the last literal rule to match it.
+     *
+     * @param value        the string value to match against
+     * @param literalIndex the index of the last literal rule that matches the value, or -1
+     * @return the index of the last matching rule, or -1
+     */
+    int lastMatchIndex(final @NotNull String value, final int literalIndex) {
+        for (int i = segments.length - 1; i >= 0 && segments[i].getMaxIndex() > literalIndex; i--) {
+            final int index = segments[i].lastMatchIndex(value);
+            if (index >= 0) {
+                return Math.max(index, literalIndex);
+            }
+        }
+        return literalIndex;
+    }
+
+    /**
+     * Two rule sets are equal when their rules and default rules have the same types, patterns, and pattern flags, so
+     * that they always return equal results from {@link #lastMatch(String)}.
+     *
+     * @param o the other object
+     * @return true if equal
+     */
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RuleSet ruleSet = (RuleSet) o;
+        if (hashCode != ruleSet.hashCode || rules.size() != ruleSet.rules.size()
+                || !sameRule(defaultRule, ruleSet.defaultRule)) {
+            return false;
+        }
+        for (int i = 0; i < rules.size(); i++) {
+            if (!sameRule(rules.get(i), ruleSet.rules.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean sameRule(final @NotNull Rule left, final @NotNull Rule right) {
+        return left.equals(right) && left.getPattern().flags() == right.getPattern().flags();
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return "RuleSet" + rules + " default " + defaultRule;
+    }
+
+    /**
+     * A range of regex rules which returns the index of its last rule to match. Segments are ordered by index and do
+     * not overlap.
+     */
+    abstract static class Segment {
+        abstract int getMaxIndex();
+
+        abstract int lastMatchIndex(@NotNull String value);
+    }
+
+    /**
+     * A single rule which matches a literal string, or any value starting with a literal prefix, or a literal path and
+     * its descendants. The {@code LINE_} kinds are translated from regular expressions ending in {@code .*}, which
+     * does not match line terminators.
+     */
+    static final class Literal {
+        enum Kind {
+            EXACT, PREFIX, TREE, LINE_PREFIX, LINE_TREE
+        }
+
+        private final int index;
+        private final String literal;
+        private final Kind kind;
+
+        Literal(final int index, final @NotNull String literal, final @NotNull Kind kind) {
+            this.index = index;
+            this.literal = literal;
+            this.kind = kind;
+        }
+
+        int getIndex() {
+            return index;
+        }
+
+        String getLiteral() {
+            return literal;
+        }
+
+        Kind getKind() {
+            return kind;
+        }
+
+        @Nullable
+        static Literal tryCompile(final int index, final @NotNull Rule rule) {
+            switch (rule.getSyntax()) {
+                case PREFIX:
+                    return new Literal(index, rule.getExpression(), Kind.PREFIX);
+                case GLOB:
+                    return tryCompileGlob(index, rule.getExpression());
+                case REGEX:
+                default:
+                    return tryCompileRegex(index, rule.getPattern());
+            }
+        }
+
+        @Nullable
+        static Literal tryCompileGlob(final int index, final @NotNull String glob) {
+            Kind kind = Kind.EXACT;
+            String literal = glob;
+            if (glob.endsWith("/**")) {
+                kind = Kind.TREE;
+                literal = glob.substring(0, glob.length() - 3);
+            } else if (glob.endsWith("**")) {
+                kind = Kind.PREFIX;
+                literal = glob.substring(0, glob.length() - 2);
+            }
+            return literal.indexOf('*') < 0 && literal.indexOf('?') < 0 ? new Literal(index, literal, kind) : null;
+        }
+
+        @Nullable
+        static Literal tryCompileRegex(final int index, final @NotNull Pattern pattern) {
+            if (pattern.flags() != 0) {
+                return null;
+            }
+            String regex = pattern.pattern();
+            if (regex.startsWith("^")) {
+                regex = regex.substring(1);
+            }
+            if (regex.endsWith("$") && !isEscaped(regex, regex.length() - 1)) {
+                regex = regex.substring(0, regex.length() - 1);
+            }
+            Kind kind = Kind.EXACT;
+            if (regex.endsWith("(/.*)?") && !isEscaped(regex, regex.length() - 6)) {
+                kind = Kind.LINE_TREE;
+                regex = regex.substring(0, regex.length() - 6);
+            } else if (regex.endsWith("(?:/.*)?") && !isEscaped(regex, regex.length() - 8)) {
+                kind = Kind.LINE_TREE;
+                regex = regex.substring(0, regex.length() - 8);
+            } else if (regex.endsWith(".*") && !isEscaped(regex, regex.length() - 2)) {
+                kind = Kind.LINE_PREFIX;
+                regex = regex.substring(0, regex.length() - 2);
+            }
+            final String literal = unescapeLiteral(regex);
+            return literal != null ? new Literal(index, literal, kind) : null;
+        }
+    }
+
+    /**
+     * A character trie of literal rules. A trie may index the literal rules of more than one rule set, which are
+     * numbered as members, so that a {@link RuleSetGroup} can find the last literal rule of each member to match a value
+     * in one walk. The rule index of each kind is stored for each member at {@code kind * members + member}.
+     */
+    static final class LiteralTrie {
+        static final int KINDS = Literal.Kind.values().length;
+        private static final char[] NO_KEYS = new char[0];
+        private static final LiteralTrie[] NO_CHILDREN = new LiteralTrie[0];
+
+        private final int[] indexes;
+        private final char[] keys;
+        private final LiteralTrie[] children;
+
+        private LiteralTrie(final int[] indexes, final char[] keys, final LiteralTrie[] children) {
+            this.indexes = indexes;
+            this.keys = keys;
+            this.children = children;
+        }
+
+        int lastMatchIndex(final @NotNull String value) {
+            final int length = value.length();
+            // index of the last line terminator, computed when first needed
+            int lastTerminator = -2;
+            int best = -1;
+            LiteralTrie node = this;
+            for (int depth = 0; node != null; depth++) {
+                final int[] idx = node.indexes;
+                if (idx != null) {
+                    if ((idx[Literal.Kind.LINE_PREFIX.ordinal()] > best || idx[Literal.Kind.LINE_TREE.ordinal()] > best)
+                            && lastTerminator == -2) {
+                        lastTerminator = lastLineTerminator(value);
+                    }
+                    best = Math.max(best, idx[Literal.Kind.PREFIX.ordinal()]);
+                    if (lastTerminator < depth) {
+                        best = Math.max(best, idx[Literal.Kind.LINE_PREFIX.ordinal()]);
+                    }
+                    if (depth == length) {
+                        best = Math.max(best, idx[Literal.Kind.EXACT.ordinal()]);
+                        best = Math.max(best, idx[Literal.Kind.TREE.ordinal()]);
+                        best = Math.max(best, idx[Literal.Kind.LINE_TREE.ordinal()]);
+                    } else if (value.charAt(depth) == '/') {
+                        best = Math.max(best, idx[Literal.Kind.TREE.ordinal()]);
+                        if (lastTerminator <= depth) {
+                            best = Math.max(best, idx[Literal.Kind.LINE_TREE.ordinal()]);
+                        }
+                    }
+                }
+                node = depth < length ? node.child(value.charAt(depth)) : null;
+            }
+            return best;
+        }
+
+        /**
+         * Find the index of the last literal rule of each member to match the value.
+         *
+         * @param value the value
+         * @param best  an array with one element per member, which must be filled with -1, to receive the indexes
+         */
+        void lastMatchIndexes(final @NotNull String value, final int[] best) {
+            final int members = best.length;
+            final int length = value.length();
+            final int prefix = Literal.Kind.PREFIX.ordinal() * members;
+            final int exact = Literal.Kind.EXACT.ordinal() * members;
+            final int tree = Literal.Kind.TREE.ordinal() * members;
+            final int linePrefix = Literal.Kind.LINE_PREFIX.ordinal() * members;
+            final int lineTree = Literal.Kind.LINE_TREE.ordinal() * members;
+            // index of the last line terminator, computed when first needed
+            int lastTerminator = -2;
+            LiteralTrie node = this;
+            for (int depth = 0; node != null; depth++) {
+                final int[] idx = node.indexes;
+                if (idx != null) {
+                    if (lastTerminator == -2 && hasLineKinds(idx, members)) {
+                        lastTerminator = lastLineTerminator(value);
+                    }
+                    final boolean atEnd = depth == length;
+                    final boolean atSeparator = !atEnd && value.charAt(depth) == '/';
+                    for (int m = 0; m < members; m++) {
+                        int memberBest = Math.max(best[m], idx[prefix + m]);
+                        if (lastTerminator < depth) {
+                            memberBest = Math.max(memberBest, idx[linePrefix + m]);
+                        }
+                        if (atEnd) {
+                            memberBest = Math.max(memberBest, idx[exact + m]);
+                            memberBest = Math.max(memberBest, idx[tree + m]);
+                            memberBest = Math.max(memberBest, idx[lineTree + m]);
+                        } else if (atSeparator) {
+                            memberBest = Math.max(memberBest, idx[tree + m]);
+                            if (lastTerminator <= depth) {
+                                memberBest = Math.max(memberBest, idx[lineTree + m]);
+                            }
+                        }
+                        best[m] = memberBest;
+                    }
+                }
+                node = depth < length ? node.child(value.charAt(depth)) : null;
+            }
+        }
+
+        static boolean hasLineKinds(final int[] idx, final int members) {
+            for (int i = Literal.Kind.LINE_PREFIX.ordinal() * members; i < idx.length; i++) {
+                if (idx[i] >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Nullable
+        LiteralTrie child(final char key) {
+            final int position = Arrays.binarySearch(keys, key);
+            return position >= 0 ? children[position] : null;
+        }
+
+        static final class Builder {
+            private final int members;
+            private int[] indexes;
+            private final TreeMap<Character, Builder> children = new TreeMap<>();
+
+            Builder() {
+                this(1);
+            }
+
+            Builder(final int members) {
+                this.members = members;
+            }
+
+            void add(final @NotNull Literal literal) {
+                add(literal, 0);
+            }
+
+            void add(final @NotNull Literal literal, final int member) {
+                Builder node = this;
+                for (int i = 0; i < literal.getLiteral().length(); i++) {
+                    node = node.children.computeIfAbsent(literal.getLiteral().charAt(i),
+                            key -> new Builder(members));
+                }
+                if (node.indexes == null) {
+                    node.indexes = new int[KINDS * members];
+                    Arrays.fill(node.indexes, -1);
+                }
+                // literals are added in rule order, so the last rule of each kind wins
+                node.indexes[literal.getKind().ordinal() * members + member] = literal.getIndex();
+            }
+
+            LiteralTrie build() {
+                if (children.isEmpty()) {
+                    return new LiteralTrie(indexes, NO_KEYS, NO_CHILDREN);
+                }
+                final char[] keys = new char[children.size()];
+                final LiteralTrie[] nodes = new LiteralTrie[children.size()];
+                int i = 0;
+                for (Map.Entry<Character, Builder> entry : children.entrySet()) {
+                    keys[i] = entry.getKey();
+                    nodes[i++] = entry.getValue().build();
+                }
+                return new LiteralTrie(indexes, keys, nodes);
+            }
+        }
+    }
+
+    /**
+     * A single rule evaluated with its own regular expression.
+     */
+    static final class RegexSegment extends Segment {
+        private final int index;
+        private final Pattern pattern;
+
+        RegexSegment(final int index, final @NotNull Pattern pattern) {
+            this.index = index;
+            this.pattern = pattern;
+        }
+
+        @Override
+        int getMaxIndex() {
+            return index;
+        }
+
+        @Override
+        int lastMatchIndex(final @NotNull String value) {
+            return pattern.matcher(value).matches() ? index : -1;
+        }
+    }
+
+    /**
+     * A run of regex rules, uninterrupted by other regex rules, whose patterns are combined into one alternation, in reverse order, so that the first
+     * alternative to match is the last matching rule.
+     */
+    static final class CombinedSegment extends Segment {
+        private final int[] indexes;
+        private final String[] groupNames;
+        private final Pattern pattern;
+
+        CombinedSegment(final int[] indexes, final @NotNull String[] groupNames, final @NotNull Pattern pattern) {
+            this.indexes = indexes;
+            this.groupNames = groupNames;
+            this.pattern = pattern;
+        }
+
+        @Override
+        int getMaxIndex() {
+            return indexes[indexes.length - 1];
+        }
+
+        @Override
+        int lastMatchIndex(final @NotNull String value) {
+            final Matcher matcher = pattern.matcher(value);
+            if (matcher.matches()) {
+                for (int i = indexes.length - 1; i >= 0; i--) {
+                    if (matcher.start(groupNames[i]) >= 0) {
+                        return indexes[i];
+                    }
+                }
+            }
+            return -1;
+        }
+
+        @Nullable
+        static CombinedSegment tryCompile(final @NotNull List<Rule> rules, final @NotNull List<Integer> run) {
+            final StringBuilder alternation = new StringBuilder();
+            final int[] indexes = new int[run.size()];
+            final String[] groupNames = new String[run.size()];
+            for (int i = run.size() - 1; i >= 0; i--) {
+                indexes[i] = run.get(i);
+                groupNames[i] = GROUP_PREFIX + i;
+                final Pattern pattern = rules.get(indexes[i]).getPattern();
+                // compile flags can not be combined with other patterns.
+                if (pattern.flags() != 0 || !isCombinable(pattern.pattern())) {
+                    return null;
+                }
+                if (alternation.length() > 0) {
+                    alternation.append('|');
+                }
+                alternation.append("(?<").append(groupNames[i]).append('>')
+                        .append(pattern.pattern()).append(')');
+            }
+            try {
+                return new CombinedSegment(indexes, groupNames, Pattern.compile(alternation.toString()));
+            } catch (final PatternSyntaxException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * {@code .} does not match line terminators unless {@link Pattern#DOTALL} is specified, so {@code .*} matches the
+     * remainder of a value only from after its last line terminator.
+     *
+     * @param value the value
+     * @return the index of the last line terminator, or -1 if none
+     */
+    static int lastLineTerminator(final @NotNull String value) {
+        for (int i = value.length() - 1; i >= 0; i--) {
+            switch (value.charAt(i)) {
+                case '\n':
+                case '\r':
+                case '\u0085':
+                case '\u2028':
+                case '\u2029':
+                    return i;
+                default:
+                    break;
+            }
+        }
+        return -1;
+    }
+
+    static boolean isEscaped(final @NotNull String regex, final int position) {
+        int backslashes = 0;
+        for (int i = position - 1; i >= 0 && regex.charAt(i) == '\\'; i--) {
+            backslashes++;
+        }
+        return backslashes % 2 == 1;
+    }
+
+    /**
+     * A pattern can be wrapped in a named group and combined with others unless it contains a numbered backreference,
+     * which would be shifted by the wrapping groups, an unterminated {@code \Q} quote or a possible {@code #} comment,
+     * which would swallow the closing parenthesis of the wrapping group, or a group name which could collide with the
+     * wrapping group names.
+     *
+     * @param regex the regular expression
+     * @return true if the expression can be combined with others
+     */
+    static boolean isCombinable(final @NotNull String regex) {
+        if (regex.contains(GROUP_PREFIX) || (regex.indexOf('#') >= 0 && regex.contains("(?"))) {
+            return false;
+        }
+        boolean inQuote = false;
+        for (int i = 0; i < regex.length(); i++) {
+            if (regex.charAt(i) == '\\') {
+                if (i + 1 >= regex.length()) {
+                    return false;
+                }
+                final char next = regex.charAt(i + 1);
+                if (inQuote) {
+                    inQuote = next != 'E';
+                    if (inQuote) {
+                        continue;
+                    }
+                } else if (next == 'Q') {
+                    inQuote = true;
+                } else if (next >= '1' && next <= '9') {
+                    return false;
+                }
+                i++;
+            }
+        }
+        return !inQuote;
+    }
+
+    /**
+     * Return the literal string matched by a regular expression, or null if the expression contains any construct
+     * other than plain characters and escaped non-alphanumeric characters.
+     *
+     * @param regex the regular expression
+     * @return the literal, or null
+     */
+    @Nullable
+    static String unescapeLiteral(final @NotNull String regex) {
+        final StringBuilder literal = new StringBuilder(regex.length());
+        for (int i = 0; i < regex.length(); i++) {
+            final char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 >= regex.length()) {
+                    return null;
+                }
+                final char escaped = regex.charAt(++i);
+                if (Character.isLetterOrDigit(escaped) || escaped > 0x7f) {
+                    return null;
+                }
+                literal.append(escaped);
+            } else if ("^$.|?*+()[]{}".indexOf(c) >= 0 || Character.isSurrogate(c)) {
+                return null;
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.toString();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.osgi.annotation.versioning.ProviderType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A list of {@link RuleSet}s evaluated together against the same value. The literal rules of all rule sets are indexed
+ * in one character trie, so that the last literal rule of every rule set to match a value is found in one walk, and
+ * equal rule sets are only evaluated once. The remaining rules of each rule set are evaluated as by
+ * {@link RuleSet#lastMatch(String)}.
+ * <p>
+ * Instances are immutable and safe for concurrent use.
+ *
+ * @since 2.3.0
+ */
+@ProviderType
+public final class RuleSetGroup {
+    private final List<RuleSet> ruleSets;
+    private final RuleSet[] members;
+    private final int[] memberIndexes;
+    private final RuleSet.LiteralTrie literals;
+
+    private RuleSetGroup(final @NotNull List<RuleSet> ruleSets, final @NotNull RuleSet[] members,
+                         final @NotNull int[] memberIndexes, final @NotNull RuleSet.LiteralTrie literals) {
+        this.ruleSets = ruleSets;
+        this.members = members;
+        this.memberIndexes = memberIndexes;
+        this.literals = literals;
+    }
+
+    /**
+     * Compile a group of rule sets.
+     *
+     * @param ruleSets the list of rule sets
+     * @return a compiled group
+     */
+    @NotNull
+    public static RuleSetGroup compile(final @NotNull List<RuleSet> ruleSets) {
+        final List<RuleSet> ruleSetList = Collections.unmodifiableList(new ArrayList<>(ruleSets));
+        final Map<RuleSet, Integer> distinct = new LinkedHashMap<>();
+        final int[] memberIndexes = new int[ruleSetList.size()];
+        for (int i = 0; i < ruleSetList.size(); i++) {
+            memberIndexes[i] = distinct.computeIfAbsent(ruleSetList.get(i), key -> distinct.size());
+        }
+        final RuleSet[] members = distinct.keySet().toArray(new RuleSet[0]);
+        final RuleSet.LiteralTrie.Builder trie = new RuleSet.LiteralTrie.Builder(members.length);
+        for (int m = 0; m < members.length; m++) {
+            final List<Rule> rules = members[m].getRules();
+            for (int i = 0; i < rules.size(); i++) {
+                final RuleSet.Literal literal = RuleSet.Literal.tryCompile(i, rules.get(i));
+                if (literal != null) {
+                    trie.add(literal, m);
+                }
+            }
+        }
+        return new RuleSetGroup(ruleSetList, members, memberIndexes, trie.build());
+    }
+
+    /**
+     * Get the rule sets of the group.
+     *
+     * @return the unmodifiable list of rule sets
+     */
+    @NotNull
+    public List<RuleSet> getRuleSets() {
+        return ruleSets;
+    }
+
+    /**
+     * Evaluate every rule set of the group against the value.
+     *
+     * @param value the string value to match against
+     * @return an array with the result of {@link RuleSet#lastMatch(String)} for each rule set, in group order
+     */
+    @NotNull
+    public Rule[] lastMatches(final @NotNull String value) {
+        final int[] literalIndexes = new int[members.length];
+        Arrays.fill(literalIndexes, -1);
+        literals.lastMatchIndexes(value, literalIndexes);
+        final int[] memberMatches = new int[members.length];
+        for (int m = 0; m < members.length; m++) {
+            memberMatches[m] = members[m].lastMatchIndex(value, literalIndexes[m]);
+        }
+        final Rule[] matches = new Rule[memberIndexes.length];
+        for (int i = 0; i < memberIndexes.length; i++) {
+            // equal rule sets share a member, but each returns its own rule instances
+            final RuleSet ruleSet = ruleSets.get(i);
+            final int index = memberMatches[memberIndexes[i]];
+            matches[i] = index >= 0 ? ruleSet.getRules().get(index) : ruleSet.getDefaultRule();
+        }
+        return matches;
+    }
+
+    @Override
+    public String toString() {
+        return "RuleSetGroup" + ruleSets;
+    }
+}
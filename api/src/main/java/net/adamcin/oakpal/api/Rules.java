@@ -67,14 +67,96 @@ public final class Rules {
     }
 
     /**
-     * Construct a single rule from a JSON object with keys {@code type} and {@code pattern}.
+     * Construct a single rule from a JSON object with keys {@code type} and one of {@code pattern}, {@code prefix}, or
+     * {@code glob}.
      *
      * @param ruleJson a single rule config object
      * @return a new rule
      */
     public static Rule fromJson(final JsonObject ruleJson) {
-        return new Rule(RuleType.fromName(ruleJson.getString(Rule.keys().type())),
-                Pattern.compile(ruleJson.getString(Rule.keys().pattern())));
+        final RuleType type = RuleType.fromName(ruleJson.getString(Rule.keys().type()));
+        if (ruleJson.containsKey(Rule.keys().prefix())) {
+            return prefix(type, ruleJson.getString(Rule.keys().prefix()));
+        } else if (ruleJson.containsKey(Rule.keys().glob())) {
+            return glob(type, ruleJson.getString(Rule.keys().glob()));
+        }
+        return new Rule(type, Pattern.compile(ruleJson.getString(Rule.keys().pattern())));
+    }
+
+    /**
+     * Create a rule that matches any value that starts with the literal prefix.
+     *
+     * @param type   the rule type
+     * @param prefix the literal prefix
+     * @return a new rule
+     * @since 2.3.0
+     */
+    public static Rule prefix(final RuleType type, final String prefix) {
+        if (prefix == null) {
+            throw new NullPointerException("String prefix");
+        }
+        return new Rule(type, Pattern.compile(quote(prefix) + ANY_CHARS), Rule.Syntax.PREFIX, prefix);
+    }
+
+    /**
+     * Create a rule that matches values against a path glob, as described in {@link Rule}.
+     *
+     * @param type the rule type
+     * @param glob the path glob
+     * @return a new rule
+     * @since 2.3.0
+     */
+    public static Rule glob(final RuleType type, final String glob) {
+        if (glob == null) {
+            throw new NullPointerException("String glob");
+        }
+        return new Rule(type, Pattern.compile(globToRegex(glob)), Rule.Syntax.GLOB, glob);
+    }
+
+    static final String ANY_CHARS = "(?s:.*)";
+
+    static String quote(final String literal) {
+        return literal.isEmpty() ? "" : Pattern.quote(literal);
+    }
+
+    /**
+     * Translate a path glob to an equivalent regular expression.
+     *
+     * @param glob the path glob
+     * @return the regular expression
+     */
+    static String globToRegex(final String glob) {
+        final StringBuilder regex = new StringBuilder();
+        final StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            final char c = glob.charAt(i);
+            if (c == '*' && i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                final boolean afterSlash = literal.length() > 0 && literal.charAt(literal.length() - 1) == '/';
+                if (afterSlash && i + 2 == glob.length()) {
+                    // trailing /** matches the preceding path and its descendants
+                    literal.setLength(literal.length() - 1);
+                    regex.append(quote(literal.toString())).append("(?:/").append(ANY_CHARS).append(")?");
+                } else if (afterSlash && glob.charAt(i + 2) == '/') {
+                    // inner /**/ matches zero or more intermediate path segments
+                    literal.setLength(literal.length() - 1);
+                    regex.append(quote(literal.toString())).append("/(?:").append(ANY_CHARS).append("/)?");
+                    i++;
+                } else {
+                    regex.append(quote(literal.toString())).append(ANY_CHARS);
+                }
+                literal.setLength(0);
+                i++;
+            } else if (c == '*') {
+                regex.append(quote(literal.toString())).append("[^/]*");
+                literal.setLength(0);
+            } else if (c == '?') {
+                regex.append(quote(literal.toString())).append("[^/]");
+                literal.setLength(0);
+            } else {
+                literal.append(c);
+            }
+        }
+        return regex.append(quote(literal.toString())).toString();
     }
 
     /**
@@ -139,13 +221,13 @@ public final class Rules {
     public static Rule lastMatch(final List<Rule> rules,
                                  final String value,
                                  final Function<List<Rule>, Rule> selectDefault) {
-        Rule lastMatched = Optional.ofNullable(selectDefault).map(func -> func.apply(rules)).orElse(DEFAULT_INCLUDE);
-        for (Rule rule : rules) {
+        for (int i = rules.size() - 1; i >= 0; i--) {
+            final Rule rule = rules.get(i);
             if (rule.matches(value)) {
-                lastMatched = rule;
+                return rule;
             }
         }
-        return lastMatched;
+        return Optional.ofNullable(selectDefault).map(func -> func.apply(rules)).orElse(DEFAULT_INCLUDE);
     }
 
     /**
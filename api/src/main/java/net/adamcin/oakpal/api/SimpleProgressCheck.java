@@ -78,6 +78,18 @@ public class SimpleProgressCheck implements ProgressCheck {
                 .orElse(key);
     }
 
+    /**
+     * Cap the number of violations retained by this check. Beyond the cap, similar violations are aggregated by the
+     * {@link ReportCollector}.
+     *
+     * @param maxViolations the maximum number of violations to retain, or 0 for unlimited
+     * @see ReportCollector#setMaxViolations(int)
+     * @since 2.3.0
+     */
+    public void setMaxViolations(final int maxViolations) {
+        collector.setMaxViolations(maxViolations);
+    }
+
     protected void reportViolation(final Violation violation) {
         collector.reportViolation(violation);
     }
@@ -17,6 +17,7 @@
 package net.adamcin.oakpal.api;
 
 import org.apache.jackrabbit.vault.packaging.PackageId;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.json.JsonObject;
@@ -28,6 +29,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.ResourceBundle;
+import java.util.function.UnaryOperator;
 
 import static net.adamcin.oakpal.api.JavaxJson.mapArrayOfStrings;
 import static net.adamcin.oakpal.api.JavaxJson.optArray;
@@ -39,6 +41,8 @@ public final class SimpleViolation implements Violation {
     private final Severity severity;
     private final String description;
     private final List<PackageId> packages;
+    private final String template;
+    private final List<Object> arguments;
 
     /**
      * Constructor.
@@ -59,11 +63,41 @@ public final class SimpleViolation implements Violation {
      * @param packages    the package ids
      */
     public SimpleViolation(final Severity severity, final String description, final List<PackageId> packages) {
+        this(severity, description, packages, null, null);
+    }
+
+    private SimpleViolation(final Severity severity, final String description, final List<PackageId> packages,
+                            final @Nullable String template, final @Nullable List<Object> arguments) {
         this.severity = severity != null ? severity : Severity.MAJOR;
         this.description = description;
         this.packages = packages == null || packages.isEmpty()
                 ? Collections.emptyList()
                 : Collections.unmodifiableList(new ArrayList<>(packages));
+        this.template = template;
+        this.arguments = arguments == null || arguments.isEmpty()
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(arguments));
+    }
+
+    /**
+     * Copy this violation for a {@link ReportCollector} to retain, without its arguments, which are only needed until
+     * the collector has decided whether to aggregate it, and with the package id instances shared by the collector.
+     *
+     * @param packageIds the collector's function from a package id to its shared instance
+     * @return this violation if it has no arguments and already uses the shared package ids, or a copy
+     */
+    SimpleViolation retained(final @NotNull UnaryOperator<PackageId> packageIds) {
+        final List<PackageId> sharedPackages = new ArrayList<>(packages.size());
+        boolean shared = arguments.isEmpty();
+        for (PackageId packageId : packages) {
+            final PackageId sharedPackage = packageIds.apply(packageId);
+            shared &= sharedPackage == packageId;
+            sharedPackages.add(sharedPackage);
+        }
+        if (shared) {
+            return this;
+        }
+        return new SimpleViolation(severity, description, sharedPackages, template, null);
     }
 
     /**
@@ -173,15 +207,21 @@ public final class SimpleViolation implements Violation {
          * @return a new violation
          */
         public SimpleViolation build() {
-            final String localDescription =
-                    description != null && resourceBundle != null && resourceBundle.containsKey(description)
-                            ? resourceBundle.getString(description)
-                            : description;
+            // templates are interned, so that violations with the same message share them, but descriptions
+            // without arguments are often unique, so they are not.
+            final String localDescription;
+            if (description != null && resourceBundle != null && resourceBundle.containsKey(description)) {
+                localDescription = resourceBundle.getString(description).intern();
+            } else if (description != null && arguments != null && !arguments.isEmpty()) {
+                localDescription = description.intern();
+            } else {
+                localDescription = description;
+            }
             if (localDescription == null || arguments == null || arguments.isEmpty()) {
-                return new SimpleViolation(severity, localDescription, packages);
+                return new SimpleViolation(severity, localDescription, packages, localDescription, null);
             } else {
                 return new SimpleViolation(severity, MessageFormat.format(localDescription,
-                        arguments.toArray(new Object[arguments.size()])), packages);
+                        arguments.toArray(new Object[arguments.size()])), packages, localDescription, arguments);
             }
         }
     }
@@ -201,6 +241,30 @@ public final class SimpleViolation implements Violation {
         return description;
     }
 
+    /**
+     * Get the message format template of the description, if the violation was built with a {@link Builder}. Beyond
+     * their caps, violations with the same severity and template are aggregated by the {@link ReportCollector}. This
+     * is not considered by {@link #equals(Object)}.
+     *
+     * @return the description template, or null if the violation was not built with a builder
+     * @since 2.3.0
+     */
+    public @Nullable String getTemplate() {
+        return template;
+    }
+
+    /**
+     * Get the message format arguments of the description, if the violation was built with a {@link Builder}. This is
+     * not considered by {@link #equals(Object)}. A {@link ReportCollector} does not keep the arguments of the
+     * violations that it retains.
+     *
+     * @return the description arguments, or an empty list
+     * @since 2.3.0
+     */
+    public List<Object> getArguments() {
+        return arguments;
+    }
+
     public static SimpleViolation fromReported(final Violation violation) {
         Severity severity = violation.getSeverity();
         String description = violation.getDescription();
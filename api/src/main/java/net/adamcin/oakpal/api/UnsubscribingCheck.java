@@ -0,0 +1,64 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.osgi.annotation.versioning.ConsumerType;
+
+/**
+ * Extended interface marking progress checks that may reach a terminal state, after which they need no more path
+ * events ({@link ProgressCheck#importedPath(org.apache.jackrabbit.vault.packaging.PackageId, String, javax.jcr.Node,
+ * PathAction)} and {@link ProgressCheck#deletedPath(org.apache.jackrabbit.vault.packaging.PackageId, String,
+ * javax.jcr.Session)}), either for the package being extracted or for the remainder of the scan. The scan engine asks
+ * for the {@link #getPathSubscription()} before the first path event of each package and after every path event
+ * delivered to the check, and once unsubscribed, stops delivering path events to it until the next package is
+ * processed, or until the next {@link ProgressCheck#startedScan()}.
+ * All other events are still delivered.
+ *
+ * @since 2.3.0
+ */
+@ConsumerType
+public interface UnsubscribingCheck extends ProgressCheck {
+
+    /**
+     * The interest of a check in further path events.
+     */
+    enum PathSubscription {
+        /**
+         * Keep delivering path events.
+         */
+        SUBSCRIBED,
+
+        /**
+         * Stop delivering path events until the next package is processed.
+         */
+        UNSUBSCRIBED_FOR_PACKAGE,
+
+        /**
+         * Stop delivering path events until the next scan is started.
+         */
+        UNSUBSCRIBED_FOR_SCAN
+    }
+
+    /**
+     * Return the current interest of this check in further path events.
+     *
+     * @return the current path subscription
+     */
+    @NotNull
+    PathSubscription getPathSubscription();
+}
@@ -13,7 +13,7 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-@Version("2.2.3")
+@Version("2.3.0")
 package net.adamcin.oakpal.api;
 
 import org.osgi.annotation.versioning.Version;
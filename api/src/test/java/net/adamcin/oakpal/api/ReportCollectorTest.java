@@ -0,0 +1,159 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.api;
+
+import org.apache.jackrabbit.vault.packaging.PackageId;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ReportCollectorTest {
+
+    private static Violation pathViolation(final String path, final PackageId packageId) {
+        return SimpleViolation.builder().withSeverity(Severity.MAJOR).withDescription("bad path {0}")
+                .withArgument(path).withPackage(packageId).build();
+    }
+
+    private static List<String> descriptions(final ReportCollector collector) {
+        return collector.getReportedViolations().stream()
+                .map(Violation::getDescription)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testReportViolation_uncapped() {
+        final ReportCollector collector = new ReportCollector();
+        for (int i = 0; i < 10; i++) {
+            collector.reportViolation(pathViolation("/foo" + i, null));
+        }
+        assertEquals("expect all violations", 10, collector.getReportedViolations().size());
+        collector.clearViolations();
+        assertTrue("expect no violations", collector.getReportedViolations().isEmpty());
+    }
+
+    @Test
+    public void testReportViolation_capped() {
+        final PackageId first = PackageId.fromString("test:first");
+        final PackageId second = PackageId.fromString("test:second");
+        final ReportCollector collector = new ReportCollector();
+        collector.setMaxViolations(2);
+        assertEquals("expect max violations", 2, collector.getMaxViolations());
+        for (int i = 0; i < 10; i++) {
+            collector.reportViolation(pathViolation("/foo" + i, i % 2 == 0 ? first : second));
+        }
+        collector.reportViolation(new SimpleViolation(Severity.MINOR, "other"));
+
+        final List<Violation> violations = new ArrayList<>(collector.getReportedViolations());
+        assertEquals("expect capped violations, then aggregates", 4, violations.size());
+        assertEquals("expect first violation", "bad path /foo0", violations.get(0).getDescription());
+        assertEquals("expect aggregate", "bad path /foo2 [and 7 more like it, for example with arguments "
+                + "[/foo3], [/foo4], [/foo5]]", violations.get(2).getDescription());
+        assertEquals("expect aggregate severity", Severity.MAJOR, violations.get(2).getSeverity());
+        assertEquals("expect aggregate packages", Arrays.asList(first, second), violations.get(2).getPackages());
+        assertEquals("expect single occurrence as is", new SimpleViolation(Severity.MINOR, "other"),
+                violations.get(3));
+    }
+
+    @Test
+    public void testOpenScanScope() {
+        final ReportCollector firstCollector = new ReportCollector();
+        final ReportCollector secondCollector = new ReportCollector();
+        try (ReportCollector.Scope scope = ReportCollector.openScanScope(3)) {
+            assertEquals("expect max violations", 3, scope.getMaxViolations());
+            firstCollector.reportViolation(pathViolation("/foo1", null));
+            firstCollector.reportViolation(pathViolation("/foo2", null));
+            secondCollector.reportViolation(pathViolation("/bar1", null));
+            secondCollector.reportViolation(pathViolation("/bar2", null));
+            secondCollector.reportViolation(pathViolation("/bar3", null));
+            assertEquals("expect first uncapped", 2, firstCollector.getReportedViolations().size());
+            assertEquals("expect second capped by scope", Arrays.asList("bad path /bar1",
+                    "bad path /bar2 [and 1 more like it, for example with arguments [/bar3]]"),
+                    descriptions(secondCollector));
+
+            firstCollector.clearViolations();
+            secondCollector.reportViolation(pathViolation("/bar4", null));
+            assertEquals("expect cleared violations released to scope", Arrays.asList("bad path /bar1",
+                    "bad path /bar4", "bad path /bar2 [and 1 more like it, for example with arguments [/bar3]]"),
+                    descriptions(secondCollector));
+        }
+        firstCollector.clearViolations();
+        for (int i = 0; i < 5; i++) {
+            firstCollector.reportViolation(pathViolation("/foo" + i, null));
+        }
+        assertEquals("expect no cap after scope is closed", 5, firstCollector.getReportedViolations().size());
+    }
+
+    @Test
+    public void testOpenScanScope_listener() {
+        final ReportCollector collector = new ReportCollector();
+        final ViolationReporter reporter = collector;
+        final List<String> events = new ArrayList<>();
+        assertNull("expect no attribution without a scope", ReportCollector.attributeTo(reporter));
+        try (ReportCollector.Scope scope = ReportCollector.openScanScope(1,
+                (attributed, violation, summarized) -> events.add((attributed == reporter) + " "
+                        + violation.getDescription() + " " + summarized))) {
+            collector.reportViolation(pathViolation("/foo1", null));
+            assertNull("expect no previous reporter", ReportCollector.attributeTo(reporter));
+            collector.reportViolation(pathViolation("/foo2", null));
+            collector.reportViolation(pathViolation("/foo3", null));
+            assertSame("expect previous reporter", reporter, ReportCollector.attributeTo(null));
+        }
+        assertEquals("expect events", Arrays.asList("false bad path /foo1 false", "true bad path /foo2 false",
+                "true bad path /foo3 true"), events);
+        collector.reportViolation(pathViolation("/foo4", null));
+        assertEquals("expect no events after scope is closed", 3, events.size());
+    }
+
+    @Test
+    public void testReportViolation_dropsArguments() {
+        final ReportCollector collector = new ReportCollector();
+        collector.setMaxViolations(1);
+        for (int i = 0; i < 3; i++) {
+            collector.reportViolation(pathViolation("/foo" + i, null));
+        }
+        final List<Violation> violations = new ArrayList<>(collector.getReportedViolations());
+        assertEquals("expect retained and aggregate", 2, violations.size());
+        assertTrue("expect no arguments retained",
+                ((SimpleViolation) violations.get(0)).getArguments().isEmpty());
+        assertEquals("expect template retained", "bad path {0}",
+                ((SimpleViolation) violations.get(0)).getTemplate());
+        assertSame("expect same aggregate until another is counted", violations.get(1),
+                new ArrayList<>(collector.getReportedViolations()).get(1));
+        collector.reportViolation(pathViolation("/foo3", null));
+        assertEquals("expect aggregate to be rebuilt",
+                "bad path /foo1 [and 2 more like it, for example with arguments [/foo2], [/foo3]]",
+                new ArrayList<>(collector.getReportedViolations()).get(1).getDescription());
+    }
+
+    @Test
+    public void testReportViolation_sharesPackageIds() {
+        final ReportCollector collector = new ReportCollector();
+        collector.reportViolation(pathViolation("/foo", PackageId.fromString("my_packages:first")));
+        collector.reportViolation(pathViolation("/bar", PackageId.fromString("my_packages:first")));
+        final List<Violation> violations = new ArrayList<>(collector.getReportedViolations());
+        assertSame("expect shared package id instance", violations.get(0).getPackages().iterator().next(),
+                violations.get(1).getPackages().iterator().next());
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.api;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class RuleMatchCacheTest {
+
+    static List<Rule> rules() {
+        return Arrays.asList(
+                new Rule(RuleType.DENY, Pattern.compile("/apps/.*")),
+                new Rule(RuleType.ALLOW, Pattern.compile("/apps/[a-z]+/config(/.*)?")));
+    }
+
+    @Test
+    public void testRuleSetEquality() {
+        final RuleSet left = RuleSet.compile(rules());
+        final RuleSet right = RuleSet.compile(rules());
+        assertEquals("same rules", left, right);
+        assertEquals("same hashCode", left.hashCode(), right.hashCode());
+        assertNotEquals("different default", left, RuleSet.compile(rules(), list -> Rules.DEFAULT_DENY));
+        assertNotEquals("different flags", RuleSet.compile(Collections.singletonList(
+                        new Rule(RuleType.DENY, Pattern.compile("/apps", Pattern.CASE_INSENSITIVE)))),
+                RuleSet.compile(Collections.singletonList(new Rule(RuleType.DENY, Pattern.compile("/apps")))));
+    }
+
+    @Test
+    public void testLastMatch_sharedAcrossEqualRuleSets() {
+        final RuleMatchCache cache = new RuleMatchCache(10);
+        final RuleSet left = RuleSet.compile(rules());
+        final RuleSet right = RuleSet.compile(rules());
+        final Rule fromLeft = cache.lastMatch(left, "/apps/foo/config/bar");
+        assertSame("left match", left.getRules().get(1), fromLeft);
+        assertSame("right match memoized from left", fromLeft, cache.lastMatch(right, "/apps/foo/config/bar"));
+        assertEquals("one entry", 1, cache.size());
+        assertSame("default", left.getDefaultRule(), cache.lastMatch(left, "/content"));
+        assertEquals("two entries", 2, cache.size());
+        cache.clear();
+        assertEquals("cleared", 0, cache.size());
+    }
+
+    @Test
+    public void testLastMatch_evictsLeastRecentlyUsed() {
+        final RuleMatchCache cache = new RuleMatchCache(2);
+        final RuleSet ruleSet = RuleSet.compile(rules());
+        cache.lastMatch(ruleSet, "/apps/a");
+        cache.lastMatch(ruleSet, "/apps/b");
+        cache.lastMatch(ruleSet, "/apps/a");
+        cache.lastMatch(ruleSet, "/apps/c");
+        assertEquals("bounded", 2, cache.size());
+        final RuleSet other = RuleSet.compile(Collections.singletonList(
+                new Rule(RuleType.ALLOW, Pattern.compile("/apps/.*"))));
+        // an entry for an equal rule set returns the memoized rule instance from the original rule set
+        assertSame("a retained", ruleSet.getRules().get(0), cache.lastMatch(RuleSet.compile(rules()), "/apps/a"));
+        assertSame("other rule set not shared", other.getRules().get(0), cache.lastMatch(other, "/apps/a"));
+    }
+
+    @Test
+    public void testLastMatch_passThrough() {
+        final RuleMatchCache cache = new RuleMatchCache(-1);
+        assertEquals("max entries", 0, cache.getMaxEntries());
+        final RuleSet ruleSet = RuleSet.compile(rules());
+        assertSame("match", ruleSet.getRules().get(0), cache.lastMatch(ruleSet, "/apps/a"));
+        assertEquals("not memoized", 0, cache.size());
+    }
+
+    @Test
+    public void testScanScope() {
+        final RuleMatchCache outside = RuleMatchCache.forCurrentScan();
+        assertEquals("pass through outside of scan", 0, outside.getMaxEntries());
+        try (RuleMatchCache.Scope scope = RuleMatchCache.openScanScope(100)) {
+            assertSame("scope cache", scope.getCache(), RuleMatchCache.forCurrentScan());
+            RuleMatchCache.forCurrentScan().lastMatch(RuleSet.compile(rules()), "/apps/a");
+            assertEquals("memoized", 1, scope.getCache().size());
+            try (RuleMatchCache.Scope nested = RuleMatchCache.openScanScope(100)) {
+                assertNotSame("nested cache", scope.getCache(), nested.getCache());
+                assertSame("nested scope cache", nested.getCache(), RuleMatchCache.forCurrentScan());
+            }
+            assertSame("restored scope cache", scope.getCache(), RuleMatchCache.forCurrentScan());
+        }
+        assertSame("pass through after scan", outside, RuleMatchCache.forCurrentScan());
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.api;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static net.adamcin.oakpal.api.RuleSetTest.PATTERNS;
+import static net.adamcin.oakpal.api.RuleSetTest.VALUES;
+import static net.adamcin.oakpal.api.RuleSetTest.rulesFor;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class RuleSetGroupTest {
+
+    static void assertSameAsLastMatches(final List<RuleSet> ruleSets, final List<String> values) {
+        final RuleSetGroup group = RuleSetGroup.compile(ruleSets);
+        assertEquals("rule sets", ruleSets, group.getRuleSets());
+        for (String value : values) {
+            final Rule[] matches = group.lastMatches(value);
+            assertEquals("one match per rule set", ruleSets.size(), matches.length);
+            for (int i = 0; i < ruleSets.size(); i++) {
+                assertSame("rule set " + i + " " + ruleSets.get(i) + " for value " + value,
+                        ruleSets.get(i).lastMatch(value), matches[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testLastMatches_equivalence() {
+        final List<RuleSet> ruleSets = new ArrayList<>();
+        final List<String> patterns = new ArrayList<>(PATTERNS);
+        for (int rotation = 0; rotation < patterns.size(); rotation += 3) {
+            ruleSets.add(RuleSet.compile(rulesFor(patterns.subList(0, rotation + 1), rotation)));
+            Collections.rotate(patterns, 1);
+        }
+        for (int i = 0; i < PATTERNS.size(); i++) {
+            ruleSets.add(RuleSet.compile(rulesFor(Collections.singletonList(PATTERNS.get(i)), i)));
+        }
+        ruleSets.add(RuleSet.compile(Collections.emptyList()));
+        assertSameAsLastMatches(ruleSets, VALUES);
+    }
+
+    @Test
+    public void testLastMatches_prefixGlobAndDuplicates() {
+        final RuleSet first = RuleSet.compile(Arrays.asList(
+                Rules.glob(RuleType.DENY, "/apps/**"),
+                Rules.prefix(RuleType.ALLOW, "/apps/mysite"),
+                new Rule(RuleType.DENY, Pattern.compile("/apps/mysite/[a-z]+/secret"))));
+        final RuleSet second = RuleSet.compile(Arrays.asList(
+                Rules.glob(RuleType.INCLUDE, "/content/**"),
+                Rules.glob(RuleType.EXCLUDE, "/content/dam**"),
+                new Rule(RuleType.INCLUDE, Pattern.compile("/apps/mysite(/.*)?"))));
+        final RuleSet firstAgain = RuleSet.compile(new ArrayList<>(first.getRules()));
+        final List<String> values = new ArrayList<>(VALUES);
+        values.addAll(Arrays.asList("/apps/mysite/foo/secret", "/content/a", "/content/dam/a", "/content/damx"));
+        assertSameAsLastMatches(Arrays.asList(first, second, firstAgain, second), values);
+        assertSameAsLastMatches(Collections.emptyList(), values);
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.api;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RuleSetTest {
+
+    static final List<String> PATTERNS = Arrays.asList(
+            "/apps/mysite(/.*)?",
+            "^/apps/mysite(/.*)?$",
+            "/apps/mysite(?:/.*)?",
+            "/content/dam/.*",
+            "/content/dam/.+",
+            "/etc/tags",
+            "^/etc/tags$",
+            "/etc/tags\\(/.*\\)?",
+            "/etc/tags\\.json",
+            "/etc/tags.json",
+            "/apps/[^/]+/config(/.*)?",
+            "(?i)/APPS/.*",
+            "/apps/(foo|bar)/\\1",
+            "/apps/\\Qa.b\\E(/.*)?",
+            "/apps/\\Qunterminated",
+            "/apps/x(?x) # comment",
+            "/libs/.*/install/.*",
+            ".*",
+            "/apps\\$",
+            "my_packages:.*",
+            "my_packages:foo:1\\.0"
+    );
+
+    static final List<String> VALUES = Arrays.asList(
+            "", "/", "/apps", "/apps/mysite", "/apps/mysite/", "/apps/mysite/foo", "/apps/mysitex",
+            "/apps/mysite/foo\nbar", "/apps/mysite\n", "/apps/mysite/a b",
+            "/content/dam", "/content/dam/", "/content/dam/foo", "/content/dam/foo\rbar",
+            "/etc/tags", "/etc/tags/", "/etc/tags(/foo)", "/etc/tags.json", "/etc/tagsxjson",
+            "/apps/acme/config", "/apps/acme/config/foo", "/APPS/foo", "/apps/foo/foo", "/apps/foo/bar",
+            "/apps/a.b", "/apps/a.b/c", "/apps/axb", "/apps/x", "/apps/x ", "/libs/foo/install/bar.jar",
+            "/apps$", "/apps\\$", "my_packages:foo:1.0", "my_packages:foo:1x0", "other:foo:1.0"
+    );
+
+    static List<Rule> rulesFor(final List<String> patterns, final int offset) {
+        final List<Rule> rules = new ArrayList<>();
+        final RuleType[] types = RuleType.values();
+        for (int i = 0; i < patterns.size(); i++) {
+            rules.add(new Rule(types[(i + offset) % types.length], Pattern.compile(patterns.get(i))));
+        }
+        return rules;
+    }
+
+    static void assertSameAsLastMatch(final List<Rule> rules) {
+        final RuleSet ruleSet = RuleSet.compile(rules);
+        for (String value : VALUES) {
+            assertSame("rules " + rules + " for value " + value,
+                    Rules.lastMatch(rules, value), ruleSet.lastMatch(value));
+        }
+    }
+
+    @Test
+    public void testLastMatch_equivalence() {
+        // each pattern alone
+        for (int i = 0; i < PATTERNS.size(); i++) {
+            for (int offset = 0; offset < RuleType.values().length; offset++) {
+                assertSameAsLastMatch(rulesFor(Collections.singletonList(PATTERNS.get(i)), offset));
+            }
+        }
+        // all patterns, forward, reversed and rotated, to exercise different combined runs
+        final List<String> patterns = new ArrayList<>(PATTERNS);
+        for (int rotation = 0; rotation < patterns.size(); rotation++) {
+            assertSameAsLastMatch(rulesFor(patterns, rotation));
+            Collections.rotate(patterns, 1);
+        }
+        Collections.reverse(patterns);
+        assertSameAsLastMatch(rulesFor(patterns, 0));
+    }
+
+    @Test
+    public void testLastMatch_defaults() {
+        assertSame("empty rules", Rules.DEFAULT_INCLUDE, RuleSet.compile(null).lastMatch("/foo"));
+        assertSame("empty rules", Rules.DEFAULT_INCLUDE, RuleSet.compile(Collections.emptyList()).lastMatch("/foo"));
+        final List<Rule> includeFirst = Collections.singletonList(
+                new Rule(RuleType.INCLUDE, Pattern.compile("/foo")));
+        assertSame("fuzzy default", Rules.DEFAULT_EXCLUDE, RuleSet.compile(includeFirst).lastMatch("/bar"));
+        assertSame("fuzzy default", Rules.DEFAULT_EXCLUDE, RuleSet.compile(includeFirst).getDefaultRule());
+        assertSame("null selector", Rules.DEFAULT_INCLUDE, RuleSet.compile(includeFirst, null).lastMatch("/bar"));
+        assertSame("custom selector", Rules.DEFAULT_DENY,
+                RuleSet.compile(includeFirst, rules -> Rules.DEFAULT_DENY).lastMatch("/bar"));
+        assertSame("matched", includeFirst.get(0), RuleSet.compile(includeFirst).lastMatch("/foo"));
+        assertEquals("rules", includeFirst, RuleSet.compile(includeFirst).getRules());
+    }
+
+    @Test
+    public void testLastMatch_compileFlags() {
+        final List<Rule> rules = Arrays.asList(
+                new Rule(RuleType.DENY, Pattern.compile("/foo", Pattern.CASE_INSENSITIVE)),
+                new Rule(RuleType.ALLOW, Pattern.compile("/bar.*", Pattern.DOTALL)),
+                new Rule(RuleType.DENY, Pattern.compile("/b[a]z.*", Pattern.DOTALL)));
+        final RuleSet ruleSet = RuleSet.compile(rules);
+        assertSame("case insensitive", rules.get(0), ruleSet.lastMatch("/FOO"));
+        assertSame("dotall", rules.get(1), ruleSet.lastMatch("/bar\nbaz"));
+        assertSame("dotall", rules.get(2), ruleSet.lastMatch("/baz\nbar"));
+    }
+
+    @Test
+    public void testLiteral_tryCompile() {
+        final RuleSet.Literal tree = RuleSet.Literal.tryCompile(0,
+                new Rule(RuleType.DENY, Pattern.compile("^/apps/my\\-site(/.*)?$")));
+        assertEquals("/apps/my-site", tree.getLiteral());
+        assertSame(RuleSet.Literal.Kind.LINE_TREE, tree.getKind());
+        final RuleSet.Literal prefix = RuleSet.Literal.tryCompile(0,
+                new Rule(RuleType.DENY, Pattern.compile("/content/dam/.*")));
+        assertEquals("/content/dam/", prefix.getLiteral());
+        assertSame(RuleSet.Literal.Kind.LINE_PREFIX, prefix.getKind());
+        final RuleSet.Literal exact = RuleSet.Literal.tryCompile(0,
+                new Rule(RuleType.DENY, Pattern.compile("/etc/tags\\.json")));
+        assertEquals("/etc/tags.json", exact.getLiteral());
+        assertSame(RuleSet.Literal.Kind.EXACT, exact.getKind());
+        assertNull("escaped suffix", RuleSet.Literal.tryCompileRegex(0, Pattern.compile("/etc/tags\\.*")));
+        assertNull("character class", RuleSet.Literal.tryCompileRegex(0, Pattern.compile("/etc/[a-z]+")));
+        assertNull("flags", RuleSet.Literal.tryCompileRegex(0, Pattern.compile("/etc", Pattern.COMMENTS)));
+
+        final RuleSet.Literal prefixRule = RuleSet.Literal.tryCompile(0, Rules.prefix(RuleType.DENY, "/apps/.*"));
+        assertEquals("/apps/.*", prefixRule.getLiteral());
+        assertSame(RuleSet.Literal.Kind.PREFIX, prefixRule.getKind());
+        final RuleSet.Literal globTree = RuleSet.Literal.tryCompile(0, Rules.glob(RuleType.DENY, "/apps/mysite/**"));
+        assertEquals("/apps/mysite", globTree.getLiteral());
+        assertSame(RuleSet.Literal.Kind.TREE, globTree.getKind());
+        final RuleSet.Literal globPrefix = RuleSet.Literal.tryCompile(0, Rules.glob(RuleType.DENY, "/content/dam**"));
+        assertEquals("/content/dam", globPrefix.getLiteral());
+        assertSame(RuleSet.Literal.Kind.PREFIX, globPrefix.getKind());
+        final RuleSet.Literal globExact = RuleSet.Literal.tryCompile(0, Rules.glob(RuleType.DENY, "/etc/tags.json"));
+        assertEquals("/etc/tags.json", globExact.getLiteral());
+        assertSame(RuleSet.Literal.Kind.EXACT, globExact.getKind());
+        assertNull("inner wildcard", RuleSet.Literal.tryCompile(0, Rules.glob(RuleType.DENY, "/apps/*/config/**")));
+        assertNull("single char", RuleSet.Literal.tryCompile(0, Rules.glob(RuleType.DENY, "/apps/?")));
+    }
+
+    @Test
+    public void testLastMatch_prefixAndGlobEquivalence() {
+        final List<Rule> rules = Arrays.asList(
+                Rules.glob(RuleType.DENY, "/apps/**"),
+                Rules.prefix(RuleType.ALLOW, "/apps/mysite"),
+                new Rule(RuleType.DENY, Pattern.compile("/apps/mysite/[a-z]+/secret")),
+                Rules.glob(RuleType.ALLOW, "/apps/*/config/**"),
+                Rules.glob(RuleType.DENY, "/content/**/jcr:content"),
+                Rules.glob(RuleType.ALLOW, "/content/dam**"),
+                Rules.glob(RuleType.DENY, "/etc/tags/?"),
+                Rules.prefix(RuleType.DENY, "my_packages:"),
+                Rules.glob(RuleType.ALLOW, "/content/mysite/**"),
+                new Rule(RuleType.DENY, Pattern.compile("/content/mysite/.*")));
+        final List<String> values = new ArrayList<>(VALUES);
+        values.addAll(Arrays.asList("/apps/mysite/foo/secret", "/apps/mysite/FOO/secret", "/apps/other/config",
+                "/apps/other/config/x\ny", "/apps/other/sub/config", "/content/jcr:content", "/content/a/jcr:content",
+                "/content/a/b/jcr:content", "/content/ajcr:content", "/content/dam\n", "/etc/tags/a", "/etc/tags/ab",
+                "/etc/tags//", "/content/mysite", "/content/mysite/\n", "/content/mysite/x", "/content/mysitex"));
+        final RuleSet ruleSet = RuleSet.compile(rules);
+        for (String value : values) {
+            assertSame("value " + value, Rules.lastMatch(rules, value), ruleSet.lastMatch(value));
+        }
+        final List<Rule> reversed = new ArrayList<>(rules);
+        Collections.reverse(reversed);
+        final RuleSet reversedSet = RuleSet.compile(reversed);
+        for (String value : values) {
+            assertSame("reversed value " + value, Rules.lastMatch(reversed, value), reversedSet.lastMatch(value));
+        }
+    }
+
+    @Test
+    public void testIsCombinable() {
+        assertTrue(RuleSet.isCombinable("/apps/[^/]+/config(/.*)?"));
+        assertTrue(RuleSet.isCombinable("/apps/\\Qa\\1\\E"));
+        assertFalse(RuleSet.isCombinable("/apps/(foo)/\\1"));
+        assertFalse(RuleSet.isCombinable("/apps/\\Qfoo"));
+        assertFalse(RuleSet.isCombinable("(?x)/apps # comment"));
+        assertFalse(RuleSet.isCombinable("(?<" + RuleSet.GROUP_PREFIX + "0>foo)"));
+    }
+}
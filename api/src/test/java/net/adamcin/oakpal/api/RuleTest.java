@@ -240,4 +240,74 @@ public class RuleTest {
         assertSame("expect alpha rule", deniesLetters, matchedAlpha);
 
     }
+
+    @Test
+    public void testPrefixAndGlob_json() {
+        final Rule prefix = Rules.fromJson(key(Rule.keys().type(), "deny").key(Rule.keys().prefix(), "/apps/").get());
+        assertEquals("expect type", RuleType.DENY, prefix.getType());
+        assertSame("expect syntax", Rule.Syntax.PREFIX, prefix.getSyntax());
+        assertEquals("expect expression", "/apps/", prefix.getExpression());
+        assertEquals("expect json", key(Rule.keys().type(), "DENY").key(Rule.keys().prefix(), "/apps/").get(),
+                prefix.toJson());
+        assertEquals("expect toString", "DENY:prefix:/apps/", prefix.toString());
+
+        final Rule glob = Rules.fromJson(key(Rule.keys().type(), "allow").key(Rule.keys().glob(), "/apps/**").get());
+        assertSame("expect syntax", Rule.Syntax.GLOB, glob.getSyntax());
+        assertEquals("expect json", key(Rule.keys().type(), "ALLOW").key(Rule.keys().glob(), "/apps/**").get(),
+                glob.toJson());
+        assertEquals("expect equal from json", glob, Rules.fromJson(glob.toJson()));
+        assertNotEquals("expect not equal to regex with same pattern", glob,
+                new Rule(RuleType.ALLOW, glob.getPattern()));
+        assertSame("expect regex syntax", Rule.Syntax.REGEX,
+                new Rule(RuleType.ALLOW, Pattern.compile("/apps")).getSyntax());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testPrefix_null() {
+        Rules.prefix(RuleType.DENY, null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testGlob_null() {
+        Rules.glob(RuleType.DENY, null);
+    }
+
+    @Test
+    public void testPrefix_matches() {
+        final Rule prefix = Rules.prefix(RuleType.DENY, "/apps/.*");
+        assertTrue("literal prefix", prefix.matches("/apps/.*/foo"));
+        assertTrue("any chars", prefix.matches("/apps/.*\n"));
+        assertFalse("not a regex", prefix.matches("/apps/foo"));
+    }
+
+    @Test
+    public void testGlob_matches() {
+        final Map<String, List<String>> matching = new HashMap<>();
+        final Map<String, List<String>> notMatching = new HashMap<>();
+        matching.put("/apps/mysite/**", asList("/apps/mysite", "/apps/mysite/", "/apps/mysite/a/b", "/apps/mysite/\n"));
+        notMatching.put("/apps/mysite/**", asList("/apps/mysitex", "/apps", "/apps/mysite\n"));
+        matching.put("/apps/*/config/**", asList("/apps/a/config", "/apps//config/x", "/apps/a.b/config/c/d"));
+        notMatching.put("/apps/*/config/**", asList("/apps/a/b/config", "/apps/a/configx"));
+        matching.put("/content/**/jcr:content", asList("/content/jcr:content", "/content/a/b/jcr:content"));
+        notMatching.put("/content/**/jcr:content", asList("/contentjcr:content", "/content/ajcr:content"));
+        matching.put("/etc/tags/?", asList("/etc/tags/a", "/etc/tags/\n"));
+        notMatching.put("/etc/tags/?", asList("/etc/tags/", "/etc/tags/ab", "/etc/tags//"));
+        matching.put("my_packages:*", asList("my_packages:", "my_packages:foo:1.0"));
+        notMatching.put("my_packages:*", asList("my_packages", "other:my_packages:"));
+        matching.put("**", asList("", "/", "/a/b\nc"));
+        matching.put("/a.b/[x]/\\Q/**", asList("/a.b/[x]/\\Q", "/a.b/[x]/\\Q/y"));
+        notMatching.put("/a.b/[x]/\\Q/**", asList("/axb/[x]/\\Q", "/a.b/x/\\Q"));
+        for (Map.Entry<String, List<String>> entry : matching.entrySet()) {
+            final Rule glob = Rules.glob(RuleType.ALLOW, entry.getKey());
+            for (String value : entry.getValue()) {
+                assertTrue(entry.getKey() + " should match " + value, glob.matches(value));
+            }
+        }
+        for (Map.Entry<String, List<String>> entry : notMatching.entrySet()) {
+            final Rule glob = Rules.glob(RuleType.ALLOW, entry.getKey());
+            for (String value : entry.getValue()) {
+                assertFalse(entry.getKey() + " should not match " + value, glob.matches(value));
+            }
+        }
+    }
 }
@@ -25,10 +25,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.function.UnaryOperator;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
@@ -231,4 +233,41 @@ public class SimpleViolationTest {
                 .withDescription(key).build();
         assertEquals("expect reverse string", "first two then one", reversed.getDescription());
     }
+
+    @Test
+    public void builder_testTemplate() {
+        final SimpleViolation withArgs = SimpleViolation.builder()
+                .withDescription(new String("path {0} is bad")).withArgument("/foo").build();
+        assertEquals("expect description", "path /foo is bad", withArgs.getDescription());
+        assertSame("expect interned template", "path {0} is bad", withArgs.getTemplate());
+        assertEquals("expect arguments", Collections.singletonList("/foo"), withArgs.getArguments());
+        assertEquals("expect template ignored by equals", withArgs,
+                new SimpleViolation(Severity.MAJOR, "path /foo is bad"));
+
+        final SimpleViolation noArgs = new SimpleViolation(Severity.MINOR, "plain");
+        assertNull("expect no template", noArgs.getTemplate());
+        assertTrue("expect no arguments", noArgs.getArguments().isEmpty());
+
+        final SimpleViolation withoutArgs = withArgs.retained(UnaryOperator.identity());
+        assertTrue("expect arguments dropped", withoutArgs.getArguments().isEmpty());
+        assertSame("expect template kept", withArgs.getTemplate(), withoutArgs.getTemplate());
+        assertEquals("expect equal violation", withArgs, withoutArgs);
+        assertSame("expect same violation without arguments", noArgs, noArgs.retained(UnaryOperator.identity()));
+
+        final SimpleViolation formatted = SimpleViolation.builder()
+                .withDescription(new String("path /foo is bad")).build();
+        assertNotSame("expect description without arguments not interned", "path /foo is bad",
+                formatted.getDescription());
+    }
+
+    @Test
+    public void testRetained() {
+        final PackageId first = PackageId.fromString("my_packages:first");
+        final PackageId firstAgain = PackageId.fromString("my_packages:first");
+        final SimpleViolation violation = new SimpleViolation(Severity.MINOR, "one", firstAgain);
+        final SimpleViolation retained = violation.retained(packageId -> first);
+        assertSame("expect shared package id instance", first, retained.getPackages().iterator().next());
+        assertEquals("expect equal violation", violation, retained);
+        assertSame("expect same violation with shared package ids", retained, retained.retained(packageId -> first));
+    }
 }
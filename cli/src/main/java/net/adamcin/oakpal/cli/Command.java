@@ -6,12 +6,15 @@ import net.adamcin.oakpal.api.Severity;
 import net.adamcin.oakpal.api.Violation;
 import net.adamcin.oakpal.core.CheckReport;
 import net.adamcin.oakpal.core.DefaultErrorListener;
+import net.adamcin.oakpal.core.DiscoveryIndex;
 import net.adamcin.oakpal.core.FileBlobMemoryNodeStore;
 import net.adamcin.oakpal.core.OakMachine;
 import net.adamcin.oakpal.core.OakpalPlan;
+import net.adamcin.oakpal.core.ReportListener;
 import org.apache.jackrabbit.oak.plugins.memory.MemoryNodeStore;
 import org.apache.jackrabbit.oak.spi.state.NodeStore;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -84,11 +87,20 @@ final class Command {
         /* ------------ */
         /* perform scan */
         /* ------------ */
-        final Result<List<CheckReport>> scanResult = OakpalPlan.fromJson(planUrl)
-                .flatMap(result1(plan ->
-                        opts.applyOverrides(plan).toOakMachineBuilder(new DefaultErrorListener(), cl)
-                                .withNodeStoreSupplier(getNodeStoreSupplier(opts))))
-                .map(OakMachine.Builder::build).flatMap(oak -> runOakScan(opts, oak));
+        final Result<List<CheckReport>> scanResult;
+        try {
+            scanResult = OakpalPlan.fromJson(planUrl)
+                    .flatMap(result1(plan ->
+                            opts.applyOverrides(plan).toOakMachineBuilder(new DefaultErrorListener(), cl,
+                                            new DiscoveryIndex(opts.getCacheDir().toPath()
+                                                    .resolve("discovery").toFile()))
+                                    .withNodeStoreSupplier(getNodeStoreSupplier(opts))
+                                    .withReportListener(getReportListener(opts))
+                                    .withFailFastSeverity(opts.isFailFast() ? opts.getFailOnSeverity() : null)))
+                    .map(OakMachine.Builder::build).flatMap(oak -> runOakScan(opts, oak));
+        } finally {
+            opts.releaseOpear();
+        }
 
         if (scanResult.isFailure()) {
             return console.printLineErr(scanResult.teeLogError().getError().get().getMessage())
@@ -96,10 +108,18 @@ final class Command {
         } else {
             final List<CheckReport> reports = scanResult.getOrDefault(Collections.emptyList());
             final Optional<Integer> highestSeverity = getHighestReportSeverity(opts, reports);
+            if (opts.isStream()) {
+                // the violations have already been printed by the report listener
+                return IO.unit(highestSeverity.orElse(0));
+            }
             return printReports(reports, opts.getPrinter()).add(IO.unit(highestSeverity.orElse(0)));
         }
     }
 
+    @Nullable ReportListener getReportListener(final @NotNull Options opts) {
+        return opts.isStream() ? new StreamReportListener(opts.getPrinter()) : null;
+    }
+
     Result<List<CheckReport>> runOakScan(final @NotNull Options opts, final @NotNull OakMachine oak) {
         return result0(() -> oak.scanPackages(opts.getScanFiles())).get();
     }
@@ -187,6 +207,22 @@ final class Command {
                 case "--cache":
                     builder.setCacheDir(isNoOpt ? null : console.getCwd().toPath().resolve(args[++i]).toFile());
                     break;
+                case "--opear-cache-limit":
+                    if (isNoOpt) {
+                        builder.setOpearCacheLimitMb(0L);
+                    } else {
+                        final String limitArg = args[++i];
+                        final Result<Long> limitResult = result1((String value) -> Long.parseLong(value))
+                                .apply(limitArg);
+                        if (limitResult.isFailure()) {
+                            return Result.failure(String.format("%s is not a number of megabytes.", limitArg));
+                        }
+                        limitResult.forEach(builder::setOpearCacheLimitMb);
+                    }
+                    break;
+                case "--opear-in-place":
+                    builder.setOpearInPlace(!isNoOpt);
+                    break;
                 case "-o":
                 case "--outfile":
                     builder.setOutFile(isNoOpt ? null : console.getCwd().toPath().resolve(args[++i]).toFile());
@@ -195,6 +231,12 @@ final class Command {
                 case "--json":
                     builder.setOutputJson(!isNoOpt);
                     break;
+                case "--stream":
+                    builder.setStream(!isNoOpt);
+                    break;
+                case "--fail-fast":
+                    builder.setFailFast(!isNoOpt);
+                    break;
                 case "--hooks":
                     builder.setNoHooks(isNoOpt);
                     break;
@@ -36,6 +36,7 @@ import static net.adamcin.oakpal.api.Fun.result1;
 
 final class Options {
     static final String CACHE_DIR_NAME = ".oakpal-cache";
+    static final long DEFAULT_OPEAR_CACHE_LIMIT_MB = 256L;
     static final Function<StructuredMessage, IO<Nothing>> EMPTY_PRINTER = message -> IO.empty;
     static final Options DEFAULT_OPTIONS = new Options();
     private final boolean justHelp;
@@ -57,6 +58,9 @@ final class Options {
     private final List<File> scanFiles;
     private final Function<StructuredMessage, IO<Nothing>> printer;
     private final Severity failOnSeverity;
+    private final boolean stream;
+    private final boolean failFast;
+    private final Opear opear;
 
     Options() {
         this(true, true, false,
@@ -69,7 +73,10 @@ final class Options {
                 Collections.emptyList(), false,
                 Collections.emptyList(),
                 EMPTY_PRINTER,
-                Severity.MAJOR);
+                Severity.MAJOR,
+                false,
+                false,
+                null);
     }
 
     Options(final boolean justHelp,
@@ -90,7 +97,10 @@ final class Options {
             final boolean noHooks,
             final @NotNull List<File> scanFiles,
             final @NotNull Function<StructuredMessage, IO<Nothing>> printer,
-            final @NotNull Severity failOnSeverity) {
+            final @NotNull Severity failOnSeverity,
+            final boolean stream,
+            final boolean failFast,
+            final @Nullable Opear opear) {
         this.justHelp = justHelp;
         this.justVersion = justVersion;
         this.storeBlobs = storeBlobs;
@@ -110,6 +120,9 @@ final class Options {
         this.scanFiles = scanFiles;
         this.printer = printer;
         this.failOnSeverity = failOnSeverity;
+        this.stream = stream;
+        this.failFast = failFast;
+        this.opear = opear;
     }
 
     public boolean isJustHelp() {
@@ -188,6 +201,28 @@ final class Options {
         return failOnSeverity;
     }
 
+    public boolean isStream() {
+        return stream;
+    }
+
+    public boolean isFailFast() {
+        return failFast;
+    }
+
+    public @Nullable Opear getOpear() {
+        return opear;
+    }
+
+    /**
+     * Release the lease on the opear cache directory, if the opear was extracted to the cache, once the scan no longer
+     * uses the scan class loader.
+     */
+    public void releaseOpear() {
+        if (opear instanceof OpearFile) {
+            ((OpearFile) opear).release();
+        }
+    }
+
     boolean hasOverrides() {
         return noHooks || !getPreInstallFiles().isEmpty() || !getRepoInitFiles().isEmpty()
                 || !getRunModes().isEmpty() || noRunModes;
@@ -291,6 +326,10 @@ final class Options {
         private File opearFile;
         private List<File> scanFiles = new ArrayList<>();
         private Severity failOnSeverity;
+        private boolean stream;
+        private boolean failFast;
+        private long opearCacheLimitMb = DEFAULT_OPEAR_CACHE_LIMIT_MB;
+        private boolean opearInPlace;
 
         public Builder setJustHelp(final boolean justHelp) {
             this.justHelp = justHelp;
@@ -402,6 +441,26 @@ final class Options {
             return this;
         }
 
+        public Builder setStream(final boolean stream) {
+            this.stream = stream;
+            return this;
+        }
+
+        public Builder setFailFast(final boolean failFast) {
+            this.failFast = failFast;
+            return this;
+        }
+
+        public Builder setOpearCacheLimitMb(final long opearCacheLimitMb) {
+            this.opearCacheLimitMb = opearCacheLimitMb;
+            return this;
+        }
+
+        public Builder setOpearInPlace(final boolean opearInPlace) {
+            this.opearInPlace = opearInPlace;
+            return this;
+        }
+
         Result<Opear> buildOpear(final @NotNull Console console, final @NotNull File opearCache) {
             final Result<Opear> baseOpear;
             if (planFile != null) {
@@ -425,11 +484,18 @@ final class Options {
             return Result.success(opearResolved.getAbsoluteFile())
                     .flatMap(file -> {
                         if (file.isFile()) {
-                            try (JarFile jarFile = new JarFile(file, true)) {
-                                return OpearFile.fromJar(jarFile, opearCache);
-                            } catch (IOException e) {
-                                return Result.failure(String.format("%s is not a jar format file", file.getPath()), e);
-                            }
+                            final Result<OpearFile> inPlace = opearInPlace
+                                    ? OpearFile.fromJarInPlace(file)
+                                    : Result.failure("opear in place is disabled");
+                            return inPlace.orElse(() -> {
+                                try (JarFile jarFile = new JarFile(file, true)) {
+                                    return OpearFile.fromJar(jarFile, opearCache,
+                                            Math.max(0L, opearCacheLimitMb) * 1024L * 1024L);
+                                } catch (IOException e) {
+                                    return Result.failure(String.format("%s is not a jar format file",
+                                            file.getPath()), e);
+                                }
+                            });
                         } else {
                             return OpearFile.fromDirectory(file);
                         }
@@ -468,7 +534,8 @@ final class Options {
                                             planFileBaseDir, preInstallFiles, repoInitFiles, runModes, noRunModes,
                                             extendedClassPathFiles, noHooks, scanFiles, writer,
                                             Optional.ofNullable(failOnSeverity)
-                                                    .orElse(DEFAULT_OPTIONS.failOnSeverity))))));
+                                                    .orElse(DEFAULT_OPTIONS.failOnSeverity),
+                                            stream, failFast, opear)))));
         }
     }
 
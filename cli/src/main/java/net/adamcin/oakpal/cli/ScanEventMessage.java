@@ -0,0 +1,88 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.cli;
+
+import net.adamcin.oakpal.api.Violation;
+import org.apache.jackrabbit.vault.packaging.PackageId;
+import org.jetbrains.annotations.NotNull;
+
+import javax.json.JsonObject;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static net.adamcin.oakpal.api.JavaxJson.key;
+
+/**
+ * A single line of streamed scan output, written while the scan is running when --stream is specified. Rendered with
+ * --json, each message is one line of newline-delimited JSON with an "event" key.
+ */
+final class ScanEventMessage implements StructuredMessage {
+    static final String KEY_EVENT = "event";
+    static final String KEY_CHECK_NAME = "checkName";
+    static final String KEY_PACKAGE_ID = "packageId";
+    static final String KEY_PRE_INSTALL = "preInstall";
+    static final String EVENT_STARTED_SCAN = "startedScan";
+    static final String EVENT_SCANNED_PACKAGE = "scannedPackage";
+    static final String EVENT_VIOLATION = "violation";
+    static final String EVENT_FINISHED_SCAN = "finishedScan";
+
+    private final String text;
+    private final JsonObject json;
+
+    private ScanEventMessage(final @NotNull String text, final @NotNull JsonObject json) {
+        this.text = text;
+        this.json = json;
+    }
+
+    static ScanEventMessage startedScan() {
+        return new ScanEventMessage("started scan", key(KEY_EVENT, EVENT_STARTED_SCAN).get());
+    }
+
+    static ScanEventMessage scannedPackage(final @NotNull PackageId packageId, final boolean preInstall) {
+        return new ScanEventMessage(String.format("scanned %spackage: %s", preInstall ? "preinstall " : "", packageId),
+                key(KEY_EVENT, EVENT_SCANNED_PACKAGE)
+                        .key(KEY_PACKAGE_ID, packageId.toString())
+                        .key(KEY_PRE_INSTALL, preInstall).get());
+    }
+
+    static ScanEventMessage violation(final @NotNull String checkName, final @NotNull Violation violation) {
+        final Set<String> packageIds = violation.getPackages().stream().map(PackageId::getDownloadName)
+                .collect(Collectors.toSet());
+        final String text = !packageIds.isEmpty()
+                ? String.format("violation: %s +- <%s> %s %s", checkName, violation.getSeverity(),
+                violation.getDescription(), packageIds)
+                : String.format("violation: %s +- <%s> %s", checkName, violation.getSeverity(),
+                violation.getDescription());
+        return new ScanEventMessage(text, key(KEY_EVENT, EVENT_VIOLATION)
+                .key(KEY_CHECK_NAME, checkName)
+                .and(violation.toJson()).get());
+    }
+
+    static ScanEventMessage finishedScan() {
+        return new ScanEventMessage("finished scan", key(KEY_EVENT, EVENT_FINISHED_SCAN).get());
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    @Override
+    public JsonObject toJson() {
+        return json;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.cli;
+
+import net.adamcin.oakpal.api.Nothing;
+import net.adamcin.oakpal.api.Violation;
+import net.adamcin.oakpal.core.ReportListener;
+import org.apache.jackrabbit.vault.packaging.PackageId;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Function;
+
+/**
+ * Prints a {@link ScanEventMessage} for each scan event as soon as it happens.
+ */
+final class StreamReportListener implements ReportListener {
+    private final Function<StructuredMessage, IO<Nothing>> printer;
+
+    StreamReportListener(final @NotNull Function<StructuredMessage, IO<Nothing>> printer) {
+        this.printer = printer;
+    }
+
+    @Override
+    public void startedScan() {
+        printer.apply(ScanEventMessage.startedScan()).get();
+    }
+
+    @Override
+    public void scannedPackage(final @NotNull PackageId packageId, final boolean preInstall) {
+        printer.apply(ScanEventMessage.scannedPackage(packageId, preInstall)).get();
+    }
+
+    @Override
+    public void reportedViolation(final @NotNull String checkName, final @NotNull Violation violation) {
+        printer.apply(ScanEventMessage.violation(checkName, violation)).get();
+    }
+
+    @Override
+    public void finishedScan() {
+        printer.apply(ScanEventMessage.finishedScan()).get();
+    }
+}
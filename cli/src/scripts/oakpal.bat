@@ -3,4 +3,26 @@ if "%DIRNAME%" == "" set DIRNAME=.
 set APP_HOME=%DIRNAME%..
 for %%i in ("%APP_HOME%") do set APP_HOME=%%~fi
 
+rem Application class-data sharing (AppCDS) archive. see bin/oakpal.sh
+if "%OAKPAL_CDS_ARCHIVE%" == "" set OAKPAL_CDS_ARCHIVE=%APP_HOME%\oakpal-cli.jsa
+if "%OAKPAL_CDS%" == "train" goto train
+if "%OAKPAL_CDS%" == "off" goto run
+if exist "%OAKPAL_CDS_ARCHIVE%" (
+  java "-XX:SharedArchiveFile=%OAKPAL_CDS_ARCHIVE%" -Dnashorn.args="--no-deprecation-warning" %JAVA_OPTS% -cp "%APP_HOME%\*;%APP_HOME%\lib\*" net.adamcin.oakpal.cli.Main %*
+  exit /b %ERRORLEVEL%
+)
+
+:run
 java -Dnashorn.args="--no-deprecation-warning" %JAVA_OPTS% -cp "%APP_HOME%\*;%APP_HOME%\lib\*" net.adamcin.oakpal.cli.Main %*
+exit /b %ERRORLEVEL%
+
+:train
+del /f /q "%OAKPAL_CDS_ARCHIVE%" "%OAKPAL_CDS_ARCHIVE%.classlist" 2>nul
+java "-XX:DumpLoadedClassList=%OAKPAL_CDS_ARCHIVE%.classlist" -Dnashorn.args="--no-deprecation-warning" %JAVA_OPTS% -cp "%APP_HOME%\*;%APP_HOME%\lib\*" net.adamcin.oakpal.cli.Main %*
+set EXIT_CODE=%ERRORLEVEL%
+java -Xshare:dump "-XX:SharedClassListFile=%OAKPAL_CDS_ARCHIVE%.classlist" "-XX:SharedArchiveFile=%OAKPAL_CDS_ARCHIVE%" -cp "%APP_HOME%\*;%APP_HOME%\lib\*" > "%OAKPAL_CDS_ARCHIVE%.log" 2>&1
+if errorlevel 1 (
+  echo failed to dump class-data sharing archive. see %OAKPAL_CDS_ARCHIVE%.log 1>&2
+  del /f /q "%OAKPAL_CDS_ARCHIVE%" 2>nul
+)
+exit /b %EXIT_CODE%
@@ -1,8 +1,35 @@
 #!/bin/sh
 appHome="$(cd "$(dirname "$(dirname "$0")")" && pwd)"
 oakpalCp=$(ls "${appHome}"/oakpal-cli-*.jar)
-for libjar in $(find "${appHome}/lib" -name '*.jar' -type f); do
+for libjar in $(find "${appHome}/lib" -name '*.jar' -type f | LC_ALL=C sort); do
   oakpalCp="${oakpalCp}:${libjar}"
 done
-java -Dnashorn.args="--no-deprecation-warning" ${JAVA_OPTS} -cp "${oakpalCp}" net.adamcin.oakpal.cli.Main "$@"
 
+# Application class-data sharing (AppCDS) archive of the classes loaded by a scan. Run a representative scan once with
+# OAKPAL_CDS=train to record its class list and dump the archive, which is then used by every later launch with the
+# same java installation and classpath. Set OAKPAL_CDS=off to ignore the archive.
+cdsArchive="${OAKPAL_CDS_ARCHIVE:-${appHome}/oakpal-cli.jsa}"
+case "${OAKPAL_CDS:-auto}" in
+  train)
+    rm -f "${cdsArchive}" "${cdsArchive}.classlist"
+    java "-XX:DumpLoadedClassList=${cdsArchive}.classlist" -Dnashorn.args="--no-deprecation-warning" ${JAVA_OPTS} \
+      -cp "${oakpalCp}" net.adamcin.oakpal.cli.Main "$@"
+    exitCode=$?
+    if ! java -Xshare:dump "-XX:SharedClassListFile=${cdsArchive}.classlist" "-XX:SharedArchiveFile=${cdsArchive}" \
+      -cp "${oakpalCp}" > "${cdsArchive}.log" 2>&1; then
+      echo "failed to dump class-data sharing archive. see ${cdsArchive}.log" >&2
+      rm -f "${cdsArchive}"
+    fi
+    exit ${exitCode}
+    ;;
+  off)
+    ;;
+  *)
+    if [ -f "${cdsArchive}" ]; then
+      exec java "-XX:SharedArchiveFile=${cdsArchive}" -Dnashorn.args="--no-deprecation-warning" ${JAVA_OPTS} \
+        -cp "${oakpalCp}" net.adamcin.oakpal.cli.Main "$@"
+    fi
+    ;;
+esac
+
+java -Dnashorn.args="--no-deprecation-warning" ${JAVA_OPTS} -cp "${oakpalCp}" net.adamcin.oakpal.cli.Main "$@"
@@ -259,6 +259,12 @@ public class CommandTest {
                 options -> assertTrue("is store blobs", options.isStoreBlobs()));
         validator.expectSuccess(args("--no-store-blobs"),
                 options -> assertFalse("is not store blobs", options.isStoreBlobs()));
+        validator.expectSuccess(args(),
+                options -> assertFalse("is not fail fast", options.isFailFast()));
+        validator.expectSuccess(args("--fail-fast"),
+                options -> assertTrue("is fail fast", options.isFailFast()));
+        validator.expectSuccess(args("--fail-fast", "--no-fail-fast"),
+                options -> assertFalse("is not fail fast", options.isFailFast()));
         validator.expectSuccess(args("--no-store-blobs", "--store-blobs"),
                 options -> assertTrue("is store blobs", options.isStoreBlobs()));
         validator.expectSuccess(args("--no-store-blobs", "-b"),
@@ -360,10 +366,22 @@ public class CommandTest {
 
         validator.expectSuccess(args("--plan", "other-plan.json", "-f", simpleEchoJar.getAbsolutePath()),
                 options -> assertEquals("expect plan name", "other-plan.json", options.getPlanName()));
+        validator.expectSuccess(args("-f", simpleEchoJar.getAbsolutePath()),
+                options -> assertEquals("expect extracted plan", "file", options.getPlanUrl().getProtocol()));
+        validator.expectSuccess(args("--opear-in-place", "-f", simpleEchoJar.getAbsolutePath()),
+                options -> assertEquals("expect plan in jar", "jar", options.getPlanUrl().getProtocol()));
+        validator.expectSuccess(args("--opear-in-place", "--no-opear-in-place", "-f", simpleEchoJar.getAbsolutePath()),
+                options -> assertEquals("expect extracted plan", "file", options.getPlanUrl().getProtocol()));
+        validator.expectSuccess(args("--opear-cache-limit", "1", "-f", simpleEchoJar.getAbsolutePath()),
+                options -> assertEquals("expect extracted plan", "file", options.getPlanUrl().getProtocol()));
+        validator.expectSuccess(args("--no-opear-cache-limit", "-f", simpleEchoJar.getAbsolutePath()),
+                options -> assertEquals("expect extracted plan", "file", options.getPlanUrl().getProtocol()));
+        validator.expectFailure(args("--opear-cache-limit", "one", "-f", simpleEchoJar.getAbsolutePath()));
 
         final File notAJar = new File(testOutDir, "notA.jar");
         FileUtils.touch(notAJar);
         validator.expectFailure(args("-f", notAJar.getAbsolutePath()));
+        validator.expectFailure(args("--opear-in-place", "-f", notAJar.getAbsolutePath()));
     }
 
 
@@ -4,9 +4,17 @@ import net.adamcin.oakpal.testing.TestPackageUtil;
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.json.Json;
 import java.io.File;
 import java.io.PrintStream;
-
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
@@ -81,6 +89,21 @@ public class MainTest {
         assertTrue("testOutputJson exists", testOutputJson.exists());
     }
 
+    @Test
+    public void testStreamOutputFile() throws Exception {
+        final File testOutputDir = new File(testOutputBaseDir, "testStreamOutputFile");
+        testOutputDir.mkdirs();
+        final File testOutputJson = new File(testOutputDir, "out.ndjson");
+        if (testOutputJson.exists()) {
+            testOutputJson.delete();
+        }
+        Main.main(new String[]{"-c", cacheBaseDir.getPath(), "--stream", "-j", "-o", testOutputJson.getPath()});
+        final List<String> events = Files.readAllLines(testOutputJson.toPath(), StandardCharsets.UTF_8).stream()
+                .map(line -> Json.createReader(new StringReader(line)).readObject().getString("event"))
+                .collect(Collectors.toList());
+        assertEquals("expect one event per line", Arrays.asList("startedScan", "finishedScan"), events);
+    }
+
     @Test
     public void testMainJustHelp() {
         Main.main(new String[] {"--help"});
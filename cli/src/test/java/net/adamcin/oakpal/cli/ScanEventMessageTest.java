@@ -0,0 +1,40 @@
+package net.adamcin.oakpal.cli;
+
+import net.adamcin.oakpal.api.Severity;
+import net.adamcin.oakpal.api.SimpleViolation;
+import org.apache.jackrabbit.vault.packaging.PackageId;
+import org.junit.Test;
+
+import static net.adamcin.oakpal.api.JavaxJson.arr;
+import static net.adamcin.oakpal.api.JavaxJson.key;
+import static org.junit.Assert.assertEquals;
+
+public class ScanEventMessageTest {
+
+    @Test
+    public void testMessages() {
+        assertEquals("startedScan json", key("event", "startedScan").get(), ScanEventMessage.startedScan().toJson());
+        assertEquals("startedScan string", "started scan", ScanEventMessage.startedScan().toString());
+        assertEquals("finishedScan json", key("event", "finishedScan").get(),
+                ScanEventMessage.finishedScan().toJson());
+        assertEquals("finishedScan string", "finished scan", ScanEventMessage.finishedScan().toString());
+
+        final PackageId packageId = PackageId.fromString("my_packages:example:1.0");
+        assertEquals("scannedPackage json",
+                key("event", "scannedPackage").key("packageId", packageId.toString()).key("preInstall", true).get(),
+                ScanEventMessage.scannedPackage(packageId, true).toJson());
+        assertEquals("scannedPackage string", "scanned preinstall package: my_packages:example:1.0",
+                ScanEventMessage.scannedPackage(packageId, true).toString());
+
+        final ScanEventMessage violation = ScanEventMessage.violation("check",
+                new SimpleViolation(Severity.MAJOR, "description", packageId));
+        assertEquals("violation json", key("event", "violation").key("checkName", "check")
+                        .key("severity", "MAJOR").key("description", "description")
+                        .key("packages", arr(packageId.toString())).get(),
+                violation.toJson());
+        assertEquals("violation string", "violation: check +- <MAJOR> description [example-1.0.zip]",
+                violation.toString());
+        assertEquals("violation string without packages", "violation: check +- <MINOR> description",
+                ScanEventMessage.violation("check", new SimpleViolation(Severity.MINOR, "description")).toString());
+    }
+}
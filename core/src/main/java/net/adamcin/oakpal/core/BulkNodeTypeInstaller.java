@@ -0,0 +1,270 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.core;
+
+import org.apache.jackrabbit.commons.cnd.CompactNodeTypeDefReader;
+import org.apache.jackrabbit.commons.cnd.TemplateBuilderFactory;
+import org.apache.jackrabbit.spi.Name;
+import org.apache.jackrabbit.spi.QNodeTypeDefinition;
+import org.apache.jackrabbit.spi.commons.QNodeTypeDefinitionImpl;
+import org.apache.jackrabbit.spi.commons.conversion.DefaultNamePathResolver;
+import org.apache.jackrabbit.spi.commons.conversion.NamePathResolver;
+import org.apache.jackrabbit.spi.commons.nodetype.NodeTypeDefinitionFactory;
+import org.apache.jackrabbit.spi.commons.value.QValueFactoryImpl;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.NamespaceRegistry;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.nodetype.NodeTypeDefinition;
+import javax.jcr.nodetype.NodeTypeManager;
+import javax.jcr.nodetype.NodeTypeTemplate;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Collects the node type definitions of all init sources, which are CND urls and qualified node type definitions, and
+ * registers them in dependency order with a single call to
+ * {@link NodeTypeManager#registerNodeTypes(NodeTypeDefinition[], boolean)}, which Oak performs in one commit.
+ * <p>
+ * CND urls are parsed when they are added, which also registers their namespaces in the same order as before. Types
+ * from CND urls do not replace types that are already registered or defined by an earlier source, while qualified
+ * definitions replace them, as {@link CNDURLInstaller} and {@link InitStage} do. If a CND url can not be parsed, or
+ * the bulk registration fails, each source is registered on its own instead, so that errors are reported to the
+ * {@link ErrorListener} for the source that caused them.
+ */
+final class BulkNodeTypeInstaller {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BulkNodeTypeInstaller.class);
+
+    private final ErrorListener errorListener;
+    private final List<Source> sources = new ArrayList<>();
+    private boolean parseFailed;
+
+    BulkNodeTypeInstaller(final @Nullable ErrorListener errorListener) {
+        this.errorListener = errorListener != null ? errorListener : new DefaultErrorListener();
+    }
+
+    /**
+     * A group of definitions which was registered in one step before bulk registration.
+     */
+    private abstract static class Source {
+        final List<QNodeTypeDefinition> definitions = new ArrayList<>();
+
+        abstract boolean isReregisterExisting();
+
+        abstract void registerIndividually(@NotNull Session session, @NotNull ErrorListener errorListener)
+                throws RepositoryException;
+    }
+
+    private static final class CndSource extends Source {
+        private final List<URL> unorderedCndUrls;
+        private final List<URL> orderedCndUrls;
+
+        private CndSource(final @NotNull List<URL> unorderedCndUrls, final @NotNull List<URL> orderedCndUrls) {
+            this.unorderedCndUrls = unorderedCndUrls;
+            this.orderedCndUrls = orderedCndUrls;
+        }
+
+        @Override
+        boolean isReregisterExisting() {
+            return false;
+        }
+
+        @Override
+        void registerIndividually(final @NotNull Session session, final @NotNull ErrorListener errorListener)
+                throws RepositoryException {
+            new CNDURLInstaller(errorListener, unorderedCndUrls, orderedCndUrls).register(session);
+        }
+    }
+
+    private static final class QSource extends Source {
+        private QSource(final @NotNull List<QNodeTypeDefinition> definitions) {
+            this.definitions.addAll(definitions);
+        }
+
+        @Override
+        boolean isReregisterExisting() {
+            return true;
+        }
+
+        @Override
+        void registerIndividually(final @NotNull Session session, final @NotNull ErrorListener errorListener) {
+            try {
+                registerNodeTypes(session, definitions);
+            } catch (final RepositoryException e) {
+                errorListener.onNodeTypeRegistrationError(e, null);
+            }
+        }
+    }
+
+    /**
+     * Parse the CND urls and add their node types, registering any namespaces that they declare.
+     *
+     * @param session          the admin session
+     * @param unorderedCndUrls CND urls which may depend on each other in any order
+     * @param orderedCndUrls   CND urls which are registered in order after the unordered ones
+     */
+    void addCndUrls(final @NotNull Session session,
+                    final @NotNull List<URL> unorderedCndUrls,
+                    final @NotNull List<URL> orderedCndUrls) {
+        if (unorderedCndUrls.isEmpty() && orderedCndUrls.isEmpty()) {
+            return;
+        }
+        final CndSource source = new CndSource(new ArrayList<>(unorderedCndUrls), new ArrayList<>(orderedCndUrls));
+        final List<URL> cndUrls = new ArrayList<>(unorderedCndUrls);
+        cndUrls.addAll(orderedCndUrls);
+        for (URL cndUrl : cndUrls) {
+            try {
+                source.definitions.addAll(readCnd(session, cndUrl));
+            } catch (final Exception e) {
+                LOGGER.debug("[addCndUrls] failed to read {}. node types will be registered individually.",
+                        cndUrl, e);
+                parseFailed = true;
+            }
+        }
+        sources.add(source);
+    }
+
+    /**
+     * Add qualified node type definitions, which replace existing node types of the same name.
+     *
+     * @param definitions the qualified node type definitions
+     */
+    void addQNodeTypes(final @NotNull List<QNodeTypeDefinition> definitions) {
+        if (!definitions.isEmpty()) {
+            sources.add(new QSource(definitions));
+        }
+    }
+
+    /**
+     * Register the node types of all sources, and forget them.
+     *
+     * @param session the admin session
+     * @throws RepositoryException if a CND source fails to initialize
+     */
+    void register(final @NotNull Session session) throws RepositoryException {
+        try {
+            if (!parseFailed) {
+                try {
+                    registerNodeTypes(session, sortByDependencies(mergeDefinitions(session)));
+                    return;
+                } catch (final RepositoryException e) {
+                    LOGGER.debug("[register] bulk registration failed. registering node types individually.", e);
+                }
+            }
+            for (Source source : sources) {
+                source.registerIndividually(session, errorListener);
+            }
+        } finally {
+            sources.clear();
+            parseFailed = false;
+        }
+    }
+
+    static List<QNodeTypeDefinition> readCnd(final @NotNull Session session, final @NotNull URL cndUrl)
+            throws Exception {
+        final NamePathResolver resolver = new DefaultNamePathResolver(session);
+        final List<QNodeTypeDefinition> definitions = new ArrayList<>();
+        try (InputStream input = cndUrl.openStream();
+             Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8)) {
+            final CompactNodeTypeDefReader<NodeTypeTemplate, NamespaceRegistry> cndReader =
+                    new CompactNodeTypeDefReader<>(reader, cndUrl.toExternalForm(),
+                            new TemplateBuilderFactory(session));
+            for (NodeTypeTemplate template : cndReader.getNodeTypeDefinitions()) {
+                // copy eagerly, because a later init stage may remap the prefixes of the session
+                definitions.add(new QNodeTypeDefinitionImpl(template, resolver, QValueFactoryImpl.getInstance()));
+            }
+        }
+        return definitions;
+    }
+
+    Collection<QNodeTypeDefinition> mergeDefinitions(final @NotNull Session session) throws RepositoryException {
+        final NodeTypeManager nodeTypeManager = session.getWorkspace().getNodeTypeManager();
+        final NamePathResolver resolver = new DefaultNamePathResolver(session);
+        final Map<Name, QNodeTypeDefinition> merged = new LinkedHashMap<>();
+        for (Source source : sources) {
+            for (QNodeTypeDefinition definition : source.definitions) {
+                if (source.isReregisterExisting()) {
+                    merged.put(definition.getName(), definition);
+                } else if (!merged.containsKey(definition.getName())
+                        && !nodeTypeManager.hasNodeType(resolver.getJCRName(definition.getName()))) {
+                    merged.put(definition.getName(), definition);
+                }
+            }
+        }
+        return merged.values();
+    }
+
+    /**
+     * Sort node type definitions so that each definition follows the definitions it depends on, keeping the original
+     * order otherwise. Dependency cycles, which are legal for child node definitions, are broken at the first
+     * definition of the cycle.
+     *
+     * @param definitions the definitions to sort
+     * @return the sorted definitions
+     */
+    static List<QNodeTypeDefinition> sortByDependencies(final @NotNull Collection<QNodeTypeDefinition> definitions) {
+        final Map<Name, QNodeTypeDefinition> byName = new LinkedHashMap<>();
+        for (QNodeTypeDefinition definition : definitions) {
+            byName.put(definition.getName(), definition);
+        }
+        final Set<Name> visited = new HashSet<>();
+        final List<QNodeTypeDefinition> sorted = new ArrayList<>();
+        for (Name name : byName.keySet()) {
+            visit(name, byName, visited, sorted);
+        }
+        return sorted;
+    }
+
+    private static void visit(final @NotNull Name name,
+                              final @NotNull Map<Name, QNodeTypeDefinition> byName,
+                              final @NotNull Set<Name> visited,
+                              final @NotNull List<QNodeTypeDefinition> sorted) {
+        final QNodeTypeDefinition definition = byName.get(name);
+        if (definition == null || !visited.add(name)) {
+            return;
+        }
+        for (Name dependency : definition.getDependencies()) {
+            visit(dependency, byName, visited, sorted);
+        }
+        sorted.add(definition);
+    }
+
+    private static void registerNodeTypes(final @NotNull Session session,
+                                          final @NotNull List<QNodeTypeDefinition> definitions)
+            throws RepositoryException {
+        if (definitions.isEmpty()) {
+            return;
+        }
+        final List<NodeTypeDefinition> nodeTypes = new NodeTypeDefinitionFactory(session).create(definitions);
+        session.getWorkspace().getNodeTypeManager()
+                .registerNodeTypes(nodeTypes.toArray(new NodeTypeDefinition[0]), true);
+    }
+}
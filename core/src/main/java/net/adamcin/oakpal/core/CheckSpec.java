@@ -58,6 +58,12 @@ public class CheckSpec implements JsonObjectConvertible {
         String skip();
 
         String config();
+
+        String callbackTimeBudget();
+
+        String scanTimeBudget();
+
+        String maxViolations();
     }
 
     private static final JsonKeys KEYS = new JsonKeys() {
@@ -95,6 +101,21 @@ public class CheckSpec implements JsonObjectConvertible {
         public String config() {
             return "config";
         }
+
+        @Override
+        public String callbackTimeBudget() {
+            return "callbackTimeBudget";
+        }
+
+        @Override
+        public String scanTimeBudget() {
+            return "scanTimeBudget";
+        }
+
+        @Override
+        public String maxViolations() {
+            return "maxViolations";
+        }
     };
 
     @NotNull
@@ -109,7 +130,9 @@ public class CheckSpec implements JsonObjectConvertible {
     private String template;
     private boolean skip;
     private JsonObject config;
-
+    private long callbackTimeBudget;
+    private long scanTimeBudget;
+    private int maxViolations;
 
     /**
      * The direct classpath lookup name for a particular check. If not provided, indicates that a check should be
@@ -298,6 +321,72 @@ public class CheckSpec implements JsonObjectConvertible {
         this.config = config;
     }
 
+    /**
+     * The maximum wall-clock time in milliseconds that a script check may spend in any one event handler. When
+     * exceeded, the handler is interrupted if the script engine supports it, a violation is reported, and the check is
+     * disabled for the rest of the scan. Ignored for checks that are not script checks.
+     *
+     * @return the time budget per event handler in milliseconds, or 0 if unlimited
+     * @since 2.3.0
+     */
+    public long getCallbackTimeBudget() {
+        return callbackTimeBudget;
+    }
+
+    /**
+     * Set a new callback time budget value. This is considered unlimited if the value is not positive.
+     *
+     * @param callbackTimeBudget the new value in milliseconds
+     * @since 2.3.0
+     */
+    public void setCallbackTimeBudget(final long callbackTimeBudget) {
+        this.callbackTimeBudget = Math.max(0L, callbackTimeBudget);
+    }
+
+    /**
+     * The maximum cumulative wall-clock time in milliseconds that a script check may spend in its event handlers
+     * during one scan. Enforced like {@link #getCallbackTimeBudget()}.
+     *
+     * @return the time budget per scan in milliseconds, or 0 if unlimited
+     * @since 2.3.0
+     */
+    public long getScanTimeBudget() {
+        return scanTimeBudget;
+    }
+
+    /**
+     * Set a new scan time budget value. This is considered unlimited if the value is not positive.
+     *
+     * @param scanTimeBudget the new value in milliseconds
+     * @since 2.3.0
+     */
+    public void setScanTimeBudget(final long scanTimeBudget) {
+        this.scanTimeBudget = Math.max(0L, scanTimeBudget);
+    }
+
+    /**
+     * The maximum number of violations that the check retains as reported during one scan. Further violations are
+     * aggregated by message template into a single violation per template, which counts the occurrences and keeps a
+     * few sample arguments. Enforced for checks that collect their violations with a
+     * {@link net.adamcin.oakpal.api.ReportCollector}, which includes script checks.
+     *
+     * @return the maximum number of violations, or 0 if unlimited
+     * @since 2.3.0
+     */
+    public int getMaxViolations() {
+        return maxViolations;
+    }
+
+    /**
+     * Set a new max violations value. This is considered unlimited if the value is not positive.
+     *
+     * @param maxViolations the new value
+     * @since 2.3.0
+     */
+    public void setMaxViolations(final int maxViolations) {
+        this.maxViolations = Math.max(0, maxViolations);
+    }
+
     /**
      * Returns true if this overrides that.
      * <p>
@@ -355,6 +444,15 @@ public class CheckSpec implements JsonObjectConvertible {
             composite.setImpl(this.getImpl());
         }
         composite.setConfig(JavaxJson.shallowMergeObjects(that.getConfig(), this.getConfig()));
+        if (this.getCallbackTimeBudget() > 0L) {
+            composite.setCallbackTimeBudget(this.getCallbackTimeBudget());
+        }
+        if (this.getScanTimeBudget() > 0L) {
+            composite.setScanTimeBudget(this.getScanTimeBudget());
+        }
+        if (this.getMaxViolations() > 0) {
+            composite.setMaxViolations(this.getMaxViolations());
+        }
         return composite;
     }
 
@@ -441,6 +539,15 @@ public class CheckSpec implements JsonObjectConvertible {
         if (hasNonNull(json, keys.config())) {
             checkSpec.setConfig(json.getJsonObject(keys.config()));
         }
+        if (hasNonNull(json, keys.callbackTimeBudget())) {
+            checkSpec.setCallbackTimeBudget(json.getJsonNumber(keys.callbackTimeBudget()).longValue());
+        }
+        if (hasNonNull(json, keys.scanTimeBudget())) {
+            checkSpec.setScanTimeBudget(json.getJsonNumber(keys.scanTimeBudget()).longValue());
+        }
+        if (hasNonNull(json, keys.maxViolations())) {
+            checkSpec.setMaxViolations(json.getJsonNumber(keys.maxViolations()).intValue());
+        }
 
         return checkSpec;
     }
@@ -469,6 +576,15 @@ public class CheckSpec implements JsonObjectConvertible {
         if (isSkip()) {
             obj.key(keys.skip(), true);
         }
+        if (getCallbackTimeBudget() > 0L) {
+            obj.key(keys.callbackTimeBudget(), getCallbackTimeBudget());
+        }
+        if (getScanTimeBudget() > 0L) {
+            obj.key(keys.scanTimeBudget(), getScanTimeBudget());
+        }
+        if (getMaxViolations() > 0) {
+            obj.key(keys.maxViolations(), getMaxViolations());
+        }
         final JsonObject base = obj.get();
         base.forEach(builder::add);
         editJson(builder);
@@ -491,12 +607,16 @@ public class CheckSpec implements JsonObjectConvertible {
                 Objects.equals(getInlineEngine(), checkSpec.getInlineEngine()) &&
                 Objects.equals(getName(), checkSpec.getName()) &&
                 Objects.equals(getTemplate(), checkSpec.getTemplate()) &&
-                Objects.equals(getConfig(), checkSpec.getConfig());
+                Objects.equals(getConfig(), checkSpec.getConfig()) &&
+                getCallbackTimeBudget() == checkSpec.getCallbackTimeBudget() &&
+                getScanTimeBudget() == checkSpec.getScanTimeBudget() &&
+                getMaxViolations() == checkSpec.getMaxViolations();
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(getImpl(), getInlineScript(), getInlineEngine(), getName(), getTemplate(), isSkip(), getConfig());
+        return Objects.hash(getImpl(), getInlineScript(), getInlineEngine(), getName(), getTemplate(), isSkip(), getConfig(),
+                getCallbackTimeBudget(), getScanTimeBudget(), getMaxViolations());
     }
 
     public static CheckSpec copyOf(final @NotNull CheckSpec original) {
@@ -508,6 +628,9 @@ public class CheckSpec implements JsonObjectConvertible {
         copy.setInlineScript(original.getInlineScript());
         copy.setInlineEngine(original.getInlineEngine());
         copy.setConfig(original.getConfig());
+        copy.setCallbackTimeBudget(original.getCallbackTimeBudget());
+        copy.setScanTimeBudget(original.getScanTimeBudget());
+        copy.setMaxViolations(original.getMaxViolations());
         return copy;
     }
 
@@ -519,7 +642,10 @@ public class CheckSpec implements JsonObjectConvertible {
                 original.getInlineScript(),
                 original.getInlineEngine(),
                 original.getConfig(),
-                original.isSkip());
+                original.isSkip(),
+                original.getCallbackTimeBudget(),
+                original.getScanTimeBudget(),
+                original.getMaxViolations());
     }
 
 
@@ -534,7 +660,10 @@ public class CheckSpec implements JsonObjectConvertible {
                 final @Nullable String inlineScript,
                 final @Nullable String inlineEngine,
                 final @Nullable JsonObject config,
-                final boolean skip) {
+                final boolean skip,
+                final long callbackTimeBudget,
+                final long scanTimeBudget,
+                final int maxViolations) {
             super();
             super.setName(name);
             super.setImpl(impl);
@@ -543,6 +672,9 @@ public class CheckSpec implements JsonObjectConvertible {
             super.setInlineEngine(inlineEngine);
             super.setConfig(config);
             super.setSkip(skip);
+            super.setCallbackTimeBudget(callbackTimeBudget);
+            super.setScanTimeBudget(scanTimeBudget);
+            super.setMaxViolations(maxViolations);
         }
 
         @Override
@@ -579,5 +711,20 @@ public class CheckSpec implements JsonObjectConvertible {
         public void setConfig(final JsonObject config) {
             throw new UnsupportedOperationException("this CheckSpec is immutable.");
         }
+
+        @Override
+        public void setCallbackTimeBudget(final long callbackTimeBudget) {
+            throw new UnsupportedOperationException("this CheckSpec is immutable.");
+        }
+
+        @Override
+        public void setScanTimeBudget(final long scanTimeBudget) {
+            throw new UnsupportedOperationException("this CheckSpec is immutable.");
+        }
+
+        @Override
+        public void setMaxViolations(final int maxViolations) {
+            throw new UnsupportedOperationException("this CheckSpec is immutable.");
+        }
     }
 }
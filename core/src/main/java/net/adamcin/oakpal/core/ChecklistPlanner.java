@@ -16,6 +16,7 @@
 
 package net.adamcin.oakpal.core;
 
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -62,8 +63,22 @@ public final class ChecklistPlanner {
     }
 
     public void discoverChecklists(final ClassLoader classLoader) {
+        discoverChecklists(classLoader, null);
+    }
+
+    /**
+     * Discover checklists on the class path of the class loader, using the discovery index if provided to skip the
+     * search for manifests when the class path has not changed since the last discovery.
+     *
+     * @param classLoader    the class loader to search
+     * @param discoveryIndex the discovery index, or null to always search the class path
+     * @since 2.3.0
+     */
+    public void discoverChecklists(final ClassLoader classLoader, final @Nullable DiscoveryIndex discoveryIndex) {
         try {
-            Map<URL, List<JsonObject>> parsed = parseChecklists(classLoader);
+            Map<URL, List<JsonObject>> parsed = discoveryIndex != null
+                    ? discoveryIndex.parseChecklists(classLoader)
+                    : parseChecklists(classLoader);
             selectChecklists(constructChecklists(parsed));
         } catch (final Exception e) {
             LOGGER.debug("[discoverChecklists(ClassLoader)] error occurred during discovery", e);
@@ -205,6 +205,13 @@ public class DefaultErrorListener implements ErrorListener {
         reportViolation(new SimpleViolation(Severity.MAJOR, message));
     }
 
+    @Override
+    public void onRegistryBundleMismatch(final URL registryBundleUrl, final String checklistId) {
+        final String message = MessageFormat.format(getString("registry bundle mismatch ({0}): checklist {1}"),
+                String.valueOf(registryBundleUrl), checklistId);
+        reportViolation(new SimpleViolation(Severity.MAJOR, message));
+    }
+
     @Override
     public void onRepoInitInlineError(final Throwable error, final List<String> repoinits) {
         final String firstLine = repoinits == null || repoinits.isEmpty()
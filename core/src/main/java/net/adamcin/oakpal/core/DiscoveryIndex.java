@@ -0,0 +1,340 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.core;
+
+import net.adamcin.oakpal.api.Fun;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonString;
+import javax.json.JsonWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarFile;
+
+import static net.adamcin.oakpal.api.JavaxJson.arr;
+import static net.adamcin.oakpal.api.JavaxJson.key;
+import static net.adamcin.oakpal.api.JavaxJson.mapArrayOfStrings;
+import static net.adamcin.oakpal.api.JavaxJson.obj;
+
+/**
+ * Persistent index of the checklists and Sling node type definitions discovered on a class path, so that an unchanged
+ * class path is not scanned for {@code META-INF/MANIFEST.MF} resources again. Each index file is named by a digest of
+ * the class path entries with their sizes and modification times. A directory entry is fingerprinted by its manifest,
+ * and the local files read during discovery are fingerprinted as well and verified on every read.
+ * <p>
+ * A class loader can only be indexed when it and each of its parents is a {@link URLClassLoader} of {@code file:}
+ * URLs, the system class loader or the platform class loader. Other class loaders are always scanned.
+ *
+ * @see ChecklistPlanner#discoverChecklists(ClassLoader, DiscoveryIndex)
+ * @see SlingNodetypesScanner#findNodeTypeDefinitions(ClassLoader)
+ * @since 2.3.0
+ */
+public final class DiscoveryIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiscoveryIndex.class);
+    static final String KIND_CHECKLISTS = "checklists";
+    static final String KIND_NODETYPES = "nodetypes";
+    static final String KEY_CLASS_PATH = "classPath";
+    static final String KEY_RESOURCES = "resources";
+    static final String KEY_MANIFEST = "manifest";
+    static final String KEY_CHECKLISTS = "checklists";
+    static final String KEY_NODETYPES = "nodetypes";
+
+    private final File indexDir;
+
+    /**
+     * Constructor.
+     *
+     * @param indexDir the directory in which to store index files
+     */
+    public DiscoveryIndex(final @NotNull File indexDir) {
+        this.indexDir = indexDir;
+    }
+
+    public File getIndexDir() {
+        return indexDir;
+    }
+
+    /**
+     * Indexed equivalent of {@link ChecklistPlanner#parseChecklists(ClassLoader)}, which omits manifests that do not
+     * declare any checklists.
+     *
+     * @param classLoader the class loader to search
+     * @return a map of manifest URLs to parsed checklist json objects
+     * @throws Exception for errors during discovery
+     */
+    public Map<URL, List<JsonObject>> parseChecklists(final @NotNull ClassLoader classLoader) throws Exception {
+        final List<File> classPath = getClassPath(classLoader);
+        if (classPath == null) {
+            return ChecklistPlanner.parseChecklists(classLoader);
+        }
+        return getChecklists(classPath,
+                () -> Util.mapManifestHeaderResources(ChecklistPlanner.OAKPAL_CHECKLIST, classLoader));
+    }
+
+    /**
+     * Indexed equivalent of {@link ChecklistPlanner#parseChecklists(List)}, which omits manifests that do not declare
+     * any checklists.
+     *
+     * @param files the class path entries to search
+     * @return a map of manifest URLs to parsed checklist json objects
+     * @throws Exception for errors during discovery
+     */
+    public Map<URL, List<JsonObject>> parseChecklists(final @NotNull List<File> files) throws Exception {
+        return getChecklists(files, () -> Util.mapManifestHeaderResources(ChecklistPlanner.OAKPAL_CHECKLIST, files));
+    }
+
+    /**
+     * Indexed equivalent of {@link SlingNodetypesScanner#findNodeTypeDefinitions()}.
+     *
+     * @return list of node type definition URLs
+     * @throws Exception for errors during discovery
+     */
+    public List<URL> findNodeTypeDefinitions() throws Exception {
+        return findNodeTypeDefinitions(Util.getDefaultClassLoader());
+    }
+
+    /**
+     * Indexed equivalent of {@link SlingNodetypesScanner#findNodeTypeDefinitions(ClassLoader)}.
+     *
+     * @param classLoader the class loader to search
+     * @return list of node type definition URLs
+     * @throws Exception for errors during discovery
+     */
+    public List<URL> findNodeTypeDefinitions(final @NotNull ClassLoader classLoader) throws Exception {
+        final List<File> classPath = getClassPath(classLoader);
+        if (classPath == null) {
+            return SlingNodetypesScanner.findNodeTypeDefinitions(classLoader);
+        }
+        return getNodeTypeDefinitions(classPath, () -> SlingNodetypesScanner.findNodeTypeDefinitions(classLoader));
+    }
+
+    /**
+     * Indexed equivalent of {@link SlingNodetypesScanner#findNodeTypeDefinitions(List)}.
+     *
+     * @param zipFiles the class path entries to search
+     * @return list of node type definition URLs
+     * @throws Exception for errors during discovery
+     */
+    public List<URL> findNodeTypeDefinitions(final @NotNull List<File> zipFiles) throws Exception {
+        return getNodeTypeDefinitions(zipFiles, () -> SlingNodetypesScanner.findNodeTypeDefinitions(zipFiles));
+    }
+
+    Map<URL, List<JsonObject>> getChecklists(final @NotNull List<File> classPath,
+                                             final @NotNull Fun.ThrowingSupplier<Map<URL, List<URL>>> manifestLookup)
+            throws Exception {
+        final List<String> fingerprints = fingerprintClassPath(classPath);
+        final File indexFile = getIndexFile(KIND_CHECKLISTS, fingerprints);
+        final JsonObject index = readIndex(indexFile, fingerprints);
+        if (index != null) {
+            final Map<URL, List<JsonObject>> parsed = new LinkedHashMap<>();
+            for (JsonObject manifest : index.getJsonArray(KEY_CHECKLISTS).getValuesAs(JsonObject.class)) {
+                parsed.put(new URL(manifest.getString(KEY_MANIFEST)),
+                        new ArrayList<>(manifest.getJsonArray(KEY_CHECKLISTS).getValuesAs(JsonObject.class)));
+            }
+            return parsed;
+        }
+        final Map<URL, List<URL>> declaring = new LinkedHashMap<>();
+        final List<URL> resources = new ArrayList<>();
+        for (Map.Entry<URL, List<URL>> entry : manifestLookup.tryGet().entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                declaring.put(entry.getKey(), entry.getValue());
+                resources.add(entry.getKey());
+                resources.addAll(entry.getValue());
+            }
+        }
+        final Map<URL, List<JsonObject>> parsed = ChecklistPlanner.parseChecklists(declaring);
+        final List<JsonObject> manifests = new ArrayList<>();
+        for (Map.Entry<URL, List<JsonObject>> entry : parsed.entrySet()) {
+            manifests.add(key(KEY_MANIFEST, entry.getKey().toExternalForm())
+                    .key(KEY_CHECKLISTS, entry.getValue()).get());
+        }
+        writeIndex(indexFile, fingerprints, resources, KEY_CHECKLISTS, manifests);
+        return parsed;
+    }
+
+    List<URL> getNodeTypeDefinitions(final @NotNull List<File> classPath,
+                                     final @NotNull Fun.ThrowingSupplier<List<URL>> discoverer) throws Exception {
+        final List<String> fingerprints = fingerprintClassPath(classPath);
+        final File indexFile = getIndexFile(KIND_NODETYPES, fingerprints);
+        final JsonObject index = readIndex(indexFile, fingerprints);
+        if (index != null) {
+            final List<URL> urls = new ArrayList<>();
+            for (String url : mapArrayOfStrings(index.getJsonArray(KEY_NODETYPES))) {
+                urls.add(new URL(url));
+            }
+            return urls;
+        }
+        final List<URL> urls = discoverer.tryGet();
+        final List<String> externalForms = new ArrayList<>();
+        for (URL url : urls) {
+            externalForms.add(url.toExternalForm());
+        }
+        writeIndex(indexFile, fingerprints, urls, KEY_NODETYPES, externalForms);
+        return urls;
+    }
+
+    File getIndexFile(final @NotNull String kind, final @NotNull List<String> fingerprints) throws Exception {
+        final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (String fingerprint : fingerprints) {
+            digest.update(fingerprint.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        return new File(indexDir, kind + "-"
+                + Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest()) + ".json");
+    }
+
+    @Nullable JsonObject readIndex(final @NotNull File indexFile, final @NotNull List<String> fingerprints) {
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(indexFile.toPath(), StandardCharsets.UTF_8);
+             JsonReader jsonReader = Json.createReader(reader)) {
+            final JsonObject index = jsonReader.readObject();
+            if (!fingerprints.equals(mapArrayOfStrings(index.getJsonArray(KEY_CLASS_PATH)))) {
+                return null;
+            }
+            for (Map.Entry<String, ?> resource : index.getJsonObject(KEY_RESOURCES).entrySet()) {
+                final String expected = ((JsonString) resource.getValue()).getString();
+                if (!expected.equals(fingerprint(Paths.get(new URL(resource.getKey()).toURI()).toFile()))) {
+                    LOGGER.debug("[readIndex] changed resource {} in {}", resource.getKey(), indexFile);
+                    return null;
+                }
+            }
+            LOGGER.debug("[readIndex] using discovery index {}", indexFile);
+            return index;
+        } catch (final Exception e) {
+            LOGGER.debug("[readIndex] failed to read discovery index {}", indexFile, e);
+            return null;
+        }
+    }
+
+    void writeIndex(final @NotNull File indexFile, final @NotNull List<String> fingerprints,
+                    final @NotNull List<URL> resources, final @NotNull String key, final @NotNull List<?> values) {
+        final Map<String, String> resourceFingerprints = new LinkedHashMap<>();
+        for (URL resource : resources) {
+            // resources in jar files are covered by the class path fingerprints
+            if ("file".equals(resource.getProtocol())) {
+                try {
+                    resourceFingerprints.put(resource.toExternalForm(),
+                            fingerprint(Paths.get(resource.toURI()).toFile()));
+                } catch (final Exception e) {
+                    LOGGER.debug("[writeIndex] not indexing {} due to unexpected resource {}", indexFile, resource, e);
+                    return;
+                }
+            }
+        }
+        final JsonObject index = key(KEY_CLASS_PATH, arr(fingerprints.toArray()))
+                .key(KEY_RESOURCES, obj(resourceFingerprints))
+                .key(key, values)
+                .get();
+        try {
+            final Path indexDirPath = Files.createDirectories(indexDir.toPath());
+            final Path tempFile = Files.createTempFile(indexDirPath, ".", ".tmp");
+            try {
+                try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8);
+                     JsonWriter jsonWriter = Json.createWriter(writer)) {
+                    jsonWriter.writeObject(index);
+                }
+                Files.move(tempFile, indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (final IOException e) {
+            LOGGER.debug("[writeIndex] failed to write discovery index {}", indexFile, e);
+        }
+    }
+
+    static List<String> fingerprintClassPath(final @NotNull List<File> classPath) {
+        final List<String> fingerprints = new ArrayList<>();
+        for (File entry : classPath) {
+            if (entry.isDirectory()) {
+                fingerprints.add(entry.getAbsolutePath() + File.separator + "|"
+                        + fingerprint(new File(entry, JarFile.MANIFEST_NAME)));
+            } else {
+                fingerprints.add(entry.getAbsolutePath() + "|" + fingerprint(entry));
+            }
+        }
+        return fingerprints;
+    }
+
+    static String fingerprint(final @NotNull File file) {
+        return file.isFile() ? file.length() + ":" + file.lastModified() : "-";
+    }
+
+    /**
+     * Get the class path searched by a class loader for resources, in search order.
+     *
+     * @param classLoader the class loader
+     * @return the class path entries, or null if the class path of the class loader can not be determined
+     */
+    static @Nullable List<File> getClassPath(final @NotNull ClassLoader classLoader) {
+        final List<ClassLoader> chain = new ArrayList<>();
+        for (ClassLoader loader = classLoader; loader != null; loader = loader.getParent()) {
+            chain.add(loader);
+        }
+        // resources are found parent first
+        Collections.reverse(chain);
+        final List<File> classPath = new ArrayList<>();
+        for (ClassLoader loader : chain) {
+            if (loader instanceof URLClassLoader) {
+                for (URL url : ((URLClassLoader) loader).getURLs()) {
+                    if (!"file".equals(url.getProtocol())) {
+                        return null;
+                    }
+                    try {
+                        classPath.add(Paths.get(url.toURI()).toFile());
+                    } catch (final Exception e) {
+                        return null;
+                    }
+                }
+            } else if (loader == ClassLoader.getSystemClassLoader()) {
+                for (String path : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+                    if (!path.isEmpty()) {
+                        classPath.add(new File(path));
+                    }
+                }
+            } else if (loader != ClassLoader.getPlatformClassLoader()) {
+                return null;
+            }
+        }
+        return classPath;
+    }
+}
@@ -156,6 +156,19 @@ public interface ErrorListener extends ScanListener, ViolationReporter {
 
     }
 
+    /**
+     * Called when a checklist does not match the checklists that a registry bundle was compiled from, because the
+     * checklist was not compiled into the bundle, its definitions changed since, or it is no longer selected. The
+     * definitions of an unmatched checklist are registered in addition to the bundle.
+     *
+     * @param registryBundleUrl the url of the registry bundle
+     * @param checklistId       the module name and the name of the checklist
+     * @since 2.3.0
+     */
+    default void onRegistryBundleMismatch(final URL registryBundleUrl, final String checklistId) {
+
+    }
+
     /**
      * Called for an IOException or RepoInitParsingException when parsing an installable repoinit script submitted
      * to a {@link net.adamcin.oakpal.api.SlingSimulator}.
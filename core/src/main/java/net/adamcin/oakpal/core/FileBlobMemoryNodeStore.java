@@ -20,6 +20,7 @@ import org.apache.jackrabbit.oak.api.Blob;
 import org.apache.jackrabbit.oak.plugins.blob.BlobStoreBlob;
 import org.apache.jackrabbit.oak.plugins.memory.MemoryNodeStore;
 import org.apache.jackrabbit.oak.spi.blob.FileBlobStore;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
 import org.apache.jackrabbit.oak.spi.state.NodeStore;
 import org.apache.jackrabbit.oak.spi.state.ProxyNodeStore;
 import org.jetbrains.annotations.NotNull;
@@ -43,6 +44,18 @@ public class FileBlobMemoryNodeStore extends ProxyNodeStore {
         this.blobStore = new FileBlobStore(blobStorePath);
     }
 
+    /**
+     * Create a node store which starts from the provided state, such as {@link RepositoryBaseline#getRoot()}.
+     *
+     * @param blobStorePath the blob store path
+     * @param root          the initial root state
+     * @since 2.3.0
+     */
+    public FileBlobMemoryNodeStore(final @NotNull String blobStorePath, final @NotNull NodeState root) {
+        this.nodeStore = new MemoryNodeStore(root);
+        this.blobStore = new FileBlobStore(blobStorePath);
+    }
+
     @Override
     protected NodeStore getNodeStore() {
         return nodeStore;
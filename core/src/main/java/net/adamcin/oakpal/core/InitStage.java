@@ -23,7 +23,6 @@ import org.apache.jackrabbit.spi.PrivilegeDefinition;
 import org.apache.jackrabbit.spi.QNodeTypeDefinition;
 import org.apache.jackrabbit.spi.commons.conversion.DefaultNamePathResolver;
 import org.apache.jackrabbit.spi.commons.conversion.NamePathResolver;
-import org.apache.jackrabbit.spi.commons.nodetype.NodeTypeDefinitionFactory;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -31,7 +30,6 @@ import javax.jcr.NamespaceRegistry;
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
-import javax.jcr.nodetype.NodeTypeDefinition;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
@@ -345,15 +343,53 @@ public final class InitStage {
         }
     }
 
+    /**
+     * Create a copy of this stage which only registers namespaces, privileges and node types.
+     *
+     * @return a new init stage
+     * @see RegistryBundle
+     */
+    InitStage definitionsOnly() {
+        return new InitStage(Collections.emptyList(), Collections.emptyList(), unorderedCndUrls, orderedCndUrls,
+                qNodeTypes, namespaces, privileges, privilegeNames, Collections.emptyMap());
+    }
+
+    /**
+     * Create a copy of this stage without namespaces, privileges and node types, which only creates forced roots and
+     * applies repoinit scripts.
+     *
+     * @return a new init stage
+     * @see RegistryBundle
+     */
+    InitStage withoutDefinitions() {
+        return new InitStage(repoInits, repoInitUrls, Collections.emptyList(), Collections.emptyList(),
+                Collections.emptyList(), Collections.emptyMap(), Collections.emptySet(), Collections.emptySet(),
+                forcedRoots);
+    }
+
     void initSession(final Session admin, final ErrorListener errorListener,
                      final OakMachine.RepoInitProcessor repoInitProcessor)
             throws RepositoryException {
+        final BulkNodeTypeInstaller nodeTypeInstaller = new BulkNodeTypeInstaller(errorListener);
+        collectDefinitions(admin, errorListener, nodeTypeInstaller);
+        nodeTypeInstaller.register(admin);
+        initContent(admin, errorListener, repoInitProcessor);
+    }
 
+    /**
+     * Parse the CND urls and add the node types of this stage to the installer, and register the namespaces. The node
+     * types are registered later by {@link BulkNodeTypeInstaller#register(Session)}, together with those of the other
+     * init stages.
+     *
+     * @param admin             the admin session
+     * @param errorListener     the error listener
+     * @param nodeTypeInstaller the node type installer
+     */
+    void collectDefinitions(final Session admin, final ErrorListener errorListener,
+                            final BulkNodeTypeInstaller nodeTypeInstaller)
+            throws RepositoryException {
 
-        final CNDURLInstaller cndInstaller = new CNDURLInstaller(errorListener,
-                this.unorderedCndUrls, this.orderedCndUrls);
-
-        cndInstaller.register(admin);
+        nodeTypeInstaller.addCndUrls(admin, this.unorderedCndUrls, this.orderedCndUrls);
 
         final NamespaceRegistry registry = admin.getWorkspace().getNamespaceRegistry();
 
@@ -370,18 +406,20 @@ public final class InitStage {
             }
         }));
 
-        if (!qNodeTypes.isEmpty()) {
-            try {
-                NodeTypeDefinitionFactory fac = new NodeTypeDefinitionFactory(admin);
-                List<NodeTypeDefinition> nodeTypes = fac.create(qNodeTypes);
-
-                admin.getWorkspace().getNodeTypeManager()
-                        .registerNodeTypes(nodeTypes.toArray(new NodeTypeDefinition[0]), true);
-            } catch (final RepositoryException e) {
-                // TODO should an init stage also carry an optional source URL for this kind of thing?
-                errorListener.onNodeTypeRegistrationError(e, null);
-            }
-        }
+        nodeTypeInstaller.addQNodeTypes(qNodeTypes);
+    }
+
+    /**
+     * Register the privileges, create the forced roots and apply the repoinit scripts of this stage, after the node
+     * types of all init stages have been registered.
+     *
+     * @param admin             the admin session
+     * @param errorListener     the error listener
+     * @param repoInitProcessor the repoinit processor
+     */
+    void initContent(final Session admin, final ErrorListener errorListener,
+                     final OakMachine.RepoInitProcessor repoInitProcessor)
+            throws RepositoryException {
 
         if (!privilegeNames.isEmpty()) {
             if (admin.getWorkspace() instanceof JackrabbitWorkspace) {
@@ -18,6 +18,8 @@ package net.adamcin.oakpal.core;
 
 import net.adamcin.oakpal.api.ProgressCheck;
 import net.adamcin.oakpal.api.ProgressCheckFactory;
+import net.adamcin.oakpal.api.SimpleProgressCheck;
+import net.adamcin.oakpal.core.checks.FusedProgressCheck;
 
 import javax.json.JsonObject;
 import javax.json.JsonValue;
@@ -157,6 +159,17 @@ public final class Locator {
                                     checkLoader)
                             .newInstance(checkSpec.getConfig());
                 }
+                if (progressCheck instanceof ScriptProgressCheck) {
+                    ((ScriptProgressCheck) progressCheck).setTimeBudget(ScriptTimeBudget
+                            .of(checkSpec.getCallbackTimeBudget(), checkSpec.getScanTimeBudget()));
+                }
+                if (checkSpec.getMaxViolations() > 0) {
+                    if (progressCheck instanceof SimpleProgressCheck) {
+                        ((SimpleProgressCheck) progressCheck).setMaxViolations(checkSpec.getMaxViolations());
+                    } else if (progressCheck instanceof ScriptProgressCheck) {
+                        ((ScriptProgressCheck) progressCheck).setMaxViolations(checkSpec.getMaxViolations());
+                    }
+                }
                 if (checkSpec.getName() != null && !checkSpec.getName().isEmpty()) {
                     progressCheck = wrapWithAlias(progressCheck, checkSpec.getName());
                 }
@@ -168,4 +181,52 @@ public final class Locator {
         }
         return allChecks;
     }
+
+    /**
+     * Fuse any instances of the declarative built-in checks that are supported by {@link FusedProgressCheck}, whether
+     * aliased or not, into one check which is placed in the list at the position of the first of them, so that each
+     * imported path is evaluated in a single pass. Resource bundles must be set on the checks before fusing them.
+     * Use {@link FusedProgressCheck#getReporters()} to report the fused checks individually.
+     *
+     * @param checks the loaded checks
+     * @return a new list of checks, or the same checks if fewer than two can be fused
+     * @since 2.3.0
+     */
+    public static List<ProgressCheck> fuseCompatibleChecks(final List<ProgressCheck> checks) {
+        final List<ProgressCheck> reporters = new ArrayList<>();
+        final List<ProgressCheck> fusables = new ArrayList<>();
+        for (ProgressCheck check : checks) {
+            final ProgressCheck unwrapped = unwrapFacades(check);
+            if (FusedProgressCheck.isFusable(unwrapped)) {
+                reporters.add(check);
+                fusables.add(unwrapped);
+            }
+        }
+        if (fusables.size() < 2) {
+            return new ArrayList<>(checks);
+        }
+        final FusedProgressCheck fused = FusedProgressCheck.fuse(reporters, fusables);
+        final List<ProgressCheck> fusedChecks = new ArrayList<>();
+        for (ProgressCheck check : checks) {
+            if (check == reporters.get(0)) {
+                fusedChecks.add(fused);
+            } else if (!reporters.contains(check)) {
+                fusedChecks.add(check);
+            }
+        }
+        return fusedChecks;
+    }
+
+    static ProgressCheck unwrapFacades(final ProgressCheck check) {
+        ProgressCheck unwrapped = check;
+        while (true) {
+            if (unwrapped instanceof ProgressCheckAliasFacade) {
+                unwrapped = ((ProgressCheckAliasFacade) unwrapped).getWrapped();
+            } else if (unwrapped instanceof SilencingCheckFacade) {
+                unwrapped = ((SilencingCheckFacade) unwrapped).getWrapped();
+            } else {
+                return unwrapped;
+            }
+        }
+    }
 }
@@ -20,8 +20,16 @@ import net.adamcin.oakpal.api.EmbeddedPackageInstallable;
 import net.adamcin.oakpal.api.Fun;
 import net.adamcin.oakpal.api.PathAction;
 import net.adamcin.oakpal.api.ProgressCheck;
+import net.adamcin.oakpal.api.ReportCollector;
+import net.adamcin.oakpal.api.Result;
+import net.adamcin.oakpal.api.RuleMatchCache;
+import net.adamcin.oakpal.api.Severity;
 import net.adamcin.oakpal.api.SilenceableCheck;
 import net.adamcin.oakpal.api.SlingInstallable;
+import net.adamcin.oakpal.api.UnsubscribingCheck;
+import net.adamcin.oakpal.api.Violation;
+import net.adamcin.oakpal.api.ViolationReporter;
+import net.adamcin.oakpal.core.checks.FusedProgressCheck;
 import net.adamcin.oakpal.core.sling.DefaultSlingSimulator;
 import net.adamcin.oakpal.core.sling.SlingRepoInitScripts;
 import net.adamcin.oakpal.core.sling.SlingSimulatorBackend;
@@ -47,6 +55,9 @@ import org.apache.jackrabbit.oak.spi.state.NodeBuilder;
 import org.apache.jackrabbit.oak.spi.state.NodeStore;
 import org.apache.jackrabbit.oak.spi.xml.ImportBehavior;
 import org.apache.jackrabbit.oak.spi.xml.ProtectedItemImporter;
+import org.apache.jackrabbit.spi.commons.QNodeTypeDefinitionImpl;
+import org.apache.jackrabbit.spi.commons.conversion.DefaultNamePathResolver;
+import org.apache.jackrabbit.spi.commons.value.QValueFactoryImpl;
 import org.apache.jackrabbit.vault.fs.api.ProgressTrackerListener;
 import org.apache.jackrabbit.vault.packaging.DependencyHandling;
 import org.apache.jackrabbit.vault.packaging.DependencyUtil;
@@ -60,6 +71,7 @@ import org.apache.jackrabbit.vault.packaging.SubPackageHandling;
 import org.apache.jackrabbit.vault.packaging.VaultPackage;
 import org.apache.sling.repoinit.parser.RepoInitParsingException;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import javax.jcr.Node;
 import javax.jcr.Property;
@@ -80,9 +92,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
@@ -93,6 +107,7 @@ import java.util.function.Supplier;
 import java.util.jar.JarInputStream;
 import java.util.jar.Manifest;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static net.adamcin.oakpal.api.Fun.uncheck1;
 import static net.adamcin.oakpal.api.Fun.uncheckVoid1;
@@ -137,6 +152,30 @@ public final class OakMachine {
 
     private final Set<String> runModes;
 
+    private final ReportListener reportListener;
+
+    private final Severity failFastSeverity;
+
+    private final RepositoryBaseline baseline;
+
+    private final int maxViolations;
+
+    /**
+     * True when a violation meeting the {@link #failFastSeverity} has been reported during the current scan.
+     */
+    private boolean failedFast;
+
+    /**
+     * The {@link UnsubscribingCheck}s which have unsubscribed from path events for the remainder of the current scan.
+     */
+    private final Set<ProgressCheck> unsubscribedForScan = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * The reporters which have reported a violation through a {@link ReportCollector} during the current scan, and the
+     * names to deliver their violations under.
+     */
+    private final Map<ViolationReporter, String> streamingReporters = new IdentityHashMap<>();
+
     private OakMachine(final Packaging packagingService,
                        final List<ProgressCheck> progressChecks,
                        final ErrorListener errorListener,
@@ -151,7 +190,11 @@ public final class OakMachine {
                        final SubpackageSilencer subpackageSilencer,
                        final RepoInitProcessor repoInitProcessor,
                        final SlingSimulatorBackend slingSimulator,
-                       final Set<String> runModes) {
+                       final Set<String> runModes,
+                       final ReportListener reportListener,
+                       final Severity failFastSeverity,
+                       final RepositoryBaseline baseline,
+                       final int maxViolations) {
         this.packagingService = packagingService != null ? packagingService : newOakpalPackagingService();
         this.progressChecks = progressChecks;
         this.errorListener = errorListener;
@@ -162,7 +205,9 @@ public final class OakMachine {
         this.installHookClassLoader = installHookClassLoader;
         this.enablePreInstallHooks = enablePreInstallHooks;
         this.scanInstallHookPolicy = scanInstallHookPolicy;
-        this.nodeStoreSupplier = nodeStoreSupplier != null ? nodeStoreSupplier : MemoryNodeStore::new;
+        this.nodeStoreSupplier = nodeStoreSupplier != null
+                ? nodeStoreSupplier
+                : baseline != null ? baseline::newNodeStore : MemoryNodeStore::new;
         this.subpackageSilencer = subpackageSilencer != null ? subpackageSilencer : (packageId, parentId) -> false;
         this.repoInitProcessor = repoInitProcessor != null
                 ? repoInitProcessor
@@ -171,6 +216,10 @@ public final class OakMachine {
         this.runModes = runModes != null
                 ? Collections.unmodifiableSet(new LinkedHashSet<>(runModes))
                 : Collections.emptySet();
+        this.reportListener = reportListener;
+        this.failFastSeverity = failFastSeverity;
+        this.baseline = baseline;
+        this.maxViolations = maxViolations;
     }
 
     /**
@@ -216,6 +265,14 @@ public final class OakMachine {
 
         private Set<String> runModes;
 
+        private ReportListener reportListener;
+
+        private Severity failFastSeverity;
+
+        private RepositoryBaseline baseline;
+
+        private int maxViolations;
+
         /**
          * Provide a {@link Packaging} service for use in retrieving a {@link JcrPackageManager} for an admin session.
          * <p>
@@ -496,6 +553,65 @@ public final class OakMachine {
             return this;
         }
 
+        /**
+         * Provide a listener to receive scan progress and violations while the scan is running.
+         *
+         * @param reportListener the report listener
+         * @return my builder self
+         * @since 2.3.0
+         */
+        public Builder withReportListener(final ReportListener reportListener) {
+            this.reportListener = reportListener;
+            return this;
+        }
+
+        /**
+         * Stop the scan early once a violation at or above the specified severity has been reported by a check or the
+         * error listener. Each violation is checked as it is reported to a {@link ReportCollector}, and when one
+         * qualifies, the extraction of the current package is stopped and its content discarded, no further packages
+         * are installed, the checks receive {@link ProgressCheck#finishedScan()}, and the partial reports are
+         * returned. The violations of checks which do not use a {@link ReportCollector} are not checked.
+         *
+         * @param failFastSeverity the minimum severity to stop the scan, or null to complete every scan
+         * @return my builder self
+         * @since 2.3.0
+         */
+        public Builder withFailFastSeverity(final Severity failFastSeverity) {
+            this.failFastSeverity = failFastSeverity;
+            return this;
+        }
+
+        /**
+         * Start each scan from a baseline captured by a machine with the same init stages, instead of running the init
+         * stages of this machine. Unless a {@link #withNodeStoreSupplier(Supplier)} is also specified, the scan uses
+         * {@link RepositoryBaseline#newNodeStore()}. A custom node store supplier must start from
+         * {@link RepositoryBaseline#getRoot()}.
+         *
+         * @param baseline the baseline, or null to run the init stages for each scan
+         * @return my builder self
+         * @see OakMachine#captureBaseline()
+         * @since 2.3.0
+         */
+        public Builder withBaseline(final RepositoryBaseline baseline) {
+            this.baseline = baseline;
+            return this;
+        }
+
+        /**
+         * Cap the number of violations retained by all checks during a scan, for checks which collect their violations
+         * with a {@link ReportCollector}. Beyond the cap, violations are aggregated by severity and description
+         * template into a single violation per template, which counts the occurrences.
+         *
+         * @param maxViolations the maximum number of violations to retain per scan, or 0 if unlimited
+         * @return my builder self
+         * @see ReportCollector#openScanScope(int)
+         * @since 2.3.0
+         */
+        public Builder withMaxViolations(final int maxViolations) {
+            this.maxViolations = maxViolations;
+            return this;
+        }
+
         /**
          * Construct a {@link OakMachine} from the {@link Builder} state.
          *
@@ -516,7 +632,11 @@ public final class OakMachine {
                     subpackageSilencer,
                     repoInitProcesser,
                     slingSimulator,
-                    runModes);
+                    runModes,
+                    reportListener,
+                    failFastSeverity,
+                    baseline,
+                    maxViolations);
         }
     }
 
@@ -528,6 +648,46 @@ public final class OakMachine {
         return errorListener;
     }
 
+    /**
+     * Get the listener for scan progress and violations, if one was provided.
+     *
+     * @return the report listener or null
+     * @since 2.3.0
+     */
+    public @Nullable ReportListener getReportListener() {
+        return reportListener;
+    }
+
+    /**
+     * Get the minimum severity of a violation that stops a scan early, if specified.
+     *
+     * @return the fail-fast severity or null
+     * @since 2.3.0
+     */
+    public @Nullable Severity getFailFastSeverity() {
+        return failFastSeverity;
+    }
+
+    /**
+     * Get the maximum number of violations retained by all checks during a scan.
+     *
+     * @return the maximum number of violations, or 0 if unlimited
+     * @since 2.3.0
+     */
+    public int getMaxViolations() {
+        return maxViolations;
+    }
+
+    /**
+     * Return true if the last scan was stopped early because a violation met the fail-fast severity.
+     *
+     * @return true if the last scan failed fast
+     * @since 2.3.0
+     */
+    public boolean isFailedFast() {
+        return failedFast;
+    }
+
     /**
      * Return the urls filtered and mapped back to files.
      *
@@ -601,13 +761,9 @@ public final class OakMachine {
         try {
             scanRepo = initRepository();
             admin = loginAdmin(scanRepo);
-            addOakpalTypes(admin);
-
             final JcrPackageManager manager = packagingService.getPackageManager(admin);
 
-            for (InitStage initStage : this.initStages) {
-                initStage.initSession(admin, getErrorListener(), repoInitProcessor);
-            }
+            initStages(admin);
 
             initSlingSimulator(admin, manager, errorListener);
 
@@ -647,17 +803,26 @@ public final class OakMachine {
      * Execute a scan by installing each of the provided package files in sequence. The scan proceeds in the following
      * order:
      * <ol>
+     * <li>A {@link RuleMatchCache} scan scope and a {@link ReportCollector} scan scope are opened for the current
+     * thread. If a {@link ReportListener} or a {@link #getFailFastSeverity()} is provided, the report scope listens for
+     * violations as they are reported to a {@link ReportCollector}, and the {@link ReportListener} receives a
+     * {@link ReportListener#startedScan()} event.</li>
      * <li>{@link #initRepository()} creates an fresh Oak repository.</li>
      * <li>{@link #loginAdmin(Repository)} opens an admin user JCR session.</li>
-     * <li>{@code InitStage.initSession(Session, ErrorListener, RepoInitProcessor)} is called for each registered {@link InitStage}</li>
+     * <li>The node types of the oakpal and FileVault namespaces and of each registered {@link InitStage} are collected
+     * and registered together, after which each {@link InitStage} creates its privileges, forced roots and repoinit
+     * content.</li>
      * <li>{@link #processPackageFile(Session, JcrPackageManager, boolean, File)} is performed for each of the
      * {@link #preInstallUrls}</li>
      * <li>Each registered {@link ProgressCheck} receives a {@link ProgressCheck#startedScan()} event.</li>
      * <li>{@link #processPackageFile(Session, JcrPackageManager, boolean, File)} is performed for each of the elements
-     * of the {@code files} array.</li>
+     * of the {@code files} array, until a violation meets the {@link #getFailFastSeverity()}, if specified.</li>
      * <li>Each registered {@link ProgressCheck} receives a {@link ProgressCheck#finishedScan()} event.</li>
      * <li>The admin session is closed.</li>
      * <li>The repository is shutdown.</li>
+     * <li>The {@link RuleMatchCache} and {@link ReportCollector} scan scopes are closed.</li>
+     * <li>The {@link ReportListener}, if provided, receives the violations of any reporter which did not report them
+     * through a {@link ReportCollector}, followed by a {@link ReportListener#finishedScan()} event.</li>
      * </ol>
      *
      * @param files a list of FileVault content package files to be installed in sequence.
@@ -667,6 +832,14 @@ public final class OakMachine {
     public List<CheckReport> scanPackages(final List<File> files) throws AbortedScanException {
         getErrorListener().startedScan();
 
+        final RuleMatchCache.Scope ruleMatchScope = RuleMatchCache.openScanScope(RuleMatchCache.DEFAULT_MAX_ENTRIES);
+        streamingReporters.clear();
+        failedFast = false;
+        final ReportCollector.Scope reportScope = ReportCollector.openScanScope(maxViolations,
+                reportListener != null || failFastSeverity != null ? this::onReportedViolation : null);
+        if (reportListener != null) {
+            reportListener.startedScan();
+        }
         Session admin = null;
         Repository scanRepo = null;
         try {
@@ -674,25 +847,28 @@ public final class OakMachine {
 
             admin = loginAdmin(scanRepo);
 
-            addOakpalTypes(admin);
-
             final JcrPackageManager manager = packagingService.getPackageManager(admin);
 
-            for (final InitStage initStage : this.initStages) {
-                initStage.initSession(admin, getErrorListener(), repoInitProcessor);
-            }
+            initStages(admin);
 
             initSlingSimulator(admin, manager, errorListener);
-            progressChecks.forEach(check -> check.simulateSling(slingSimulator, runModes));
+            forEachCheck(check -> check.simulateSling(slingSimulator, runModes));
             slingSimulator.startedScan();
-            progressChecks.forEach(ProgressCheck::startedScan);
+            unsubscribedForScan.clear();
+            forEachCheck(ProgressCheck::startedScan);
 
             for (final URL url : preInstallUrls) {
+                if (failedFast) {
+                    break;
+                }
                 processPackageUrl(admin, manager, true, url);
             }
 
             if (files != null) {
                 for (final File file : files) {
+                    if (failedFast) {
+                        break;
+                    }
                     processPackageFile(admin, manager, false, file);
                 }
             }
@@ -700,21 +876,32 @@ public final class OakMachine {
         } catch (RepositoryException e) {
             throw new AbortedScanException(e);
         } finally {
-            progressChecks.forEach(ProgressCheck::finishedScan);
-            slingSimulator.finishedScan();
+            try {
+                forEachCheck(ProgressCheck::finishedScan);
+                slingSimulator.finishedScan();
 
-            if (admin != null) {
-                admin.logout();
-            }
+                if (admin != null) {
+                    admin.logout();
+                }
 
-            shutdownRepository(scanRepo);
+                shutdownRepository(scanRepo);
+
+                getErrorListener().finishedScan();
+            } finally {
+                // the scopes are thread-local, so they must not outlive a failed scan on a pooled thread
+                reportScope.close();
+                ruleMatchScope.close();
+            }
 
-            getErrorListener().finishedScan();
+            if (reportListener != null) {
+                reportNonStreamingViolations();
+                reportListener.finishedScan();
+            }
         }
 
         List<CheckReport> reports = new ArrayList<>();
         reports.add(SimpleReport.generateReport(getErrorListener()));
-        List<CheckReport> listenerReports = progressChecks.stream()
+        List<CheckReport> listenerReports = getReportingChecks()
                 .map(SimpleReport::generateReport)
                 .collect(Collectors.toList());
 
@@ -723,8 +910,150 @@ public final class OakMachine {
         return Collections.unmodifiableList(reports);
     }
 
-    private void addOakpalTypes(final Session admin) throws RepositoryException {
-        this.installVltNodetypes(admin);
+    /**
+     * Get the checks which produce a {@link CheckReport}, replacing each {@link FusedProgressCheck} with the checks
+     * it reports for.
+     *
+     * @return a stream of reporting checks
+     */
+    final Stream<ProgressCheck> getReportingChecks() {
+        return progressChecks.stream()
+                .flatMap(check -> check instanceof FusedProgressCheck
+                        ? ((FusedProgressCheck) check).getReporters().stream()
+                        : Stream.of(check));
+    }
+
+    /**
+     * Deliver an event to each registered check, attributing the violations it reports to it.
+     *
+     * @param event the event
+     */
+    private void forEachCheck(final @NotNull Consumer<ProgressCheck> event) {
+        for (final ProgressCheck check : progressChecks) {
+            final ViolationReporter previous = ReportCollector.attributeTo(check);
+            try {
+                event.accept(check);
+            } finally {
+                ReportCollector.attributeTo(previous);
+            }
+        }
+    }
+
+    /**
+     * Deliver a violation reported to a {@link ReportCollector} to the {@link #reportListener}, if provided, and check
+     * it against the {@link #failFastSeverity}, if specified. Violations reported while no check is handling an event
+     * are attributed to the {@link ErrorListener}.
+     *
+     * @param reporter   the reporting check, or null
+     * @param violation  the violation
+     * @param summarized true if the violation is only counted in the aggregate of an earlier violation
+     */
+    final void onReportedViolation(final @Nullable ViolationReporter reporter,
+                                   final @NotNull Violation violation,
+                                   final boolean summarized) {
+        if (failFastSeverity != null && violation.getSeverity() != null
+                && failFastSeverity.meetsMinimumSeverity().test(violation.getSeverity())) {
+            failedFast = true;
+        }
+        final ViolationReporter attributed = reporter != null ? reporter : getErrorListener();
+        final String checkName = streamingReporters.computeIfAbsent(attributed, OakMachine::getReporterName);
+        if (reportListener != null && !summarized) {
+            reportListener.reportedViolation(checkName, violation);
+        }
+    }
+
+    /**
+     * Deliver the violations of the reporters which did not report any through a {@link ReportCollector} to the
+     * {@link #reportListener} at the end of the scan.
+     */
+    private void reportNonStreamingViolations() {
+        Stream.concat(Stream.of(getErrorListener()), getReportingChecks())
+                .filter(reporter -> !streamingReporters.containsKey(reporter))
+                .forEachOrdered(reporter -> {
+                    final String checkName = getReporterName(reporter);
+                    for (final Violation violation : reporter.getReportedViolations()) {
+                        reportListener.reportedViolation(checkName, violation);
+                    }
+                });
+    }
+
+    static @NotNull String getReporterName(final @NotNull ViolationReporter reporter) {
+        if (reporter instanceof ProgressCheck) {
+            return Optional.ofNullable(((ProgressCheck) reporter).getCheckName())
+                    .orElse(reporter.getClass().getSimpleName());
+        }
+        return reporter.getClass().getSimpleName();
+    }
+
+    /**
+     * Start from the {@link #baseline}, if specified, or run the init stages.
+     *
+     * @param admin the admin session
+     * @throws RepositoryException for repository errors
+     */
+    private void initStages(final Session admin) throws RepositoryException {
+        if (baseline != null) {
+            baseline.initSession(admin);
+        } else {
+            initStages(admin, getErrorListener());
+        }
+    }
+
+    /**
+     * Register the node types of all init stages with a single {@link BulkNodeTypeInstaller}, then initialize the
+     * content of each init stage.
+     *
+     * @param admin         the admin session
+     * @param errorListener the error listener
+     * @throws RepositoryException for repository errors
+     */
+    private void initStages(final Session admin, final ErrorListener errorListener) throws RepositoryException {
+        final BulkNodeTypeInstaller nodeTypeInstaller = new BulkNodeTypeInstaller(errorListener);
+        addOakpalTypes(admin, nodeTypeInstaller);
+        for (final InitStage initStage : this.initStages) {
+            initStage.collectDefinitions(admin, errorListener, nodeTypeInstaller);
+        }
+        nodeTypeInstaller.register(admin);
+        for (final InitStage initStage : this.initStages) {
+            initStage.initContent(admin, errorListener, repoInitProcessor);
+        }
+    }
+
+    /**
+     * Run the init stages of this machine in a new memory repository, and capture the resulting state as a baseline
+     * for other machines with the same init stages. Any baseline of this machine is ignored. No checks are notified,
+     * and errors are not reported to the error listener of this machine.
+     *
+     * @return the baseline, or null if an init stage reported an error, which each scan should report instead
+     * @throws RepositoryException for repository errors
+     * @see Builder#withBaseline(RepositoryBaseline)
+     * @since 2.3.0
+     */
+    public @Nullable RepositoryBaseline captureBaseline() throws RepositoryException {
+        final NodeStore nodeStore = new MemoryNodeStore();
+        final DefaultErrorListener initErrorListener = new DefaultErrorListener();
+        Session admin = null;
+        Repository scanRepo = null;
+        try {
+            scanRepo = initRepository(nodeStore);
+            admin = loginAdmin(scanRepo);
+            initStages(admin, initErrorListener);
+            if (!initErrorListener.getReportedViolations().isEmpty()) {
+                return null;
+            }
+            return new RepositoryBaseline(nodeStore.getRoot(), RepositoryBaseline.captureSessionNamespaces(admin));
+        } finally {
+            if (admin != null) {
+                admin.logout();
+            }
+            shutdownRepository(scanRepo);
+        }
+    }
+
+    private void addOakpalTypes(final Session admin, final BulkNodeTypeInstaller nodeTypeInstaller)
+            throws RepositoryException {
+        nodeTypeInstaller.addCndUrls(admin, Collections.emptyList(),
+                Collections.singletonList(JcrPackageManager.class.getResource("impl/nodetypes.cnd")));
         admin.getWorkspace().getNamespaceRegistry().registerNamespace(NS_PREFIX_OAKPAL, NS_URI_OAKPAL);
         admin.setNamespacePrefix(NS_PREFIX_OAKPAL, NS_URI_OAKPAL);
         TemplateBuilderFactory builderFactory = new TemplateBuilderFactory(admin);
@@ -762,7 +1091,8 @@ public final class OakMachine {
         nodeDef.setAllowsSameNameSiblings(true);
         nodeDef.build();
 
-        admin.getWorkspace().getNodeTypeManager().registerNodeType(builder.build(), false);
+        nodeTypeInstaller.addQNodeTypes(Collections.singletonList(new QNodeTypeDefinitionImpl(builder.build(),
+                new DefaultNamePathResolver(admin), QValueFactoryImpl.getInstance())));
     }
 
     private void processPackage(Session admin, JcrPackageManager manager, JcrPackage jcrPackage, final boolean preInstall)
@@ -814,7 +1144,20 @@ public final class OakMachine {
                 handler.beforeExtract(packageId, inspectSession, vaultPackage.getProperties(),
                         vaultPackage.getMetaInf(), subpacks));
 
-        jcrPackage.extract(options);
+        if (failedFast) {
+            return;
+        }
+        try {
+            jcrPackage.extract(options);
+        } catch (final PackageException | RuntimeException e) {
+            // the importer wraps the exception thrown by the listener
+            if (!Result.failure(e).findCause(FailedFastException.class).isPresent()) {
+                throw e;
+            }
+            // discard the partially extracted content, along with the remaining events of the package
+            admin.refresh(false);
+            return;
+        }
         admin.save();
 
         final SubPackageHandling subPackageHandling = jcrPackage.getPackage().getSubPackageHandling();
@@ -872,7 +1215,17 @@ public final class OakMachine {
                     ((SilenceableCheck) check).setSilenced(silenced);
                 }
                 if (!silenced || check instanceof SilenceableCheck) {
-                    checkVisitor.tryAccept(check);
+                    final ViolationReporter previous = ReportCollector.attributeTo(check);
+                    try {
+                        checkVisitor.tryAccept(check);
+                    } finally {
+                        ReportCollector.attributeTo(previous);
+                    }
+                }
+            } catch (final FusedProgressCheck.FusedCheckException e) {
+                if (!silenced) {
+                    // attribute each error to the fused check that threw it rather than to the fused wrapper
+                    e.getErrors().forEach(error -> onError.accept(error.getKey(), error.getValue()));
                 }
             } catch (final Exception e) {
                 if (!silenced) {
@@ -899,9 +1252,42 @@ public final class OakMachine {
                                        final @NotNull PackageId packageId,
                                        final @NotNull String path,
                                        final @NotNull Fun.ThrowingConsumer<ProgressCheck> checkVisitor) {
+        propagateCheckPathEvent(silenced, packageId, path, progressChecks, checkVisitor);
+    }
+
+    final void propagateCheckPathEvent(final boolean silenced,
+                                       final @NotNull PackageId packageId,
+                                       final @NotNull String path,
+                                       final @NotNull List<ProgressCheck> checks,
+                                       final @NotNull Fun.ThrowingConsumer<ProgressCheck> checkVisitor) {
         final Consumer<ProgressCheck> checkConsumer = newProgressCheckEventConsumer(silenced, checkVisitor,
                 (check, error) -> getErrorListener().onListenerPathException(error, check, packageId, path));
-        progressChecks.forEach(checkConsumer);
+        checks.forEach(checkConsumer);
+    }
+
+    /**
+     * Determine whether the check should receive further path events for the current package. A check which has
+     * unsubscribed for the remainder of the scan is remembered until the next scan is started.
+     *
+     * @param check the progress check
+     * @return true if the check should receive further path events
+     */
+    final boolean isPathSubscriber(final @NotNull ProgressCheck check) {
+        if (unsubscribedForScan.contains(check)) {
+            return false;
+        }
+        if (check instanceof UnsubscribingCheck) {
+            switch (((UnsubscribingCheck) check).getPathSubscription()) {
+                case UNSUBSCRIBED_FOR_SCAN:
+                    unsubscribedForScan.add(check);
+                    return false;
+                case UNSUBSCRIBED_FOR_PACKAGE:
+                    return false;
+                default:
+                    return true;
+            }
+        }
+        return true;
     }
 
     final void internalProcessSubpackage(final @NotNull Session admin,
@@ -911,6 +1297,9 @@ public final class OakMachine {
                                          final @NotNull Fun.ThrowingSupplier<JcrPackage> jcrPackageSupplier,
                                          final @NotNull Fun.ThrowingConsumer<ProgressCheck> identifyEvent,
                                          final @NotNull Consumer<Exception> onError) throws RepositoryException {
+        if (failedFast) {
+            return;
+        }
         try (JcrPackage jcrPackage = jcrPackageSupplier.tryGet()) {
             if (jcrPackage != null) {
                 propagateCheckPackageEvent(preInstall, packageId, identifyEvent);
@@ -967,6 +1356,9 @@ public final class OakMachine {
         processInstallableQueue(admin, manager, packageId, preInstall);
         propagateCheckPackageEvent(preInstall, packageId,
                 handler -> handler.afterScanPackage(packageId, Util.wrapSessionReadOnly(admin)));
+        if (reportListener != null) {
+            reportListener.scannedPackage(packageId, preInstall);
+        }
 
     }
 
@@ -976,7 +1368,7 @@ public final class OakMachine {
                                  final boolean preInstall) throws RepositoryException {
         final Session inspectSession = Util.wrapSessionReadOnly(admin);
         SlingInstallable dequeued = slingSimulator.dequeueInstallable();
-        while (dequeued != null) {
+        while (dequeued != null && !failedFast) {
             final SlingInstallable installable = dequeued;
 
             propagateCheckPackageEvent(preInstall, installable.getParentId(),
@@ -1060,7 +1452,10 @@ public final class OakMachine {
     }
 
     private Repository initRepository() throws RepositoryException {
-        final NodeStore nodeStore = nodeStoreSupplier.get();
+        return initRepository(nodeStoreSupplier.get());
+    }
+
+    private Repository initRepository(final NodeStore nodeStore) throws RepositoryException {
         final Oak oak = nodeStore == null ? new Oak() : new Oak(nodeStore);
         final Jcr jcr = new Jcr(oak);
 
@@ -1120,12 +1515,14 @@ public final class OakMachine {
         }
     }
 
-    private void installVltNodetypes(final Session admin) throws RepositoryException {
-        new CNDURLInstaller(getErrorListener(),
-                Collections.emptyList(),
-                Collections.singletonList(JcrPackageManager.class.getResource(
-                        "impl/nodetypes.cnd")))
-                .register(admin);
+    /**
+     * Thrown by the {@link ImporterListenerAdapter} to stop extracting a package once a violation has met the
+     * {@link #failFastSeverity}.
+     */
+    static final class FailedFastException extends RuntimeException {
+        FailedFastException(final @NotNull PackageId packageId) {
+            super("scan failed fast while extracting " + packageId);
+        }
     }
 
     final class ImporterListenerAdapter implements ProgressTrackerListener {
@@ -1135,23 +1532,55 @@ public final class OakMachine {
 
         private final boolean silenced;
 
+        private List<ProgressCheck> pathSubscribers;
+
         ImporterListenerAdapter(PackageId packageId, Session session, boolean silenced) {
             this.packageId = packageId;
             this.session = session;
             this.silenced = silenced;
         }
 
+        /**
+         * Lazily collect the checks subscribed to path events for this package, since the first path event follows
+         * the {@link ProgressCheck#beforeExtract} event.
+         *
+         * @return the mutable list of checks subscribed to path events for this package
+         */
+        List<ProgressCheck> getPathSubscribers() {
+            if (pathSubscribers == null) {
+                pathSubscribers = progressChecks.stream()
+                        .filter(OakMachine.this::isPathSubscriber)
+                        .collect(Collectors.toCollection(ArrayList::new));
+            }
+            return pathSubscribers;
+        }
+
+        void propagatePathEvent(final @NotNull String path,
+                                final @NotNull Fun.ThrowingConsumer<ProgressCheck> checkVisitor) {
+            final List<ProgressCheck> subscribers = getPathSubscribers();
+            if (!subscribers.isEmpty()) {
+                propagateCheckPathEvent(silenced, packageId, path, subscribers, checkVisitor);
+                subscribers.removeIf(check -> !isPathSubscriber(check));
+            }
+        }
+
         @Override
         public void onMessage(Mode mode, String action, String path) {
+            if (failedFast) {
+                throw new FailedFastException(packageId);
+            }
             // NOP("-"), MOD("U"), REP("R"), ERR("E"), ADD("A"), DEL("D"), MIS("!")
             if (path != null && path.startsWith("/")) {
                 if ("D".equals(action)) { // deleted
-                    propagateCheckPathEvent(silenced, packageId, path,
-                            check -> check.deletedPath(packageId, path, session));
+                    propagatePathEvent(path, check -> check.deletedPath(packageId, path, session));
                 } else if ("ARU-".contains(action)) { // added, replaced, updated
+                    if (getPathSubscribers().isEmpty()) {
+                        // no need to read the node when every check has unsubscribed
+                        return;
+                    }
                     try {
                         Node node = session.getNode(path);
-                        propagateCheckPathEvent(silenced, packageId, path, check ->
+                        propagatePathEvent(path, check ->
                                 check.importedPath(packageId, path, node, PathAction.fromShortCode(action)));
                     } catch (RepositoryException e) {
                         if (!silenced) {
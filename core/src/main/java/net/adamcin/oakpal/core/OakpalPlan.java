@@ -27,7 +27,9 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.ResourceBundle;
@@ -72,6 +74,12 @@ public final class OakpalPlan implements JsonObjectConvertible {
         String enablePreInstallHooks();
 
         String installHookPolicy();
+
+        String registryBundle();
+
+        String maxViolations();
+
+        String maxViolationsPerCheck();
     }
 
     private static final JsonKeys KEYS = new JsonKeys() {
@@ -134,6 +142,21 @@ public final class OakpalPlan implements JsonObjectConvertible {
         public String installHookPolicy() {
             return "installHookPolicy";
         }
+
+        @Override
+        public String registryBundle() {
+            return "registryBundle";
+        }
+
+        @Override
+        public String maxViolations() {
+            return "maxViolations";
+        }
+
+        @Override
+        public String maxViolationsPerCheck() {
+            return "maxViolationsPerCheck";
+        }
     };
 
     @NotNull
@@ -176,6 +199,9 @@ public final class OakpalPlan implements JsonObjectConvertible {
     private final InstallHookPolicy installHookPolicy;
     private final List<URL> repoInitUrls;
     private final List<String> repoInits;
+    private final URL registryBundleUrl;
+    private final int maxViolations;
+    private final int maxViolationsPerCheck;
 
     private OakpalPlan(final @Nullable URL base,
                        final @Nullable JsonObject originalJson,
@@ -191,7 +217,10 @@ public final class OakpalPlan implements JsonObjectConvertible {
                        final boolean enablePreInstallHooks,
                        final @Nullable InstallHookPolicy installHookPolicy,
                        final @NotNull List<URL> repoInitUrls,
-                       final @NotNull List<String> repoInits) {
+                       final @NotNull List<String> repoInits,
+                       final @Nullable URL registryBundleUrl,
+                       final int maxViolations,
+                       final int maxViolationsPerCheck) {
         this.base = base;
         this.originalJson = originalJson;
         this.name = name;
@@ -207,6 +236,9 @@ public final class OakpalPlan implements JsonObjectConvertible {
         this.installHookPolicy = installHookPolicy;
         this.repoInitUrls = repoInitUrls;
         this.repoInits = repoInits;
+        this.registryBundleUrl = registryBundleUrl;
+        this.maxViolations = maxViolations;
+        this.maxViolationsPerCheck = maxViolationsPerCheck;
     }
 
     public URL getBase() {
@@ -237,6 +269,39 @@ public final class OakpalPlan implements JsonObjectConvertible {
         return jcrNamespaces;
     }
 
+    /**
+     * Get the url of the precompiled {@link RegistryBundle} of this plan. When it is set, the bundle is registered
+     * instead of the namespaces, privileges and node types of the plan and its checklists.
+     *
+     * @return the url of the registry bundle, or null
+     * @since 2.3.0
+     */
+    public @Nullable URL getRegistryBundleUrl() {
+        return registryBundleUrl;
+    }
+
+    /**
+     * Get the maximum number of violations retained by all checks during a scan, beyond which violations are
+     * aggregated by severity and description template.
+     *
+     * @return the maximum number of violations, or 0 if unlimited
+     * @since 2.3.0
+     */
+    public int getMaxViolations() {
+        return maxViolations;
+    }
+
+    /**
+     * Get the maximum number of violations retained by each check during a scan, for checks which do not specify
+     * their own {@link CheckSpec#getMaxViolations()}.
+     *
+     * @return the maximum number of violations per check, or 0 if unlimited
+     * @since 2.3.0
+     */
+    public int getMaxViolationsPerCheck() {
+        return maxViolationsPerCheck;
+    }
+
     public List<QNodeTypeDefinition> getJcrNodetypes() {
         return jcrNodetypes;
     }
@@ -314,8 +379,12 @@ public final class OakpalPlan implements JsonObjectConvertible {
 
         final List<String> repoInitUrlStrings = relativizeUrlsForJson(base, repoInitUrls, keys().repoInitUrls());
 
+        final List<String> registryBundleStrings = registryBundleUrl == null
+                ? Collections.emptyList()
+                : relativizeUrlsForJson(base, Collections.singletonList(registryBundleUrl), keys().registryBundle());
+
         final NamespaceMapping mapping = JsonCnd.toNamespaceMapping(jcrNamespaces);
-        return JavaxJson.obj()
+        final JavaxJson.Obj obj = JavaxJson.obj()
                 .key(keys().preInstallUrls()).opt(preInstallStrings)
                 .key(keys().runModes()).opt(runModes)
                 .key(keys().checklists()).opt(checklists)
@@ -328,7 +397,14 @@ public final class OakpalPlan implements JsonObjectConvertible {
                 .key(keys().jcrNamespaces()).opt(jcrNamespaces)
                 .key(keys().enablePreInstallHooks()).opt(enablePreInstallHooks, false)
                 .key(keys().installHookPolicy()).opt(installHookPolicy)
-                .get();
+                .key(keys().registryBundle()).opt(registryBundleStrings.stream().findFirst().orElse(null));
+        if (maxViolations > 0) {
+            obj.key(keys().maxViolations(), maxViolations);
+        }
+        if (maxViolationsPerCheck > 0) {
+            obj.key(keys().maxViolationsPerCheck(), maxViolationsPerCheck);
+        }
+        return obj.get();
     }
 
     @Override
@@ -363,13 +439,41 @@ public final class OakpalPlan implements JsonObjectConvertible {
 
     public OakMachine.Builder toOakMachineBuilder(final @Nullable ErrorListener errorListener,
                                                   final @NotNull ClassLoader classLoader) throws Exception {
+        return toOakMachineBuilder(errorListener, classLoader, null);
+    }
+
+    /**
+     * Create an {@link OakMachine.Builder} for this plan, discovering checklists with the provided discovery index.
+     *
+     * @param errorListener  the error listener, or null for the default
+     * @param classLoader    the class loader for checklists and checks
+     * @param discoveryIndex the discovery index, or null to always search the class path for checklists
+     * @return a new machine builder
+     * @throws Exception for errors while loading checks
+     * @since 2.3.0
+     */
+    public OakMachine.Builder toOakMachineBuilder(final @Nullable ErrorListener errorListener,
+                                                  final @NotNull ClassLoader classLoader,
+                                                  final @Nullable DiscoveryIndex discoveryIndex) throws Exception {
+        final ErrorListener scanErrorListener = errorListener != null ? errorListener : new DefaultErrorListener();
         final ChecklistPlanner checklistPlanner = new ChecklistPlanner(checklists);
-        checklistPlanner.discoverChecklists(classLoader);
+        checklistPlanner.discoverChecklists(classLoader, discoveryIndex);
+
+        final List<InitStage> initStages;
+        if (registryBundleUrl != null) {
+            initStages = getPrecompiledInitStages(RegistryBundle.fromJson(registryBundleUrl), checklistPlanner,
+                    scanErrorListener);
+        } else {
+            initStages = new ArrayList<>(checklistPlanner.getInitStages());
+            initStages.add(toInitStage());
+        }
 
         final List<ProgressCheck> allChecks;
         try {
             allChecks = new ArrayList<>(Locator.loadFromCheckSpecs(
-                    checklistPlanner.getEffectiveCheckSpecs(checks), classLoader));
+                    checklistPlanner.getEffectiveCheckSpecs(checks).stream()
+                            .map(this::withMaxViolationsPerCheck)
+                            .collect(Collectors.toList()), classLoader));
         } catch (final Exception e) {
             throw new Exception("Error while loading progress checks.", e);
         }
@@ -380,16 +484,64 @@ public final class OakpalPlan implements JsonObjectConvertible {
         }
 
         return new OakMachine.Builder()
-                .withErrorListener(errorListener)
-                .withProgressChecks(allChecks)
-                .withInitStages(checklistPlanner.getInitStages())
-                .withInitStage(toInitStage())
+                .withErrorListener(scanErrorListener)
+                .withProgressChecks(Locator.fuseCompatibleChecks(allChecks))
+                .withInitStages(initStages)
                 .withPreInstallUrls(preInstallUrls)
                 .withInstallHookPolicy(installHookPolicy)
                 .withInstallHookClassLoader(classLoader)
                 .withRunModes(new HashSet<>(getRunModes()))
                 .withSlingSimulator(DefaultSlingSimulator.instance())
-                .withEnablePreInstallHooks(enablePreInstallHooks);
+                .withEnablePreInstallHooks(enablePreInstallHooks)
+                .withMaxViolations(maxViolations);
+    }
+
+    /**
+     * Get the init stages which register the registry bundle in place of the definitions of the checklists that it was
+     * compiled from. A selected checklist whose fingerprint does not match the bundle keeps its definitions, and each
+     * mismatch, including a compiled checklist that is no longer selected, is reported to the error listener.
+     *
+     * @param registryBundle   the registry bundle of the plan
+     * @param checklistPlanner the checklist planner with the selected checklists
+     * @param errorListener    the error listener
+     * @return the init stages
+     * @throws Exception if the definitions of a checklist can not be read
+     */
+    List<InitStage> getPrecompiledInitStages(final @NotNull RegistryBundle registryBundle,
+                                             final @NotNull ChecklistPlanner checklistPlanner,
+                                             final @NotNull ErrorListener errorListener) throws Exception {
+        final List<InitStage> initStages = new ArrayList<>();
+        initStages.add(registryBundle.toInitStage());
+        final Map<String, String> compiled = new LinkedHashMap<>(registryBundle.getChecklists());
+        for (Checklist checklist : checklistPlanner.getSelectedChecklists().collect(Collectors.toList())) {
+            final String checklistId = RegistryBundle.getChecklistId(checklist);
+            if (RegistryBundle.getFingerprint(checklist).equals(compiled.remove(checklistId))) {
+                initStages.add(checklist.asInitStage().withoutDefinitions());
+            } else {
+                errorListener.onRegistryBundleMismatch(registryBundleUrl, checklistId);
+                initStages.add(checklist.asInitStage());
+            }
+        }
+        for (String checklistId : compiled.keySet()) {
+            errorListener.onRegistryBundleMismatch(registryBundleUrl, checklistId);
+        }
+        initStages.add(toInitStage().withoutDefinitions());
+        return initStages;
+    }
+
+    /**
+     * Apply the {@link #maxViolationsPerCheck} to a check spec which does not specify its own max violations.
+     *
+     * @param checkSpec the effective check spec
+     * @return the check spec, or a copy with the max violations of the plan
+     */
+    CheckSpec withMaxViolationsPerCheck(final @NotNull CheckSpec checkSpec) {
+        if (maxViolationsPerCheck < 1 || checkSpec.getMaxViolations() > 0) {
+            return checkSpec;
+        }
+        final CheckSpec copy = CheckSpec.copyOf(checkSpec);
+        copy.setMaxViolations(maxViolationsPerCheck);
+        return copy;
     }
 
     void initResourceBundle(final ViolationReporter reporter, final Locale locale, final ClassLoader classLoader) {
@@ -448,14 +600,28 @@ public final class OakpalPlan implements JsonObjectConvertible {
             builder.withInstallHookPolicy(InstallHookPolicy.forName(
                     json.getString(keys().installHookPolicy())));
         }
+        if (hasNonNull(json, keys().registryBundle())) {
+            // without a base url, only an absolute url can be resolved, and a relative url fails
+            builder.withRegistryBundleUrl(uncheck1((String url) -> builder.base != null
+                    ? new URL(builder.base, url)
+                    : new URL(url)).apply(json.getString(keys().registryBundle())));
+        }
+        if (hasNonNull(json, keys().maxViolations())) {
+            builder.withMaxViolations(json.getJsonNumber(keys().maxViolations()).intValue());
+        }
+        if (hasNonNull(json, keys().maxViolationsPerCheck())) {
+            builder.withMaxViolationsPerCheck(json.getJsonNumber(keys().maxViolationsPerCheck()).intValue());
+        }
         return builder.build(json);
     }
 
     /**
-     * Constructs an OakpalPlan without a base url or a name.
+     * Constructs an OakpalPlan without a base url or a name. The registryBundle url must be absolute, because it can
+     * not be resolved against a base url.
      *
      * @param json the json object to read.
      * @return an OakpalPlan, guaranteed
+     * @throws net.adamcin.oakpal.api.Fun.FunRuntimeException if the registryBundle url is relative
      */
     public static OakpalPlan fromJson(final @NotNull JsonObject json) {
         return fromJson(new Builder(null, null), json);
@@ -486,6 +652,9 @@ public final class OakpalPlan implements JsonObjectConvertible {
         private List<URL> repoInitUrls = Collections.emptyList();
         private List<String> repoInits = Collections.emptyList();
         private List<String> runModes = Collections.emptyList();
+        private URL registryBundleUrl;
+        private int maxViolations;
+        private int maxViolationsPerCheck;
 
         public Builder(final @Nullable URL base, final @Nullable String name) {
             this.base = base;
@@ -508,7 +677,10 @@ public final class OakpalPlan implements JsonObjectConvertible {
                     .withRepoInitUrls(plan.getRepoInitUrls())
                     .withRepoInits(plan.getRepoInits())
                     .withRunModes(plan.getRunModes())
-                    .withPreInstallUrls(plan.getPreInstallUrls());
+                    .withPreInstallUrls(plan.getPreInstallUrls())
+                    .withRegistryBundleUrl(plan.getRegistryBundleUrl())
+                    .withMaxViolations(plan.getMaxViolations())
+                    .withMaxViolationsPerCheck(plan.getMaxViolationsPerCheck());
         }
 
         public Builder withChecklists(final @NotNull List<String> checklists) {
@@ -571,10 +743,47 @@ public final class OakpalPlan implements JsonObjectConvertible {
             return this;
         }
 
+        /**
+         * Set the url of a precompiled {@link RegistryBundle} for the plan.
+         *
+         * @param registryBundleUrl the url of the registry bundle, or null
+         * @return my builder self
+         * @since 2.3.0
+         */
+        public Builder withRegistryBundleUrl(final @Nullable URL registryBundleUrl) {
+            this.registryBundleUrl = registryBundleUrl;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of violations retained by all checks during a scan.
+         *
+         * @param maxViolations the maximum number of violations, or 0 if unlimited
+         * @return my builder self
+         * @since 2.3.0
+         */
+        public Builder withMaxViolations(final int maxViolations) {
+            this.maxViolations = Math.max(0, maxViolations);
+            return this;
+        }
+
+        /**
+         * Set the maximum number of violations retained by each check during a scan, for checks which do not specify
+         * their own.
+         *
+         * @param maxViolationsPerCheck the maximum number of violations per check, or 0 if unlimited
+         * @return my builder self
+         * @since 2.3.0
+         */
+        public Builder withMaxViolationsPerCheck(final int maxViolationsPerCheck) {
+            this.maxViolationsPerCheck = Math.max(0, maxViolationsPerCheck);
+            return this;
+        }
+
         private OakpalPlan build(final @Nullable JsonObject originalJson) {
             return new OakpalPlan(base, originalJson, name, runModes, checklists, preInstallUrls, jcrNamespaces,
                     jcrNodetypes, jcrPrivileges, forcedRoots, checks, enablePreInstallHooks, scanInstallHookPolicy,
-                    repoInitUrls, repoInits);
+                    repoInitUrls, repoInits, registryBundleUrl, maxViolations, maxViolationsPerCheck);
         }
 
         public OakpalPlan build() {
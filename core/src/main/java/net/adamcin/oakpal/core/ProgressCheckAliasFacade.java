@@ -23,6 +23,7 @@ import net.adamcin.oakpal.api.ProgressCheckFactory;
 import net.adamcin.oakpal.api.SilenceableCheck;
 import net.adamcin.oakpal.api.SlingInstallable;
 import net.adamcin.oakpal.api.SlingSimulator;
+import net.adamcin.oakpal.api.UnsubscribingCheck;
 import net.adamcin.oakpal.api.Violation;
 import org.apache.jackrabbit.vault.fs.config.MetaInf;
 import org.apache.jackrabbit.vault.packaging.PackageId;
@@ -45,7 +46,7 @@ import java.util.jar.Manifest;
  * 1) ensure that a configured checkName is actually respected
  * 2) guard {@link ProgressCheckFactory}s from being externally re-configured during a scan
  */
-class ProgressCheckAliasFacade implements SilenceableCheck {
+class ProgressCheckAliasFacade implements SilenceableCheck, UnsubscribingCheck {
 
     private final SilenceableCheck wrapped;
     private final String alias;
@@ -60,6 +61,17 @@ class ProgressCheckAliasFacade implements SilenceableCheck {
         this.alias = alias;
     }
 
+    /**
+     * Get the wrapped check, which is a {@link SilencingCheckFacade} if the aliased check is not a
+     * {@link SilenceableCheck}.
+     *
+     * @return the wrapped check
+     */
+    @NotNull
+    SilenceableCheck getWrapped() {
+        return wrapped;
+    }
+
     @Override
     public String getCheckName() {
         if (alias != null) {
@@ -94,6 +106,14 @@ class ProgressCheckAliasFacade implements SilenceableCheck {
         wrapped.setSilenced(silenced);
     }
 
+    @Override
+    public @NotNull PathSubscription getPathSubscription() {
+        if (wrapped instanceof UnsubscribingCheck) {
+            return ((UnsubscribingCheck) wrapped).getPathSubscription();
+        }
+        return PathSubscription.SUBSCRIBED;
+    }
+
     @Override
     public void simulateSling(final SlingSimulator slingSimulator, final Set<String> runModes) {
         wrapped.simulateSling(slingSimulator, runModes);
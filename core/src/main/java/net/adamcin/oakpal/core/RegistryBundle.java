@@ -0,0 +1,377 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.core;
+
+import net.adamcin.oakpal.api.JavaxJson;
+import net.adamcin.oakpal.api.JsonObjectConvertible;
+import org.apache.jackrabbit.api.JackrabbitWorkspace;
+import org.apache.jackrabbit.spi.Name;
+import org.apache.jackrabbit.spi.PrivilegeDefinition;
+import org.apache.jackrabbit.spi.QNodeTypeDefinition;
+import org.apache.jackrabbit.spi.commons.QNodeTypeDefinitionImpl;
+import org.apache.jackrabbit.spi.commons.conversion.DefaultNamePathResolver;
+import org.apache.jackrabbit.spi.commons.conversion.NamePathResolver;
+import org.apache.jackrabbit.spi.commons.namespace.NamespaceMapping;
+import org.apache.jackrabbit.spi.commons.privilege.PrivilegeDefinitionImpl;
+import org.apache.jackrabbit.spi.commons.value.QValueFactoryImpl;
+import org.jetbrains.annotations.NotNull;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.nodetype.NodeType;
+import javax.jcr.nodetype.NodeTypeIterator;
+import javax.jcr.security.Privilege;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonString;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static net.adamcin.oakpal.api.JavaxJson.hasNonNull;
+
+/**
+ * A precompiled snapshot of the JCR namespaces, privileges and node types that the checklists and the definitions of
+ * a plan register in an empty repository. CND files and jcrNodetypes objects are resolved once when the bundle is
+ * compiled, and the bundle is registered by a single init stage at scan time, with all node types in one call.
+ * <p>
+ * Forced roots and repoinit scripts are not part of the bundle and are still applied by the plan at scan time.
+ * <p>
+ * The bundle records the id and a fingerprint of the definitions of each checklist that it was compiled from. At scan
+ * time, only the definitions of the checklists that match a record are skipped in favor of the bundle.
+ *
+ * @see OakpalPlan#getRegistryBundleUrl()
+ * @since 2.3.0
+ */
+public final class RegistryBundle implements JsonObjectConvertible {
+    /**
+     * The version of the serialized bundle format. Bundles with a different version are rejected.
+     */
+    public static final int FORMAT_VERSION = 2;
+
+    static final String KEY_BUNDLE_VERSION = "registryBundleVersion";
+    static final String KEY_JCR_NAMESPACES = "jcrNamespaces";
+    static final String KEY_JCR_PRIVILEGES = "jcrPrivileges";
+    static final String KEY_JCR_NODETYPES = "jcrNodetypes";
+    static final String KEY_CHECKLISTS = "checklists";
+
+    private final List<JcrNs> jcrNamespaces;
+    private final List<PrivilegeDefinition> jcrPrivileges;
+    private final List<QNodeTypeDefinition> jcrNodetypes;
+    private final Map<String, String> checklists;
+
+    private RegistryBundle(final @NotNull List<JcrNs> jcrNamespaces,
+                           final @NotNull List<PrivilegeDefinition> jcrPrivileges,
+                           final @NotNull List<QNodeTypeDefinition> jcrNodetypes,
+                           final @NotNull Map<String, String> checklists) {
+        this.jcrNamespaces = Collections.unmodifiableList(jcrNamespaces);
+        this.jcrPrivileges = Collections.unmodifiableList(jcrPrivileges);
+        this.jcrNodetypes = Collections.unmodifiableList(jcrNodetypes);
+        this.checklists = Collections.unmodifiableMap(new TreeMap<>(checklists));
+    }
+
+    public List<JcrNs> getJcrNamespaces() {
+        return jcrNamespaces;
+    }
+
+    /**
+     * Get the privilege definitions, in an order in which each aggregate privilege follows the privileges that it
+     * contains.
+     *
+     * @return the privilege definitions
+     */
+    public List<PrivilegeDefinition> getJcrPrivileges() {
+        return jcrPrivileges;
+    }
+
+    public List<QNodeTypeDefinition> getJcrNodetypes() {
+        return jcrNodetypes;
+    }
+
+    /**
+     * Get the fingerprints of the definitions of the checklists that the bundle was compiled from, by checklist id.
+     *
+     * @return the checklist fingerprints by {@link #getChecklistId(Checklist)}
+     * @see #getFingerprint(Checklist)
+     */
+    public Map<String, String> getChecklists() {
+        return checklists;
+    }
+
+    /**
+     * Get the id of a checklist, as recorded in {@link #getChecklists()}.
+     *
+     * @param checklist the checklist
+     * @return the module name and the name of the checklist
+     */
+    public static String getChecklistId(final @NotNull Checklist checklist) {
+        return checklist.getModuleName() + "/" + checklist.getName();
+    }
+
+    /**
+     * Compute a fingerprint of the JCR definitions of a checklist, which covers the content of its CND files and its
+     * jcrNamespaces, jcrPrivileges and jcrNodetypes.
+     *
+     * @param checklist the checklist
+     * @return the url-safe base64 SHA-256 digest of the definitions
+     * @throws Exception if a CND url cannot be read
+     */
+    public static String getFingerprint(final @NotNull Checklist checklist) throws Exception {
+        final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (URL cndUrl : checklist.getCndUrls()) {
+            try (InputStream input = cndUrl.openStream()) {
+                digest.update(input.readAllBytes());
+            }
+            digest.update((byte) '\n');
+        }
+        final NamespaceMapping mapping = JsonCnd.toNamespaceMapping(checklist.getJcrNamespaces());
+        final Checklist.JsonKeys keys = Checklist.keys();
+        digest.update(JavaxJson.obj()
+                .key(keys.jcrNamespaces()).opt(checklist.getJcrNamespaces())
+                .key(keys.jcrPrivileges()).opt(JsonCnd.privilegesToJson(checklist.getJcrPrivileges(), mapping))
+                .key(keys.jcrNodetypes()).opt(JsonCnd.toJson(checklist.getJcrNodetypes(), mapping))
+                .get().toString().getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+    }
+
+    /**
+     * Compile a registry bundle from the checklists and the JCR definitions of the plan. Checklists are discovered
+     * with the provided class loader. Checks, forced roots, repoinit scripts and pre-install packages are ignored.
+     *
+     * @param plan        the plan to compile
+     * @param classLoader the class loader for checklist discovery
+     * @return the compiled bundle
+     * @throws Exception for errors during checklist discovery or repository initialization
+     */
+    public static RegistryBundle compile(final @NotNull OakpalPlan plan,
+                                         final @NotNull ClassLoader classLoader) throws Exception {
+        final ChecklistPlanner checklistPlanner = new ChecklistPlanner(plan.getChecklists());
+        checklistPlanner.discoverChecklists(classLoader);
+        final List<InitStage> initStages = new ArrayList<>();
+        final Map<String, String> checklists = new LinkedHashMap<>();
+        for (Checklist checklist : checklistPlanner.getSelectedChecklists().collect(Collectors.toList())) {
+            initStages.add(checklist.asInitStage().definitionsOnly());
+            checklists.put(getChecklistId(checklist), getFingerprint(checklist));
+        }
+        initStages.add(plan.toInitStage().definitionsOnly());
+        return compile(initStages, checklists);
+    }
+
+    static RegistryBundle compile(final @NotNull List<InitStage> initStages) throws Exception {
+        return compile(initStages, Collections.emptyMap());
+    }
+
+    static RegistryBundle compile(final @NotNull List<InitStage> initStages,
+                                  final @NotNull Map<String, String> checklists) throws Exception {
+        final List<Snapshot> baseline = new ArrayList<>();
+        new OakMachine.Builder().build().adminInitAndInspect(session -> baseline.add(new Snapshot(session)));
+        final List<RegistryBundle> compiled = new ArrayList<>();
+        new OakMachine.Builder().withInitStages(initStages).build().adminInitAndInspect(session ->
+                compiled.add(new Snapshot(session).toBundle(session, baseline.get(0), checklists)));
+        return compiled.get(0);
+    }
+
+    /**
+     * Create an init stage which registers the bundle.
+     *
+     * @return a new init stage
+     */
+    public InitStage toInitStage() {
+        final InitStage.Builder builder = new InitStage.Builder();
+        for (JcrNs ns : jcrNamespaces) {
+            builder.withNs(ns.getPrefix(), ns.getUri());
+        }
+        builder.withPrivilegeDefinition(jcrPrivileges.toArray(new PrivilegeDefinition[0]));
+        builder.withQNodeTypes(jcrNodetypes);
+        return builder.build();
+    }
+
+    @Override
+    public JsonObject toJson() {
+        final NamespaceMapping mapping = JsonCnd.toNamespaceMapping(jcrNamespaces);
+        return JavaxJson.obj()
+                .key(KEY_BUNDLE_VERSION, FORMAT_VERSION)
+                .key(KEY_JCR_NAMESPACES).opt(jcrNamespaces)
+                .key(KEY_JCR_PRIVILEGES).opt(JsonCnd.privilegesToJson(jcrPrivileges, mapping))
+                .key(KEY_JCR_NODETYPES).opt(JsonCnd.toJson(jcrNodetypes, mapping))
+                .key(KEY_CHECKLISTS).opt(checklists)
+                .get();
+    }
+
+    /**
+     * Read a registry bundle from json.
+     *
+     * @param json the json object
+     * @return the registry bundle
+     * @throws Exception if the json is not a bundle of the supported {@link #FORMAT_VERSION}
+     */
+    public static RegistryBundle fromJson(final @NotNull JsonObject json) throws Exception {
+        if (!hasNonNull(json, KEY_BUNDLE_VERSION) || json.getInt(KEY_BUNDLE_VERSION, 0) != FORMAT_VERSION) {
+            throw new Exception("Unsupported registry bundle version: " + json.get(KEY_BUNDLE_VERSION)
+                    + " (expected " + FORMAT_VERSION + ")");
+        }
+        final List<JcrNs> jcrNamespaces = hasNonNull(json, KEY_JCR_NAMESPACES)
+                ? JavaxJson.mapArrayOfObjects(json.getJsonArray(KEY_JCR_NAMESPACES), JcrNs::fromJson)
+                : Collections.emptyList();
+        final NamespaceMapping mapping = JsonCnd.toNamespaceMapping(jcrNamespaces);
+        final List<PrivilegeDefinition> jcrPrivileges = hasNonNull(json, KEY_JCR_PRIVILEGES)
+                ? JsonCnd.getPrivilegesFromJson(json.get(KEY_JCR_PRIVILEGES), mapping)
+                : Collections.emptyList();
+        final List<QNodeTypeDefinition> jcrNodetypes = hasNonNull(json, KEY_JCR_NODETYPES)
+                ? JsonCnd.getQTypesFromJson(json.getJsonObject(KEY_JCR_NODETYPES), mapping)
+                : Collections.emptyList();
+        final Map<String, String> checklists = new LinkedHashMap<>();
+        if (hasNonNull(json, KEY_CHECKLISTS)) {
+            json.getJsonObject(KEY_CHECKLISTS).forEach((id, fingerprint) ->
+                    checklists.put(id, ((JsonString) fingerprint).getString()));
+        }
+        return new RegistryBundle(jcrNamespaces, sortPrivileges(jcrPrivileges), jcrNodetypes, checklists);
+    }
+
+    /**
+     * Read a registry bundle from a json url.
+     *
+     * @param jsonUrl the url of the bundle
+     * @return the registry bundle
+     * @throws Exception if the url cannot be read or is not a bundle of the supported {@link #FORMAT_VERSION}
+     */
+    public static RegistryBundle fromJson(final @NotNull URL jsonUrl) throws Exception {
+        try (InputStream input = jsonUrl.openStream();
+             JsonReader reader = Json.createReader(input)) {
+            return fromJson(reader.readObject());
+        } catch (final Exception e) {
+            throw new Exception("Failed to read registry bundle " + jsonUrl, e);
+        }
+    }
+
+    /**
+     * Sort privilege definitions so that each aggregate privilege follows the privileges that it contains.
+     *
+     * @param privileges the privilege definitions
+     * @return the sorted privilege definitions
+     */
+    static List<PrivilegeDefinition> sortPrivileges(final @NotNull List<PrivilegeDefinition> privileges) {
+        final Map<Name, PrivilegeDefinition> byName = new LinkedHashMap<>();
+        privileges.stream().sorted(Comparator.comparing(def -> def.getName().toString()))
+                .forEachOrdered(def -> byName.put(def.getName(), def));
+        final Set<Name> visited = new HashSet<>();
+        final List<PrivilegeDefinition> sorted = new ArrayList<>();
+        for (Name name : byName.keySet()) {
+            visitPrivilege(name, byName, visited, sorted);
+        }
+        return sorted;
+    }
+
+    private static void visitPrivilege(final @NotNull Name name,
+                                       final @NotNull Map<Name, PrivilegeDefinition> byName,
+                                       final @NotNull Set<Name> visited,
+                                       final @NotNull List<PrivilegeDefinition> sorted) {
+        final PrivilegeDefinition def = byName.get(name);
+        if (def == null || !visited.add(name)) {
+            return;
+        }
+        def.getDeclaredAggregateNames().stream().sorted(Comparator.comparing(Name::toString))
+                .forEachOrdered(aggregateName -> visitPrivilege(aggregateName, byName, visited, sorted));
+        sorted.add(def);
+    }
+
+    /**
+     * The names of the namespaces, privileges and node types registered in a session.
+     */
+    static final class Snapshot {
+        private final Set<String> namespaceUris;
+        private final Set<String> privilegeNames;
+        private final Set<String> nodeTypeNames;
+
+        Snapshot(final @NotNull Session session) throws RepositoryException {
+            this.namespaceUris = new LinkedHashSet<>(Arrays.asList(
+                    session.getWorkspace().getNamespaceRegistry().getURIs()));
+            this.privilegeNames = new LinkedHashSet<>();
+            for (Privilege privilege : getRegisteredPrivileges(session)) {
+                this.privilegeNames.add(privilege.getName());
+            }
+            this.nodeTypeNames = new LinkedHashSet<>();
+            final NodeTypeIterator nodeTypes = session.getWorkspace().getNodeTypeManager().getAllNodeTypes();
+            while (nodeTypes.hasNext()) {
+                this.nodeTypeNames.add(nodeTypes.nextNodeType().getName());
+            }
+        }
+
+        RegistryBundle toBundle(final @NotNull Session session, final @NotNull Snapshot baseline,
+                                final @NotNull Map<String, String> checklists) throws RepositoryException {
+            final List<JcrNs> jcrNamespaces = new ArrayList<>();
+            for (String uri : namespaceUris) {
+                if (!baseline.namespaceUris.contains(uri)) {
+                    jcrNamespaces.add(JcrNs.create(session.getNamespacePrefix(uri), uri));
+                }
+            }
+            Collections.sort(jcrNamespaces);
+
+            final NamePathResolver resolver = new DefaultNamePathResolver(session);
+            final List<PrivilegeDefinition> jcrPrivileges = new ArrayList<>();
+            for (Privilege privilege : getRegisteredPrivileges(session)) {
+                if (!baseline.privilegeNames.contains(privilege.getName())) {
+                    final Set<Name> aggregateNames = new LinkedHashSet<>();
+                    for (Privilege aggregate : privilege.getDeclaredAggregatePrivileges()) {
+                        aggregateNames.add(resolver.getQName(aggregate.getName()));
+                    }
+                    jcrPrivileges.add(new PrivilegeDefinitionImpl(resolver.getQName(privilege.getName()),
+                            privilege.isAbstract(), aggregateNames));
+                }
+            }
+
+            final List<NodeType> nodeTypes = new ArrayList<>();
+            final NodeTypeIterator allNodeTypes = session.getWorkspace().getNodeTypeManager().getAllNodeTypes();
+            while (allNodeTypes.hasNext()) {
+                final NodeType nodeType = allNodeTypes.nextNodeType();
+                if (!baseline.nodeTypeNames.contains(nodeType.getName())) {
+                    nodeTypes.add(nodeType);
+                }
+            }
+            nodeTypes.sort(Comparator.comparing(NodeType::getName));
+            // copy the definitions eagerly, because the session is closed after compiling
+            final List<QNodeTypeDefinition> jcrNodetypes = new ArrayList<>();
+            for (NodeType nodeType : nodeTypes) {
+                jcrNodetypes.add(new QNodeTypeDefinitionImpl(nodeType, resolver, QValueFactoryImpl.getInstance()));
+            }
+            return new RegistryBundle(jcrNamespaces, sortPrivileges(jcrPrivileges), jcrNodetypes, checklists);
+        }
+
+        private static Privilege[] getRegisteredPrivileges(final @NotNull Session session)
+                throws RepositoryException {
+            if (session.getWorkspace() instanceof JackrabbitWorkspace) {
+                return ((JackrabbitWorkspace) session.getWorkspace()).getPrivilegeManager().getRegisteredPrivileges();
+            }
+            return new Privilege[0];
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.core;
+
+import net.adamcin.oakpal.api.ScanListener;
+import net.adamcin.oakpal.api.Violation;
+import org.apache.jackrabbit.vault.packaging.PackageId;
+import org.jetbrains.annotations.NotNull;
+import org.osgi.annotation.versioning.ConsumerType;
+
+/**
+ * Receives scan progress and violations while an {@link OakMachine} scan is running, so that reports can be streamed
+ * before the scan returns its {@link CheckReport}s. A violation reported to a
+ * {@link net.adamcin.oakpal.api.ReportCollector} by the {@link ErrorListener} or by a
+ * {@link net.adamcin.oakpal.api.ProgressCheck} is delivered as soon as it is reported. Beyond the violation caps of a
+ * scan, only the first violation of each kind is delivered, and the rest are counted in its {@link CheckReport}. The
+ * violations of a reporter which does not use a {@link net.adamcin.oakpal.api.ReportCollector} are delivered at the
+ * end of the scan.
+ *
+ * @since 2.3.0
+ */
+@ConsumerType
+public interface ReportListener extends ScanListener {
+
+    /**
+     * Called after all events for a package file or preinstall package have been delivered, including the events for
+     * its subpackages and embedded packages.
+     *
+     * @param packageId  the package id
+     * @param preInstall true if the package is a preinstall package
+     */
+    default void scannedPackage(final @NotNull PackageId packageId, final boolean preInstall) {
+
+    }
+
+    /**
+     * Called once for each violation delivered to the listener, after it has been reported by a check or the error
+     * listener.
+     *
+     * @param checkName the name of the reporting check, as it will appear in its {@link CheckReport}
+     * @param violation the violation
+     */
+    default void reportedViolation(final @NotNull String checkName, final @NotNull Violation violation) {
+
+    }
+}
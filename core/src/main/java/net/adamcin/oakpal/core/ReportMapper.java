@@ -16,6 +16,7 @@
 
 package net.adamcin.oakpal.core;
 
+import net.adamcin.oakpal.api.JavaxJson;
 import net.adamcin.oakpal.api.SimpleViolation;
 import net.adamcin.oakpal.api.Violation;
 import org.jetbrains.annotations.NotNull;
@@ -23,12 +24,17 @@ import org.osgi.annotation.versioning.ProviderType;
 
 import javax.json.Json;
 import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonException;
 import javax.json.JsonObject;
-import javax.json.JsonReader;
-import javax.json.JsonWriter;
-import javax.json.JsonWriterFactory;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
 import javax.json.stream.JsonCollectors;
 import javax.json.stream.JsonGenerator;
+import javax.json.stream.JsonGeneratorFactory;
+import javax.json.stream.JsonParser;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -36,18 +42,22 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.StringReader;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static net.adamcin.oakpal.api.JavaxJson.key;
-import static net.adamcin.oakpal.api.JavaxJson.mapArrayOfObjects;
-import static net.adamcin.oakpal.api.JavaxJson.optArray;
 
 /**
- * Serialize violations to/from json.
+ * Serialize violations to/from json. Reports are streamed one violation at a time, so that the complete json tree of
+ * a large scan is never held in memory. Besides the summary json object, reports can be written and read as
+ * newline-delimited json (NDJSON), with one compact report object per line, which is selected for files with the
+ * {@link #NDJSON_EXTENSION} extension.
  */
 public final class ReportMapper {
     @ProviderType
@@ -80,6 +90,19 @@ public final class ReportMapper {
         return KEYS;
     }
 
+    /**
+     * The file name extension which selects NDJSON for {@link #readReportsFromFile(File)} and
+     * {@link #writeReportsToFile(Collection, File)}.
+     *
+     * @since 2.3.0
+     */
+    public static final String NDJSON_EXTENSION = ".ndjson";
+
+    private static final boolean PARSER_GETS_VALUES = parserGetsValues();
+
+    private static final JsonGeneratorFactory PRETTY_GENERATOR_FACTORY =
+            Json.createGeneratorFactory(Collections.singletonMap(JsonGenerator.PRETTY_PRINTING, true));
+
     private ReportMapper() {
         /* No instantiation */
     }
@@ -110,21 +133,49 @@ public final class ReportMapper {
      * @throws IOException for failing to read
      */
     public static List<CheckReport> readReports(final @NotNull ReaderSupplier readerSupplier) throws IOException {
-        try (Reader reader = readerSupplier.open();
-             JsonReader jsonReader = Json.createReader(reader)) {
-
-            JsonObject json = jsonReader.readObject();
-
-            List<CheckReport> reports = optArray(json, keys().reports())
-                    .map(jsonReports -> mapArrayOfObjects(jsonReports, ReportMapper::reportFromJson))
-                    .orElseGet(Collections::emptyList);
+        final List<CheckReport> reports = new ArrayList<>();
+        readReports(readerSupplier, reports::add);
+        return Collections.unmodifiableList(reports);
+    }
 
-            return Collections.unmodifiableList(reports);
+    /**
+     * Opens a reader, parses a json object, and passes each report to the consumer as soon as it has been read, then
+     * closes the reader. Only the violations of the current report are held in memory.
+     *
+     * @param readerSupplier a function supplying a {@link Reader}
+     * @param consumer       the consumer of each report
+     * @throws IOException for failing to read
+     * @since 2.3.0
+     */
+    public static void readReports(final @NotNull ReaderSupplier readerSupplier,
+                                   final @NotNull Consumer<CheckReport> consumer) throws IOException {
+        try (Reader reader = readerSupplier.open();
+             JsonParser parser = Json.createParser(reader)) {
+            if (!parser.hasNext() || parser.next() != JsonParser.Event.START_OBJECT) {
+                throw new JsonException("Expected a json object for the check reports.");
+            }
+            JsonParser.Event event;
+            while ((event = parser.next()) == JsonParser.Event.KEY_NAME) {
+                final String key = parser.getString();
+                event = parser.next();
+                if (keys().reports().equals(key) && event == JsonParser.Event.START_ARRAY) {
+                    while ((event = parser.next()) != JsonParser.Event.END_ARRAY) {
+                        if (event == JsonParser.Event.START_OBJECT) {
+                            consumer.accept(readReport(parser));
+                        } else {
+                            skipValue(parser, event);
+                        }
+                    }
+                } else {
+                    skipValue(parser, event);
+                }
+            }
         }
     }
 
     /**
-     * Read reports from a file and return a list of check reports.
+     * Read reports from a file and return a list of check reports. Files with the {@link #NDJSON_EXTENSION} extension
+     * are read as NDJSON.
      *
      * @param jsonFile a json file
      * @return a list of check reports
@@ -132,21 +183,290 @@ public final class ReportMapper {
      */
     public static List<CheckReport> readReportsFromFile(final @NotNull File jsonFile)
             throws IOException {
-        return readReports(() -> new InputStreamReader(new FileInputStream(jsonFile), StandardCharsets.UTF_8));
+        final List<CheckReport> reports = new ArrayList<>();
+        readReportsFromFile(jsonFile, reports::add);
+        return Collections.unmodifiableList(reports);
+    }
+
+    /**
+     * Read reports from a file and pass each report to the consumer as soon as it has been read. Files with the
+     * {@link #NDJSON_EXTENSION} extension are read as NDJSON.
+     *
+     * @param jsonFile a json file
+     * @param consumer the consumer of each report
+     * @throws IOException if fails to read a file
+     * @since 2.3.0
+     */
+    public static void readReportsFromFile(final @NotNull File jsonFile,
+                                           final @NotNull Consumer<CheckReport> consumer) throws IOException {
+        final ReaderSupplier readerSupplier =
+                () -> new InputStreamReader(new FileInputStream(jsonFile), StandardCharsets.UTF_8);
+        if (isNdjsonFile(jsonFile)) {
+            readReportsNdjson(readerSupplier, consumer);
+        } else {
+            readReports(readerSupplier, consumer);
+        }
+    }
+
+    /**
+     * Opens a reader, reads one report json object per non-blank line, and passes each report to the consumer, then
+     * closes the reader.
+     *
+     * @param readerSupplier a function supplying a {@link Reader}
+     * @param consumer       the consumer of each report
+     * @throws IOException for failing to read
+     * @since 2.3.0
+     */
+    public static void readReportsNdjson(final @NotNull ReaderSupplier readerSupplier,
+                                         final @NotNull Consumer<CheckReport> consumer) throws IOException {
+        try (Reader reader = readerSupplier.open();
+             BufferedReader lineReader = new BufferedReader(reader)) {
+            String line;
+            while ((line = lineReader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try (JsonParser parser = Json.createParser(new StringReader(line))) {
+                    if (!parser.hasNext() || parser.next() != JsonParser.Event.START_OBJECT) {
+                        throw new JsonException("Expected a json object for a check report: " + line);
+                    }
+                    consumer.accept(readReport(parser));
+                }
+            }
+        }
     }
 
+    /**
+     * Opens a writer, writes a json object with the reports, and closes the writer. The violations are written one
+     * at a time.
+     *
+     * @param reports        the reports to write
+     * @param writerSupplier a function supplying a {@link Writer}
+     * @throws IOException for failing to write
+     */
     public static void writeReports(final @NotNull Collection<CheckReport> reports,
                                     final @NotNull WriterSupplier writerSupplier) throws IOException {
-        JsonWriterFactory writerFactory = Json
-                .createWriterFactory(Collections.singletonMap(JsonGenerator.PRETTY_PRINTING, true));
-        try (Writer writer = writerSupplier.open(); JsonWriter jsonWriter = writerFactory.createWriter(writer)) {
-            jsonWriter.writeObject(reportsToJsonObject(reports));
+        try (Writer writer = writerSupplier.open();
+             JsonGenerator generator = PRETTY_GENERATOR_FACTORY.createGenerator(writer)) {
+            generator.writeStartObject().writeStartArray(keys().reports());
+            for (CheckReport report : reports) {
+                writeReport(generator.writeStartObject(), report).writeEnd();
+            }
+            generator.writeEnd().writeEnd();
         }
     }
 
+    /**
+     * Opens a writer, writes each report as a compact json object on its own line, and closes the writer.
+     *
+     * @param reports        the reports to write
+     * @param writerSupplier a function supplying a {@link Writer}
+     * @throws IOException for failing to write
+     * @since 2.3.0
+     */
+    public static void writeReportsNdjson(final @NotNull Collection<CheckReport> reports,
+                                          final @NotNull WriterSupplier writerSupplier) throws IOException {
+        try (Writer writer = new BufferedWriter(writerSupplier.open())) {
+            for (CheckReport report : reports) {
+                // the generator must not close the shared writer
+                final JsonGenerator generator = Json.createGenerator(new NonClosingWriter(writer));
+                writeReport(generator.writeStartObject(), report).writeEnd();
+                generator.close();
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Write reports to a file. Files with the {@link #NDJSON_EXTENSION} extension are written as NDJSON.
+     *
+     * @param reports    the reports to write
+     * @param outputFile the output file
+     * @throws IOException for failing to write
+     */
     public static void writeReportsToFile(final Collection<CheckReport> reports,
                                           final @NotNull File outputFile) throws IOException {
-        writeReports(reports, () -> new OutputStreamWriter(new FileOutputStream(outputFile), StandardCharsets.UTF_8));
+        final WriterSupplier writerSupplier =
+                () -> new OutputStreamWriter(new FileOutputStream(outputFile), StandardCharsets.UTF_8);
+        if (isNdjsonFile(outputFile)) {
+            writeReportsNdjson(reports, writerSupplier);
+        } else {
+            writeReports(reports, writerSupplier);
+        }
+    }
+
+    static boolean isNdjsonFile(final @NotNull File file) {
+        return file.getName().endsWith(NDJSON_EXTENSION);
+    }
+
+    /**
+     * Write the fields of a report to a generator positioned in the report object, in the form of
+     * {@link CheckReport#toJson()}.
+     *
+     * @param generator the generator
+     * @param report    the report
+     * @return the generator
+     */
+    static JsonGenerator writeReport(final @NotNull JsonGenerator generator, final @NotNull CheckReport report) {
+        if (report.getCheckName() != null) {
+            generator.write(CoreConstants.checkReportKeys().checkName(), report.getCheckName());
+        }
+        if (!report.getViolations().isEmpty()) {
+            generator.writeStartArray(CoreConstants.checkReportKeys().violations());
+            for (Violation violation : report.getViolations()) {
+                generator.write(violation.toJson());
+            }
+            generator.writeEnd();
+        }
+        return generator;
+    }
+
+    /**
+     * Read a report from a parser positioned after the start of the report object, in the form of
+     * {@link SimpleReport#fromJson(JsonObject)}, through the end of the object.
+     *
+     * @param parser the parser
+     * @return the report
+     */
+    static CheckReport readReport(final @NotNull JsonParser parser) {
+        String checkName = "";
+        final List<Violation> violations = new ArrayList<>();
+        JsonParser.Event event;
+        while ((event = parser.next()) == JsonParser.Event.KEY_NAME) {
+            final String key = parser.getString();
+            event = parser.next();
+            if (CoreConstants.checkReportKeys().checkName().equals(key) && event == JsonParser.Event.VALUE_STRING) {
+                checkName = parser.getString();
+            } else if (CoreConstants.checkReportKeys().violations().equals(key)
+                    && event == JsonParser.Event.START_ARRAY) {
+                while ((event = parser.next()) != JsonParser.Event.END_ARRAY) {
+                    if (event == JsonParser.Event.START_OBJECT) {
+                        violations.add(violationFromJson(getObject(parser)));
+                    } else {
+                        skipValue(parser, event);
+                    }
+                }
+            } else {
+                skipValue(parser, event);
+            }
+        }
+        return new SimpleReport(checkName, violations);
+    }
+
+    /**
+     * Get the object which starts with the current event, through the end of the object.
+     *
+     * @param parser the parser, positioned at the start of an object
+     * @return the object
+     */
+    static JsonObject getObject(final @NotNull JsonParser parser) {
+        return PARSER_GETS_VALUES
+                ? parser.getObject()
+                : readValue(parser, JsonParser.Event.START_OBJECT).asJsonObject();
+    }
+
+    /**
+     * Skip the value which starts with the current event, through the end of the value.
+     *
+     * @param parser the parser
+     * @param event  the current event
+     */
+    private static void skipValue(final @NotNull JsonParser parser, final @NotNull JsonParser.Event event) {
+        if (event == JsonParser.Event.START_OBJECT || event == JsonParser.Event.START_ARRAY) {
+            if (!PARSER_GETS_VALUES) {
+                readValue(parser, event);
+            } else if (event == JsonParser.Event.START_OBJECT) {
+                parser.skipObject();
+            } else {
+                parser.skipArray();
+            }
+        }
+    }
+
+    /**
+     * Read the value which starts with the current event, for parsers which do not implement
+     * {@link JsonParser#getObject()}. Numbers are read the way {@link javax.json.JsonReader} reads them.
+     *
+     * @param parser the parser
+     * @param event  the current event
+     * @return the value
+     */
+    private static JsonValue readValue(final @NotNull JsonParser parser, final @NotNull JsonParser.Event event) {
+        switch (event) {
+            case START_OBJECT:
+                final JsonObjectBuilder objectBuilder = Json.createObjectBuilder();
+                while (parser.next() == JsonParser.Event.KEY_NAME) {
+                    final String key = parser.getString();
+                    objectBuilder.add(key, readValue(parser, parser.next()));
+                }
+                return objectBuilder.build();
+            case START_ARRAY:
+                final JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
+                for (JsonParser.Event next = parser.next(); next != JsonParser.Event.END_ARRAY; next = parser.next()) {
+                    arrayBuilder.add(readValue(parser, next));
+                }
+                return arrayBuilder.build();
+            case VALUE_STRING:
+                return JavaxJson.wrap(parser.getString());
+            case VALUE_NUMBER:
+                // integral numbers of up to 18 digits fit in a long
+                return parser.isIntegralNumber() && parser.getBigDecimal().precision() < 19
+                        ? JavaxJson.wrap(parser.getLong())
+                        : JavaxJson.wrap(parser.getBigDecimal());
+            case VALUE_TRUE:
+                return JsonValue.TRUE;
+            case VALUE_FALSE:
+                return JsonValue.FALSE;
+            default:
+                return JsonValue.NULL;
+        }
+    }
+
+    /**
+     * Check whether the parsers of the JSON-P provider implement the value methods added to {@link JsonParser} in
+     * JSON-P 1.1, which throw {@link UnsupportedOperationException} by default. The Johnzon provider embedded in
+     * {@code org.apache.sling.commons.johnzon} 1.1.0 does not.
+     *
+     * @return true if {@link JsonParser#getObject()}, {@link JsonParser#skipObject()} and
+     * {@link JsonParser#skipArray()} are implemented
+     */
+    static boolean parserGetsValues() {
+        try (JsonParser parser = Json.createParser(new StringReader("[{},[]]"))) {
+            parser.next();
+            parser.next();
+            parser.getObject();
+            parser.next();
+            parser.skipArray();
+            return true;
+        } catch (final UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A writer which passes through all but {@link #close()}.
+     */
+    private static final class NonClosingWriter extends Writer {
+        private final Writer delegate;
+
+        private NonClosingWriter(final @NotNull Writer delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(final char[] cbuf, final int off, final int len) throws IOException {
+            delegate.write(cbuf, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.flush();
+        }
     }
 
     static CheckReport reportFromJson(final JsonObject jsonReport) {
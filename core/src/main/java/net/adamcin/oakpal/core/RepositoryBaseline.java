@@ -0,0 +1,100 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.core;
+
+import org.apache.jackrabbit.oak.plugins.memory.MemoryNodeStore;
+import org.apache.jackrabbit.oak.spi.state.NodeState;
+import org.apache.jackrabbit.oak.spi.state.NodeStore;
+import org.jetbrains.annotations.NotNull;
+
+import javax.jcr.NamespaceRegistry;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The frozen repository state after the init stages of an {@link OakMachine}, which are the node types, namespaces,
+ * privileges, forced roots and repoinit scripts of its plan and checklists. Machines with the same init stages can
+ * start from the baseline with {@link OakMachine.Builder#withBaseline(RepositoryBaseline)} instead of running the
+ * init stages again. The state is read-only, so any number of machines can share it, including concurrently. Pre-install
+ * packages are not part of the baseline, because checks observe their installation.
+ *
+ * @see OakMachine#captureBaseline()
+ * @since 2.3.0
+ */
+public final class RepositoryBaseline {
+    private final NodeState root;
+    private final Map<String, String> sessionNamespaces;
+
+    RepositoryBaseline(final @NotNull NodeState root, final @NotNull Map<String, String> sessionNamespaces) {
+        // wrap the root once, so that each new node store starts from the same state without copying it
+        this.root = new MemoryNodeStore(root).getRoot();
+        this.sessionNamespaces = Collections.unmodifiableMap(new LinkedHashMap<>(sessionNamespaces));
+    }
+
+    /**
+     * Get the root state of the baseline, for a custom {@link NodeStore} supplier to start from.
+     *
+     * @return the root node state
+     */
+    public @NotNull NodeState getRoot() {
+        return root;
+    }
+
+    /**
+     * Create a new memory node store which starts from the baseline.
+     *
+     * @return a new node store
+     */
+    public @NotNull NodeStore newNodeStore() {
+        return new MemoryNodeStore(root);
+    }
+
+    /**
+     * Capture the namespace prefixes of the admin session which do not match the namespace registry, because an init
+     * stage remapped them.
+     *
+     * @param admin the admin session after the init stages
+     * @return the remapped prefixes and their uris
+     * @throws RepositoryException for repository errors
+     */
+    static Map<String, String> captureSessionNamespaces(final @NotNull Session admin) throws RepositoryException {
+        final NamespaceRegistry registry = admin.getWorkspace().getNamespaceRegistry();
+        final Map<String, String> sessionNamespaces = new LinkedHashMap<>();
+        for (String prefix : admin.getNamespacePrefixes()) {
+            final String uri = admin.getNamespaceURI(prefix);
+            if (!prefix.equals(registry.getPrefix(uri))) {
+                sessionNamespaces.put(prefix, uri);
+            }
+        }
+        return sessionNamespaces;
+    }
+
+    /**
+     * Apply the session namespace prefixes of the baseline to a new admin session.
+     *
+     * @param admin the admin session
+     * @throws RepositoryException for repository errors
+     */
+    void initSession(final @NotNull Session admin) throws RepositoryException {
+        for (Map.Entry<String, String> entry : sessionNamespaces.entrySet()) {
+            admin.setNamespacePrefix(entry.getKey(), entry.getValue());
+        }
+    }
+}
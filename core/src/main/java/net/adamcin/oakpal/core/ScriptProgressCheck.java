@@ -40,26 +40,36 @@ import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.json.JsonObject;
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.Invocable;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
+import javax.script.SimpleScriptContext;
 import java.io.File;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
+import java.lang.ref.SoftReference;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.Manifest;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -103,6 +113,11 @@ import static net.adamcin.oakpal.core.Util.isEmpty;
  * </dl>
  * <p>
  * To report package violations, a {@link ScriptHelper} is bound to the global variable "oakpal".
+ * <p>
+ * JavaScript checks created on the same thread share one engine per class loader, so checks loaded by concurrent scans
+ * on different threads do not contend for an engine. The script source is compiled once per engine for each distinct
+ * content, and each check instance evaluates the compiled script in its own {@link ScriptContext}, with its own
+ * "config" and "oakpal" bindings, so script globals are never shared between instances.
  */
 public final class ScriptProgressCheck implements ProgressCheck {
     public static final String DEFAULT_SCRIPT_ENGINE_EXTENSION = "js";
@@ -135,6 +150,8 @@ public final class ScriptProgressCheck implements ProgressCheck {
                     "JS", "JavaScript", "ECMAScript")
             .flatMap(name -> Stream.of(name, name.toLowerCase()))
             .collect(Collectors.toSet());
+    private static final String OPTION_NASHORN_COMPAT = "polyglot.js.nashorn-compat";
+    private static final String OPTION_WARN_INTERPRETER_ONLY = "polyglot.engine.WarnInterpreterOnly";
     private static final boolean USE_NASHORN =
             new ScriptEngineManager(ScriptProgressCheck.class.getClassLoader())
                     .getEngineByName(ENGINE_NASHORN) != null;
@@ -143,6 +160,10 @@ public final class ScriptProgressCheck implements ProgressCheck {
     private final ScriptHelper helper;
     private final URL scriptUrl;
     private final Set<String> handlerMissCache = new HashSet<>();
+    private ScriptTimeBudget timeBudget;
+    private Object interruptible;
+    private long spentScanNanos;
+    private boolean budgetExceeded;
 
     ScriptProgressCheck(final @NotNull Invocable script,
                         final @NotNull ScriptHelper helper,
@@ -166,6 +187,42 @@ public final class ScriptProgressCheck implements ProgressCheck {
         return helper;
     }
 
+    /**
+     * Set the time budget for event handlers of this check.
+     *
+     * @param timeBudget the time budget, or null if unlimited
+     */
+    void setTimeBudget(final @Nullable ScriptTimeBudget timeBudget) {
+        this.timeBudget = timeBudget;
+        this.interruptible = null;
+        if (timeBudget != null) {
+            if (script instanceof ContextInvocable) {
+                final ContextInvocable contextInvocable = (ContextInvocable) script;
+                this.interruptible = ScriptTimeBudget.getInterruptible(contextInvocable.getEngine(),
+                        contextInvocable.getContext());
+            } else if (script instanceof ScriptEngine) {
+                this.interruptible = ScriptTimeBudget.getInterruptible(script, ((ScriptEngine) script).getContext());
+            }
+        }
+    }
+
+    /**
+     * Set the maximum number of violations that this check retains during one scan, beyond which they are aggregated.
+     *
+     * @param maxViolations the maximum number of violations, or 0 if unlimited
+     */
+    void setMaxViolations(final int maxViolations) {
+        this.helper.collector.setMaxViolations(maxViolations);
+    }
+
+    ScriptTimeBudget getTimeBudget() {
+        return timeBudget;
+    }
+
+    boolean isBudgetExceeded() {
+        return budgetExceeded;
+    }
+
     private String getScriptPath() {
         if (this.scriptUrl != null) {
             return this.scriptUrl.getPath();
@@ -216,6 +273,63 @@ public final class ScriptProgressCheck implements ProgressCheck {
         void apply(HandlerHandle handle) throws NoSuchMethodException, ScriptException;
     }
 
+    /**
+     * Invoke the named handler function, within the time budget if one is set. When the budget is exceeded, a
+     * violation is reported, the check is disabled until the next scan, and any error caused by interrupting the
+     * handler is ignored.
+     *
+     * @param methodName the handler function name
+     * @param args       the handler arguments
+     * @throws NoSuchMethodException if the script does not define the handler
+     * @throws ScriptException       for script errors
+     */
+    void invokeHandler(final String methodName, final Object... args) throws NoSuchMethodException, ScriptException {
+        if (timeBudget == null) {
+            this.script.invokeFunction(methodName, args);
+        } else if (script instanceof ContextInvocable) {
+            // acquire the shared engine before the budget is started, so that waiting for it is not counted
+            synchronized (((ContextInvocable) script).getEngine()) {
+                invokeWithinBudget(methodName, args);
+            }
+        } else {
+            invokeWithinBudget(methodName, args);
+        }
+    }
+
+    private void invokeWithinBudget(final String methodName, final Object... args)
+            throws NoSuchMethodException, ScriptException {
+        final ScheduledFuture<?> interruption = interruptible == null ? null
+                : ScriptTimeBudget.scheduleInterrupt(interruptible,
+                timeBudget.getDeadlineMillis(TimeUnit.NANOSECONDS.toMillis(spentScanNanos)));
+        final long started = System.nanoTime();
+        ScriptException error = null;
+        try {
+            this.script.invokeFunction(methodName, args);
+        } catch (final ScriptException e) {
+            error = e;
+        } finally {
+            if (interruption != null && !interruption.cancel(false)) {
+                // wait for a concurrent interruption to finish, so it can not interrupt the next handler
+                Fun.uncheck0(interruption::get).get();
+            }
+        }
+        final long elapsed = System.nanoTime() - started;
+        spentScanNanos += elapsed;
+        final String exceeded = timeBudget.describeExceeded(TimeUnit.NANOSECONDS.toMillis(elapsed),
+                TimeUnit.NANOSECONDS.toMillis(spentScanNanos));
+        if (exceeded != null) {
+            budgetExceeded = true;
+            final PackageId[] packageIds = args.length > 0 && args[0] instanceof PackageId
+                    ? new PackageId[]{(PackageId) args[0]}
+                    : new PackageId[0];
+            helper.collector.reportViolation(new SimpleViolation(Severity.MAJOR,
+                    String.format("%s exceeded the %s. The check is disabled for the rest of the scan.",
+                            methodName, exceeded), packageIds));
+        } else if (error != null) {
+            throw error;
+        }
+    }
+
     /**
      * Guards against script handler calls by remembering when NoSuchMethodExceptions are thrown when the script
      * function named by the {@code methodName} argument is invoked.
@@ -224,9 +338,9 @@ public final class ScriptProgressCheck implements ProgressCheck {
      * @param body       the ScriptProgressCheck adapter body logic to execute
      */
     void guardHandler(final String methodName, final EventHandlerBody body) {
-        if (!handlerMissCache.contains(methodName)) {
+        if (!budgetExceeded && !handlerMissCache.contains(methodName)) {
             try {
-                body.apply((args) -> this.script.invokeFunction(methodName, args));
+                body.apply((args) -> invokeHandler(methodName, args));
             } catch (NoSuchMethodException ignored) {
                 handlerMissCache.add(methodName);
             } catch (ScriptException e) {
@@ -246,9 +360,9 @@ public final class ScriptProgressCheck implements ProgressCheck {
      * @throws RepositoryException if a ScriptException is thrown with a RepositoryException cause
      */
     void guardSessionHandler(final String methodName, final EventHandlerBody body) throws RepositoryException {
-        if (!handlerMissCache.contains(methodName)) {
+        if (!budgetExceeded && !handlerMissCache.contains(methodName)) {
             try {
-                body.apply((args) -> this.script.invokeFunction(methodName, args));
+                body.apply((args) -> invokeHandler(methodName, args));
             } catch (NoSuchMethodException ignored) {
                 handlerMissCache.add(methodName);
             } catch (ScriptException e) {
@@ -268,6 +382,8 @@ public final class ScriptProgressCheck implements ProgressCheck {
     @Override
     public void startedScan() {
         helper.collector.clearViolations();
+        spentScanNanos = 0L;
+        budgetExceeded = false;
         guardHandler(INVOKE_ON_STARTED_SCAN, HandlerHandle::apply);
     }
 
@@ -391,11 +507,20 @@ public final class ScriptProgressCheck implements ProgressCheck {
     static class ScriptProgressCheckFactory implements ProgressCheckFactory {
 
         private final Fun.ThrowingSupplier<ScriptEngine> engineSupplier;
+        private final Fun.ThrowingSupplier<SharedScriptEngine> sharedEngineSupplier;
         private final URL scriptUrl;
 
         private ScriptProgressCheckFactory(final @NotNull Fun.ThrowingSupplier<ScriptEngine> engineSupplier,
                                            final @NotNull URL scriptUrl) {
+            this(engineSupplier, null, scriptUrl);
+        }
+
+        private ScriptProgressCheckFactory(
+                final @NotNull Fun.ThrowingSupplier<ScriptEngine> engineSupplier,
+                final @Nullable Fun.ThrowingSupplier<SharedScriptEngine> sharedEngineSupplier,
+                final @NotNull URL scriptUrl) {
             this.engineSupplier = engineSupplier;
+            this.sharedEngineSupplier = sharedEngineSupplier;
             this.scriptUrl = scriptUrl;
         }
 
@@ -405,6 +530,10 @@ public final class ScriptProgressCheck implements ProgressCheck {
 
         @Override
         public ProgressCheck newInstance(final JsonObject config) throws Exception {
+            final SharedScriptEngine sharedEngine = sharedEngineSupplier != null ? sharedEngineSupplier.tryGet() : null;
+            if (sharedEngine != null) {
+                return sharedEngine.newInstance(readSource(scriptUrl), scriptUrl, config);
+            }
             final ScriptEngine engine = engineSupplier.tryGet();
             try (InputStream is = scriptUrl.openStream();
                  Reader reader = new InputStreamReader(is, StandardCharsets.UTF_8)) {
@@ -413,6 +542,177 @@ public final class ScriptProgressCheck implements ProgressCheck {
         }
     }
 
+    static String readSource(final @NotNull URL scriptUrl) throws Exception {
+        try (InputStream is = scriptUrl.openStream()) {
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * A JavaScript engine shared by the script check instances loaded by the same class loader on the same thread.
+     * Compiled scripts are cached by the SHA-256 hash of their source, so that a changed script is compiled again. Each
+     * instance gets a {@link ContextInvocable} bound to its own {@link ScriptContext}.
+     */
+    static final class SharedScriptEngine {
+        static final int MAX_COMPILED_SCRIPTS = 64;
+        private static final ThreadLocal<Map<ClassLoader, SoftReference<SharedScriptEngine>>> SHARED_ENGINES =
+                ThreadLocal.withInitial(WeakHashMap::new);
+
+        private final ScriptEngine engine;
+        private final Map<String, CompiledScript> compiledScripts =
+                new LinkedHashMap<String, CompiledScript>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(final Map.Entry<String, CompiledScript> eldest) {
+                        return size() > MAX_COMPILED_SCRIPTS;
+                    }
+                };
+
+        SharedScriptEngine(final @NotNull ScriptEngine engine) {
+            this.engine = engine;
+        }
+
+        /**
+         * Get the shared JavaScript engine of the current thread for the class loader, creating it with the engine
+         * supplier if it has not been created yet, or if it has been reclaimed. A supplied engine that is not
+         * {@link Compilable} and {@link Invocable} can not be shared.
+         *
+         * @param classLoader    the class loader used to find the engine
+         * @param engineSupplier the supplier of a new JavaScript engine
+         * @return the shared engine, or null if the engine can not be shared
+         * @throws Exception if the engine supplier fails
+         */
+        static @Nullable SharedScriptEngine forClassLoader(
+                final @Nullable ClassLoader classLoader,
+                final @NotNull Fun.ThrowingSupplier<ScriptEngine> engineSupplier) throws Exception {
+            final Map<ClassLoader, SoftReference<SharedScriptEngine>> sharedEngines = SHARED_ENGINES.get();
+            final SoftReference<SharedScriptEngine> cached = sharedEngines.get(classLoader);
+            SharedScriptEngine shared = cached != null ? cached.get() : null;
+            if (shared == null) {
+                final ScriptEngine engine = engineSupplier.tryGet();
+                if (!(engine instanceof Compilable && engine instanceof Invocable)) {
+                    return null;
+                }
+                shared = new SharedScriptEngine(engine);
+                sharedEngines.put(classLoader, new SoftReference<>(shared));
+            }
+            return shared;
+        }
+
+        ScriptEngine getEngine() {
+            return engine;
+        }
+
+        int getCompiledScriptCount() {
+            synchronized (engine) {
+                return compiledScripts.size();
+            }
+        }
+
+        static String getSourceHash(final @NotNull String source) throws Exception {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            final byte[] mdbytes = digest.digest(source.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(mdbytes);
+        }
+
+        CompiledScript getCompiledScript(final @NotNull String source) throws Exception {
+            final String sourceHash = getSourceHash(source);
+            synchronized (engine) {
+                CompiledScript compiled = compiledScripts.get(sourceHash);
+                if (compiled == null) {
+                    compiled = ((Compilable) engine).compile(source);
+                    compiledScripts.put(sourceHash, compiled);
+                }
+                return compiled;
+            }
+        }
+
+        ScriptProgressCheck newInstance(final @NotNull String source,
+                                        final @Nullable URL scriptUrl,
+                                        final @Nullable JsonObject config) throws Exception {
+            final CompiledScript compiled = getCompiledScript(source);
+            final Map<String, Object> configMap = Optional.ofNullable(config)
+                    .map(JavaxJson::unwrapObject).orElse(Collections.emptyMap());
+            final ScriptHelper helper = new ScriptHelper();
+            synchronized (engine) {
+                final Bindings scriptBindings = engine.createBindings();
+                scriptBindings.put(OPTION_NASHORN_COMPAT, true);
+                scriptBindings.put(BINDING_CHECK_CONFIG, wrapForGraalIfNecessary(engine, configMap));
+                scriptBindings.put(BINDING_SCRIPT_HELPER, helper);
+                final ScriptContext context = new SimpleScriptContext();
+                context.setBindings(scriptBindings, ScriptContext.ENGINE_SCOPE);
+                final Bindings globalBindings = engine.getBindings(ScriptContext.GLOBAL_SCOPE);
+                if (globalBindings != null) {
+                    context.setBindings(globalBindings, ScriptContext.GLOBAL_SCOPE);
+                }
+                initContext(context);
+                compiled.eval(context);
+                return new ScriptProgressCheck(new ContextInvocable(engine, context), helper, scriptUrl);
+            }
+        }
+    }
+
+    /**
+     * Invokes functions of a shared engine in the {@link ScriptContext} of one script check instance. Invocations are
+     * serialized on the engine, because the engine invokes functions in its current context. The engine is shared only
+     * by instances created on the same thread, so the lock is contended only when an instance is invoked from a thread
+     * other than the one that created it.
+     */
+    static final class ContextInvocable implements Invocable {
+        private final ScriptEngine engine;
+        private final ScriptContext context;
+
+        ContextInvocable(final @NotNull ScriptEngine engine, final @NotNull ScriptContext context) {
+            this.engine = engine;
+            this.context = context;
+        }
+
+        ScriptEngine getEngine() {
+            return engine;
+        }
+
+        ScriptContext getContext() {
+            return context;
+        }
+
+        @Override
+        public Object invokeMethod(final Object thiz, final String name, final Object... args)
+                throws ScriptException, NoSuchMethodException {
+            synchronized (engine) {
+                final ScriptContext previous = engine.getContext();
+                engine.setContext(context);
+                try {
+                    return ((Invocable) engine).invokeMethod(thiz, name, args);
+                } finally {
+                    engine.setContext(previous);
+                }
+            }
+        }
+
+        @Override
+        public Object invokeFunction(final String name, final Object... args)
+                throws ScriptException, NoSuchMethodException {
+            synchronized (engine) {
+                final ScriptContext previous = engine.getContext();
+                engine.setContext(context);
+                try {
+                    return ((Invocable) engine).invokeFunction(name, args);
+                } finally {
+                    engine.setContext(previous);
+                }
+            }
+        }
+
+        @Override
+        public <T> T getInterface(final Class<T> clasz) {
+            throw new UnsupportedOperationException("interface implementations are not bound to a script context");
+        }
+
+        @Override
+        public <T> T getInterface(final Object thiz, final Class<T> clasz) {
+            throw new UnsupportedOperationException("interface implementations are not bound to a script context");
+        }
+    }
+
     private static void initContext(ScriptContext context) {
         context.setWriter(context.getErrorWriter());
     }
@@ -440,16 +740,24 @@ public final class ScriptProgressCheck implements ProgressCheck {
 
     private static class InlineScriptProgressCheckFactory implements ProgressCheckFactory {
         private Fun.ThrowingSupplier<ScriptEngine> engineSupplier;
+        private final Fun.ThrowingSupplier<SharedScriptEngine> sharedEngineSupplier;
         private final String source;
 
-        private InlineScriptProgressCheckFactory(final @NotNull Fun.ThrowingSupplier<ScriptEngine> engineSupplier,
-                                                 final @NotNull String source) {
+        private InlineScriptProgressCheckFactory(
+                final @NotNull Fun.ThrowingSupplier<ScriptEngine> engineSupplier,
+                final @Nullable Fun.ThrowingSupplier<SharedScriptEngine> sharedEngineSupplier,
+                final @NotNull String source) {
             this.engineSupplier = engineSupplier;
+            this.sharedEngineSupplier = sharedEngineSupplier;
             this.source = source;
         }
 
         @Override
         public ProgressCheck newInstance(final JsonObject config) throws Exception {
+            final SharedScriptEngine sharedEngine = sharedEngineSupplier != null ? sharedEngineSupplier.tryGet() : null;
+            if (sharedEngine != null) {
+                return sharedEngine.newInstance(this.source, null, config);
+            }
             final ScriptEngine engine = engineSupplier.tryGet();
             try (Reader reader = new StringReader(this.source)) {
                 return internalNewInstance(engine, reader, null, config);
@@ -475,15 +783,11 @@ public final class ScriptProgressCheck implements ProgressCheck {
             ext = scriptUrl.getPath().substring(lastPeriod + 1);
         }
         final Fun.ThrowingSupplier<ScriptEngine> engineSupplier = () -> {
-            final ScriptEngineManager scriptEngineManager = getScriptEngineManager(classLoader);
             final ScriptEngine engine;
             if (useJavaScriptEngine(ext)) {
-                engine = getEngineForJavaScript(scriptEngineManager);
-                final Bindings scriptBindings = engine.getBindings(ScriptContext.ENGINE_SCOPE);
-                scriptBindings.put("polyglot.js.nashorn-compat", true);
-                scriptBindings.put("polyglot.engine.WarnInterpreterOnly", false);
+                engine = newJavaScriptEngine(classLoader);
             } else {
-                engine = scriptEngineManager.getEngineByExtension(ext);
+                engine = getScriptEngineManager(classLoader).getEngineByExtension(ext);
             }
             if (engine == null) {
                 throw new UnregisteredScriptEngineNameException(ext,
@@ -492,9 +796,23 @@ public final class ScriptProgressCheck implements ProgressCheck {
             return engine;
         };
 
+        if (useJavaScriptEngine(ext)) {
+            return new ScriptProgressCheckFactory(engineSupplier,
+                    () -> SharedScriptEngine.forClassLoader(classLoader, engineSupplier), scriptUrl);
+        }
         return new ScriptProgressCheckFactory(engineSupplier, scriptUrl);
     }
 
+    static @Nullable ScriptEngine newJavaScriptEngine(final @Nullable ClassLoader classLoader) {
+        final ScriptEngine engine = getEngineForJavaScript(getScriptEngineManager(classLoader));
+        if (engine != null) {
+            final Bindings scriptBindings = engine.getBindings(ScriptContext.ENGINE_SCOPE);
+            scriptBindings.put(OPTION_NASHORN_COMPAT, true);
+            scriptBindings.put(OPTION_WARN_INTERPRETER_ONLY, false);
+        }
+        return engine;
+    }
+
     @SuppressWarnings("WeakerAccess")
     public static class UnregisteredScriptEngineNameException extends Exception {
         private final String engineName;
@@ -567,10 +885,7 @@ public final class ScriptProgressCheck implements ProgressCheck {
         final Fun.ThrowingSupplier<ScriptEngine> engineSupplier = () -> {
             final ScriptEngine engine;
             if (isEmpty(inlineEngine)) {
-                engine = getEngineForJavaScript(getScriptEngineManager(classLoader));
-                final Bindings scriptBindings = engine.getBindings(ScriptContext.ENGINE_SCOPE);
-                scriptBindings.put("polyglot.js.nashorn-compat", true);
-                scriptBindings.put("polyglot.engine.WarnInterpreterOnly", false);
+                engine = newJavaScriptEngine(classLoader);
             } else {
                 engine = getScriptEngineManager(classLoader).getEngineByName(inlineEngine);
             }
@@ -580,6 +895,8 @@ public final class ScriptProgressCheck implements ProgressCheck {
             return engine;
         };
 
-        return new InlineScriptProgressCheckFactory(engineSupplier, inlineScript);
+        return new InlineScriptProgressCheckFactory(engineSupplier, isEmpty(inlineEngine)
+                ? () -> SharedScriptEngine.forClassLoader(classLoader, engineSupplier)
+                : null, inlineScript);
     }
 }
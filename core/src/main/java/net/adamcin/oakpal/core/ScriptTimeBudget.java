@@ -0,0 +1,153 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.core;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.script.ScriptContext;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wall-clock time budgets for the event handlers of a {@link ScriptProgressCheck}, per handler invocation and
+ * cumulative per scan. A shared watchdog thread interrupts a handler that runs past its deadline, when the script
+ * engine supports interruption, which is currently only the case for Graal.js. Handlers of other engines are measured
+ * when they return.
+ */
+final class ScriptTimeBudget {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScriptTimeBudget.class);
+    private static final String GRAAL_JS_ENGINE_CLASS = "com.oracle.truffle.js.scriptengine.GraalJSScriptEngine";
+    private static final Duration INTERRUPT_TIMEOUT = Duration.ofSeconds(10L);
+
+    private static ScheduledExecutorService watchdog;
+
+    private final long callbackMillis;
+    private final long scanMillis;
+
+    private ScriptTimeBudget(final long callbackMillis, final long scanMillis) {
+        this.callbackMillis = callbackMillis;
+        this.scanMillis = scanMillis;
+    }
+
+    /**
+     * Create a time budget, unless both limits are unlimited.
+     *
+     * @param callbackMillis the time budget per handler invocation in milliseconds, or 0 if unlimited
+     * @param scanMillis     the cumulative time budget per scan in milliseconds, or 0 if unlimited
+     * @return a new time budget, or null if unlimited
+     */
+    static @Nullable ScriptTimeBudget of(final long callbackMillis, final long scanMillis) {
+        if (callbackMillis <= 0L && scanMillis <= 0L) {
+            return null;
+        }
+        return new ScriptTimeBudget(Math.max(0L, callbackMillis), Math.max(0L, scanMillis));
+    }
+
+    long getCallbackMillis() {
+        return callbackMillis;
+    }
+
+    long getScanMillis() {
+        return scanMillis;
+    }
+
+    /**
+     * Get the time remaining for the next handler invocation.
+     *
+     * @param spentScanMillis the time already spent in handlers during the current scan
+     * @return the deadline of the next handler invocation in milliseconds from now, or {@link Long#MAX_VALUE}
+     */
+    long getDeadlineMillis(final long spentScanMillis) {
+        final long callbackDeadline = callbackMillis > 0L ? callbackMillis : Long.MAX_VALUE;
+        final long scanDeadline = scanMillis > 0L ? Math.max(0L, scanMillis - spentScanMillis) : Long.MAX_VALUE;
+        return Math.min(callbackDeadline, scanDeadline);
+    }
+
+    /**
+     * Describe the budget exceeded by a handler invocation, if any.
+     *
+     * @param callbackSpentMillis the time spent in the handler invocation
+     * @param spentScanMillis     the time spent in handlers during the current scan, including the invocation
+     * @return a description of the exceeded budget, or null if within budget
+     */
+    @Nullable String describeExceeded(final long callbackSpentMillis, final long spentScanMillis) {
+        if (callbackMillis > 0L && callbackSpentMillis >= callbackMillis) {
+            return "callback time budget of " + callbackMillis + " ms";
+        } else if (scanMillis > 0L && spentScanMillis >= scanMillis) {
+            return "scan time budget of " + scanMillis + " ms";
+        }
+        return null;
+    }
+
+    /**
+     * Get the object to interrupt to stop a running handler of the engine in the script context.
+     *
+     * @param engine  the script engine invoking the handlers
+     * @param context the script context in which the handlers are invoked
+     * @return the Graal.js polyglot context, or null if the engine does not support interruption
+     */
+    static @Nullable Object getInterruptible(final @NotNull Object engine, final @NotNull ScriptContext context) {
+        if (!GRAAL_JS_ENGINE_CLASS.equals(engine.getClass().getName())) {
+            return null;
+        }
+        try {
+            return engine.getClass().getMethod("getPolyglotContext", ScriptContext.class).invoke(engine, context);
+        } catch (final Exception e) {
+            LOGGER.warn("failed to get polyglot context of script engine {}", engine, e);
+            return null;
+        }
+    }
+
+    /**
+     * Schedule the interruption of a handler after the delay, unless the returned future is cancelled first.
+     *
+     * @param interruptible the object returned by {@link #getInterruptible(Object, ScriptContext)}
+     * @param delayMillis   the delay in milliseconds
+     * @return the scheduled interruption, or null if it would never happen
+     */
+    static @Nullable ScheduledFuture<?> scheduleInterrupt(final @NotNull Object interruptible, final long delayMillis) {
+        if (delayMillis == Long.MAX_VALUE) {
+            return null;
+        }
+        return getWatchdog().schedule(() -> interrupt(interruptible), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    static void interrupt(final @NotNull Object interruptible) {
+        try {
+            interruptible.getClass().getMethod("interrupt", Duration.class).invoke(interruptible, INTERRUPT_TIMEOUT);
+        } catch (final Exception e) {
+            LOGGER.warn("failed to interrupt script handler in {}", interruptible, e);
+        }
+    }
+
+    private static synchronized ScheduledExecutorService getWatchdog() {
+        if (watchdog == null) {
+            watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "oakpal-script-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return watchdog;
+    }
+}
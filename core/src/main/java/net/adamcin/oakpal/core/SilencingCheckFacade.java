@@ -22,6 +22,7 @@ import net.adamcin.oakpal.api.ProgressCheck;
 import net.adamcin.oakpal.api.SilenceableCheck;
 import net.adamcin.oakpal.api.SlingInstallable;
 import net.adamcin.oakpal.api.SlingSimulator;
+import net.adamcin.oakpal.api.UnsubscribingCheck;
 import net.adamcin.oakpal.api.Violation;
 import org.apache.jackrabbit.vault.fs.config.MetaInf;
 import org.apache.jackrabbit.vault.packaging.PackageId;
@@ -43,7 +44,7 @@ import java.util.jar.Manifest;
  * Internal facade class which serves to forcibly silence the wrapped {@link ProgressCheck} by not passing events when
  * silenced.
  */
-class SilencingCheckFacade implements SilenceableCheck {
+class SilencingCheckFacade implements SilenceableCheck, UnsubscribingCheck {
 
     private final ProgressCheck wrapped;
     private boolean silenced;
@@ -52,6 +53,11 @@ class SilencingCheckFacade implements SilenceableCheck {
         this.wrapped = wrapped;
     }
 
+    @NotNull
+    ProgressCheck getWrapped() {
+        return wrapped;
+    }
+
     @Override
     public String getCheckName() {
         return wrapped.getCheckName();
@@ -72,6 +78,14 @@ class SilencingCheckFacade implements SilenceableCheck {
         this.silenced = silenced;
     }
 
+    @Override
+    public @NotNull PathSubscription getPathSubscription() {
+        if (wrapped instanceof UnsubscribingCheck) {
+            return ((UnsubscribingCheck) wrapped).getPathSubscription();
+        }
+        return PathSubscription.SUBSCRIBED;
+    }
+
     @Override
     public Collection<Violation> getReportedViolations() {
         return wrapped.getReportedViolations();
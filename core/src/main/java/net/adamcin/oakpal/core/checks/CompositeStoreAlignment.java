@@ -24,6 +24,7 @@ import net.adamcin.oakpal.api.PathAction;
 import net.adamcin.oakpal.api.ProgressCheck;
 import net.adamcin.oakpal.api.ProgressCheckFactory;
 import net.adamcin.oakpal.api.Rule;
+import net.adamcin.oakpal.api.RuleSet;
 import net.adamcin.oakpal.api.Rules;
 import net.adamcin.oakpal.api.Severity;
 import net.adamcin.oakpal.api.SimpleProgressCheckFactoryCheck;
@@ -142,7 +143,7 @@ public final class CompositeStoreAlignment implements ProgressCheckFactory {
 
     static final class Check extends SimpleProgressCheckFactoryCheck<CompositeStoreAlignment> {
         private final Severity severity;
-        private final List<Rule> scopePackageIds;
+        private final RuleSet scopePackageIds;
         private final MountInfoProvider mounts;
 
         private final Map<PackageId, List<PackageId>> subPackages = new HashMap<>();
@@ -152,7 +153,7 @@ public final class CompositeStoreAlignment implements ProgressCheckFactory {
         Check(final Severity severity, final List<Rule> scopePackageIds, final MountInfoProvider mounts) {
             super(CompositeStoreAlignment.class);
             this.severity = severity;
-            this.scopePackageIds = scopePackageIds;
+            this.scopePackageIds = RuleSet.compile(scopePackageIds);
             this.mounts = mounts;
         }
 
@@ -222,7 +223,7 @@ public final class CompositeStoreAlignment implements ProgressCheckFactory {
         @Override
         public void finishedScan() {
             for (PackageId affectingPackageId : affectedMounts.keySet()) {
-                if (Rules.lastMatch(scopePackageIds, affectingPackageId.toString()).isExclude()) {
+                if (scopePackageIds.lastMatch(affectingPackageId.toString()).isExclude()) {
                     continue;
                 }
                 final Set<Mount> affectedByPackage = getMountsAffectedByPackage(affectingPackageId);
@@ -19,12 +19,15 @@ package net.adamcin.oakpal.core.checks;
 import net.adamcin.oakpal.api.EmbeddedPackageInstallable;
 import net.adamcin.oakpal.api.Fun;
 import net.adamcin.oakpal.api.JavaxJson;
+import net.adamcin.oakpal.api.PathAction;
 import net.adamcin.oakpal.api.ProgressCheck;
 import net.adamcin.oakpal.api.ProgressCheckFactory;
 import net.adamcin.oakpal.api.Result;
 import net.adamcin.oakpal.api.Rule;
+import net.adamcin.oakpal.api.RuleSet;
 import net.adamcin.oakpal.api.Rules;
 import net.adamcin.oakpal.api.Severity;
+import net.adamcin.oakpal.api.SilenceableCheck;
 import net.adamcin.oakpal.api.SimpleProgressCheckFactoryCheck;
 import net.adamcin.oakpal.api.SlingInstallable;
 import org.apache.jackrabbit.api.security.JackrabbitAccessControlEntry;
@@ -37,6 +40,7 @@ import org.osgi.annotation.versioning.ProviderType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.Value;
@@ -48,6 +52,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -56,6 +61,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -102,6 +108,10 @@ import static net.adamcin.oakpal.api.Fun.zipKeysWithValueFunc;
  * we have a special check that evaluates the presence of expected rules based on their attributes, instead of their own
  * paths within a package.
  * <p>
+ * The policies at each criteria path are cached between evaluations, until an imported or deleted path event affects
+ * the path, one of its ancestors, or its {@code rep:policy} node, or until a Sling installable like a repoinit script
+ * or an embedded package is installed, or a silenced package is installed.
+ * <p>
  * Finer-grained Access Control Handling Policies like MERGE and MERGE_PRESERVE operate along lines defined by the principal
  * identified by a particular ACE. Therefore, this check requires that you specific a specific principal to expect aces for.
  * <p>
@@ -286,13 +296,23 @@ public final class ExpectAces implements ProgressCheckFactory {
         return allCriterias;
     }
 
-    static final class Check extends SimpleProgressCheckFactoryCheck<ExpectAces> {
+    /**
+     * This check implements {@link SilenceableCheck} so that it can discard cached policies when a silenced package is
+     * installed.
+     */
+    static final class Check extends SimpleProgressCheckFactoryCheck<ExpectAces> implements SilenceableCheck {
         final List<AceCriteria> expectedAces;
         final List<AceCriteria> notExpectedAces;
+        final Map<String, List<AceCriteria>> expectedsByPath;
+        final Map<String, List<AceCriteria>> notExpectedsByPath;
+        final Set<String> allPaths;
+        final TreeMap<String, PathPolicies> policiesByPath = new TreeMap<>();
+        private boolean silenced;
         final PackageGraph graph = new PackageGraph();
         final Map<AceCriteria, List<PackageId>> expectedViolators = new LinkedHashMap<>();
         final Map<AceCriteria, List<PackageId>> notExpectedViolators = new LinkedHashMap<>();
         final List<Rule> afterPackageIdRules;
+        final RuleSet afterPackageIdRuleSet;
         final boolean ignoreNestedPackages;
         final Severity severity;
 
@@ -304,7 +324,13 @@ public final class ExpectAces implements ProgressCheckFactory {
             super(ExpectAces.class);
             this.expectedAces = expectedAces;
             this.notExpectedAces = notExpectedAces;
+            this.expectedsByPath = groupCriteriaByPath(expectedAces);
+            this.notExpectedsByPath = groupCriteriaByPath(notExpectedAces);
+            final Set<String> allPaths = new LinkedHashSet<>(expectedsByPath.keySet());
+            allPaths.addAll(notExpectedsByPath.keySet());
+            this.allPaths = Collections.unmodifiableSet(allPaths);
             this.afterPackageIdRules = afterPackageIdRules;
+            this.afterPackageIdRuleSet = RuleSet.compile(afterPackageIdRules);
             this.ignoreNestedPackages = ignoreNestedPackages;
             this.severity = severity;
         }
@@ -315,6 +341,106 @@ public final class ExpectAces implements ProgressCheckFactory {
             graph.startedScan();
             expectedViolators.clear();
             notExpectedViolators.clear();
+            clearPolicies();
+        }
+
+        @Override
+        public void setSilenced(final boolean silenced) {
+            this.silenced = silenced;
+            if (silenced) {
+                // silenced packages are not evaluated, so discard policies rather than track their changes.
+                clearPolicies();
+            }
+        }
+
+        void clearPolicies() {
+            policiesByPath.clear();
+        }
+
+        /**
+         * Discard cached policies for the access-controlled path of the affected path, and for its descendants.
+         *
+         * @param path the imported or deleted path
+         */
+        void invalidatePolicies(final @NotNull String path) {
+            if (policiesByPath.isEmpty()) {
+                return;
+            }
+            final String controlledPath = getAccessControlledPath(path);
+            if (controlledPath.isEmpty() || "/".equals(controlledPath)) {
+                policiesByPath.clear();
+            } else {
+                policiesByPath.remove(controlledPath);
+                // '0' is the character after '/'
+                policiesByPath.subMap(controlledPath + "/", controlledPath + "0").clear();
+            }
+        }
+
+        /**
+         * Return the path of the node that is access controlled by a {@code rep:policy} or {@code rep:repoPolicy} node
+         * in the given path, or the path itself if it contains neither. The empty string is returned for the repository
+         * policy.
+         *
+         * @param path the affected path
+         * @return the access-controlled path
+         */
+        static String getAccessControlledPath(final @NotNull String path) {
+            for (String policyName : new String[]{"/rep:policy", "/rep:repoPolicy"}) {
+                for (int index = path.indexOf(policyName); index >= 0; index = path.indexOf(policyName, index + 1)) {
+                    final int end = index + policyName.length();
+                    if (end == path.length() || path.charAt(end) == '/') {
+                        if (index == 0) {
+                            return "/rep:repoPolicy".equals(policyName) ? "" : "/";
+                        }
+                        return path.substring(0, index);
+                    }
+                }
+            }
+            return path;
+        }
+
+        @NotNull
+        PathPolicies getPolicies(final @NotNull JackrabbitAccessControlManager aclManager,
+                                 final @NotNull Session inspectSession,
+                                 final @NotNull String path) throws RepositoryException {
+            PathPolicies policies = policiesByPath.get(path);
+            if (policies == null) {
+                policies = new PathPolicies(
+                        // provide null path for rep:repoPolicy evaluation
+                        (path.isEmpty() ? Stream.of(aclManager.getPolicies((String) null))
+                                : (inspectSession.nodeExists(path) ? Stream.of(aclManager.getPolicies(path))
+                                : Stream.empty()))
+                                .filter(JackrabbitAccessControlList.class::isInstance)
+                                .map(JackrabbitAccessControlList.class::cast)
+                                .toArray(JackrabbitAccessControlList[]::new));
+                policiesByPath.put(path, policies);
+            }
+            return policies;
+        }
+
+        @Override
+        public void importedPath(final PackageId packageId, final String path, final Node node,
+                                 final PathAction action) throws RepositoryException {
+            invalidatePolicies(path);
+        }
+
+        @Override
+        public void deletedPath(final PackageId packageId, final String path, final Session inspectSession)
+                throws RepositoryException {
+            invalidatePolicies(path);
+        }
+
+        /**
+         * Sling installables, like repoinit scripts and embedded packages, may change policies at any path.
+         *
+         * @param scanPackageId    the last preinstall or scan package
+         * @param slingInstallable the sling installable about to be installed
+         * @param inspectSession   session providing access to repository state
+         */
+        @Override
+        public void beforeSlingInstall(final PackageId scanPackageId, final SlingInstallable slingInstallable,
+                                       final Session inspectSession) {
+            clearPolicies();
         }
 
         static Map<String, List<AceCriteria>> groupCriteriaByPath(final @NotNull List<AceCriteria> criteriaList) {
@@ -331,7 +457,7 @@ public final class ExpectAces implements ProgressCheckFactory {
 
         boolean shouldExpectAfterExtract(final @NotNull PackageId packageId) {
             return (graph.isRoot(packageId) || !ignoreNestedPackages)
-                    && Rules.lastMatch(afterPackageIdRules, packageId.toString()).isInclude();
+                    && afterPackageIdRuleSet.lastMatch(packageId.toString()).isInclude();
         }
 
         /**
@@ -345,16 +471,25 @@ public final class ExpectAces implements ProgressCheckFactory {
 
         @Override
         public void identifyPackage(final PackageId packageId, final File file) {
+            if (silenced) {
+                return;
+            }
             graph.identifyPackage(packageId, file);
         }
 
         @Override
         public void identifySubpackage(final PackageId packageId, final PackageId parentId) {
+            if (silenced) {
+                return;
+            }
             graph.identifySubpackage(packageId, parentId);
         }
 
         @Override
         public void identifyEmbeddedPackage(final PackageId packageId, final PackageId parentId, final EmbeddedPackageInstallable slingInstallable) {
+            if (silenced) {
+                return;
+            }
             graph.identifyEmbeddedPackage(packageId, parentId, slingInstallable);
         }
 
@@ -372,26 +507,15 @@ public final class ExpectAces implements ProgressCheckFactory {
                                   final @NotNull Session inspectSession) throws RepositoryException {
             final JackrabbitAccessControlManager aclManager =
                     (JackrabbitAccessControlManager) inspectSession.getAccessControlManager();
-            final Map<String, List<AceCriteria>> expectedsByPath = groupCriteriaByPath(expectedAces);
-            final Map<String, List<AceCriteria>> notExpectedsByPath = groupCriteriaByPath(notExpectedAces);
-            final Set<String> allPaths = new LinkedHashSet<>(expectedsByPath.keySet());
-            allPaths.addAll(notExpectedsByPath.keySet());
             for (String path : allPaths) {
-                final JackrabbitAccessControlList[] policiesAtPath =
-                        // provide null path for rep:repoPolicy evaluation
-                        (path.isEmpty() ? Stream.of(aclManager.getPolicies((String) null))
-                                : (inspectSession.nodeExists(path) ? Stream.of(aclManager.getPolicies(path))
-                                : Stream.empty()))
-                                .filter(JackrabbitAccessControlList.class::isInstance)
-                                .map(JackrabbitAccessControlList.class::cast)
-                                .toArray(JackrabbitAccessControlList[]::new);
+                final PathPolicies policiesAtPath = getPolicies(aclManager, inspectSession, path);
                 for (AceCriteria criteria : expectedsByPath.getOrDefault(path, Collections.emptyList())) {
                     // only look for sling violators of an expected ace criteria if a violation for said criteria
                     // has not already been collected.
                     final List<PackageId> violators = getViolatorListForExpectedCriteria(expectedViolators, criteria);
-                    if (violators.isEmpty() && Stream.of(policiesAtPath).noneMatch(criteria::satisfiedBy)) {
+                    if (violators.isEmpty() && !policiesAtPath.isSatisfied(criteria)) {
                         violators.addAll(possibleViolators);
-                    } else if (!violators.isEmpty() && Stream.of(policiesAtPath).anyMatch(criteria::satisfiedBy)) {
+                    } else if (!violators.isEmpty() && policiesAtPath.isSatisfied(criteria)) {
                         violators.removeAll(possibleViolators);
                     }
                 }
@@ -399,9 +523,9 @@ public final class ExpectAces implements ProgressCheckFactory {
                     // only look for sling violators of an unexpected path if a violation for said path has not already
                     // been collected.
                     final List<PackageId> violators = getViolatorListForExpectedCriteria(notExpectedViolators, criteria);
-                    if (violators.isEmpty() && Stream.of(policiesAtPath).anyMatch(criteria::satisfiedBy)) {
+                    if (violators.isEmpty() && policiesAtPath.isSatisfied(criteria)) {
                         violators.addAll(possibleViolators);
-                    } else if (!violators.isEmpty() && Stream.of(policiesAtPath).noneMatch(criteria::satisfiedBy)) {
+                    } else if (!violators.isEmpty() && !policiesAtPath.isSatisfied(criteria)) {
                         violators.removeAll(possibleViolators);
                     }
                 }
@@ -418,7 +542,7 @@ public final class ExpectAces implements ProgressCheckFactory {
          */
         @Override
         public void afterExtract(final PackageId packageId, final Session inspectSession) throws RepositoryException {
-            if (shouldExpectAfterExtract(packageId)) {
+            if (!silenced && shouldExpectAfterExtract(packageId)) {
                 validateExpectations(graph.getSelfAndAncestors(packageId), inspectSession);
             }
         }
@@ -437,7 +561,9 @@ public final class ExpectAces implements ProgressCheckFactory {
         public void appliedRepoInitScripts(final PackageId scanPackageId, final List<String> scripts,
                                            final SlingInstallable slingInstallable, final Session inspectSession)
                 throws RepositoryException {
-            if (shouldExpectAfterExtract(slingInstallable.getParentId())) {
+            // repoinit scripts may change policies at any path.
+            clearPolicies();
+            if (!silenced && shouldExpectAfterExtract(slingInstallable.getParentId())) {
                 validateExpectations(graph.getSelfAndAncestors(slingInstallable.getParentId()),
                         inspectSession);
             }
@@ -455,7 +581,7 @@ public final class ExpectAces implements ProgressCheckFactory {
         @Override
         public void afterScanPackage(final PackageId scanPackageId, final Session inspectSession)
                 throws RepositoryException {
-            if (ignoreNestedPackages && shouldExpectAfterExtract(scanPackageId)) {
+            if (!silenced && ignoreNestedPackages && shouldExpectAfterExtract(scanPackageId)) {
                 validateExpectations(graph.getSelfAndDescendants(scanPackageId), inspectSession);
             }
         }
@@ -488,6 +614,24 @@ public final class ExpectAces implements ProgressCheckFactory {
         }
     }
 
+    /**
+     * The policies at a criteria path, with memoized results of
+     * {@link AceCriteria#satisfiedBy(JackrabbitAccessControlList)}.
+     */
+    static final class PathPolicies {
+        private final JackrabbitAccessControlList[] policies;
+        private final Map<AceCriteria, Boolean> satisfied = new HashMap<>();
+
+        PathPolicies(final @NotNull JackrabbitAccessControlList[] policies) {
+            this.policies = policies;
+        }
+
+        boolean isSatisfied(final @NotNull AceCriteria criteria) {
+            return satisfied.computeIfAbsent(criteria,
+                    key -> Stream.of(policies).anyMatch(key::satisfiedBy));
+        }
+    }
+
     static final class RestrictionCriteria {
         final @NotNull String name;
         final @Nullable String value;
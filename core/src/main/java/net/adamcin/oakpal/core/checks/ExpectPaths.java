@@ -21,24 +21,37 @@ import net.adamcin.oakpal.api.JavaxJson;
 import net.adamcin.oakpal.api.ProgressCheck;
 import net.adamcin.oakpal.api.ProgressCheckFactory;
 import net.adamcin.oakpal.api.Rule;
+import net.adamcin.oakpal.api.RuleSet;
 import net.adamcin.oakpal.api.Rules;
+import net.adamcin.oakpal.api.PathAction;
 import net.adamcin.oakpal.api.Severity;
+import net.adamcin.oakpal.api.SilenceableCheck;
 import net.adamcin.oakpal.api.SimpleProgressCheckFactoryCheck;
 import net.adamcin.oakpal.api.SlingInstallable;
+import org.apache.jackrabbit.vault.fs.config.MetaInf;
+import org.apache.jackrabbit.vault.fs.io.Archive;
 import org.apache.jackrabbit.vault.packaging.PackageId;
+import org.apache.jackrabbit.vault.packaging.PackageProperties;
+import org.apache.jackrabbit.vault.packaging.VaultPackage;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.osgi.annotation.versioning.ProviderType;
 
+import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.json.JsonObject;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 
 import static net.adamcin.oakpal.api.JavaxJson.arrayOrEmpty;
 import static net.adamcin.oakpal.api.JavaxJson.optArray;
@@ -126,16 +139,156 @@ public final class ExpectPaths implements ProgressCheckFactory {
         return new Check(expectedPaths, notExpectedPaths, afterPackageIdRules, ignoreNestedPackages, severity);
     }
 
-    static final class Check extends SimpleProgressCheckFactoryCheck<ExpectPaths> {
+    /**
+     * Tracks the known existence of a fixed set of repository item paths, so that expectations can be re-evaluated
+     * without looking up each path in the session. Paths are kept in sorted order so that the paths within a subtree
+     * occupy a contiguous index range, and the existence of each path is either unknown, or known to be true or false.
+     */
+    static final class PathExistence {
+        private final String[] paths;
+        private final BitSet known;
+        private final BitSet exists;
+
+        PathExistence(final @NotNull Collection<String> paths) {
+            this.paths = new TreeSet<>(paths).toArray(new String[0]);
+            this.known = new BitSet(this.paths.length);
+            this.exists = new BitSet(this.paths.length);
+        }
+
+        private int indexOf(final @NotNull String path) {
+            return Arrays.binarySearch(paths, path);
+        }
+
+        private int insertionPoint(final @NotNull String path) {
+            final int index = indexOf(path);
+            return index < 0 ? -index - 1 : index;
+        }
+
+        /**
+         * Return true if the item exists, looking it up in the session only if its existence is not already known.
+         *
+         * @param inspectSession the session
+         * @param path           the item path
+         * @return true if the item exists
+         * @throws RepositoryException if the session throws
+         */
+        boolean itemExists(final @NotNull Session inspectSession, final @NotNull String path)
+                throws RepositoryException {
+            final int index = indexOf(path);
+            if (index < 0) {
+                return inspectSession.itemExists(path);
+            }
+            if (!known.get(index)) {
+                exists.set(index, inspectSession.itemExists(path));
+                known.set(index);
+            }
+            return exists.get(index);
+        }
+
+        /**
+         * Return true if the existence of the path is known.
+         *
+         * @param path the item path
+         * @return true if known
+         */
+        boolean isKnown(final @NotNull String path) {
+            final int index = indexOf(path);
+            return index >= 0 && known.get(index);
+        }
+
+        /**
+         * An imported node exists, as do its ancestors. Its descendants may have been removed or replaced by properties,
+         * and are forgotten.
+         *
+         * @param path the imported node path
+         */
+        void imported(final @NotNull String path) {
+            if (paths.length == 0) {
+                return;
+            }
+            forgetDescendants(path);
+            for (String ancestor = path; !ancestor.isEmpty(); ancestor = getParentPath(ancestor)) {
+                final int index = indexOf(ancestor);
+                if (index >= 0) {
+                    known.set(index);
+                    exists.set(index);
+                }
+            }
+        }
+
+        /**
+         * A deleted node and all of its descendants do not exist.
+         *
+         * @param path the deleted node path
+         */
+        void deleted(final @NotNull String path) {
+            if (paths.length == 0) {
+                return;
+            }
+            final int[] range = getDescendantRange(path);
+            known.set(range[0], range[1]);
+            exists.clear(range[0], range[1]);
+            final int index = indexOf(path);
+            if (index >= 0) {
+                known.set(index);
+                exists.clear(index);
+            }
+        }
+
+        void forgetDescendants(final @NotNull String path) {
+            final int[] range = getDescendantRange(path);
+            known.clear(range[0], range[1]);
+        }
+
+        void forgetAll() {
+            known.clear();
+        }
+
+        /**
+         * Return the index range of the tracked paths that are strict descendants of the path.
+         *
+         * @param path the ancestor path
+         * @return a two-element array of the inclusive start and exclusive end indexes
+         */
+        int[] getDescendantRange(final @NotNull String path) {
+            final String prefix = path.endsWith("/") ? path : path + "/";
+            // '0' is the character after '/'
+            final String upperBound = prefix.substring(0, prefix.length() - 1) + "0";
+            final int from = insertionPoint(prefix);
+            final int to = insertionPoint(upperBound);
+            return new int[]{from, Math.max(from, to)};
+        }
+
+        static String getParentPath(final @NotNull String path) {
+            final int lastSlash = path.lastIndexOf('/');
+            if (lastSlash > 0) {
+                return path.substring(0, lastSlash);
+            } else if (lastSlash == 0 && path.length() > 1) {
+                return "/";
+            }
+            return "";
+        }
+    }
+
+    /**
+     * This check implements {@link SilenceableCheck} so that it can track path existence through the events of silenced
+     * packages. Expectations are not evaluated for silenced packages.
+     */
+    static final class Check extends SimpleProgressCheckFactoryCheck<ExpectPaths> implements SilenceableCheck {
+        static final String INSTALL_HOOKS_PATH = "META-INF/vault/hooks";
 
         final List<String> expectedPaths;
         final List<String> notExpectedPaths;
         final List<Rule> afterPackageIdRules;
+        final RuleSet afterPackageIdRuleSet;
         final boolean ignoreNestedPackages;
         final Severity severity;
         final PackageGraph graph = new PackageGraph();
         final Map<String, List<PackageId>> expectedViolators = new LinkedHashMap<>();
         final Map<String, List<PackageId>> notExpectedViolators = new LinkedHashMap<>();
+        final PathExistence pathExistence;
+        private boolean extractMayRunInstallHooks;
+        private boolean silenced;
 
         Check(final @NotNull List<String> expectedPaths,
               final @NotNull List<String> notExpectedPaths,
@@ -146,8 +299,12 @@ public final class ExpectPaths implements ProgressCheckFactory {
             this.expectedPaths = expectedPaths;
             this.notExpectedPaths = notExpectedPaths;
             this.afterPackageIdRules = afterPackageIdRules;
+            this.afterPackageIdRuleSet = RuleSet.compile(afterPackageIdRules);
             this.ignoreNestedPackages = ignoreNestedPackages;
             this.severity = severity;
+            final List<String> allPaths = new ArrayList<>(expectedPaths);
+            allPaths.addAll(notExpectedPaths);
+            this.pathExistence = new PathExistence(allPaths);
         }
 
         @Override
@@ -156,6 +313,81 @@ public final class ExpectPaths implements ProgressCheckFactory {
             graph.startedScan();
             expectedViolators.clear();
             notExpectedViolators.clear();
+            pathExistence.forgetAll();
+            extractMayRunInstallHooks = false;
+        }
+
+        @Override
+        public void setSilenced(final boolean silenced) {
+            this.silenced = silenced;
+        }
+
+        @Override
+        public void importedPath(final PackageId packageId, final String path, final Node node,
+                                 final PathAction action) {
+            pathExistence.imported(path);
+        }
+
+        @Override
+        public void deletedPath(final PackageId packageId, final String path, final Session inspectSession) {
+            pathExistence.deleted(path);
+        }
+
+        /**
+         * Install hooks may change the repository without producing path events. Hooks are declared either as external
+         * hook classes in the package properties, or as jars under {@code META-INF/vault/hooks/}, which are looked up in
+         * the archive that the {@link VaultPackage} has already opened, when the properties are provided by one.
+         *
+         * @param packageProperties the package properties
+         * @return true if the package may run install hooks when extracted
+         */
+        static boolean mayRunInstallHooks(final @Nullable PackageProperties packageProperties) {
+            if (packageProperties == null || !packageProperties.getExternalHooks().isEmpty()) {
+                return true;
+            }
+            if (packageProperties instanceof VaultPackage) {
+                try {
+                    return hasInstallHookJars(((VaultPackage) packageProperties).getArchive());
+                } catch (final RuntimeException e) {
+                    // the package is closed
+                    return true;
+                }
+            }
+            return true;
+        }
+
+        static boolean hasInstallHookJars(final @Nullable Archive archive) {
+            if (archive == null) {
+                return true;
+            }
+            try {
+                final Archive.Entry hooks = archive.getEntry(INSTALL_HOOKS_PATH);
+                return hooks != null && hooks.getChildren().stream()
+                        .anyMatch(entry -> !entry.isDirectory() && entry.getName().endsWith(".jar"));
+            } catch (final IOException e) {
+                return true;
+            }
+        }
+
+        @Override
+        public void beforeExtract(final PackageId packageId, final Session inspectSession,
+                                  final PackageProperties packageProperties, final MetaInf metaInf,
+                                  final List<PackageId> subpackages) {
+            extractMayRunInstallHooks = mayRunInstallHooks(packageProperties);
+        }
+
+        /**
+         * Sling installables, like repoinit scripts and embedded packages, may change any path without producing path
+         * events.
+         *
+         * @param scanPackageId    the last preinstall or scan package
+         * @param slingInstallable the sling installable about to be installed
+         * @param inspectSession   session providing access to repository state
+         */
+        @Override
+        public void beforeSlingInstall(final PackageId scanPackageId, final SlingInstallable slingInstallable,
+                                       final Session inspectSession) {
+            pathExistence.forgetAll();
         }
 
         static List<PackageId> getViolatorListForExpectedPath(final @NotNull Map<String, List<PackageId>> violatorsMap,
@@ -168,7 +400,7 @@ public final class ExpectPaths implements ProgressCheckFactory {
 
         boolean shouldExpectAfterExtract(final @NotNull PackageId packageId) {
             return (graph.isRoot(packageId) || !this.ignoreNestedPackages)
-                    && Rules.lastMatch(afterPackageIdRules, packageId.toString()).isInclude();
+                    && afterPackageIdRuleSet.lastMatch(packageId.toString()).isInclude();
         }
 
         /**
@@ -182,24 +414,34 @@ public final class ExpectPaths implements ProgressCheckFactory {
 
         @Override
         public void identifyPackage(final PackageId packageId, final File file) {
+            if (silenced) {
+                return;
+            }
             graph.identifyPackage(packageId, file);
         }
 
         @Override
         public void identifySubpackage(final PackageId packageId, final PackageId parentId) {
+            if (silenced) {
+                return;
+            }
             graph.identifySubpackage(packageId, parentId);
         }
 
         @Override
         public void identifyEmbeddedPackage(final PackageId packageId, final PackageId parentId,
                                             final EmbeddedPackageInstallable slingInstallable) {
+            if (silenced) {
+                return;
+            }
             graph.identifyEmbeddedPackage(packageId, parentId, slingInstallable);
         }
 
         /**
          * Perform the logic to validate expectations against current state using the provided {@code inspectSession}.
          * Any new violations detected for a particular set of path criteria will be blamed on the collection of
-         * packageIds provided by the {@code possibleViolators} argument.
+         * packageIds provided by the {@code possibleViolators} argument. The session is only consulted for paths whose
+         * existence has not been tracked from path events since the last lookup.
          *
          * @param possibleViolators the collection of possible violator packages with influence over the current
          *                          repository state
@@ -212,9 +454,10 @@ public final class ExpectPaths implements ProgressCheckFactory {
                 // only look for sling violators of an expected path if a violation for said path has not already
                 // been collected.
                 final List<PackageId> violators = getViolatorListForExpectedPath(expectedViolators, expectedPath);
-                if (violators.isEmpty() && !inspectSession.itemExists(expectedPath)) {
+                final boolean exists = pathExistence.itemExists(inspectSession, expectedPath);
+                if (violators.isEmpty() && !exists) {
                     violators.addAll(possibleViolators);
-                } else if (!violators.isEmpty() && inspectSession.itemExists(expectedPath)) {
+                } else if (!violators.isEmpty() && exists) {
                     violators.removeAll(possibleViolators);
                 }
             }
@@ -222,9 +465,10 @@ public final class ExpectPaths implements ProgressCheckFactory {
                 // only look for sling violators of an unexpected path if a violation for said path has not already
                 // been collected.
                 final List<PackageId> violators = getViolatorListForExpectedPath(notExpectedViolators, notExpectedPath);
-                if (violators.isEmpty() && inspectSession.itemExists(notExpectedPath)) {
+                final boolean exists = pathExistence.itemExists(inspectSession, notExpectedPath);
+                if (violators.isEmpty() && exists) {
                     violators.addAll(possibleViolators);
-                } else if (!violators.isEmpty() && !inspectSession.itemExists(notExpectedPath)) {
+                } else if (!violators.isEmpty() && !exists) {
                     violators.removeAll(possibleViolators);
                 }
             }
@@ -240,7 +484,11 @@ public final class ExpectPaths implements ProgressCheckFactory {
          */
         @Override
         public void afterExtract(final PackageId packageId, final Session inspectSession) throws RepositoryException {
-            if (shouldExpectAfterExtract(packageId)) {
+            if (extractMayRunInstallHooks) {
+                extractMayRunInstallHooks = false;
+                pathExistence.forgetAll();
+            }
+            if (!silenced && shouldExpectAfterExtract(packageId)) {
                 validateExpectations(graph.getSelfAndAncestors(packageId), inspectSession);
             }
         }
@@ -259,7 +507,8 @@ public final class ExpectPaths implements ProgressCheckFactory {
         public void appliedRepoInitScripts(final PackageId scanPackageId, final List<String> scripts,
                                            final SlingInstallable slingInstallable, final Session inspectSession)
                 throws RepositoryException {
-            if (shouldExpectAfterExtract(slingInstallable.getParentId())) {
+            pathExistence.forgetAll();
+            if (!silenced && shouldExpectAfterExtract(slingInstallable.getParentId())) {
                 validateExpectations(graph.getSelfAndAncestors(slingInstallable.getParentId()),
                         inspectSession);
             }
@@ -277,7 +526,7 @@ public final class ExpectPaths implements ProgressCheckFactory {
         @Override
         public void afterScanPackage(final PackageId scanPackageId,
                                      final Session inspectSession) throws RepositoryException {
-            if (ignoreNestedPackages && shouldExpectAfterExtract(scanPackageId)) {
+            if (!silenced && ignoreNestedPackages && shouldExpectAfterExtract(scanPackageId)) {
                 validateExpectations(graph.getSelfAndDescendants(scanPackageId), inspectSession);
             }
         }
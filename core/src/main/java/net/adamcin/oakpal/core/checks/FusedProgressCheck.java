@@ -0,0 +1,387 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.core.checks;
+
+import net.adamcin.oakpal.api.EmbeddedPackageInstallable;
+import net.adamcin.oakpal.api.Fun;
+import net.adamcin.oakpal.api.PathAction;
+import net.adamcin.oakpal.api.ProgressCheck;
+import net.adamcin.oakpal.api.ReportCollector;
+import net.adamcin.oakpal.api.Rule;
+import net.adamcin.oakpal.api.RuleSet;
+import net.adamcin.oakpal.api.RuleSetGroup;
+import net.adamcin.oakpal.api.SlingInstallable;
+import net.adamcin.oakpal.api.SlingSimulator;
+import net.adamcin.oakpal.api.Violation;
+import net.adamcin.oakpal.api.ViolationReporter;
+import org.apache.jackrabbit.vault.fs.api.WorkspaceFilter;
+import org.apache.jackrabbit.vault.fs.config.MetaInf;
+import org.apache.jackrabbit.vault.packaging.PackageId;
+import org.apache.jackrabbit.vault.packaging.PackageProperties;
+import org.jetbrains.annotations.NotNull;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+
+/**
+ * Evaluates several instances of the declarative {@link Paths}, {@link JcrProperties}, and {@link Subpackages} checks
+ * in a single pass. The path rules of the {@link Paths} instances and the scope path rules of the
+ * {@link JcrProperties} instances are evaluated together by one {@link RuleSetGroup} lookup per path, the workspace
+ * filter is consulted once per path, and the node type key of an imported node is read once for all
+ * {@link JcrProperties} instances. Violations are still collected by each fused instance, so the
+ * {@link #getReporters()} of a fused check should be reported in its place, and each violation is attributed to the
+ * reporter of its instance by {@link ReportCollector#attributeTo(ViolationReporter)} as it is reported.
+ * <p>
+ * An exception thrown by one fused instance does not prevent the event from reaching the others. After the event has
+ * been delivered to every instance, the exceptions are rethrown together as a {@link FusedCheckException}, which
+ * attributes each one to the reporter of the instance that threw it.
+ *
+ * @since 2.3.0
+ */
+public final class FusedProgressCheck implements ProgressCheck {
+
+    @FunctionalInterface
+    interface CheckVisitor<C> {
+        void visit(C check) throws RepositoryException;
+    }
+
+    private final List<ProgressCheck> reporters;
+    private final List<ProgressCheck> checks;
+    private final Map<ProgressCheck, ProgressCheck> reportersByCheck = new IdentityHashMap<>();
+    private final List<Paths.Check> pathsChecks = new ArrayList<>();
+    private final List<JcrProperties.Check> jcrPropertiesChecks = new ArrayList<>();
+    private final List<Subpackages.Check> subpackagesChecks = new ArrayList<>();
+    private final RuleSetGroup pathRules;
+    private final RuleSetGroup subpackageRules;
+
+    private FusedProgressCheck(final @NotNull List<ProgressCheck> reporters,
+                               final @NotNull List<ProgressCheck> checks) {
+        this.reporters = Collections.unmodifiableList(new ArrayList<>(reporters));
+        this.checks = Collections.unmodifiableList(new ArrayList<>(checks));
+        for (int i = 0; i < checks.size(); i++) {
+            reportersByCheck.put(checks.get(i), reporters.get(i));
+        }
+        for (ProgressCheck check : checks) {
+            if (check instanceof Paths.Check) {
+                pathsChecks.add((Paths.Check) check);
+            } else if (check instanceof JcrProperties.Check) {
+                jcrPropertiesChecks.add((JcrProperties.Check) check);
+            } else if (check instanceof Subpackages.Check) {
+                subpackagesChecks.add((Subpackages.Check) check);
+            } else {
+                throw new IllegalArgumentException("check can not be fused: " + check.getCheckName());
+            }
+        }
+        final List<RuleSet> pathRuleSets = pathsChecks.stream()
+                .map(Paths.Check::getRules).collect(Collectors.toCollection(ArrayList::new));
+        jcrPropertiesChecks.stream().map(JcrProperties.Check::getScopePaths).forEachOrdered(pathRuleSets::add);
+        this.pathRules = RuleSetGroup.compile(pathRuleSets);
+        this.subpackageRules = RuleSetGroup.compile(subpackagesChecks.stream()
+                .map(Subpackages.Check::getRules).collect(Collectors.toList()));
+    }
+
+    /**
+     * Return true if the check is an instance of a built-in check that can be fused.
+     *
+     * @param check the check, which must not be wrapped by an alias or other facade
+     * @return true if the check can be fused
+     */
+    public static boolean isFusable(final @NotNull ProgressCheck check) {
+        return check instanceof Paths.Check
+                || check instanceof JcrProperties.Check
+                || check instanceof Subpackages.Check;
+    }
+
+    /**
+     * Fuse the checks into one.
+     *
+     * @param reporters the checks as they should be reported, which may be alias facades of the fusable checks
+     * @param checks    the fusable checks, in the same order as the reporters
+     * @return the fused check
+     * @throws IllegalArgumentException if a check is not fusable, or if the lists differ in size
+     */
+    @NotNull
+    public static FusedProgressCheck fuse(final @NotNull List<ProgressCheck> reporters,
+                                          final @NotNull List<ProgressCheck> checks) {
+        if (reporters.size() != checks.size()) {
+            throw new IllegalArgumentException("expected one reporter per check");
+        }
+        return new FusedProgressCheck(reporters, checks);
+    }
+
+    /**
+     * Get the checks to report in place of this one, one for each fused check.
+     *
+     * @return the list of reporters
+     */
+    @NotNull
+    public List<ProgressCheck> getReporters() {
+        return reporters;
+    }
+
+    @Override
+    public String getCheckName() {
+        return reporters.stream().map(ProgressCheck::getCheckName).collect(Collectors.joining(", "));
+    }
+
+    @Override
+    public Collection<Violation> getReportedViolations() {
+        return reporters.stream()
+                .flatMap(reporter -> reporter.getReportedViolations().stream())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Thrown after an event has been delivered to every fused check, when one or more of them threw an exception.
+     * Each exception is paired with the reporter of the check that threw it, so that it can be reported in place of
+     * the fused check.
+     */
+    public static final class FusedCheckException extends RuntimeException {
+        private final List<Map.Entry<ProgressCheck, Exception>> errors;
+
+        FusedCheckException(final @NotNull List<Map.Entry<ProgressCheck, Exception>> errors) {
+            super(errors.size() + " fused check(s) failed: " + errors.stream()
+                            .map(error -> error.getKey().getCheckName())
+                            .collect(Collectors.joining(", ")),
+                    errors.get(0).getValue());
+            this.errors = Collections.unmodifiableList(new ArrayList<>(errors));
+            errors.stream().skip(1).map(Map.Entry::getValue).forEachOrdered(this::addSuppressed);
+        }
+
+        /**
+         * Get the exceptions in the order they were thrown, each keyed by the reporter of the check that threw it.
+         *
+         * @return the list of reporter and exception pairs
+         */
+        @NotNull
+        public List<Map.Entry<ProgressCheck, Exception>> getErrors() {
+            return errors;
+        }
+    }
+
+    /**
+     * Attributes the violations reported by each fused check to its reporter while an event is delivered to the fused
+     * checks, and collects the exceptions they throw, to be rethrown after all checks have been visited.
+     */
+    final class CheckVisit {
+        private final ViolationReporter attributed = ReportCollector.attributeTo(null);
+        private final List<Map.Entry<ProgressCheck, Exception>> errors = new ArrayList<>();
+
+        void enter(final @NotNull ProgressCheck check) {
+            ReportCollector.attributeTo(reportersByCheck.getOrDefault(check, check));
+        }
+
+        void collect(final @NotNull ProgressCheck check, final @NotNull Exception e) {
+            errors.add(Fun.toEntry(reportersByCheck.getOrDefault(check, check), e));
+        }
+
+        void finish() {
+            ReportCollector.attributeTo(attributed);
+            if (!errors.isEmpty()) {
+                throw new FusedCheckException(errors);
+            }
+        }
+    }
+
+    <C extends ProgressCheck> void visitAll(final @NotNull List<C> checks, final @NotNull CheckVisitor<C> visitor) {
+        final CheckVisit visit = new CheckVisit();
+        for (C check : checks) {
+            visit.enter(check);
+            try {
+                visitor.visit(check);
+            } catch (final RepositoryException | RuntimeException e) {
+                visit.collect(check, e);
+            }
+        }
+        visit.finish();
+    }
+
+    @Override
+    public void simulateSling(final SlingSimulator slingSimulator, final Set<String> runModes) {
+        visitAll(checks, check -> check.simulateSling(slingSimulator, runModes));
+    }
+
+    @Override
+    public void startedScan() {
+        visitAll(checks, ProgressCheck::startedScan);
+    }
+
+    @Override
+    public void identifyPackage(final PackageId packageId, final File file) {
+        visitAll(checks, check -> check.identifyPackage(packageId, file));
+    }
+
+    @Override
+    public void identifySubpackage(final PackageId packageId, final PackageId parentId) {
+        if (subpackagesChecks.isEmpty()) {
+            return;
+        }
+        final LazyMatches matches = new LazyMatches(subpackageRules, packageId.toString());
+        final CheckVisit visit = new CheckVisit();
+        for (int i = 0; i < subpackagesChecks.size(); i++) {
+            final int index = i;
+            visit.enter(subpackagesChecks.get(index));
+            try {
+                subpackagesChecks.get(index).checkSubpackage(packageId, parentId, () -> matches.get(index));
+            } catch (final RuntimeException e) {
+                visit.collect(subpackagesChecks.get(index), e);
+            }
+        }
+        visit.finish();
+    }
+
+    @Override
+    public void readManifest(final PackageId packageId, final Manifest manifest) {
+        visitAll(checks, check -> check.readManifest(packageId, manifest));
+    }
+
+    @Override
+    public void beforeExtract(final PackageId packageId, final Session inspectSession,
+                              final PackageProperties packageProperties, final MetaInf metaInf,
+                              final List<PackageId> subpackages) throws RepositoryException {
+        visitAll(checks, check -> check.beforeExtract(packageId, inspectSession, packageProperties, metaInf,
+                subpackages));
+    }
+
+    @Override
+    public void importedPath(final PackageId packageId, final String path, final Node node,
+                             final PathAction action) throws RepositoryException {
+        final Rule[] matches = pathRules.lastMatches(path);
+        final CheckVisit visit = new CheckVisit();
+        for (int i = 0; i < pathsChecks.size(); i++) {
+            visit.enter(pathsChecks.get(i));
+            try {
+                pathsChecks.get(i).checkImportedPath(packageId, path, matches[i]);
+            } catch (final RuntimeException e) {
+                visit.collect(pathsChecks.get(i), e);
+            }
+        }
+        final int offset = pathsChecks.size();
+        WorkspaceFilter lastFilter = null;
+        boolean filterContains = false;
+        List<String> nodeTypesKey = null;
+        for (int i = 0; i < jcrPropertiesChecks.size(); i++) {
+            final JcrProperties.Check check = jcrPropertiesChecks.get(i);
+            visit.enter(check);
+            try {
+                final WorkspaceFilter filter = check.getWorkspaceFilter();
+                // the fused checks share the workspace filter of the current package
+                if (lastFilter == null || filter != lastFilter) {
+                    filterContains = filter.contains(path);
+                    lastFilter = filter;
+                }
+                if (filterContains && matches[offset + i].isInclude()) {
+                    if (nodeTypesKey == null) {
+                        nodeTypesKey = JcrProperties.Check.getNodeTypesKey(node);
+                    }
+                    check.checkNode(packageId, node, nodeTypesKey);
+                }
+            } catch (final RepositoryException | RuntimeException e) {
+                visit.collect(check, e);
+            }
+        }
+        visit.finish();
+    }
+
+    @Override
+    public void deletedPath(final PackageId packageId, final String path, final Session inspectSession)
+            throws RepositoryException {
+        if (pathsChecks.isEmpty()) {
+            return;
+        }
+        final LazyMatches matches = new LazyMatches(pathRules, path);
+        final CheckVisit visit = new CheckVisit();
+        for (int i = 0; i < pathsChecks.size(); i++) {
+            final int index = i;
+            visit.enter(pathsChecks.get(index));
+            try {
+                pathsChecks.get(index).checkDeletedPath(packageId, path, () -> matches.get(index));
+            } catch (final RuntimeException e) {
+                visit.collect(pathsChecks.get(index), e);
+            }
+        }
+        visit.finish();
+    }
+
+    @Override
+    public void afterExtract(final PackageId packageId, final Session inspectSession) throws RepositoryException {
+        visitAll(checks, check -> check.afterExtract(packageId, inspectSession));
+    }
+
+    @Override
+    public void beforeSlingInstall(final PackageId scanPackageId, final SlingInstallable slingInstallable,
+                                   final Session inspectSession) throws RepositoryException {
+        visitAll(checks, check -> check.beforeSlingInstall(scanPackageId, slingInstallable, inspectSession));
+    }
+
+    @Override
+    public void identifyEmbeddedPackage(final PackageId packageId, final PackageId parentId,
+                                        final EmbeddedPackageInstallable slingInstallable) {
+        visitAll(checks, check -> check.identifyEmbeddedPackage(packageId, parentId, slingInstallable));
+    }
+
+    @Override
+    public void appliedRepoInitScripts(final PackageId scanPackageId, final List<String> scripts,
+                                       final SlingInstallable slingInstallable, final Session inspectSession)
+            throws RepositoryException {
+        visitAll(checks, check -> check.appliedRepoInitScripts(scanPackageId, scripts, slingInstallable,
+                inspectSession));
+    }
+
+    @Override
+    public void afterScanPackage(final PackageId scanPackageId, final Session inspectSession)
+            throws RepositoryException {
+        visitAll(checks, check -> check.afterScanPackage(scanPackageId, inspectSession));
+    }
+
+    @Override
+    public void finishedScan() {
+        visitAll(checks, ProgressCheck::finishedScan);
+    }
+
+    /**
+     * Evaluates a rule set group against a value when a fused check first needs the result.
+     */
+    static final class LazyMatches {
+        private final RuleSetGroup group;
+        private final String value;
+        private Rule[] matches;
+
+        LazyMatches(final @NotNull RuleSetGroup group, final @NotNull String value) {
+            this.group = group;
+            this.value = value;
+        }
+
+        Rule get(final int index) {
+            if (matches == null) {
+                matches = group.lastMatches(value);
+            }
+            return matches[index];
+        }
+    }
+}
@@ -20,10 +20,14 @@ import net.adamcin.oakpal.api.PathAction;
 import net.adamcin.oakpal.api.ProgressCheck;
 import net.adamcin.oakpal.api.ProgressCheckFactory;
 import net.adamcin.oakpal.api.Rule;
+import net.adamcin.oakpal.api.RuleMatchCache;
+import net.adamcin.oakpal.api.RuleSet;
 import net.adamcin.oakpal.api.RuleType;
 import net.adamcin.oakpal.api.Rules;
 import net.adamcin.oakpal.api.Severity;
 import net.adamcin.oakpal.api.SimpleProgressCheckFactoryCheck;
+import net.adamcin.oakpal.api.SlingInstallable;
+import org.apache.jackrabbit.JcrConstants;
 import org.apache.jackrabbit.vault.fs.api.WorkspaceFilter;
 import org.apache.jackrabbit.vault.fs.config.MetaInf;
 import org.apache.jackrabbit.vault.packaging.PackageId;
@@ -35,9 +39,15 @@ import org.osgi.annotation.versioning.ProviderType;
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
+import javax.jcr.Value;
 import javax.jcr.nodetype.NodeTypeDefinition;
 import javax.json.JsonObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
 import java.util.stream.Collectors;
@@ -175,12 +185,48 @@ public final class JcrProperties implements ProgressCheckFactory {
         }
     }
 
+    /**
+     * The cached outcome of evaluating {@code denyNodeTypes} and {@code scopeNodeTypes} for a combination of primary
+     * type and mixin types.
+     */
+    static final class NodeTypeDecision {
+        private final String deniedNodeType;
+        private final List<JcrPropertyConstraints> applicableConstraints;
+
+        NodeTypeDecision(final @Nullable String deniedNodeType,
+                         final @NotNull List<JcrPropertyConstraints> applicableConstraints) {
+            this.deniedNodeType = deniedNodeType;
+            this.applicableConstraints = applicableConstraints;
+        }
+
+        /**
+         * Get the first of the {@code denyNodeTypes} that matched the node types, if any.
+         *
+         * @return the denied node type or null
+         */
+        @Nullable
+        String getDeniedNodeType() {
+            return deniedNodeType;
+        }
+
+        /**
+         * Get the property constraints to evaluate, which is empty if the node types are denied or out of scope.
+         *
+         * @return the applicable property constraints
+         */
+        @NotNull
+        List<JcrPropertyConstraints> getApplicableConstraints() {
+            return applicableConstraints;
+        }
+    }
+
     static final class Check extends SimpleProgressCheckFactoryCheck<JcrProperties> {
-        private final List<Rule> scopePaths;
+        private final RuleSet scopePaths;
         private final List<String> denyNodeTypes;
         private final List<String> scopeNodeTypes;
         private final List<JcrPropertyConstraints> propertyChecks;
         private final ResourceBundleHolder resourceBundleHolder;
+        private final Map<List<String>, NodeTypeDecision> decisionsByNodeTypes = new HashMap<>();
         private WorkspaceFilter wspFilter;
 
         Check(final List<Rule> scopePaths,
@@ -189,7 +235,7 @@ public final class JcrProperties implements ProgressCheckFactory {
               final List<JcrPropertyConstraints> propertyChecks,
               final ResourceBundleHolder resourceBundleHolder) {
             super(JcrProperties.class);
-            this.scopePaths = scopePaths;
+            this.scopePaths = RuleSet.compile(scopePaths);
             this.denyNodeTypes = denyNodeTypes;
             this.scopeNodeTypes = scopeNodeTypes;
             this.propertyChecks = propertyChecks;
@@ -207,11 +253,39 @@ public final class JcrProperties implements ProgressCheckFactory {
             return super.getResourceBundle();
         }
 
+        @Override
+        public void startedScan() {
+            super.startedScan();
+            decisionsByNodeTypes.clear();
+        }
+
+        /**
+         * Node types may be registered or redefined by any package, including silenced packages which do not trigger
+         * this event, so cached decisions are discarded before each package is extracted.
+         */
         @Override
         public void beforeExtract(final PackageId packageId, final Session inspectSession,
                                   final PackageProperties packageProperties, final MetaInf metaInf,
                                   final List<PackageId> subpackages) throws RepositoryException {
             this.wspFilter = metaInf.getFilter();
+            decisionsByNodeTypes.clear();
+        }
+
+        /**
+         * Repoinit scripts may register node types.
+         */
+        @Override
+        public void appliedRepoInitScripts(final PackageId scanPackageId, final List<String> scripts,
+                                           final SlingInstallable slingInstallable, final Session inspectSession) {
+            decisionsByNodeTypes.clear();
+        }
+
+        RuleSet getScopePaths() {
+            return scopePaths;
+        }
+
+        WorkspaceFilter getWorkspaceFilter() {
+            return wspFilter;
         }
 
         @Override
@@ -221,29 +295,67 @@ public final class JcrProperties implements ProgressCheckFactory {
                 return;
             }
 
-            final Rule lastMatch = Rules.lastMatch(scopePaths, path);
+            final Rule lastMatch = RuleMatchCache.forCurrentScan().lastMatch(scopePaths, path);
             if (lastMatch.isInclude()) {
                 this.checkNode(packageId, node);
             }
         }
 
-        void checkNode(final PackageId packageId, final Node node) throws RepositoryException {
+        /**
+         * Exposed for testing.
+         *
+         * @return the number of cached node type decisions
+         */
+        int getCachedDecisionCount() {
+            return decisionsByNodeTypes.size();
+        }
+
+        /**
+         * Return the primary type name followed by the sorted mixin type names of the node, read from the
+         * {@code jcr:primaryType} and {@code jcr:mixinTypes} properties without resolving the effective node type.
+         *
+         * @param node the node
+         * @return the node type key
+         * @throws RepositoryException for errors reading the properties
+         */
+        static List<String> getNodeTypesKey(final @NotNull Node node) throws RepositoryException {
+            final String primaryType = node.getProperty(JcrConstants.JCR_PRIMARYTYPE).getString();
+            if (!node.hasProperty(JcrConstants.JCR_MIXINTYPES)) {
+                return Collections.singletonList(primaryType);
+            }
+            final Value[] mixinValues = node.getProperty(JcrConstants.JCR_MIXINTYPES).getValues();
+            final String[] mixinTypes = new String[mixinValues.length];
+            for (int i = 0; i < mixinValues.length; i++) {
+                mixinTypes[i] = mixinValues[i].getString();
+            }
+            Arrays.sort(mixinTypes);
+            final List<String> key = new ArrayList<>(mixinTypes.length + 1);
+            key.add(primaryType);
+            key.addAll(Arrays.asList(mixinTypes));
+            return key;
+        }
+
+        @NotNull
+        NodeTypeDecision getDecision(final @NotNull Node node) throws RepositoryException {
+            return getDecision(node, getNodeTypesKey(node));
+        }
+
+        @NotNull
+        NodeTypeDecision getDecision(final @NotNull Node node, final @NotNull List<String> key)
+                throws RepositoryException {
+            NodeTypeDecision decision = decisionsByNodeTypes.get(key);
+            if (decision == null) {
+                decision = decide(node);
+                decisionsByNodeTypes.put(key, decision);
+            }
+            return decision;
+        }
+
+        @NotNull
+        NodeTypeDecision decide(final @NotNull Node node) throws RepositoryException {
             for (String denyNodeType : denyNodeTypes) {
                 if (node.isNodeType(denyNodeType)) {
-                    final Object[] arguments = new Object[]{
-                            node.getPath(),
-                            node.getPrimaryNodeType().getName(),
-                            Stream.of(node.getMixinNodeTypes())
-                                    .map(NodeTypeDefinition::getName)
-                                    .collect(Collectors.toList()),
-                            denyNodeType
-                    };
-                    reporting(violation -> violation
-                            .withSeverity(Severity.MAJOR)
-                            .withDescription("{0} (t: {1}, m: {2}): denied node type {3}")
-                            .withArgument(arguments)
-                            .withPackage(packageId));
-                    return;
+                    return new NodeTypeDecision(denyNodeType, Collections.emptyList());
                 }
             }
 
@@ -251,12 +363,47 @@ public final class JcrProperties implements ProgressCheckFactory {
             for (String nodeType : scopeNodeTypes) {
                 if (node.isNodeType(nodeType)) {
                     isInScope = true;
+                    break;
                 }
             }
-            if (isInScope) {
-                for (JcrPropertyConstraints check : propertyChecks) {
-                    check.evaluate(packageId, node).ifPresent(collector::reportViolation);
-                }
+            return new NodeTypeDecision(null, isInScope ? propertyChecks : Collections.emptyList());
+        }
+
+        void checkNode(final PackageId packageId, final Node node) throws RepositoryException {
+            checkNode(packageId, node, getNodeTypesKey(node));
+        }
+
+        /**
+         * Check the node, given the node types key computed by {@link #getNodeTypesKey(Node)}.
+         *
+         * @param packageId    the package id
+         * @param node         the imported node
+         * @param nodeTypesKey the node types key
+         * @throws RepositoryException for errors reading the node
+         */
+        void checkNode(final PackageId packageId, final Node node, final List<String> nodeTypesKey)
+                throws RepositoryException {
+            final NodeTypeDecision decision = getDecision(node, nodeTypesKey);
+            final String denyNodeType = decision.getDeniedNodeType();
+            if (denyNodeType != null) {
+                final Object[] arguments = new Object[]{
+                        node.getPath(),
+                        node.getPrimaryNodeType().getName(),
+                        Stream.of(node.getMixinNodeTypes())
+                                .map(NodeTypeDefinition::getName)
+                                .collect(Collectors.toList()),
+                        denyNodeType
+                };
+                reporting(violation -> violation
+                        .withSeverity(Severity.MAJOR)
+                        .withDescription("{0} (t: {1}, m: {2}): denied node type {3}")
+                        .withArgument(arguments)
+                        .withPackage(packageId));
+                return;
+            }
+
+            for (JcrPropertyConstraints check : decision.getApplicableConstraints()) {
+                check.evaluate(packageId, node).ifPresent(collector::reportViolation);
             }
         }
     }
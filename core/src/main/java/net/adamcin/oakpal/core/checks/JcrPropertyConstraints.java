@@ -17,6 +17,7 @@
 package net.adamcin.oakpal.core.checks;
 
 import net.adamcin.oakpal.api.Rule;
+import net.adamcin.oakpal.api.RuleSet;
 import net.adamcin.oakpal.api.Rules;
 import net.adamcin.oakpal.api.Severity;
 import net.adamcin.oakpal.api.SimpleViolation;
@@ -180,6 +181,7 @@ public final class JcrPropertyConstraints {
     private final boolean denyIfMultivalued;
     private final String requireType;
     private final List<Rule> valueRules;
+    private final RuleSet valueRuleSet;
     private final Severity severity;
     private final Supplier<ResourceBundle> resourceBundleSupplier;
 
@@ -197,6 +199,7 @@ public final class JcrPropertyConstraints {
         this.denyIfMultivalued = denyIfMultivalued;
         this.requireType = requireType;
         this.valueRules = valueRules;
+        this.valueRuleSet = RuleSet.compile(valueRules);
         this.severity = severity;
         this.resourceBundleSupplier = resourceBundleSupplier;
     }
@@ -286,11 +289,11 @@ public final class JcrPropertyConstraints {
             }
 
             for (String value : values) {
-                final Rule lastMatch = Rules.lastMatch(getValueRules(), value);
+                final Rule lastMatch = valueRuleSet.lastMatch(value);
                 if (lastMatch.isDeny()) {
                     return Optional.of(constructViolation(packageId, node,
                             MessageFormat.format(getString("value {0} denied by pattern {1}"),
-                                    value, lastMatch.getPattern().pattern())));
+                                    value, lastMatch.getExpression())));
                 }
             }
         }
@@ -21,6 +21,8 @@ import net.adamcin.oakpal.api.ProgressCheck;
 import net.adamcin.oakpal.api.ProgressCheckFactory;
 import net.adamcin.oakpal.api.Severity;
 import net.adamcin.oakpal.api.SimpleProgressCheckFactoryCheck;
+import net.adamcin.oakpal.api.UnsubscribingCheck;
+import org.apache.jackrabbit.vault.fs.api.PathFilterSet;
 import org.apache.jackrabbit.vault.fs.api.WorkspaceFilter;
 import org.apache.jackrabbit.vault.fs.config.MetaInf;
 import org.apache.jackrabbit.vault.packaging.PackageId;
@@ -32,11 +34,14 @@ import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.json.JsonObject;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.Set;
 
 import static net.adamcin.oakpal.api.JavaxJson.hasNonNull;
 
@@ -44,13 +49,17 @@ import static net.adamcin.oakpal.api.JavaxJson.hasNonNull;
  * The {@code overlaps} check keeps track of installed package workspace filters, and checks every affected path going
  * forward against previous workspace filters for overlap, using {@link WorkspaceFilter#contains(String)}. Overlapping
  * deletions are reported as {@link Severity#MAJOR}, whereas other affected paths are
- * reported as {@link Severity#MINOR}.
+ * reported as {@link Severity#MINOR}. Filters are indexed by the roots of their {@link PathFilterSet}s, so that only
+ * the filters of packages with a root at or above an affected path are checked.
  * <p>
  * This check is sequence-dependent, in that changing the sequence of packages in the scan may result in a different
  * outcome. It is recommended to test multiple sequences if the actual process for package deployment is undefined or
  * subject to change. This check is not effective for single package scans nor is it effective for determining overlaps
  * with {@code preInstallPackages}.
  * <p>
+ * Path events are not needed for a package when it is the first package with a workspace filter, or once its
+ * highest-severity violation has been reported, so the check unsubscribes from them for the rest of that package.
+ * <p>
  * {@code config} options:
  * <dl>
  * <dt>{@code reportAllOverlaps}</dt>
@@ -86,13 +95,17 @@ public final class Overlaps implements ProgressCheckFactory {
         return new Check(reportAllOverlaps);
     }
 
-    static final class Check extends SimpleProgressCheckFactoryCheck<Overlaps> {
+    static final class Check extends SimpleProgressCheckFactoryCheck<Overlaps> implements UnsubscribingCheck {
 
-        final Map<PackageId, WorkspaceFilter> filters = new HashMap<>();
+        final Map<PackageId, WorkspaceFilter> filters = new LinkedHashMap<>();
         final Map<PackageId, Severity> reported = new HashMap<>();
+        final FilterRootIndex filterRoots = new FilterRootIndex();
 
         final boolean reportAllOverlaps;
 
+        PackageId currentPackageId;
+        boolean currentPackageIsFirst;
+
         Check(final boolean reportAllOverlaps) {
             super(Overlaps.class);
             this.reportAllOverlaps = reportAllOverlaps;
@@ -103,34 +116,56 @@ public final class Overlaps implements ProgressCheckFactory {
             super.startedScan();
             filters.clear();
             reported.clear();
+            filterRoots.clear();
+            currentPackageId = null;
+            currentPackageIsFirst = false;
         }
 
         @Override
         public void beforeExtract(final PackageId packageId, final Session inspectSession,
                                   final PackageProperties packageProperties, final MetaInf metaInf,
                                   final List<PackageId> subpackages) throws RepositoryException {
-            filters.put(packageId, metaInf.getFilter());
+            final WorkspaceFilter filter = metaInf.getFilter();
+            currentPackageId = packageId;
+            currentPackageIsFirst = filters.values().stream().allMatch(Objects::isNull);
+            filters.put(packageId, filter);
+            if (filter != null) {
+                for (PathFilterSet filterSet : filter.getFilterSets()) {
+                    filterRoots.add(filterSet.getRoot(), packageId);
+                }
+            }
+        }
+
+        @Override
+        public @NotNull PathSubscription getPathSubscription() {
+            if (currentPackageId != null
+                    && (currentPackageIsFirst || alreadyReported(currentPackageId, Severity.MAJOR))) {
+                return PathSubscription.UNSUBSCRIBED_FOR_PACKAGE;
+            }
+            return PathSubscription.SUBSCRIBED;
         }
 
-        Predicate<? super Map.Entry<PackageId, WorkspaceFilter>> overlaps(final String path) {
-            return entry -> entry.getValue().contains(path);
+        boolean alreadyReported(final PackageId currentPackageId, final Severity severity) {
+            return !reportAllOverlaps
+                    && reported.containsKey(currentPackageId)
+                    && !reported.get(currentPackageId).isLessSevereThan(severity);
         }
 
         void findOverlaps(final PackageId currentPackageId, final String path,
                           final Severity severity) {
             // fast escape! no need to belabor the point.
-            if (!reportAllOverlaps
-                    && reported.containsKey(currentPackageId)
-                    && !reported.get(currentPackageId).isLessSevereThan(severity)) {
+            if (alreadyReported(currentPackageId, severity)) {
                 return;
             }
 
-            // find any overlapping filters, looking forward.
-            List<PackageId> overlapping = filters.entrySet().stream()
-                    .filter(entry -> !entry.getKey().equals(currentPackageId))
-                    .filter(overlaps(path))
-                    .map(Map.Entry::getKey)
-                    .collect(Collectors.toList());
+            // find any overlapping filters, looking forward, among packages with a filter root covering the path.
+            final List<PackageId> overlapping = new ArrayList<>();
+            for (PackageId packageId : filterRoots.findCovering(path)) {
+                final WorkspaceFilter filter = filters.get(packageId);
+                if (!packageId.equals(currentPackageId) && filter != null && filter.contains(path)) {
+                    overlapping.add(packageId);
+                }
+            }
 
 
             if (!overlapping.isEmpty()) {
@@ -148,6 +183,10 @@ public final class Overlaps implements ProgressCheckFactory {
         public void importedPath(final PackageId packageId, final String path, final Node node,
                                  final PathAction action)
                 throws RepositoryException {
+            // drop the event before checking our own scope if it could not be reported anyway.
+            if (alreadyReported(packageId, Severity.MINOR)) {
+                return;
+            }
             // don't worry about nodes outside of our own scope.
             if (filters.get(packageId).contains(path)) {
                 findOverlaps(packageId, path, Severity.MINOR);
@@ -161,4 +200,59 @@ public final class Overlaps implements ProgressCheckFactory {
             findOverlaps(packageId, path, Severity.MAJOR);
         }
     }
+
+    /**
+     * A tree of path segments which records the packages having a {@link PathFilterSet} root at each node.
+     */
+    static final class FilterRootIndex {
+        private final Map<String, FilterRootIndex> children = new HashMap<>();
+        private final Set<PackageId> packageIds = new LinkedHashSet<>();
+
+        void add(final @NotNull String root, final @NotNull PackageId packageId) {
+            FilterRootIndex node = this;
+            int start = 0;
+            while (start < root.length()) {
+                final int end = nextSeparator(root, start);
+                if (end > start) {
+                    node = node.children.computeIfAbsent(root.substring(start, end), key -> new FilterRootIndex());
+                }
+                start = end + 1;
+            }
+            node.packageIds.add(packageId);
+        }
+
+        /**
+         * Find the packages with a filter root equal to or an ancestor of the path.
+         *
+         * @param path the affected path
+         * @return the set of packages whose filters may contain the path
+         */
+        @NotNull
+        Set<PackageId> findCovering(final @NotNull String path) {
+            final Set<PackageId> covering = new LinkedHashSet<>(packageIds);
+            FilterRootIndex node = this;
+            int start = 0;
+            while (node != null && start < path.length()) {
+                final int end = nextSeparator(path, start);
+                if (end > start) {
+                    node = node.children.get(path.substring(start, end));
+                    if (node != null) {
+                        covering.addAll(node.packageIds);
+                    }
+                }
+                start = end + 1;
+            }
+            return covering;
+        }
+
+        void clear() {
+            children.clear();
+            packageIds.clear();
+        }
+
+        static int nextSeparator(final @NotNull String path, final int from) {
+            final int separator = path.indexOf('/', from);
+            return separator < 0 ? path.length() : separator;
+        }
+    }
 }
@@ -20,6 +20,8 @@ import net.adamcin.oakpal.api.PathAction;
 import net.adamcin.oakpal.api.ProgressCheck;
 import net.adamcin.oakpal.api.ProgressCheckFactory;
 import net.adamcin.oakpal.api.Rule;
+import net.adamcin.oakpal.api.RuleMatchCache;
+import net.adamcin.oakpal.api.RuleSet;
 import net.adamcin.oakpal.api.Rules;
 import net.adamcin.oakpal.api.Severity;
 import net.adamcin.oakpal.api.SimpleProgressCheckFactoryCheck;
@@ -32,6 +34,7 @@ import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.json.JsonObject;
 import java.util.List;
+import java.util.function.Supplier;
 
 import static net.adamcin.oakpal.api.JavaxJson.arrayOrEmpty;
 import static net.adamcin.oakpal.api.JavaxJson.hasNonNull;
@@ -124,35 +127,59 @@ public final class Paths implements ProgressCheckFactory {
     }
 
     static final class Check extends SimpleProgressCheckFactoryCheck<Paths> {
-        private final List<Rule> rules;
+        private final RuleSet rules;
         private final boolean denyAllDeletes;
         private final Severity severity;
 
         Check(final List<Rule> rules, final boolean denyAllDeletes, final Severity severity) {
             super(Paths.class);
-            this.rules = rules;
+            this.rules = RuleSet.compile(rules);
             this.denyAllDeletes = denyAllDeletes;
             this.severity = severity;
         }
 
+        RuleSet getRules() {
+            return rules;
+        }
+
         @Override
         public void importedPath(final PackageId packageId, final String path, final Node node,
                                  final PathAction action)
                 throws RepositoryException {
+            checkImportedPath(packageId, path, RuleMatchCache.forCurrentScan().lastMatch(rules, path));
+        }
 
-            Rule lastMatch = Rules.lastMatch(rules, path);
+        /**
+         * Report a violation if the last rule to match the imported path is a deny rule.
+         *
+         * @param packageId the package id
+         * @param path      the imported path
+         * @param lastMatch the last rule to match the path
+         */
+        void checkImportedPath(final PackageId packageId, final String path, final Rule lastMatch) {
             if (lastMatch.isDeny()) {
                 reporting(violation -> violation
                         .withSeverity(severity)
                         .withPackage(packageId)
                         .withDescription("imported path {0} matches deny pattern {1}")
-                        .withArgument(path, lastMatch.getPattern().pattern()));
+                        .withArgument(path, lastMatch.getExpression()));
             }
         }
 
         @Override
         public void deletedPath(final PackageId packageId, final String path, final Session inspectSession)
                 throws RepositoryException {
+            checkDeletedPath(packageId, path, () -> RuleMatchCache.forCurrentScan().lastMatch(rules, path));
+        }
+
+        /**
+         * Report a violation if all deletes are denied, or if the last rule to match the deleted path is a deny rule.
+         *
+         * @param packageId the package id
+         * @param path      the deleted path
+         * @param lastMatch supplies the last rule to match the path, if needed
+         */
+        void checkDeletedPath(final PackageId packageId, final String path, final Supplier<Rule> lastMatch) {
             if (this.denyAllDeletes) {
                 reporting(violation -> violation
                         .withSeverity(severity)
@@ -160,13 +187,13 @@ public final class Paths implements ProgressCheckFactory {
                         .withDescription("deleted path {0}. All deletions are denied.")
                         .withArgument(path));
             } else {
-                final Rule lastMatch = Rules.lastMatch(rules, path);
-                if (lastMatch.isDeny()) {
+                final Rule rule = lastMatch.get();
+                if (rule.isDeny()) {
                     reporting(violation -> violation
                             .withSeverity(severity)
                             .withPackage(packageId)
                             .withDescription("deleted path {0} matches deny rule {1}")
-                            .withArgument(path, lastMatch.getPattern().pattern()));
+                            .withArgument(path, rule.getExpression()));
                 }
             }
         }
@@ -240,13 +240,13 @@ public class Rule extends net.adamcin.oakpal.api.Rule {
     public static Rule lastMatch(final List<Rule> rules,
                                  final String value,
                                  final Function<List<Rule>, Rule> selectDefault) {
-        Rule lastMatched = Optional.ofNullable(selectDefault).map(func -> func.apply(rules)).orElse(DEFAULT_INCLUDE);
-        for (Rule rule : rules) {
+        for (int i = rules.size() - 1; i >= 0; i--) {
+            final Rule rule = rules.get(i);
             if (rule.matches(value)) {
-                lastMatched = rule;
+                return rule;
             }
         }
-        return lastMatched;
+        return Optional.ofNullable(selectDefault).map(func -> func.apply(rules)).orElse(DEFAULT_INCLUDE);
     }
 
     /**
@@ -19,6 +19,7 @@ package net.adamcin.oakpal.core.checks;
 import net.adamcin.oakpal.api.ProgressCheck;
 import net.adamcin.oakpal.api.ProgressCheckFactory;
 import net.adamcin.oakpal.api.Rule;
+import net.adamcin.oakpal.api.RuleSet;
 import net.adamcin.oakpal.api.Rules;
 import net.adamcin.oakpal.api.Severity;
 import net.adamcin.oakpal.api.SimpleProgressCheckFactoryCheck;
@@ -28,6 +29,7 @@ import org.osgi.annotation.versioning.ProviderType;
 
 import javax.json.JsonObject;
 import java.util.List;
+import java.util.function.Supplier;
 
 import static net.adamcin.oakpal.api.JavaxJson.arrayOrEmpty;
 import static net.adamcin.oakpal.api.JavaxJson.hasNonNull;
@@ -102,17 +104,33 @@ public final class Subpackages implements ProgressCheckFactory {
     }
 
     static final class Check extends SimpleProgressCheckFactoryCheck<Subpackages> {
-        private final List<Rule> rules;
+        private final RuleSet rules;
         private final boolean denyAll;
 
         Check(final List<Rule> rules, final boolean denyAll) {
             super(Subpackages.class);
-            this.rules = rules;
+            this.rules = RuleSet.compile(rules);
             this.denyAll = denyAll;
         }
 
+        RuleSet getRules() {
+            return rules;
+        }
+
         @Override
         public void identifySubpackage(final PackageId packageId, final PackageId parentId) {
+            checkSubpackage(packageId, parentId, () -> rules.lastMatch(packageId.toString()));
+        }
+
+        /**
+         * Report a violation if all subpackages are denied, or if the last rule to match the subpackage id is a deny
+         * rule.
+         *
+         * @param packageId the subpackage id
+         * @param parentId  the parent package id
+         * @param lastMatch supplies the last rule to match the subpackage id, if needed
+         */
+        void checkSubpackage(final PackageId packageId, final PackageId parentId, final Supplier<Rule> lastMatch) {
             if (denyAll) {
                 reporting(violation -> violation
                         .withSeverity(Severity.MAJOR)
@@ -120,13 +138,13 @@ public final class Subpackages implements ProgressCheckFactory {
                         .withDescription("subpackage {0} included by {1}. no subpackages are allowed.")
                         .withArgument(packageId, parentId));
             } else {
-                final Rule lastMatch = Rules.lastMatch(rules, packageId.toString());
-                if (lastMatch.isDeny()) {
+                final Rule rule = lastMatch.get();
+                if (rule.isDeny()) {
                     reporting(violation -> violation
                             .withSeverity(Severity.MAJOR)
                             .withPackage(packageId)
                             .withDescription("subpackage {0} included by {1} matches deny pattern {2}")
-                            .withArgument(packageId, parentId, lastMatch.getPattern().pattern()));
+                            .withArgument(packageId, parentId, rule.getExpression()));
                 }
             }
         }
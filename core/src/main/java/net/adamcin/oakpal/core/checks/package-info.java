@@ -14,7 +14,7 @@
  * limitations under the License.
  */
 
-@Version("2.2.3")
+@Version("2.3.0")
 package net.adamcin.oakpal.core.checks;
 
 import org.osgi.annotation.versioning.Version;
@@ -29,15 +29,30 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 import java.util.stream.Collectors;
@@ -50,7 +65,7 @@ import static net.adamcin.oakpal.api.Fun.result1;
 
 /**
  * The default implemenation of {@link Opear}. This is backed by an extracted JAR directory, including
- * META-INF/MANIFEST.MF.
+ * META-INF/MANIFEST.MF, or by the JAR file itself when it is read in place.
  */
 public final class OpearFile implements Opear {
     private static final Logger LOGGER = LoggerFactory.getLogger(OpearFile.class);
@@ -87,18 +102,83 @@ public final class OpearFile implements Opear {
     public static final Attributes.Name NAME_OAKPAL_VERSION = new Attributes.Name(MF_OAKPAL_VERSION);
     public static final Attributes.Name NAME_OAKPAL_PLAN = new Attributes.Name(MF_OAKPAL_PLAN);
 
+    /**
+     * Prefix of the temporary directories in the opear cache, which are renamed to their cache key when complete.
+     */
+    static final String CACHE_TEMP_PREFIX = ".";
+
+    /**
+     * Temporary directories older than this are assumed to have been abandoned by a failed process.
+     */
+    static final long CACHE_TEMP_MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(1L);
+
+    /**
+     * Name of the lease file in each cache directory, which a process holds a shared lock on for as long as it may
+     * read the directory, and which the evicting process must lock exclusively to delete the directory.
+     */
+    static final String CACHE_LEASE_FILE = CACHE_TEMP_PREFIX + "oakpal-lease";
+
+    /**
+     * The leases held by this process, by cache directory. Each lease is counted for every opear which holds it, and
+     * is released when the last of them is released, or when the process exits.
+     */
+    private static final Map<File, Lease> LEASES = new HashMap<>();
+
+    /**
+     * A shared lock on the lease file of a cache directory, counted for every opear which holds it.
+     */
+    private static final class Lease {
+        private final FileLock lock;
+        private int holders;
+
+        private Lease(final @NotNull FileLock lock) {
+            this.lock = lock;
+        }
+    }
+
     final File cacheDir;
     final OpearMetadata metadata;
+    final URL jarBaseUrl;
+    private final AtomicBoolean leased;
 
     OpearFile(final File cacheDir, final OpearMetadata metadata) {
+        this(cacheDir, metadata, null, false);
+    }
+
+    private OpearFile(final File cacheDir, final OpearMetadata metadata, final @Nullable URL jarBaseUrl,
+                      final boolean leased) {
         this.cacheDir = cacheDir;
         this.metadata = metadata;
+        this.jarBaseUrl = jarBaseUrl;
+        this.leased = new AtomicBoolean(leased);
+    }
+
+    /**
+     * Release the lease on the cache directory of an opear extracted by {@link #fromJar(JarFile, File, long)}, after
+     * which another process may evict the directory. Call this when the plan class loader of the opear is no longer
+     * used, like at the end of a scan, so that a long-lived process does not hold every cache directory it has read.
+     * Releasing an opear more than once, or an opear which was not extracted to the cache, has no effect.
+     *
+     * @since 2.3.0
+     */
+    public void release() {
+        if (leased.compareAndSet(true, false)) {
+            releaseCacheDir(cacheDir);
+        }
+    }
+
+    Result<URL> getEntryUrl(final @NotNull String name) {
+        if (jarBaseUrl == null) {
+            return result1((String entryName) -> new File(cacheDir, entryName).toURI().toURL()).apply(name);
+        }
+        return result1((String entryName) -> new URL(jarBaseUrl,
+                new URI(null, null, entryName, null).getRawPath())).apply(name);
     }
 
     @Override
     public URL getDefaultPlan() {
         return Stream.of(metadata.getPlans()).findFirst()
-                .map(result1((String name) -> new File(cacheDir, name).toURI().toURL()))
+                .map(this::getEntryUrl)
                 .flatMap(compose1(Result::stream, Stream::findFirst))
                 .orElse(metadata.isDefaultBasic() ? OakpalPlan.BASIC_PLAN_URL : OakpalPlan.EMPTY_PLAN_URL);
     }
@@ -106,22 +186,31 @@ public final class OpearFile implements Opear {
     @Override
     public Result<URL> getSpecificPlan(final @NotNull String planName) {
         if (Arrays.asList(metadata.getPlans()).contains(planName)) {
-            return result1((String name) -> new File(cacheDir, name).toURI().toURL()).apply(planName);
+            return getEntryUrl(planName);
         }
         return Result.failure("Opear does not export a plan named " + planName);
     }
 
     @Override
     public ClassLoader getPlanClassLoader(final @NotNull ClassLoader parent) {
-        final URL[] urls = Stream.of(metadata.getPlanClassPath())
-                .map(name -> new File(cacheDir, name)).flatMap(file -> {
-                    if (file.isDirectory() || file.getName().endsWith(".jar")) {
-                        return compose1(File::toURI, result1(URI::toURL)).apply(file).stream();
-                    } else {
-                        return Stream.empty();
-                    }
-                })
-                .toArray(URL[]::new);
+        final URL[] urls;
+        if (jarBaseUrl != null) {
+            // the class path of an opear read in place only contains directories, as validated by fromJarInPlace
+            urls = Stream.of(metadata.getPlanClassPath())
+                    .map(this::getEntryUrl)
+                    .flatMap(Result::stream)
+                    .toArray(URL[]::new);
+        } else {
+            urls = Stream.of(metadata.getPlanClassPath())
+                    .map(name -> new File(cacheDir, name)).flatMap(file -> {
+                        if (file.isDirectory() || file.getName().endsWith(".jar")) {
+                            return compose1(File::toURI, result1(URI::toURL)).apply(file).stream();
+                        } else {
+                            return Stream.empty();
+                        }
+                    })
+                    .toArray(URL[]::new);
+        }
 
         if (urls.length > 0) {
             return new URLClassLoader(urls, parent);
@@ -230,26 +319,302 @@ public final class OpearFile implements Opear {
         }
     }
 
+    /**
+     * Extract the opear jar into a subdirectory of the cache base directory, named by the SHA-256 digest of the jar
+     * content, unless an extraction of the same content is already cached. The cache size is not limited.
+     *
+     * @param jarFile      the opear jar
+     * @param cacheBaseDir the opear cache base directory
+     * @return an opear backed by the cached extraction of the jar
+     * @see #fromJar(JarFile, File, long)
+     */
     public static Result<OpearFile> fromJar(final @NotNull JarFile jarFile, final @NotNull File cacheBaseDir) {
+        return fromJar(jarFile, cacheBaseDir, 0L);
+    }
+
+    /**
+     * Extract the opear jar into a subdirectory of the cache base directory, named by the SHA-256 digest of the jar
+     * content, unless an extraction of the same content is already cached. The jar is extracted to a temporary
+     * directory which is then renamed to the cache key, so that concurrent processes never read a partial
+     * extraction. After a new extraction, the least recently used extractions are deleted until the total size of
+     * the cache is within the limit. The extraction is leased by this process until the opear is
+     * {@link #release() released}, or the process exits, so that it is never deleted by another process evicting the
+     * cache.
+     *
+     * @param jarFile        the opear jar
+     * @param cacheBaseDir   the opear cache base directory
+     * @param cacheSizeLimit the size limit of the cache in bytes, or 0 if unlimited
+     * @return an opear backed by the cached extraction of the jar
+     * @since 2.3.0
+     */
+    public static Result<OpearFile> fromJar(final @NotNull JarFile jarFile, final @NotNull File cacheBaseDir,
+                                            final long cacheSizeLimit) {
         return getHashCacheKey(jarFile.getName()).flatMap(cacheKey -> {
             return result1(JarFile::getManifest).apply(jarFile)
                     .flatMap(OpearFile::validateOpearManifest)
                     .flatMap(metadata -> {
                         final File cacheDir = new File(cacheBaseDir, cacheKey);
-                        if (cacheDir.isDirectory()) {
-                            return fromDirectory(cacheDir);
+                        if (cacheDir.isDirectory() && leaseCacheDir(cacheDir)) {
+                            // record the use for least-recently-used eviction
+                            cacheDir.setLastModified(System.currentTimeMillis());
+                            return fromLeasedDirectory(cacheDir);
+                        } else if (cacheDir.exists() && !cacheDir.isDirectory()) {
+                            return Result.failure(format("failed to create cache dir %s for specified opear file %s",
+                                    cacheDir.getPath(), jarFile.getName()));
                         } else {
-                            if (!cacheDir.mkdirs()) {
-                                return Result.failure(format("failed to create cache dir %s for specified opear file %s",
-                                        cacheDir.getPath(), jarFile.getName()));
-                            } else {
-                                return cacheJar(jarFile, cacheDir).flatMap(OpearFile::fromDirectory);
-                            }
+                            return cacheJarAtomically(jarFile, cacheBaseDir, cacheKey)
+                                    .flatMap(cached -> leaseCacheDir(cached) ? Result.success(cached)
+                                            : Result.failure(format("failed to lease cache dir %s for "
+                                            + "specified opear file %s", cached.getPath(), jarFile.getName())))
+                                    .flatMap(OpearFile::fromLeasedDirectory)
+                                    .map(opearFile -> {
+                                        evictCache(cacheBaseDir, cacheSizeLimit, cacheDir);
+                                        return opearFile;
+                                    });
                         }
                     });
         });
     }
 
+    /**
+     * Read an opear from a cache directory leased by {@link #leaseCacheDir(File)}, which the opear releases with
+     * {@link #release()}. The lease is released right away if the directory is not a valid opear.
+     *
+     * @param cacheDir the leased cache directory
+     * @return an opear which holds the lease
+     */
+    static Result<OpearFile> fromLeasedDirectory(final @NotNull File cacheDir) {
+        final Result<OpearFile> opearFile = fromDirectory(cacheDir)
+                .map(opear -> new OpearFile(opear.cacheDir, opear.metadata, null, true));
+        if (opearFile.isFailure()) {
+            releaseCacheDir(cacheDir);
+        }
+        return opearFile;
+    }
+
+    /**
+     * Read the plans and class path of the opear directly from the jar file, without extracting anything. Plan and
+     * class path resources are served through {@code jar:} URLs. This is only possible when the Bundle-ClassPath
+     * lists directories of the jar, and not embedded jars, which must be extracted with
+     * {@link #fromJar(JarFile, File, long)}.
+     *
+     * @param file the opear jar file
+     * @return an opear backed by the jar file, or a failure if the class path includes an embedded jar
+     * @since 2.3.0
+     */
+    public static Result<OpearFile> fromJarInPlace(final @NotNull File file) {
+        try (JarFile jarFile = new JarFile(file, true)) {
+            return result1(JarFile::getManifest).apply(jarFile)
+                    .flatMap(OpearFile::validateOpearManifest)
+                    .flatMap(metadata -> getInPlaceClassPath(jarFile, metadata.getPlanClassPath())
+                            .flatMap(classPath -> result1((File jar) -> new URL("jar:" + jar.toURI() + "!/"))
+                                    .apply(file.getAbsoluteFile())
+                                    .map(jarBaseUrl -> new OpearFile(null,
+                                            new OpearMetadata(metadata.getPlans(), classPath,
+                                                    metadata.isDefaultBasic()),
+                                            jarBaseUrl, false))));
+        } catch (IOException e) {
+            return Result.failure(format("%s is not a jar format file", file.getPath()), e);
+        }
+    }
+
+    static Result<String[]> getInPlaceClassPath(final @NotNull JarFile jarFile,
+                                                final @NotNull String[] planClassPath) {
+        final List<String> classPath = new ArrayList<>();
+        for (String name : planClassPath) {
+            final String dirName = name.isEmpty() || ".".equals(name) ? ""
+                    : name.endsWith("/") ? name : name + "/";
+            final JarEntry entry = jarFile.getJarEntry(name);
+            if (entry != null && !entry.isDirectory()) {
+                if (name.endsWith(".jar")) {
+                    return Result.failure(format("opear file %s embeds jar %s on its class path, which can not be "
+                            + "read in place", jarFile.getName(), name));
+                }
+            } else if (dirName.isEmpty() || jarFile.stream().anyMatch(dirEntry ->
+                    dirEntry.getName().startsWith(dirName))) {
+                classPath.add(dirName);
+            }
+        }
+        return Result.success(classPath.toArray(new String[0]));
+    }
+
+    static Result<File> cacheJarAtomically(final @NotNull JarFile jarFile, final @NotNull File cacheBaseDir,
+                                           final @NotNull String cacheKey) {
+        final File cacheDir = new File(cacheBaseDir, cacheKey);
+        final Path tempDir;
+        try {
+            Files.createDirectories(cacheBaseDir.toPath());
+            tempDir = Files.createTempDirectory(cacheBaseDir.toPath(), CACHE_TEMP_PREFIX + cacheKey + "-");
+        } catch (IOException e) {
+            return Result.failure(format("failed to create cache dir %s for specified opear file %s",
+                    cacheDir.getPath(), jarFile.getName()), e);
+        }
+        final Result<File> cached = cacheJar(jarFile, tempDir.toFile());
+        if (cached.isFailure()) {
+            deleteQuietly(tempDir);
+            return cached;
+        }
+        try {
+            Files.move(tempDir, cacheDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            return Result.success(cacheDir);
+        } catch (IOException e) {
+            deleteQuietly(tempDir);
+            if (cacheDir.isDirectory()) {
+                // another process cached the same content first
+                LOGGER.debug("[OpearFile#cacheJarAtomically] using concurrently cached dir {}", cacheDir);
+                return Result.success(cacheDir);
+            }
+            return Result.failure(format("failed to create cache dir %s for specified opear file %s",
+                    cacheDir.getPath(), jarFile.getName()), e);
+        }
+    }
+
+    /**
+     * Take a shared lock on the lease file of the cache directory, which is held until it is released by
+     * {@link #releaseCacheDir(File)} as many times as it was taken, or until this process exits. The lease can not be
+     * taken while another process is evicting the directory.
+     *
+     * @param cacheDir the cache directory
+     * @return true if the directory is leased by this process
+     */
+    static boolean leaseCacheDir(final @NotNull File cacheDir) {
+        final Path leaseFile = cacheDir.toPath().resolve(CACHE_LEASE_FILE);
+        synchronized (LEASES) {
+            final Lease leased = LEASES.get(cacheDir);
+            if (leased != null && leased.lock.isValid() && Files.exists(leaseFile)) {
+                leased.holders++;
+                return true;
+            }
+            try {
+                final FileChannel channel = FileChannel.open(leaseFile,
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                final FileLock lock = channel.tryLock(0L, Long.MAX_VALUE, true);
+                // the directory may have been moved away for eviction after the lease file was opened
+                if (lock == null || !Files.exists(leaseFile)) {
+                    channel.close();
+                    return false;
+                }
+                if (leased != null) {
+                    leased.lock.channel().close();
+                }
+                final Lease lease = new Lease(lock);
+                lease.holders = leased != null ? leased.holders + 1 : 1;
+                LEASES.put(cacheDir, lease);
+                return true;
+            } catch (IOException | OverlappingFileLockException e) {
+                LOGGER.debug("[OpearFile#leaseCacheDir] failed to lease {}", cacheDir, e);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Release one hold on the lease of the cache directory, and unlock the lease file when no other opear holds it.
+     *
+     * @param cacheDir the cache directory
+     */
+    static void releaseCacheDir(final @NotNull File cacheDir) {
+        synchronized (LEASES) {
+            final Lease lease = LEASES.get(cacheDir);
+            if (lease == null || --lease.holders > 0) {
+                return;
+            }
+            LEASES.remove(cacheDir);
+            try {
+                // closing the channel releases the lock
+                lease.lock.channel().close();
+            } catch (IOException e) {
+                LOGGER.debug("[OpearFile#releaseCacheDir] failed to release {}", cacheDir, e);
+            }
+        }
+    }
+
+    /**
+     * Delete the cache directory, unless it is leased by this or another process. While holding an exclusive lock on
+     * its lease file, the directory is renamed as a temporary directory, so that it can not be leased again while it
+     * is deleted.
+     *
+     * @param cacheDir the cache directory
+     * @return true if the directory was evicted
+     */
+    static boolean tryEvictCacheDir(final @NotNull File cacheDir) {
+        final Path evicted = cacheDir.toPath().resolveSibling(CACHE_TEMP_PREFIX + cacheDir.getName()
+                + "-evicted-" + System.nanoTime());
+        try (FileChannel channel = FileChannel.open(cacheDir.toPath().resolve(CACHE_LEASE_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            final FileLock lock = channel.tryLock();
+            if (lock == null) {
+                return false;
+            }
+            try {
+                Files.move(cacheDir.toPath(), evicted, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                lock.release();
+            }
+        } catch (IOException | OverlappingFileLockException e) {
+            LOGGER.debug("[OpearFile#tryEvictCacheDir] skipping leased cache dir {}", cacheDir, e);
+            return false;
+        }
+        deleteQuietly(evicted);
+        return true;
+    }
+
+    /**
+     * Delete the least recently used cache directories until the total size of the cache is within the limit, never
+     * deleting the directory in use, or a directory leased by another process. Temporary directories abandoned by
+     * failed processes are also deleted.
+     *
+     * @param cacheBaseDir   the opear cache base directory
+     * @param cacheSizeLimit the size limit in bytes, or 0 if unlimited
+     * @param inUse          the cache directory in use
+     */
+    static void evictCache(final @NotNull File cacheBaseDir, final long cacheSizeLimit, final @NotNull File inUse) {
+        final File[] children = cacheBaseDir.listFiles(File::isDirectory);
+        if (children == null) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        final List<File> cacheDirs = new ArrayList<>();
+        for (File child : children) {
+            if (child.getName().startsWith(CACHE_TEMP_PREFIX)) {
+                if (now - child.lastModified() > CACHE_TEMP_MAX_AGE_MILLIS) {
+                    deleteQuietly(child.toPath());
+                }
+            } else {
+                cacheDirs.add(child);
+            }
+        }
+        if (cacheSizeLimit <= 0L) {
+            return;
+        }
+        cacheDirs.sort(Comparator.comparingLong(File::lastModified).reversed());
+        long totalSize = 0L;
+        for (File cacheDir : cacheDirs) {
+            final long size = sizeOf(cacheDir.toPath());
+            if (totalSize + size > cacheSizeLimit && !cacheDir.equals(inUse) && tryEvictCacheDir(cacheDir)) {
+                LOGGER.debug("[OpearFile#evictCache] evicted least recently used cache dir {}", cacheDir);
+            } else {
+                totalSize += size;
+            }
+        }
+    }
+
+    static long sizeOf(final @NotNull Path path) {
+        try (Stream<Path> files = Files.walk(path)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        } catch (IOException | UncheckedIOException e) {
+            return 0L;
+        }
+    }
+
+    static void deleteQuietly(final @NotNull Path path) {
+        try (Stream<Path> files = Files.walk(path)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        } catch (IOException | UncheckedIOException e) {
+            LOGGER.debug("[OpearFile#deleteQuietly] failed to delete {}", path, e);
+        }
+    }
+
     static Result<File> cacheJar(final @NotNull JarFile jarFile, final @NotNull File cacheDir) {
         return jarFile.stream()
                 .map(entry -> {
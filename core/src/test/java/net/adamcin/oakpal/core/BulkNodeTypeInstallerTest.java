@@ -0,0 +1,95 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.core;
+
+import org.apache.jackrabbit.spi.QNodeTypeDefinition;
+import org.junit.Test;
+
+import javax.jcr.nodetype.NodeTypeManager;
+import java.io.File;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static net.adamcin.oakpal.api.JavaxJson.arr;
+import static net.adamcin.oakpal.api.JavaxJson.key;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BulkNodeTypeInstallerTest {
+
+    private static URL cndUrl(final String name) throws Exception {
+        return new File("src/test/resources/CNDURLInstallerTest/" + name + ".cnd").toURI().toURL();
+    }
+
+    @Test
+    public void testRegister() throws Exception {
+        final DefaultErrorListener errorListener = new DefaultErrorListener();
+        new OakMachine.Builder().build().adminInitAndInspect(session -> {
+            final BulkNodeTypeInstaller installer = new BulkNodeTypeInstaller(errorListener);
+            // the chain of f through a is longer than the retries of the CNDURLInstaller
+            installer.addCndUrls(session,
+                    Arrays.asList(cndUrl("f"), cndUrl("e"), cndUrl("d"), cndUrl("c"), cndUrl("b"), cndUrl("a")),
+                    Collections.singletonList(cndUrl("z")));
+            installer.register(session);
+            final NodeTypeManager ntManager = session.getWorkspace().getNodeTypeManager();
+            for (String prefix : Arrays.asList("a", "b", "c", "d", "e", "f", "z")) {
+                assertTrue("has " + prefix + ":primaryType", ntManager.hasNodeType(prefix + ":primaryType"));
+            }
+        });
+        assertTrue("expect no errors: " + errorListener.getReportedViolations(),
+                errorListener.getReportedViolations().isEmpty());
+    }
+
+    @Test
+    public void testRegister_fallbackPerSource() throws Exception {
+        final DefaultErrorListener errorListener = new DefaultErrorListener();
+        new OakMachine.Builder().build().adminInitAndInspect(session -> {
+            final BulkNodeTypeInstaller installer = new BulkNodeTypeInstaller(errorListener);
+            installer.addCndUrls(session, Arrays.asList(cndUrl("b"), cndUrl("a")), Collections.emptyList());
+            installer.addCndUrls(session, Collections.emptyList(), Arrays.asList(cndUrl("y"), cndUrl("z")));
+            installer.register(session);
+            final NodeTypeManager ntManager = session.getWorkspace().getNodeTypeManager();
+            assertTrue("has a:primaryType", ntManager.hasNodeType("a:primaryType"));
+            assertTrue("has b:primaryType", ntManager.hasNodeType("b:primaryType"));
+            assertFalse("does not have y:primaryType", ntManager.hasNodeType("y:primaryType"));
+            assertTrue("has z:primaryType", ntManager.hasNodeType("z:primaryType"));
+        });
+        assertEquals("only y should report an error: " + errorListener.getReportedViolations(), 1,
+                errorListener.getReportedViolations().size());
+    }
+
+    @Test
+    public void testRegister_qNodeTypesReplace() throws Exception {
+        final List<QNodeTypeDefinition> qNodeTypes = JsonCnd.getQTypesFromJson(
+                key("a:primaryType", key("extends", arr("nt:folder"))).get(),
+                JsonCnd.toNamespaceMapping(Collections.singletonList(JcrNs.create("a", "http://a.com/1.0"))));
+        new OakMachine.Builder().build().adminInitAndInspect(session -> {
+            final BulkNodeTypeInstaller installer = new BulkNodeTypeInstaller(null);
+            installer.addQNodeTypes(qNodeTypes);
+            installer.addCndUrls(session, Collections.singletonList(cndUrl("a")), Collections.emptyList());
+            installer.register(session);
+            assertTrue("expect a:primaryType from qNodeTypes, not from a.cnd",
+                    session.getWorkspace().getNodeTypeManager().getNodeType("a:primaryType")
+                            .isNodeType("nt:folder"));
+            assertTrue("expect a:mixinType from a.cnd",
+                    session.getWorkspace().getNodeTypeManager().hasNodeType("a:mixinType"));
+        });
+    }
+}
@@ -31,6 +31,7 @@ import static net.adamcin.oakpal.api.JavaxJson.key;
 import static net.adamcin.oakpal.api.JavaxJson.obj;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
@@ -436,4 +437,91 @@ public class CheckSpecTest {
     public void testImmutableSetSkip() {
         CheckSpec.immutableCopyOf(new CheckSpec()).setSkip(true);
     }
+
+    @Test
+    public void testTimeBudgets() {
+        final CheckSpec.JsonKeys keys = CheckSpec.keys();
+        final CheckSpec spec = new CheckSpec();
+        assertEquals("callbackTimeBudget is 0", 0L, spec.getCallbackTimeBudget());
+        assertEquals("scanTimeBudget is 0", 0L, spec.getScanTimeBudget());
+        spec.setCallbackTimeBudget(-1L);
+        assertEquals("negative callbackTimeBudget is 0", 0L, spec.getCallbackTimeBudget());
+        assertFalse("unlimited budgets are not serialized",
+                spec.toJson().containsKey(keys.callbackTimeBudget()));
+
+        final JsonObject specJson = obj()
+                .key(keys.name(), keys.name())
+                .key(keys.callbackTimeBudget(), 200)
+                .key(keys.scanTimeBudget(), 5000)
+                .get();
+        final CheckSpec fromJson = CheckSpec.fromJson(specJson);
+        assertEquals("fromJson callbackTimeBudget", 200L, fromJson.getCallbackTimeBudget());
+        assertEquals("fromJson scanTimeBudget", 5000L, fromJson.getScanTimeBudget());
+        assertEquals("json should be equal", specJson, fromJson.toJson());
+        assertEquals("copy should equal copied", fromJson, CheckSpec.copyOf(fromJson));
+        assertEquals("immutable copy should equal copied", fromJson, CheckSpec.immutableCopyOf(fromJson));
+        final CheckSpec diffed = CheckSpec.copyOf(fromJson);
+        diffed.setScanTimeBudget(6000L);
+        assertNotEquals("different budgets are not equal", fromJson, diffed);
+
+        final CheckSpec base = new CheckSpec();
+        base.setName("base");
+        base.setImpl("impl");
+        base.setCallbackTimeBudget(100L);
+        base.setScanTimeBudget(1000L);
+        final CheckSpec overlay = new CheckSpec();
+        overlay.setName("base/overlay");
+        overlay.setScanTimeBudget(2000L);
+        final CheckSpec overlaid = overlay.overlay(base);
+        assertEquals("inherit callbackTimeBudget", 100L, overlaid.getCallbackTimeBudget());
+        assertEquals("override scanTimeBudget", 2000L, overlaid.getScanTimeBudget());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutableSetCallbackTimeBudget() {
+        CheckSpec.immutableCopyOf(new CheckSpec()).setCallbackTimeBudget(1L);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutableSetScanTimeBudget() {
+        CheckSpec.immutableCopyOf(new CheckSpec()).setScanTimeBudget(1L);
+    }
+
+    @Test
+    public void testMaxViolations() {
+        final CheckSpec.JsonKeys keys = CheckSpec.keys();
+        final CheckSpec spec = new CheckSpec();
+        assertEquals("maxViolations is 0", 0, spec.getMaxViolations());
+        spec.setMaxViolations(-1);
+        assertEquals("negative maxViolations is 0", 0, spec.getMaxViolations());
+        assertFalse("unlimited maxViolations is not serialized", spec.toJson().containsKey(keys.maxViolations()));
+
+        final JsonObject specJson = obj()
+                .key(keys.name(), keys.name())
+                .key(keys.maxViolations(), 10)
+                .get();
+        final CheckSpec fromJson = CheckSpec.fromJson(specJson);
+        assertEquals("fromJson maxViolations", 10, fromJson.getMaxViolations());
+        assertEquals("json should be equal", specJson, fromJson.toJson());
+        assertEquals("copy should equal copied", fromJson, CheckSpec.copyOf(fromJson));
+        assertEquals("immutable copy should equal copied", fromJson, CheckSpec.immutableCopyOf(fromJson));
+        final CheckSpec diffed = CheckSpec.copyOf(fromJson);
+        diffed.setMaxViolations(20);
+        assertNotEquals("different maxViolations are not equal", fromJson, diffed);
+
+        final CheckSpec base = new CheckSpec();
+        base.setName("base");
+        base.setImpl("impl");
+        base.setMaxViolations(10);
+        final CheckSpec overlay = new CheckSpec();
+        overlay.setName("base/overlay");
+        assertEquals("inherit maxViolations", 10, overlay.overlay(base).getMaxViolations());
+        overlay.setMaxViolations(5);
+        assertEquals("override maxViolations", 5, overlay.overlay(base).getMaxViolations());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutableSetMaxViolations() {
+        CheckSpec.immutableCopyOf(new CheckSpec()).setMaxViolations(1);
+    }
 }
@@ -127,6 +127,13 @@ public class DefaultErrorListenerTest {
         new DefaultErrorListener().onRepoInitUrlError(simpleCause, null);
     }
 
+    @Test
+    public void testOnRegistryBundleMismatch() {
+        final DefaultErrorListener errorListener = new DefaultErrorListener();
+        errorListener.onRegistryBundleMismatch(null, "module/checklist");
+        assertEquals("expect one violation", 1, errorListener.getReportedViolations().size());
+    }
+
     @Test
     public void testOnRepoInitInlineError() {
         new DefaultErrorListener().onRepoInitInlineError(simpleCause, null);
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.core;
+
+import net.adamcin.oakpal.testing.TestPackageUtil;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import javax.json.JsonObject;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DiscoveryIndexTest {
+    final File testTarget = new File("target/test-output/DiscoveryIndexTest");
+    final File moduleSrc = new File("src/test/resources/OpearFileTest/embedded_module_src");
+    final File nodetypesBaseDir = new File("src/test/resources/SlingNodetypesScannerTest");
+
+    private static <T> T notIndexed() throws Exception {
+        throw new Exception("expected to read from index");
+    }
+
+    @Test
+    public void testParseChecklists_jar() throws Exception {
+        final File testBaseDir = new File(testTarget, "testParseChecklists_jar");
+        FileUtils.deleteDirectory(testBaseDir);
+        final File moduleJar = new File(testBaseDir, "embedded_module.jar");
+        TestPackageUtil.buildJarFromDir(moduleSrc, moduleJar, Collections.emptyMap());
+        final List<File> classPath = Collections.singletonList(moduleJar);
+        final DiscoveryIndex index = new DiscoveryIndex(new File(testBaseDir, "index"));
+
+        final Map<URL, List<JsonObject>> expected = ChecklistPlanner.parseChecklists(classPath);
+        assertEquals("expect one checklist", 1, expected.values().iterator().next().size());
+        assertEquals("expect discovered checklists", expected, index.parseChecklists(classPath));
+        assertEquals("expect indexed checklists", expected,
+                index.getChecklists(classPath, DiscoveryIndexTest::notIndexed));
+        assertEquals("expect same checklists constructed from index",
+                ChecklistPlanner.constructChecklists(expected).toString(),
+                ChecklistPlanner.constructChecklists(index.parseChecklists(classPath)).toString());
+
+        moduleJar.setLastModified(moduleJar.lastModified() - 10000L);
+        assertEquals("expect checklists discovered again for changed jar", expected,
+                index.getChecklists(classPath, () ->
+                        Util.mapManifestHeaderResources(ChecklistPlanner.OAKPAL_CHECKLIST, classPath)));
+        assertEquals("expect indexed checklists after change", expected,
+                index.getChecklists(classPath, DiscoveryIndexTest::notIndexed));
+    }
+
+    @Test
+    public void testParseChecklists_directory() throws Exception {
+        final File testBaseDir = new File(testTarget, "testParseChecklists_directory");
+        FileUtils.deleteDirectory(testBaseDir);
+        final File moduleDir = new File(testBaseDir, "embedded_module");
+        FileUtils.copyDirectory(moduleSrc, moduleDir);
+        final List<File> classPath = Collections.singletonList(moduleDir);
+        final DiscoveryIndex index = new DiscoveryIndex(new File(testBaseDir, "index"));
+
+        final Map<URL, List<JsonObject>> expected = ChecklistPlanner.parseChecklists(classPath);
+        assertEquals("expect discovered checklists", expected, index.parseChecklists(classPath));
+        assertEquals("expect indexed checklists", expected,
+                index.getChecklists(classPath, DiscoveryIndexTest::notIndexed));
+
+        final File checklistFile = new File(moduleDir, "OAKPAL-INF/checklists/embedded-checklist.json");
+        FileUtils.writeStringToFile(checklistFile, "{\"name\":\"changed\"}", StandardCharsets.UTF_8);
+        final Map<URL, List<JsonObject>> changed = index.parseChecklists(classPath);
+        assertEquals("expect changed checklist", "changed",
+                changed.values().iterator().next().get(0).getString("name"));
+    }
+
+    @Test
+    public void testFindNodeTypeDefinitions_classLoader() throws Exception {
+        final File testBaseDir = new File(testTarget, "testFindNodeTypeDefinitions_classLoader");
+        FileUtils.deleteDirectory(testBaseDir);
+        final List<File> jars = Stream.of("a", "b", "c", "d", "e", "f", "y", "z")
+                .map(name -> new File(testBaseDir, "has_" + name + ".jar").getAbsoluteFile())
+                .collect(Collectors.toList());
+        for (File jar : jars) {
+            TestPackageUtil.buildJarFromDir(new File(nodetypesBaseDir, jar.getName().replace(".jar", "_src")),
+                    jar, Collections.emptyMap());
+        }
+        final URL[] urls = jars.stream().map(jar -> {
+            try {
+                return jar.toURI().toURL();
+            } catch (final Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }).toArray(URL[]::new);
+        final ClassLoader classLoader = new URLClassLoader(urls, null);
+        final DiscoveryIndex index = new DiscoveryIndex(new File(testBaseDir, "index"));
+
+        final List<URL> expected = SlingNodetypesScanner.findNodeTypeDefinitions(classLoader);
+        assertEquals("expect 8 cnds", 8, expected.size());
+        assertEquals("expect discovered cnds", expected, index.findNodeTypeDefinitions(classLoader));
+        assertEquals("expect class path of class loader", jars, DiscoveryIndex.getClassPath(classLoader));
+        assertEquals("expect indexed cnds", expected,
+                index.getNodeTypeDefinitions(jars, DiscoveryIndexTest::notIndexed));
+        assertEquals("expect indexed cnds for files", expected,
+                index.getNodeTypeDefinitions(jars, () -> SlingNodetypesScanner.findNodeTypeDefinitions(jars)));
+    }
+
+    @Test
+    public void testGetClassPath() throws Exception {
+        assertNull("expect null for non-file url",
+                DiscoveryIndex.getClassPath(new URLClassLoader(new URL[]{new URL("http://localhost/foo.jar")}, null)));
+        final File jar = new File("target/foo.jar").getAbsoluteFile();
+        final List<File> classPath = DiscoveryIndex.getClassPath(new URLClassLoader(new URL[]{jar.toURI().toURL()},
+                ClassLoader.getSystemClassLoader()));
+        assertNotNull("expect class path with system class loader", classPath);
+        assertEquals("expect url class loader entry last", jar, classPath.get(classPath.size() - 1));
+        assertTrue("expect java.class.path entries", classPath.containsAll(
+                Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+                        .map(File::new).collect(Collectors.toList())));
+        assertNull("expect null for unknown class loader", DiscoveryIndex.getClassPath(new ClassLoader(null) {
+        }));
+    }
+
+    @Test
+    public void testReadIndex_corrupt() throws Exception {
+        final File testBaseDir = new File(testTarget, "testReadIndex_corrupt");
+        FileUtils.deleteDirectory(testBaseDir);
+        final DiscoveryIndex index = new DiscoveryIndex(testBaseDir);
+        final List<String> fingerprints = DiscoveryIndex.fingerprintClassPath(Collections.emptyList());
+        final File indexFile = index.getIndexFile(DiscoveryIndex.KIND_CHECKLISTS, fingerprints);
+        FileUtils.writeStringToFile(indexFile, "not json", StandardCharsets.UTF_8);
+        assertNull("expect null for corrupt index", index.readIndex(indexFile, fingerprints));
+        assertTrue("expect no checklists", index.parseChecklists(Collections.emptyList()).isEmpty());
+        assertNotNull("expect index is rewritten", index.readIndex(indexFile, fingerprints));
+    }
+}
@@ -19,17 +19,22 @@ package net.adamcin.oakpal.core;
 import net.adamcin.oakpal.api.ProgressCheck;
 import net.adamcin.oakpal.api.Violation;
 import net.adamcin.oakpal.core.checks.Echo;
+import net.adamcin.oakpal.core.checks.FusedProgressCheck;
 import net.adamcin.oakpal.core.checks.Paths;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 import static net.adamcin.oakpal.api.JavaxJson.key;
 import static net.adamcin.oakpal.api.JavaxJson.obj;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class LocatorTest {
@@ -136,6 +141,19 @@ public class LocatorTest {
                         CheckSpec.fromJson(key("name", "alias for simple inline").key("inlineScript", "function getCheckName() { return \"simple inline\"; }").get()))).get(0).getCheckName());
     }
 
+    @Test
+    public void testLoadFromCheckSpecs_timeBudget() throws Exception {
+        final ProgressCheck check = Locator.loadFromCheckSpecs(Collections.singletonList(
+                CheckSpec.fromJson(key("inlineScript", "function getCheckName() { return \"budget\"; }")
+                        .key("callbackTimeBudget", 100).key("scanTimeBudget", 1000).get()))).get(0);
+        assertTrue("expect script check", check instanceof ScriptProgressCheck);
+        final ScriptTimeBudget budget = ((ScriptProgressCheck) check).getTimeBudget();
+        assertEquals("expect callback budget", 100L, budget.getCallbackMillis());
+        assertEquals("expect scan budget", 1000L, budget.getScanMillis());
+        assertNull("expect no budget by default", ((ScriptProgressCheck) Locator.loadFromCheckSpecs(
+                Collections.singletonList(CheckSpec.fromJson(key("inlineScript", "").get()))).get(0)).getTimeBudget());
+    }
+
     @Test(expected = Exception.class)
     public void testLoadFromCheckSpecs_abstract() throws Exception {
         Locator.loadFromCheckSpecs(Collections.singletonList(CheckSpec.fromJson(key("name", "i am abstract").get())));
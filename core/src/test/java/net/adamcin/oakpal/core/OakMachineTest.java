@@ -19,14 +19,26 @@ package net.adamcin.oakpal.core;
 import junitx.util.PrivateAccessor;
 import net.adamcin.oakpal.api.EmbeddedPackageInstallable;
 import net.adamcin.oakpal.api.Fun;
+import net.adamcin.oakpal.api.JavaxJson;
 import net.adamcin.oakpal.api.OsgiConfigInstallable;
 import net.adamcin.oakpal.api.PathAction;
 import net.adamcin.oakpal.api.ProgressCheck;
+import net.adamcin.oakpal.api.ReportCollector;
+import net.adamcin.oakpal.api.RuleMatchCache;
+import net.adamcin.oakpal.api.Severity;
 import net.adamcin.oakpal.api.SilenceableCheck;
 import net.adamcin.oakpal.api.SimpleProgressCheck;
+import net.adamcin.oakpal.api.SimpleViolation;
 import net.adamcin.oakpal.api.SlingInstallable;
+import net.adamcin.oakpal.api.UnsubscribingCheck;
+import net.adamcin.oakpal.api.UnsubscribingCheck.PathSubscription;
+import net.adamcin.oakpal.api.Violation;
+import net.adamcin.oakpal.core.checks.FusedProgressCheck;
+import net.adamcin.oakpal.core.checks.JcrProperties;
+import net.adamcin.oakpal.core.checks.Paths;
 import net.adamcin.oakpal.core.sling.SlingRepoInitScripts;
 import net.adamcin.oakpal.core.sling.SlingSimulatorBackend;
+import net.adamcin.oakpal.testing.SyntheticPackage;
 import net.adamcin.oakpal.testing.TestPackageUtil;
 import org.apache.commons.io.FileUtils;
 import org.apache.jackrabbit.oak.plugins.memory.MemoryNodeStore;
@@ -98,6 +110,7 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.anyBoolean;
@@ -638,6 +651,349 @@ public class OakMachineTest {
         assertEquals("expect ids", expectIds, subToParent);
     }
 
+    static final class UnsubscribingCounter implements UnsubscribingCheck {
+        final PathSubscription unsubscribeAfterFirstPath;
+        final Map<PackageId, Integer> pathCounts = new LinkedHashMap<>();
+        PathSubscription subscription = PathSubscription.SUBSCRIBED;
+
+        UnsubscribingCounter(final PathSubscription unsubscribeAfterFirstPath) {
+            this.unsubscribeAfterFirstPath = unsubscribeAfterFirstPath;
+        }
+
+        @Override
+        public @NotNull PathSubscription getPathSubscription() {
+            return subscription;
+        }
+
+        @Override
+        public Collection<Violation> getReportedViolations() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void startedScan() {
+            subscription = PathSubscription.SUBSCRIBED;
+        }
+
+        @Override
+        public void beforeExtract(final PackageId packageId, final Session inspectSession,
+                                  final PackageProperties packageProperties, final MetaInf metaInf,
+                                  final List<PackageId> subpackages) {
+            pathCounts.put(packageId, 0);
+            if (subscription == PathSubscription.UNSUBSCRIBED_FOR_PACKAGE) {
+                subscription = PathSubscription.SUBSCRIBED;
+            }
+        }
+
+        @Override
+        public void importedPath(final PackageId packageId, final String path, final Node node,
+                                 final PathAction action) {
+            pathCounts.merge(packageId, 1, Integer::sum);
+            subscription = unsubscribeAfterFirstPath;
+        }
+    }
+
+    @Test
+    public void testScanWithUnsubscribingChecks() throws Exception {
+        final File testPackage = TestPackageUtil.prepareTestPackage("subsubtest.zip");
+        final PackageId root = PackageId.fromString("my_packages:subsubtest");
+        final PackageId sub1 = PackageId.fromString("my_packages:subtest");
+        final PackageId suba = PackageId.fromString("my_packages:sub_a");
+        final PackageId subb = PackageId.fromString("my_packages:sub_b");
+        final UnsubscribingCounter subscribed = new UnsubscribingCounter(PathSubscription.SUBSCRIBED);
+        final UnsubscribingCounter perPackage = new UnsubscribingCounter(PathSubscription.UNSUBSCRIBED_FOR_PACKAGE);
+        final UnsubscribingCounter perScan = new UnsubscribingCounter(PathSubscription.UNSUBSCRIBED_FOR_SCAN);
+        final OakMachine machine = builder()
+                .withProgressChecks(subscribed, Locator.wrapWithAlias(perPackage, "perPackage"), perScan)
+                .build();
+        machine.scanPackage(testPackage);
+
+        assertEquals("expect packages", Arrays.asList(root, sub1, suba, subb),
+                new ArrayList<>(subscribed.pathCounts.keySet()));
+        assertTrue("expect more paths than packages",
+                subscribed.pathCounts.values().stream().mapToInt(Integer::intValue).sum() > 4);
+        final Map<PackageId, Integer> onePathPerPackage = new LinkedHashMap<>();
+        for (PackageId packageId : subscribed.pathCounts.keySet()) {
+            onePathPerPackage.put(packageId, 1);
+        }
+        assertEquals("expect one path per package", onePathPerPackage, perPackage.pathCounts);
+        assertEquals("expect one path per scan", Integer.valueOf(1), perScan.pathCounts.get(root));
+        assertEquals("expect one path per scan",
+                1, perScan.pathCounts.values().stream().mapToInt(Integer::intValue).sum());
+
+        machine.scanPackage(testPackage);
+        assertEquals("expect one path in the next scan",
+                1, perScan.pathCounts.values().stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    public void testScanWithReportListener() throws Exception {
+        final File testPackage = TestPackageUtil.prepareTestPackage("subsubtest.zip");
+        final PackageId root = PackageId.fromString("my_packages:subsubtest");
+        final ProgressCheck check = new SimpleProgressCheck() {
+            @Override
+            public String getCheckName() {
+                return "streamed";
+            }
+
+            @Override
+            public void identifySubpackage(final PackageId packageId, final PackageId parentId) {
+                minorViolation("subpackage", packageId);
+            }
+
+            @Override
+            public void afterScanPackage(final PackageId packageId, final Session inspectSession) {
+                minorViolation("scanned twice");
+                minorViolation("scanned twice");
+            }
+
+            @Override
+            public void finishedScan() {
+                majorViolation("finished");
+            }
+        };
+        final List<String> events = new ArrayList<>();
+        final ReportListener reportListener = new ReportListener() {
+            @Override
+            public void startedScan() {
+                events.add("startedScan");
+            }
+
+            @Override
+            public void scannedPackage(final @NotNull PackageId packageId, final boolean preInstall) {
+                events.add("scannedPackage " + packageId + " " + preInstall);
+            }
+
+            @Override
+            public void reportedViolation(final @NotNull String checkName, final @NotNull Violation violation) {
+                events.add(checkName + " " + violation.getDescription() + " " + violation.getPackages());
+            }
+
+            @Override
+            public void finishedScan() {
+                events.add("finishedScan");
+            }
+        };
+        final OakMachine machine = builder().withProgressChecks(check).withReportListener(reportListener).build();
+        assertSame("expect report listener", reportListener, machine.getReportListener());
+        final List<CheckReport> reports = machine.scanPackage(testPackage);
+        final List<String> expectEvents = Arrays.asList(
+                "startedScan",
+                "streamed subpackage [my_packages:subtest]",
+                "streamed subpackage [my_packages:sub_a]",
+                "streamed subpackage [my_packages:sub_b]",
+                "streamed scanned twice []",
+                "streamed scanned twice []",
+                "scannedPackage " + root + " false",
+                "streamed finished []",
+                "finishedScan");
+        assertEquals("expect events", expectEvents, events);
+        final CheckReport report = reports.stream()
+                .filter(checkReport -> "streamed".equals(checkReport.getCheckName()))
+                .findFirst().orElseThrow(IllegalStateException::new);
+        assertEquals("expect same violations as report", 6, report.getViolations().size());
+
+        events.clear();
+        machine.scanPackage(testPackage);
+        assertEquals("expect same events in next scan", expectEvents, events);
+    }
+
+    @Test
+    public void testScanWithReportListener_attribution() throws Exception {
+        final File testPackage = TestPackageUtil.prepareTestPackage("subsubtest.zip");
+        final ProgressCheck first = new Paths().newInstance(JavaxJson.obj()
+                .key("rules", JavaxJson.arr(JavaxJson.key("type", "deny").key("pattern", "/etc/packages/.*"))).get());
+        final ProgressCheck second = new Paths().newInstance(JavaxJson.obj()
+                .key("rules", JavaxJson.arr(JavaxJson.key("type", "deny").key("pattern", "/etc/.*"))).get());
+        final ProgressCheck fused = FusedProgressCheck.fuse(
+                Arrays.asList(Locator.wrapWithAlias(first, "first"), Locator.wrapWithAlias(second, "second")),
+                Arrays.asList(first, second));
+        final ProgressCheck unstreamed = new ProgressCheck() {
+            @Override
+            public String getCheckName() {
+                return "unstreamed";
+            }
+
+            @Override
+            public Collection<Violation> getReportedViolations() {
+                return Collections.singletonList(new SimpleViolation(Severity.MINOR, "at the end"));
+            }
+        };
+        final List<String> events = new ArrayList<>();
+        final ReportListener reportListener = new ReportListener() {
+            @Override
+            public void reportedViolation(final @NotNull String checkName, final @NotNull Violation violation) {
+                events.add(checkName);
+            }
+
+            @Override
+            public void finishedScan() {
+                events.add("finishedScan");
+            }
+        };
+        final List<CheckReport> reports = builder().withProgressChecks(fused, unstreamed)
+                .withReportListener(reportListener).build().scanPackage(testPackage);
+        for (final String checkName : Arrays.asList("first", "second")) {
+            assertEquals("expect streamed violations of " + checkName, reports.stream()
+                            .filter(report -> checkName.equals(report.getCheckName()))
+                            .mapToLong(report -> report.getViolations().size()).sum(),
+                    events.stream().filter(checkName::equals).count());
+        }
+        assertTrue("expect violations of fused checks", events.contains("first") && events.contains("second"));
+        assertEquals("expect unstreamed violations at the end", Arrays.asList("unstreamed", "finishedScan"),
+                events.subList(events.size() - 2, events.size()));
+    }
+
+    @Test
+    public void testScanWithReportListener_summarized() throws Exception {
+        final ProgressCheck check = new SimpleProgressCheck() {
+            @Override
+            public String getCheckName() {
+                return "repeated";
+            }
+
+            @Override
+            public void identifyPackage(final PackageId packageId, final File file) {
+                for (int i = 0; i < 5; i++) {
+                    reporting(violation -> violation.withSeverity(Severity.MINOR)
+                            .withDescription("repeated {0}").withArgument("arg"));
+                }
+            }
+        };
+        final List<Violation> streamed = new ArrayList<>();
+        final List<CheckReport> reports = builder().withProgressChecks(check).withMaxViolations(1)
+                .withReportListener(new ReportListener() {
+                    @Override
+                    public void reportedViolation(final @NotNull String checkName,
+                                                  final @NotNull Violation violation) {
+                        streamed.add(violation);
+                    }
+                }).build().scanPackage(TestPackageUtil.prepareTestPackage("tmp_foo_bar.zip"));
+        assertEquals("expect the retained violation and the first of the aggregate", 2, streamed.size());
+        assertEquals("expect one violation for each streamed", 2, reports.stream()
+                .filter(report -> "repeated".equals(report.getCheckName()))
+                .mapToInt(report -> report.getViolations().size()).sum());
+    }
+
+    @Test
+    public void testScanWithFailFastSeverity_stopsExtraction() throws Exception {
+        final File testPackage = TestPackageUtil.prepareSyntheticPackage(SyntheticPackage.builder()
+                .withPackageId("oakpal-test", "fail-fast", "1.0").withNodeCount(200).build());
+        final List<String> events = new ArrayList<>();
+        final ProgressCheck check = new SimpleProgressCheck() {
+            @Override
+            public void importedPath(final PackageId packageId, final String path, final Node node,
+                                     final PathAction action) {
+                events.add("importedPath");
+                majorViolation("fail " + path, packageId);
+            }
+
+            @Override
+            public void afterExtract(final PackageId packageId, final Session inspectSession) {
+                events.add("afterExtract");
+            }
+
+            @Override
+            public void finishedScan() {
+                events.add("finishedScan");
+            }
+        };
+        final OakMachine failFast = builder().withProgressChecks(check).withFailFastSeverity(Severity.MAJOR).build();
+        final List<CheckReport> reports = failFast.scanPackage(testPackage);
+        assertTrue("expect failed fast", failFast.isFailedFast());
+        assertEquals("expect extraction to stop at the first violation",
+                Arrays.asList("importedPath", "finishedScan"), events);
+        assertEquals("expect partial report", 1, reports.stream()
+                .mapToInt(report -> report.getViolations().size()).sum());
+    }
+
+    @Test
+    public void testScanWithFailFastSeverity() throws Exception {
+        final File testPackage = TestPackageUtil.prepareTestPackage("subsubtest.zip");
+        final PackageId root = PackageId.fromString("my_packages:subsubtest");
+        final List<String> events = new ArrayList<>();
+        final ProgressCheck check = new SimpleProgressCheck() {
+            @Override
+            public void identifyPackage(final PackageId packageId, final File file) {
+                events.add("identifyPackage " + packageId);
+                majorViolation("fail", packageId);
+            }
+
+            @Override
+            public void identifySubpackage(final PackageId packageId, final PackageId parentId) {
+                events.add("identifySubpackage " + packageId);
+            }
+
+            @Override
+            public void finishedScan() {
+                events.add("finishedScan");
+            }
+        };
+
+        final OakMachine failFast = builder().withProgressChecks(check).withFailFastSeverity(Severity.MAJOR).build();
+        assertSame("expect fail-fast severity", Severity.MAJOR, failFast.getFailFastSeverity());
+        final List<CheckReport> reports = failFast.scanPackages(Arrays.asList(testPackage, testPackage));
+        assertTrue("expect failed fast", failFast.isFailedFast());
+        assertEquals("expect no subpackages or second package",
+                Arrays.asList("identifyPackage " + root, "finishedScan"), events);
+        assertEquals("expect partial report", 1, reports.stream()
+                .mapToInt(report -> report.getViolations().size()).sum());
+
+        events.clear();
+        final OakMachine notFailFast = builder().withProgressChecks(check)
+                .withFailFastSeverity(Severity.SEVERE).build();
+        notFailFast.scanPackages(Arrays.asList(testPackage, testPackage));
+        assertFalse("expect not failed fast", notFailFast.isFailedFast());
+        assertEquals("expect all packages", 2, events.stream()
+                .filter(event -> event.equals("identifyPackage " + root)).count());
+        assertTrue("expect subpackages", events.contains("identifySubpackage my_packages:sub_a"));
+    }
+
+    @Test
+    public void testScanPackages_closesScopesOnError() throws Exception {
+        final ErrorListener errorListener = new DefaultErrorListener() {
+            @Override
+            public void finishedScan() {
+                throw new IllegalStateException("finishedScan failed");
+            }
+        };
+        try {
+            builder().withErrorListener(errorListener).withMaxViolations(1).build().scanPackage();
+            fail("expect IllegalStateException");
+        } catch (final IllegalStateException e) {
+            assertEquals("expect message", "finishedScan failed", e.getMessage());
+        }
+        assertEquals("expect no rule match scope", 0, RuleMatchCache.forCurrentScan().getMaxEntries());
+        final ReportCollector collector = new ReportCollector();
+        collector.reportViolation(new SimpleViolation(Severity.MINOR, "one"));
+        collector.reportViolation(new SimpleViolation(Severity.MINOR, "two"));
+        assertEquals("expect no report collector scope", 2, collector.getReportedViolations().size());
+    }
+
+    @Test
+    public void testScanWithMaxViolations() throws Exception {
+        final File testPackage = TestPackageUtil.prepareTestPackage("tmp_foo_bar.zip");
+        final ProgressCheck check = new SimpleProgressCheck() {
+            @Override
+            public void importedPath(final PackageId packageId, final String path, final Node node,
+                                     final PathAction action) {
+                reporting(violation -> violation.withSeverity(Severity.MINOR)
+                        .withDescription("imported {0}").withArgument(path).withPackage(packageId));
+            }
+        };
+
+        final OakMachine capped = builder().withProgressChecks(check).withMaxViolations(2).build();
+        assertEquals("expect max violations", 2, capped.getMaxViolations());
+        final List<Violation> violations = new ArrayList<>(capped.scanPackage(testPackage).get(1).getViolations());
+        assertEquals("expect two retained violations and an aggregate", 3, violations.size());
+        assertTrue("expect aggregate of remaining paths", violations.get(2).getDescription()
+                .contains(" more like it, for example with arguments "));
+
+        final List<Violation> uncapped = new ArrayList<>(builder().withProgressChecks(check).build()
+                .scanPackage(testPackage).get(1).getViolations());
+        assertTrue("expect every path when uncapped", uncapped.size() > violations.size());
+    }
+
     @Test
     public void testProcessSubpackage_onSubpackageException() throws Exception {
         final JcrPackageManager manager = mock(JcrPackageManager.class);
@@ -1119,6 +1475,26 @@ public class OakMachineTest {
                 Collections.emptyList(), silencedEvents);
     }
 
+    @Test
+    public void testNewProgressCheckEventConsumer_fusedErrors() {
+        final List<Map.Entry<ProgressCheck, Exception>> errorEvents = new ArrayList<>();
+        final ProgressCheck first = new JcrProperties().newInstance(JavaxJson.obj().get());
+        final ProgressCheck second = new JcrProperties().newInstance(JavaxJson.obj().get());
+        final ProgressCheck firstAlias = Locator.wrapWithAlias(first, "first");
+        final ProgressCheck secondAlias = Locator.wrapWithAlias(second, "second");
+        final FusedProgressCheck fused = FusedProgressCheck.fuse(Arrays.asList(firstAlias, secondAlias),
+                Arrays.asList(first, second));
+        // no workspace filter has been provided by beforeExtract, so both fused checks throw
+        OakMachine.newProgressCheckEventConsumer(false,
+                check -> check.importedPath(PackageId.fromString("test"), "/foo", mock(Node.class), null),
+                (check, error) -> errorEvents.add(toEntry(check, error))).accept(fused);
+        assertEquals("expect one error per fused check",
+                Arrays.asList(firstAlias, secondAlias),
+                errorEvents.stream().map(Map.Entry::getKey).collect(Collectors.toList()));
+        assertTrue("expect original errors",
+                errorEvents.stream().allMatch(entry -> entry.getValue() instanceof NullPointerException));
+    }
+
     @Test
     public void testImporterListenerAdapter_onMessage_deletedPathException() throws Exception {
         final File testPackage = TestPackageUtil.prepareTestPackage("tmp_foo_bar.zip");
@@ -16,6 +16,7 @@
 
 package net.adamcin.oakpal.core;
 
+import net.adamcin.oakpal.api.Fun;
 import net.adamcin.oakpal.api.ProgressCheck;
 import net.adamcin.oakpal.api.Result;
 import org.apache.jackrabbit.api.JackrabbitWorkspace;
@@ -210,6 +211,35 @@ public class OakpalPlanTest {
         }
     }
 
+    @Test
+    public void testBuilder_withMaxViolations() throws Exception {
+        assertEquals("implicit 0", 0, builder().build().getMaxViolations());
+        assertEquals("negative is 0", 0, builder().withMaxViolations(-1).build().getMaxViolations());
+        assertEquals("implicit 0 per check", 0, builder().build().getMaxViolationsPerCheck());
+        final OakpalPlan plan = builder().withMaxViolations(100).withMaxViolationsPerCheck(10).build();
+        assertEquals("expect json", key(OakpalPlan.keys().maxViolations(), 100)
+                .key(OakpalPlan.keys().maxViolationsPerCheck(), 10).get(), plan.toJson());
+        final OakpalPlan fromJson = OakpalPlan.fromJson(plan.toJson());
+        assertEquals("expect maxViolations from json", 100, fromJson.getMaxViolations());
+        assertEquals("expect maxViolationsPerCheck from json", 10, fromJson.getMaxViolationsPerCheck());
+        final OakpalPlan derived = builder().startingWithPlan(plan).build();
+        assertEquals("expect derived maxViolations", 100, derived.getMaxViolations());
+        assertEquals("expect derived maxViolationsPerCheck", 10, derived.getMaxViolationsPerCheck());
+
+        final CheckSpec unlimited = CheckSpec.fromJson(key("impl", CHECK_NOTHING).get());
+        assertEquals("expect plan maxViolationsPerCheck", 10,
+                plan.withMaxViolationsPerCheck(unlimited).getMaxViolations());
+        assertEquals("expect spec not changed", 0, unlimited.getMaxViolations());
+        final CheckSpec limited = CheckSpec.copyOf(unlimited);
+        limited.setMaxViolations(5);
+        assertSame("expect same spec when limited", limited, plan.withMaxViolationsPerCheck(limited));
+        assertSame("expect same spec when plan is unlimited", unlimited,
+                builder().build().withMaxViolationsPerCheck(unlimited));
+
+        assertEquals("expect machine maxViolations", 100,
+                plan.toOakMachineBuilder(null, Util.getDefaultClassLoader()).build().getMaxViolations());
+    }
+
     @Test
     public void testBuilder_startingWithPlan_defaults() {
         final OakpalPlan derived = builder().startingWithPlan(builder().build()).build();
@@ -470,6 +500,18 @@ public class OakpalPlanTest {
         }
     }
 
+    @Test
+    public void testFromJson_registryBundleWithoutBase() throws Exception {
+        assertEquals("expect absolute registryBundle url", new URL("http://foo.com/registry/plan.json"),
+                OakpalPlan.fromJson(key("registryBundle", "http://foo.com/registry/plan.json").get())
+                        .getRegistryBundleUrl());
+    }
+
+    @Test(expected = Fun.FunRuntimeException.class)
+    public void testFromJson_relativeRegistryBundleWithoutBase() {
+        OakpalPlan.fromJson(key("registryBundle", "registry/plan.json").get());
+    }
+
     @Test
     public void testFromJson_fullPlan_fromUrl() throws Exception {
         final URL expectBaseUrl = new URL(baseUrl, "fullPlan.json");
@@ -22,6 +22,8 @@ import net.adamcin.oakpal.api.ProgressCheck;
 import net.adamcin.oakpal.api.SilenceableCheck;
 import net.adamcin.oakpal.api.SlingInstallable;
 import net.adamcin.oakpal.api.SlingSimulator;
+import net.adamcin.oakpal.api.UnsubscribingCheck;
+import net.adamcin.oakpal.api.UnsubscribingCheck.PathSubscription;
 import net.adamcin.oakpal.api.Violation;
 import net.adamcin.oakpal.core.sling.NoopSlingSimulator;
 import org.apache.jackrabbit.vault.fs.config.MetaInf;
@@ -591,4 +593,14 @@ public class ProgressCheckAliasFacadeTest {
         assertSame("same arg1", arg1, slot1.getNow(null));
     }
 
-}
\ No newline at end of file
+
+    @Test
+    public void testGetPathSubscription() {
+        assertEquals("subscribed by default", PathSubscription.SUBSCRIBED,
+                new ProgressCheckAliasFacade(mock(ProgressCheck.class), null).getPathSubscription());
+        final UnsubscribingCheck delegate = mock(UnsubscribingCheck.class);
+        when(delegate.getPathSubscription()).thenReturn(PathSubscription.UNSUBSCRIBED_FOR_SCAN);
+        assertEquals("delegate subscription", PathSubscription.UNSUBSCRIBED_FOR_SCAN,
+                new ProgressCheckAliasFacade(delegate, null).getPathSubscription());
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.core;
+
+import net.adamcin.oakpal.api.Fun;
+import org.apache.commons.io.FileUtils;
+import org.apache.jackrabbit.api.JackrabbitWorkspace;
+import org.apache.jackrabbit.spi.PrivilegeDefinition;
+import org.apache.jackrabbit.spi.commons.conversion.DefaultNamePathResolver;
+import org.apache.jackrabbit.spi.commons.conversion.NamePathResolver;
+import org.junit.Test;
+
+import javax.jcr.security.Privilege;
+import javax.json.JsonObject;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import static net.adamcin.oakpal.api.JavaxJson.arr;
+import static net.adamcin.oakpal.api.JavaxJson.key;
+import static net.adamcin.oakpal.api.JavaxJson.obj;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class RegistryBundleTest {
+    final File testOutputBaseDir = new File("target/test-output/RegistryBundleTest");
+
+    private static OakpalPlan planWithDefinitions(final File planFile) throws Exception {
+        FileUtils.writeStringToFile(planFile, obj()
+                .key("jcrNamespaces", arr(key("prefix", "foo").key("uri", "http://foo.com")))
+                .key("jcrNodetypes", key("foo:folder", key("extends", arr("nt:folder")))
+                        .key("foo:mixin", key("@", arr("mixin"))))
+                .key("jcrPrivileges", key("foo:canRead", key("abstract", false))
+                        .key("foo:canWrite", key("abstract", false))
+                        .key("foo:canAll", key("contains", arr("foo:canRead", "foo:canWrite"))))
+                .key("forcedRoots", arr(key("path", "/foo").key("primaryType", "foo:folder")))
+                .get().toString(), StandardCharsets.UTF_8);
+        return OakpalPlan.fromJson(planFile.toURI().toURL()).getOrDefault(null);
+    }
+
+    private static ClassLoader checklistModule(final File moduleDir, final JsonObject checklistJson)
+            throws Exception {
+        FileUtils.writeStringToFile(new File(moduleDir, "META-INF/MANIFEST.MF"),
+                "Manifest-Version: 1.0\nAutomatic-Module-Name: bundled\nOakpal-Checklist: bundled.json\n",
+                StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(moduleDir, "bundled.json"), checklistJson.toString(),
+                StandardCharsets.UTF_8);
+        return new URLClassLoader(new URL[]{moduleDir.toURI().toURL()}, null);
+    }
+
+    @Test
+    public void testCompile() throws Exception {
+        final File testBaseDir = new File(testOutputBaseDir, "testCompile");
+        FileUtils.deleteDirectory(testBaseDir);
+        final OakpalPlan plan = planWithDefinitions(new File(testBaseDir, "plan.json"));
+        final RegistryBundle bundle = RegistryBundle.compile(plan, getClass().getClassLoader());
+
+        assertEquals("expect namespace", Collections.singletonList(JcrNs.create("foo", "http://foo.com")),
+                bundle.getJcrNamespaces());
+        final NamePathResolver resolver = new DefaultNamePathResolver(JsonCnd.toNamespaceMapping(
+                bundle.getJcrNamespaces()));
+        assertEquals("expect node types", Arrays.asList("foo:folder", "foo:mixin"),
+                bundle.getJcrNodetypes().stream().map(def -> Fun.uncheck1(resolver::getJCRName)
+                        .apply(def.getName())).collect(Collectors.toList()));
+        assertEquals("expect aggregate privilege last", Arrays.asList("foo:canRead", "foo:canWrite", "foo:canAll"),
+                bundle.getJcrPrivileges().stream().map(PrivilegeDefinition::getName)
+                        .map(Fun.uncheck1(resolver::getJCRName)).collect(Collectors.toList()));
+
+        final RegistryBundle read = RegistryBundle.fromJson(bundle.toJson());
+        assertEquals("expect same json after read", bundle.toJson(), read.toJson());
+        assertEquals("expect aggregate privilege last after read", "foo:canAll",
+                resolver.getJCRName(read.getJcrPrivileges().get(2).getName()));
+    }
+
+    @Test
+    public void testCompile_cndUrls() throws Exception {
+        final URL cndUrl = new File("src/test/resources/simple-content/META-INF/vault/nodetypes.cnd")
+                .toURI().toURL();
+        final RegistryBundle bundle = RegistryBundle.compile(Collections.singletonList(
+                new InitStage.Builder().withOrderedCndUrl(cndUrl).withForcedRoot("/foo").build().definitionsOnly()));
+        assertEquals("expect sling namespace", "sling", bundle.getJcrNamespaces().get(0).getPrefix());
+        assertFalse("expect node types", bundle.getJcrNodetypes().isEmpty());
+        assertTrue("expect no privileges", bundle.getJcrPrivileges().isEmpty());
+    }
+
+    @Test
+    public void testCompile_checklists() throws Exception {
+        final File testBaseDir = new File(testOutputBaseDir, "testCompile_checklists");
+        FileUtils.deleteDirectory(testBaseDir);
+        final ClassLoader classLoader = checklistModule(new File(testBaseDir, "module"), key("name", "bundled")
+                .key("jcrNamespaces", arr(key("prefix", "bar").key("uri", "http://bar.com")))
+                .key("jcrNodetypes", key("bar:folder", key("extends", arr("nt:folder")))).get());
+        final OakpalPlan plan = new OakpalPlan.Builder(null, null)
+                .withChecklists(Collections.singletonList("bundled")).build();
+        final RegistryBundle bundle = RegistryBundle.compile(plan, classLoader);
+
+        assertEquals("expect compiled checklist", Collections.singleton("bundled/bundled"),
+                bundle.getChecklists().keySet());
+        assertEquals("expect same checklists after read", bundle.getChecklists(),
+                RegistryBundle.fromJson(bundle.toJson()).getChecklists());
+    }
+
+    @Test
+    public void testToOakMachineBuilder_checklistMismatch() throws Exception {
+        final File testBaseDir = new File(testOutputBaseDir, "testToOakMachineBuilder_checklistMismatch");
+        FileUtils.deleteDirectory(testBaseDir);
+        final JsonObject compiledJson = key("name", "bundled")
+                .key("jcrNamespaces", arr(key("prefix", "bar").key("uri", "http://bar.com")))
+                .key("jcrNodetypes", key("bar:folder", key("extends", arr("nt:folder")))).get();
+        final OakpalPlan plan = new OakpalPlan.Builder(null, null)
+                .withChecklists(Collections.singletonList("bundled")).build();
+        final File bundleFile = new File(testBaseDir, "registry/plan.json");
+        FileUtils.writeStringToFile(bundleFile, RegistryBundle.compile(plan,
+                checklistModule(new File(testBaseDir, "compiled"), compiledJson)).toJson().toString(),
+                StandardCharsets.UTF_8);
+        final OakpalPlan precompiled = new OakpalPlan.Builder(null, null).startingWithPlan(plan)
+                .withRegistryBundleUrl(bundleFile.toURI().toURL()).build();
+
+        final ErrorListener matched = mock(ErrorListener.class);
+        precompiled.toOakMachineBuilder(matched, checklistModule(new File(testBaseDir, "matched"), compiledJson))
+                .build().adminInitAndInspect(session -> assertTrue("expect precompiled type",
+                        session.getWorkspace().getNodeTypeManager().hasNodeType("bar:folder")));
+        verify(matched, never()).onRegistryBundleMismatch(any(URL.class), anyString());
+
+        // a checklist version with a node type that the bundle was not compiled with
+        final ErrorListener changed = mock(ErrorListener.class);
+        precompiled.toOakMachineBuilder(changed, checklistModule(new File(testBaseDir, "changed"),
+                key("name", "bundled")
+                        .key("jcrNamespaces", arr(key("prefix", "bar").key("uri", "http://bar.com")))
+                        .key("jcrNodetypes", key("bar:folder", key("extends", arr("nt:folder")))
+                                .key("bar:mixin", key("@", arr("mixin")))).get()))
+                .build().adminInitAndInspect(session -> assertTrue("expect type of changed checklist",
+                        session.getWorkspace().getNodeTypeManager().hasNodeType("bar:mixin")));
+        verify(changed).onRegistryBundleMismatch(bundleFile.toURI().toURL(), "bundled/bundled");
+
+        // the compiled checklist is not selected at scan time
+        final ErrorListener missing = mock(ErrorListener.class);
+        precompiled.toOakMachineBuilder(missing, new URLClassLoader(new URL[0], null)).build()
+                .adminInitAndInspect(session -> assertTrue("expect precompiled type",
+                        session.getWorkspace().getNodeTypeManager().hasNodeType("bar:folder")));
+        verify(missing).onRegistryBundleMismatch(bundleFile.toURI().toURL(), "bundled/bundled");
+    }
+
+    @Test(expected = Exception.class)
+    public void testFromJson_unsupportedVersion() throws Exception {
+        RegistryBundle.fromJson(key(RegistryBundle.KEY_BUNDLE_VERSION, RegistryBundle.FORMAT_VERSION + 1).get());
+    }
+
+    @Test
+    public void testToOakMachineBuilder_withRegistryBundle() throws Exception {
+        final File testBaseDir = new File(testOutputBaseDir, "testToOakMachineBuilder_withRegistryBundle");
+        FileUtils.deleteDirectory(testBaseDir);
+        final OakpalPlan plan = planWithDefinitions(new File(testBaseDir, "plan.json"));
+        final File bundleFile = new File(testBaseDir, "registry/plan.json");
+        FileUtils.writeStringToFile(bundleFile,
+                RegistryBundle.compile(plan, getClass().getClassLoader()).toJson().toString(),
+                StandardCharsets.UTF_8);
+
+        // register the bundle instead of the definitions of the plan, which are removed to prove it
+        final OakpalPlan precompiled = new OakpalPlan.Builder(plan.getBase(), plan.getName())
+                .startingWithPlan(plan)
+                .withJcrNodetypes(Collections.emptyList())
+                .withJcrPrivileges(Collections.emptyList())
+                .withRegistryBundleUrl(bundleFile.toURI().toURL())
+                .build();
+        final JsonObject json = precompiled.toJson();
+        assertEquals("expect relative bundle url", "registry/plan.json", json.getString("registryBundle"));
+        FileUtils.writeStringToFile(new File(testBaseDir, "plan.json"), json.toString(), StandardCharsets.UTF_8);
+        assertEquals("expect bundle url from json", bundleFile.toURI().toURL(),
+                OakpalPlan.fromJson(plan.getBase()).getOrDefault(null).getRegistryBundleUrl());
+
+        precompiled.toOakMachineBuilder(null, getClass().getClassLoader()).build().adminInitAndInspect(session -> {
+            assertEquals("expect forced root with precompiled type", "foo:folder",
+                    session.getNode("/foo").getPrimaryNodeType().getName());
+            assertTrue("expect mixin", session.getWorkspace().getNodeTypeManager().hasNodeType("foo:mixin"));
+            final Privilege canAll = ((JackrabbitWorkspace) session.getWorkspace()).getPrivilegeManager()
+                    .getPrivilege("foo:canAll");
+            assertEquals("expect aggregate privilege", 2, canAll.getDeclaredAggregatePrivileges().length);
+        });
+    }
+
+    @Test
+    public void testInitStage_definitionsOnly() throws Exception {
+        final InitStage stage = new InitStage.Builder().withForcedRoot("/foo").withRepoInits(
+                Collections.singletonList("create path (nt:folder) /bar")).withNs("foo", "http://foo.com").build();
+        new OakMachine.Builder().withInitStage(stage.definitionsOnly()).build().adminInitAndInspect(session -> {
+            assertFalse("expect no forced root", session.nodeExists("/foo"));
+            assertFalse("expect no repoinit path", session.nodeExists("/bar"));
+            assertEquals("expect namespace", "http://foo.com", session.getNamespaceURI("foo"));
+        });
+        new OakMachine.Builder().withInitStage(stage.withoutDefinitions()).build().adminInitAndInspect(session -> {
+            assertTrue("expect forced root", session.nodeExists("/foo"));
+            assertTrue("expect repoinit path", session.nodeExists("/bar"));
+            assertFalse("expect no namespace",
+                    Arrays.asList(session.getWorkspace().getNamespaceRegistry().getURIs()).contains("http://foo.com"));
+        });
+    }
+}
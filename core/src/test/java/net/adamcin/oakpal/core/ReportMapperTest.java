@@ -19,11 +19,15 @@ package net.adamcin.oakpal.core;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 import java.io.File;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import net.adamcin.oakpal.api.Severity;
@@ -32,6 +36,10 @@ import org.apache.jackrabbit.vault.packaging.PackageId;
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.stream.JsonParser;
+
 public class ReportMapperTest {
 
     private final File baseDir = new File("target/test-output/ReportMapperTest");
@@ -98,4 +106,58 @@ public class ReportMapperTest {
                 new ArrayList<>(ReportMapper.readReportsFromFile(jsonFile)));
 
     }
+
+    @Test
+    public void testReadReports_streaming() throws Exception {
+        final String json = "{\"before\":{\"reports\":[1]},\"reports\":[1,[{}],{\"checkName\":\"test/first\","
+                + "\"extra\":[{\"violations\":[]}],\"violations\":[null,{\"severity\":\"MINOR\","
+                + "\"description\":\"one\",\"packages\":[\"test:first\"]}]},{\"violations\":[]}],\"after\":true}";
+        final List<CheckReport> reports = new ArrayList<>();
+        ReportMapper.readReports(() -> new StringReader(json), reports::add);
+        assertEquals("expect reports, skipping other values", asList(
+                new SimpleReport("test/first", singletonList(
+                        new SimpleViolation(Severity.MINOR, "one", PackageId.fromString("test:first")))),
+                new SimpleReport("", Collections.emptyList())), reports);
+        assertEquals("expect no reports", Collections.emptyList(),
+                ReportMapper.readReports(() -> new StringReader("{\"other\":[]}")));
+    }
+
+    @Test
+    public void testGetObject() {
+        final String json = "{\"int\":1,\"long\":12345678901,\"big\":123456789012345678901234567890,\"decimal\":0.5,\"string\":\"x\","
+                + "\"array\":[true,false,null,[],{\"nested\":2}],\"object\":{}}";
+        try (JsonParser parser = Json.createParser(new StringReader(json))) {
+            parser.next();
+            assertEquals("expect same object as JsonReader", Json.createReader(new StringReader(json)).readObject(),
+                    ReportMapper.getObject(parser));
+            assertFalse("expect end of input", parser.hasNext());
+        }
+    }
+
+    @Test(expected = JsonException.class)
+    public void testReadReports_notAnObject() throws Exception {
+        ReportMapper.readReports(() -> new StringReader("[]"));
+    }
+
+    @Test
+    public void testWriteThenReadNdjson() throws Exception {
+        final File ndjsonFile = new File(baseDir, "reports" + ReportMapper.NDJSON_EXTENSION);
+        final List<CheckReport> originalReports = asList(
+                new SimpleReport("test/first",
+                        singletonList(
+                                new SimpleViolation(Severity.MINOR,
+                                        "one\ntwo",
+                                        PackageId.fromString("test:first")))
+                ),
+                new SimpleReport("test/second", Collections.emptyList())
+        );
+
+        ReportMapper.writeReportsToFile(originalReports, ndjsonFile);
+        final List<String> lines = Files.readAllLines(ndjsonFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals("expect one line per report", 2, lines.size());
+        assertEquals("expect compact report json", originalReports.get(1).toJson().toString(), lines.get(1));
+        assertEquals("CheckReports should round trip",
+                new ArrayList<>(originalReports),
+                new ArrayList<>(ReportMapper.readReportsFromFile(ndjsonFile)));
+    }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.core;
+
+import net.adamcin.oakpal.testing.TestPackageUtil;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RepositoryBaselineTest {
+
+    private static OakMachine.Builder newBuilder() {
+        return new OakMachine.Builder()
+                .withInitStage(new InitStage.Builder()
+                        .withNs("foo", "http://foo.com")
+                        .withNs("bar", "http://bar.com")
+                        .withForcedRoot("/foo", "nt:folder")
+                        .withRepoInits(Collections.singletonList("create path (nt:folder) /bar"))
+                        .build())
+                .withInitStage(new InitStage.Builder()
+                        .withNs("bar2", "http://bar.com")
+                        .build());
+    }
+
+    @Test
+    public void testCaptureBaseline() throws Exception {
+        final RepositoryBaseline baseline = newBuilder().build()
+                .captureBaseline();
+        assertNotNull("expect baseline", baseline);
+
+        // the forked machine has no init stages of its own
+        final OakMachine forked = new OakMachine.Builder().withBaseline(baseline).build();
+        forked.adminInitAndInspect(session -> {
+            assertEquals("expect namespace", "http://foo.com", session.getNamespaceURI("foo"));
+            assertEquals("expect remapped prefix", "bar2", session.getNamespacePrefix("http://bar.com"));
+            assertTrue("expect forced root", session.nodeExists("/foo"));
+            assertTrue("expect repoinit path", session.nodeExists("/bar"));
+            assertTrue("expect oakpal type",
+                    session.getWorkspace().getNodeTypeManager().hasNodeType(OakMachine.NT_UNDECLARED));
+            session.getNode("/foo").addNode("changed", "nt:folder");
+            session.save();
+        });
+        forked.adminInitAndInspect(session -> {
+            assertFalse("expect fork to start from baseline again", session.nodeExists("/foo/changed"));
+        });
+    }
+
+    @Test
+    public void testCaptureBaseline_withInitErrors() throws Exception {
+        assertNull("expect no baseline when an init stage reports an error", new OakMachine.Builder()
+                .withInitStage(new InitStage.Builder().withNs("jcr", "http://foo.com").build())
+                .build().captureBaseline());
+    }
+
+    @Test
+    public void testScanPackage_withBaseline() throws Exception {
+        final File testPackage = TestPackageUtil.prepareTestPackage("tmp_foo_bar.zip");
+        final RepositoryBaseline baseline = newBuilder().build()
+                .captureBaseline();
+        final File blobStore = new File("target/test-output/RepositoryBaselineTest/blobs");
+        assertTrue("expect no violations", new OakMachine.Builder()
+                .withBaseline(baseline)
+                .withNodeStoreSupplier(() -> new FileBlobMemoryNodeStore(blobStore.getAbsolutePath(),
+                        baseline.getRoot()))
+                .build().scanPackage(testPackage).get(0).getViolations().isEmpty());
+    }
+}
@@ -38,6 +38,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -45,17 +46,25 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.PropertyResourceBundle;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.jar.Manifest;
+import java.util.stream.Collectors;
 
 import static net.adamcin.oakpal.api.Fun.toEntry;
 import static net.adamcin.oakpal.api.JavaxJson.key;
 import static net.adamcin.oakpal.api.JavaxJson.obj;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -561,4 +570,164 @@ public class ScriptProgressCheckTest {
 
         assertEquals("expect testKey=yeKtsettestKey", "yeKtsettestKey", check.getHelper().getString("testKey"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSharedScriptEngine() throws Exception {
+        final ClassLoader classLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        final String source = "var count = 0;\n"
+                + "function getCheckName() { return config.checkNameForTest; }\n"
+                + "function identifyPackage(packageId, file) { count++; oakpal.minorViolation('count ' + count); }";
+        final ProgressCheckFactory factory = ScriptProgressCheck
+                .createClassLoaderInlineScriptCheckFactory(source, null, classLoader);
+        final ProgressCheck first = factory.newInstance(key("checkNameForTest", "first").get());
+        final ProgressCheck second = ScriptProgressCheck
+                .createClassLoaderInlineScriptCheckFactory(source, "", classLoader)
+                .newInstance(key("checkNameForTest", "second").get());
+        assertEquals("first name", "first", first.getCheckName());
+        assertEquals("second name", "second", second.getCheckName());
+
+        final PackageId packageId = PackageId.fromString("my_packages:example:1.0");
+        first.identifyPackage(packageId, null);
+        first.identifyPackage(packageId, null);
+        second.identifyPackage(packageId, null);
+        assertEquals("first has own globals", Arrays.asList("count 1", "count 2"),
+                first.getReportedViolations().stream().map(Violation::getDescription).collect(Collectors.toList()));
+        assertEquals("second has own globals", Collections.singletonList("count 1"),
+                second.getReportedViolations().stream().map(Violation::getDescription).collect(Collectors.toList()));
+
+        final ScriptProgressCheck.SharedScriptEngine shared = ScriptProgressCheck.SharedScriptEngine
+                .forClassLoader(classLoader, () -> {
+                    throw new IllegalStateException("expect engine to be shared");
+                });
+        assertNotNull("expect shared engine", shared);
+        assertEquals("expect one compiled script", 1, shared.getCompiledScriptCount());
+        ScriptProgressCheck.createClassLoaderInlineScriptCheckFactory(source + "\n", null, classLoader)
+                .newInstance(null);
+        assertEquals("expect changed source to be compiled", 2, shared.getCompiledScriptCount());
+
+        final ScriptProgressCheck.SharedScriptEngine otherShared = ScriptProgressCheck.SharedScriptEngine
+                .forClassLoader(new URLClassLoader(new URL[0], classLoader),
+                        () -> ScriptProgressCheck.newJavaScriptEngine(classLoader));
+        assertNotSame("expect engine per class loader", shared, otherShared);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final ScriptProgressCheck.SharedScriptEngine threadShared = executor.submit(() ->
+                    ScriptProgressCheck.SharedScriptEngine.forClassLoader(classLoader,
+                            () -> ScriptProgressCheck.newJavaScriptEngine(classLoader))).get();
+            assertNotSame("expect engine per thread", shared, threadShared);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testTimeBudget_callback() throws Exception {
+        final ScriptProgressCheck check = (ScriptProgressCheck) ScriptProgressCheck
+                .createInlineScriptCheckFactory("function identifyPackage(packageId, file) { while (true) {} }\n"
+                        + "function readManifest(packageId, manifest) { oakpal.minorViolation('manifest'); }", "")
+                .newInstance(obj().get());
+        check.setTimeBudget(ScriptTimeBudget.of(1000L, 0L));
+        final PackageId packageId = PackageId.fromString("my_packages:example:1.0");
+        check.startedScan();
+        check.identifyPackage(packageId, null);
+        assertTrue("expect budget exceeded", check.isBudgetExceeded());
+        check.readManifest(packageId, null);
+        final Collection<Violation> violations = check.getReportedViolations();
+        assertEquals("expect one violation", 1, violations.size());
+        final Violation violation = violations.iterator().next();
+        assertEquals("expect major", Severity.MAJOR, violation.getSeverity());
+        assertEquals("expect package", Collections.singletonList(packageId), violation.getPackages());
+        assertTrue("expect callback budget in description: " + violation.getDescription(),
+                violation.getDescription().contains("callback time budget of 1000 ms"));
+
+        check.startedScan();
+        assertFalse("expect budget reset", check.isBudgetExceeded());
+        check.readManifest(packageId, null);
+        assertEquals("expect manifest violation", Collections.singletonList("manifest"),
+                check.getReportedViolations().stream().map(Violation::getDescription).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testTimeBudget_scan() throws Exception {
+        final Invocable delegate = mock(Invocable.class);
+        doAnswer(call -> {
+            Thread.sleep(200L);
+            return null;
+        }).when(delegate).invokeFunction(eq("identifyPackage"), any(Object[].class));
+        final ScriptProgressCheck check = new ScriptProgressCheck(delegate, new ScriptProgressCheck.ScriptHelper(),
+                null);
+        check.setTimeBudget(ScriptTimeBudget.of(0L, 500L));
+        final PackageId packageId = PackageId.fromString("my_packages:example:1.0");
+        check.startedScan();
+        check.identifyPackage(packageId, null);
+        check.identifyPackage(packageId, null);
+        assertFalse("expect budget not yet exceeded", check.isBudgetExceeded());
+        check.identifyPackage(packageId, null);
+        assertTrue("expect budget exceeded", check.isBudgetExceeded());
+        assertEquals("expect scan budget in description",
+                Collections.singletonList("identifyPackage exceeded the scan time budget of 500 ms. "
+                        + "The check is disabled for the rest of the scan."),
+                check.getReportedViolations().stream().map(Violation::getDescription).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testTimeBudget_measuredOnReturn() throws Exception {
+        final Invocable delegate = mock(Invocable.class);
+        doAnswer(call -> {
+            Thread.sleep(50L);
+            return null;
+        }).when(delegate).invokeFunction(eq("identifyPackage"), any(Object[].class));
+        final ScriptProgressCheck check = new ScriptProgressCheck(delegate, new ScriptProgressCheck.ScriptHelper(),
+                null);
+        check.setTimeBudget(ScriptTimeBudget.of(10L, 0L));
+        check.startedScan();
+        check.identifyPackage(PackageId.fromString("my_packages:example:1.0"), null);
+        assertTrue("expect budget exceeded", check.isBudgetExceeded());
+        assertEquals("expect one violation", 1, check.getReportedViolations().size());
+        assertNull("expect no time budget", ScriptTimeBudget.of(0L, -1L));
+        check.setTimeBudget(null);
+        check.startedScan();
+        check.identifyPackage(PackageId.fromString("my_packages:example:1.0"), null);
+        assertFalse("expect budget not exceeded", check.isBudgetExceeded());
+    }
+
+    @Test
+    public void testTimeBudget_excludesWaitForSharedEngine() throws Exception {
+        final ClassLoader classLoader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+        final ScriptProgressCheck check = (ScriptProgressCheck) ScriptProgressCheck
+                .createClassLoaderInlineScriptCheckFactory("function identifyPackage(packageId, file) { }",
+                        null, classLoader)
+                .newInstance(obj().get());
+        check.setTimeBudget(ScriptTimeBudget.of(100L, 0L));
+        check.startedScan();
+        final Object engine = ScriptProgressCheck.SharedScriptEngine.forClassLoader(classLoader, () -> {
+            throw new IllegalStateException("expect engine to be shared");
+        }).getEngine();
+        final CountDownLatch locked = new CountDownLatch(1);
+        final Thread holder = new Thread(() -> {
+            synchronized (engine) {
+                locked.countDown();
+                try {
+                    Thread.sleep(300L);
+                } catch (final InterruptedException ignored) {
+                    // released early
+                }
+            }
+        });
+        holder.start();
+        locked.await();
+        check.identifyPackage(PackageId.fromString("my_packages:example:1.0"), null);
+        holder.join();
+        assertFalse("expect wait for the engine to be excluded from the budget", check.isBudgetExceeded());
+        assertTrue("expect no violations", check.getReportedViolations().isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testContextInvocable_getInterface() {
+        final ScriptProgressCheck.SharedScriptEngine shared = new ScriptProgressCheck.SharedScriptEngine(
+                ScriptProgressCheck.newJavaScriptEngine(getClass().getClassLoader()));
+        new ScriptProgressCheck.ContextInvocable(shared.getEngine(), shared.getEngine().getContext())
+                .getInterface(Runnable.class);
+    }
+}
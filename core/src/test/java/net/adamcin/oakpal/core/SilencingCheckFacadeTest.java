@@ -21,6 +21,8 @@ import net.adamcin.oakpal.api.PathAction;
 import net.adamcin.oakpal.api.ProgressCheck;
 import net.adamcin.oakpal.api.SlingInstallable;
 import net.adamcin.oakpal.api.SlingSimulator;
+import net.adamcin.oakpal.api.UnsubscribingCheck;
+import net.adamcin.oakpal.api.UnsubscribingCheck.PathSubscription;
 import net.adamcin.oakpal.api.Violation;
 import net.adamcin.oakpal.core.sling.NoopSlingSimulator;
 import org.apache.jackrabbit.vault.fs.config.MetaInf;
@@ -679,4 +681,14 @@ public class SilencingCheckFacadeTest {
         assertSame("same arg0", arg0, slot0.getNow(null));
         assertSame("same arg1", arg1, slot1.getNow(null));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetPathSubscription() {
+        assertEquals("subscribed by default", PathSubscription.SUBSCRIBED,
+                new SilencingCheckFacade(mock(ProgressCheck.class)).getPathSubscription());
+        final UnsubscribingCheck delegate = mock(UnsubscribingCheck.class);
+        when(delegate.getPathSubscription()).thenReturn(PathSubscription.UNSUBSCRIBED_FOR_SCAN);
+        assertEquals("delegate subscription", PathSubscription.UNSUBSCRIBED_FOR_SCAN,
+                new SilencingCheckFacade(delegate).getPathSubscription());
+    }
+}
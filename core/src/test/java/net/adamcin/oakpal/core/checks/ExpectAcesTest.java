@@ -18,6 +18,7 @@ package net.adamcin.oakpal.core.checks;
 
 import net.adamcin.oakpal.api.EmbeddedPackageInstallable;
 import net.adamcin.oakpal.api.Fun;
+import net.adamcin.oakpal.api.PathAction;
 import net.adamcin.oakpal.api.Result;
 import net.adamcin.oakpal.api.Rule;
 import net.adamcin.oakpal.api.RuleType;
@@ -27,6 +28,7 @@ import net.adamcin.oakpal.api.Violation;
 import net.adamcin.oakpal.core.JsonCnd;
 import net.adamcin.oakpal.core.OakMachine;
 import net.adamcin.oakpal.core.OakpalPlan;
+import net.adamcin.oakpal.core.Util;
 import org.apache.jackrabbit.JcrConstants;
 import org.apache.jackrabbit.api.JackrabbitWorkspace;
 import org.apache.jackrabbit.api.security.JackrabbitAccessControlEntry;
@@ -85,6 +87,8 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ExpectAcesTest {
@@ -1023,4 +1027,90 @@ public class ExpectAcesTest {
         Assert.assertNotEquals("expect not same", left, right);
         Assert.assertNotEquals("expect not same hash", left.hashCode(), right.hashCode());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetAccessControlledPath() {
+        Assert.assertEquals("/foo", ExpectAces.Check.getAccessControlledPath("/foo"));
+        Assert.assertEquals("/foo", ExpectAces.Check.getAccessControlledPath("/foo/rep:policy"));
+        Assert.assertEquals("/foo", ExpectAces.Check.getAccessControlledPath("/foo/rep:policy/allow0"));
+        Assert.assertEquals("/foo/rep:policyx", ExpectAces.Check.getAccessControlledPath("/foo/rep:policyx"));
+        Assert.assertEquals("/foo/rep:policyx/bar",
+                ExpectAces.Check.getAccessControlledPath("/foo/rep:policyx/bar/rep:policy"));
+        Assert.assertEquals("/", ExpectAces.Check.getAccessControlledPath("/rep:policy"));
+        Assert.assertEquals("", ExpectAces.Check.getAccessControlledPath("/rep:repoPolicy/allow"));
+    }
+
+    @Test
+    public void testCheck_cachedPolicies() throws Exception {
+        final ExpectAces.Check check = checkFor(obj()
+                .key(ExpectAces.keys().principal(), "nouser")
+                .key(ExpectAces.keys().expectedAces(), arr()
+                        .val("type=allow;path=/foo1;privileges=jcr:read")
+                        .val("type=allow;path=/foo1/bar;privileges=jcr:read")
+                        .val("type=allow;path=/foo2;privileges=jcr:read"))
+                .get());
+        final PackageId fooId = PackageId.fromString("foo");
+        final Principal principal = new PrincipalImpl("nouser");
+        new OakMachine.Builder().build().adminInitAndInspect(session -> {
+            final JackrabbitAccessControlManager accessControlManager =
+                    (JackrabbitAccessControlManager) session.getAccessControlManager();
+            final Privilege jcrRead = accessControlManager.privilegeFromName("jcr:read");
+            final Node foo1 = session.getRootNode().addNode("foo1", resolver.getJCRName(NameConstants.NT_FOLDER));
+            foo1.addNode("bar", resolver.getJCRName(NameConstants.NT_FOLDER));
+            session.getRootNode().addNode("foo2", resolver.getJCRName(NameConstants.NT_FOLDER));
+            session.save();
+
+            check.startedScan();
+            check.afterExtract(fooId, session);
+            Assert.assertEquals("expect cached paths", new HashSet<>(Arrays.asList("/foo1", "/foo1/bar", "/foo2")),
+                    check.policiesByPath.keySet());
+            for (String path : new String[]{"/foo1", "/foo1/bar", "/foo2"}) {
+                for (AccessControlPolicyIterator policyIt = accessControlManager.getApplicablePolicies(path);
+                     policyIt.hasNext(); ) {
+                    AccessControlPolicy policy = policyIt.nextAccessControlPolicy();
+                    if (policy instanceof JackrabbitAccessControlList) {
+                        JackrabbitAccessControlList acl = (JackrabbitAccessControlList) policy;
+                        acl.addEntry(principal, new Privilege[]{jcrRead}, true);
+                        accessControlManager.setPolicy(path, acl);
+                    }
+                }
+            }
+            session.save();
+
+            check.importedPath(fooId, "/foo1/rep:policy", null, PathAction.ADDED);
+            Assert.assertEquals("expect foo1 and descendants invalidated", Collections.singleton("/foo2"),
+                    check.policiesByPath.keySet());
+            check.afterExtract(fooId, session);
+            check.deletedPath(fooId, "/content", session);
+            Assert.assertEquals("expect unrelated path has no effect", 3, check.policiesByPath.size());
+            check.setSilenced(true);
+            check.afterExtract(fooId, session);
+            check.setSilenced(false);
+            Assert.assertTrue("expect silenced clears cache", check.policiesByPath.isEmpty());
+            check.finishedScan();
+        });
+
+        Assert.assertEquals("expected violation count", 1, check.getReportedViolations().size());
+        Assert.assertTrue("expected stale foo2 violation",
+                check.getReportedViolations().iterator().next().getDescription().contains("/foo2"));
+    }
+
+    @Test
+    public void testCheck_cachedPoliciesAcrossSessionWrappers() throws Exception {
+        final ExpectAces.Check check = checkFor(obj()
+                .key(ExpectAces.keys().principal(), "nouser")
+                .key(ExpectAces.keys().expectedAces(), arr().val("type=allow;path=/foo1;privileges=jcr:read"))
+                .get());
+        final PackageId fooId = PackageId.fromString("foo");
+        final JackrabbitAccessControlManager accessControlManager = mock(JackrabbitAccessControlManager.class);
+        when(accessControlManager.getPolicies("/foo1")).thenReturn(new AccessControlPolicy[0]);
+        final Session session = mock(Session.class);
+        when(session.getAccessControlManager()).thenReturn(accessControlManager);
+        when(session.nodeExists("/foo1")).thenReturn(true);
+
+        check.startedScan();
+        check.afterExtract(fooId, Util.wrapSessionReadOnly(session));
+        check.afterExtract(fooId, Util.wrapSessionReadOnly(session));
+        verify(accessControlManager, times(1)).getPolicies("/foo1");
+    }
+}
@@ -21,10 +21,12 @@ import net.adamcin.oakpal.api.Fun;
 import net.adamcin.oakpal.api.Rule;
 import net.adamcin.oakpal.api.RuleType;
 import net.adamcin.oakpal.api.Severity;
+import net.adamcin.oakpal.api.SimpleProgressCheck;
 import net.adamcin.oakpal.api.SlingInstallable;
 import net.adamcin.oakpal.api.Violation;
 import net.adamcin.oakpal.core.OakMachine;
 import net.adamcin.oakpal.core.OakpalPlan;
+import net.adamcin.oakpal.testing.TestPackageUtil;
 import org.apache.jackrabbit.api.JackrabbitWorkspace;
 import org.apache.jackrabbit.api.security.JackrabbitAccessControlList;
 import org.apache.jackrabbit.api.security.JackrabbitAccessControlManager;
@@ -32,7 +34,12 @@ import org.apache.jackrabbit.api.security.authorization.PrivilegeManager;
 import org.apache.jackrabbit.commons.JcrUtils;
 import org.apache.jackrabbit.oak.spi.security.principal.PrincipalImpl;
 import org.apache.jackrabbit.spi.commons.name.NameConstants;
+import org.apache.jackrabbit.vault.fs.config.MetaInf;
+import org.apache.jackrabbit.vault.fs.io.Archive;
+import org.apache.jackrabbit.vault.fs.io.ZipArchive;
 import org.apache.jackrabbit.vault.packaging.PackageId;
+import org.apache.jackrabbit.vault.packaging.PackageProperties;
+import org.apache.jackrabbit.vault.packaging.VaultPackage;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -42,7 +49,10 @@ import javax.jcr.security.AccessControlPolicy;
 import javax.jcr.security.AccessControlPolicyIterator;
 import javax.jcr.security.Privilege;
 import javax.json.JsonObject;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -52,6 +62,8 @@ import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static net.adamcin.oakpal.api.JavaxJson.arr;
 import static net.adamcin.oakpal.api.JavaxJson.key;
@@ -60,6 +72,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ExpectPathsTest {
@@ -501,4 +515,144 @@ public class ExpectPathsTest {
 
     }
 
-}
\ No newline at end of file
+
+    @Test
+    public void testPathExistence() throws Exception {
+        final ExpectPaths.PathExistence existence = new ExpectPaths.PathExistence(
+                Arrays.asList("/foo/bar", "/foo", "/foo/bar/jcr:title", "/foo-sibling", "/foo0", "/foo/bar"));
+        assertEquals("expect descendants of /foo", 2,
+                existence.getDescendantRange("/foo")[1] - existence.getDescendantRange("/foo")[0]);
+        assertEquals("expect descendants of /", 5,
+                existence.getDescendantRange("/")[1] - existence.getDescendantRange("/")[0]);
+        assertEquals("expect no descendants of /foo/bar/jcr:title", 0,
+                existence.getDescendantRange("/foo/bar/jcr:title")[1]
+                        - existence.getDescendantRange("/foo/bar/jcr:title")[0]);
+
+        final Session session = mock(Session.class);
+        when(session.itemExists("/foo/bar/jcr:title")).thenReturn(true);
+        existence.imported("/foo/bar");
+        assertTrue("/foo is known", existence.isKnown("/foo"));
+        assertTrue("/foo/bar is known", existence.isKnown("/foo/bar"));
+        assertFalse("/foo/bar/jcr:title is not known", existence.isKnown("/foo/bar/jcr:title"));
+        assertFalse("/foo-sibling is not known", existence.isKnown("/foo-sibling"));
+        assertTrue("/foo exists", existence.itemExists(session, "/foo"));
+        assertTrue("/foo/bar/jcr:title exists", existence.itemExists(session, "/foo/bar/jcr:title"));
+        assertTrue("/foo/bar/jcr:title is known", existence.isKnown("/foo/bar/jcr:title"));
+        verify(session, times(1)).itemExists("/foo/bar/jcr:title");
+        verify(session, times(0)).itemExists("/foo");
+
+        existence.deleted("/foo");
+        assertFalse("/foo does not exist", existence.itemExists(session, "/foo"));
+        assertFalse("/foo/bar does not exist", existence.itemExists(session, "/foo/bar"));
+        assertFalse("/foo/bar/jcr:title does not exist", existence.itemExists(session, "/foo/bar/jcr:title"));
+        assertFalse("/foo0 is not known", existence.isKnown("/foo0"));
+        verify(session, times(1)).itemExists("/foo/bar/jcr:title");
+
+        existence.imported("/foo");
+        assertTrue("/foo exists", existence.itemExists(session, "/foo"));
+        assertFalse("/foo/bar is not known", existence.isKnown("/foo/bar"));
+        existence.forgetAll();
+        assertFalse("/foo is not known", existence.isKnown("/foo"));
+        assertFalse("untracked path is never known", existence.isKnown("/untracked"));
+        existence.itemExists(session, "/untracked");
+        existence.itemExists(session, "/untracked");
+        verify(session, times(2)).itemExists("/untracked");
+    }
+
+    @Test
+    public void testTrackedExistence() throws Exception {
+        final String foo1 = "/foo1";
+        final String foo2 = "/foo2";
+        final PackageId pid = PackageId.fromString("some");
+        final Session session = mock(Session.class);
+        when(session.itemExists(foo1)).thenReturn(true);
+        when(session.itemExists(foo2)).thenReturn(false);
+
+        final ExpectPaths.Check check = checkFor(obj()
+                .key(ExpectPaths.keys().expectedPaths(), arr(foo1))
+                .key(ExpectPaths.keys().notExpectedPaths(), arr(foo2))
+                .get());
+        check.startedScan();
+        check.afterExtract(pid, session);
+        check.afterExtract(pid, session);
+        verify(session, times(1)).itemExists(foo1);
+        verify(session, times(1)).itemExists(foo2);
+
+        check.deletedPath(pid, foo1, session);
+        check.importedPath(pid, foo2, null, null);
+        check.afterExtract(pid, session);
+        verify(session, times(1)).itemExists(foo1);
+        verify(session, times(1)).itemExists(foo2);
+        check.finishedScan();
+        assertEquals("expect 2 violations", 2, check.getReportedViolations().size());
+
+        check.startedScan();
+        check.afterExtract(pid, session);
+        verify(session, times(2)).itemExists(foo1);
+        check.beforeSlingInstall(pid, mock(SlingInstallable.class), session);
+        check.afterExtract(pid, session);
+        verify(session, times(3)).itemExists(foo1);
+        check.beforeExtract(pid, session, null, null, Collections.emptyList());
+        check.afterExtract(pid, session);
+        verify(session, times(4)).itemExists(foo1);
+        check.finishedScan();
+        assertTrue("expect no violations", check.getReportedViolations().isEmpty());
+    }
+
+    @Test
+    public void testInstallHooks() throws Exception {
+        final File testOutput = new File("target/test-output/ExpectPathsTest/testInstallHooks");
+        testOutput.mkdirs();
+        final File withoutHooks = new File(testOutput, "without-hooks.zip");
+        final File withHooks = new File(testOutput, "with-hooks.zip");
+        try (ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(withoutHooks))) {
+            zipOut.putNextEntry(new ZipEntry("META-INF/vault/hooks/readme.txt"));
+            zipOut.closeEntry();
+        }
+        try (ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(withHooks))) {
+            zipOut.putNextEntry(new ZipEntry("META-INF/vault/hooks/hook.jar"));
+            zipOut.closeEntry();
+        }
+        try (Archive archiveWithout = new ZipArchive(withoutHooks);
+             Archive archiveWith = new ZipArchive(withHooks)) {
+            archiveWithout.open(false);
+            archiveWith.open(false);
+            assertFalse("without hooks", ExpectPaths.Check.hasInstallHookJars(archiveWithout));
+            assertTrue("with hooks", ExpectPaths.Check.hasInstallHookJars(archiveWith));
+            assertTrue("no archive", ExpectPaths.Check.hasInstallHookJars(null));
+
+            final VaultPackage packageWithout = mock(VaultPackage.class);
+            when(packageWithout.getExternalHooks()).thenReturn(Collections.emptyMap());
+            when(packageWithout.getArchive()).thenReturn(archiveWithout);
+            final VaultPackage packageWith = mock(VaultPackage.class);
+            when(packageWith.getExternalHooks()).thenReturn(Collections.emptyMap());
+            when(packageWith.getArchive()).thenReturn(archiveWith);
+            final VaultPackage packageClosed = mock(VaultPackage.class);
+            when(packageClosed.getExternalHooks()).thenReturn(Collections.emptyMap());
+            when(packageClosed.getArchive()).thenThrow(new IllegalStateException("closed"));
+            final PackageProperties externalHooks = mock(PackageProperties.class);
+            when(externalHooks.getExternalHooks()).thenReturn(Collections.singletonMap("hook", "com.example.Hook"));
+            final PackageProperties noArchive = mock(PackageProperties.class);
+            when(noArchive.getExternalHooks()).thenReturn(Collections.emptyMap());
+
+            assertFalse("without hooks", ExpectPaths.Check.mayRunInstallHooks(packageWithout));
+            assertTrue("with hooks", ExpectPaths.Check.mayRunInstallHooks(packageWith));
+            assertTrue("closed package", ExpectPaths.Check.mayRunInstallHooks(packageClosed));
+            assertTrue("with external hooks", ExpectPaths.Check.mayRunInstallHooks(externalHooks));
+            assertTrue("properties without archive", ExpectPaths.Check.mayRunInstallHooks(noArchive));
+            assertTrue("null properties", ExpectPaths.Check.mayRunInstallHooks(null));
+        }
+
+        final List<Boolean> mayRunHooks = new ArrayList<>();
+        new OakMachine.Builder().withProgressCheck(new SimpleProgressCheck() {
+            @Override
+            public void beforeExtract(final PackageId packageId, final Session inspectSession,
+                                      final PackageProperties packageProperties, final MetaInf metaInf,
+                                      final List<PackageId> subpackages) {
+                mayRunHooks.add(ExpectPaths.Check.mayRunInstallHooks(packageProperties));
+            }
+        }).build().scanPackage(TestPackageUtil.prepareTestPackage("tmp_foo_bar.zip"));
+        assertEquals("expect hooks detected from the opened package archive",
+                Collections.singletonList(false), mayRunHooks);
+    }
+}
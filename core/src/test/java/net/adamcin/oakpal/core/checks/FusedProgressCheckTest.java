@@ -0,0 +1,158 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.core.checks;
+
+import net.adamcin.oakpal.api.ProgressCheck;
+import net.adamcin.oakpal.core.CheckReport;
+import net.adamcin.oakpal.core.Locator;
+import net.adamcin.oakpal.core.OakMachine;
+import net.adamcin.oakpal.testing.TestPackageUtil;
+import org.apache.jackrabbit.vault.packaging.PackageId;
+import org.junit.Test;
+
+import javax.jcr.Node;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static net.adamcin.oakpal.api.JavaxJson.arr;
+import static net.adamcin.oakpal.api.JavaxJson.key;
+import static net.adamcin.oakpal.api.JavaxJson.obj;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class FusedProgressCheckTest {
+
+    static List<ProgressCheck> newChecks() {
+        return Arrays.asList(
+                Locator.wrapWithAlias(new Paths().newInstance(obj()
+                        .key("rules", arr(key("type", "deny").key("pattern", "/etc(/.*)?")))
+                        .get()), "paths-etc"),
+                Locator.wrapWithAlias(new Paths().newInstance(obj()
+                        .key("rules", arr(key("type", "deny").key("glob", "/apps/**")))
+                        .key("severity", "MINOR")
+                        .get()), "paths-apps"),
+                new Echo(),
+                Locator.wrapWithAlias(new Paths().newInstance(obj()
+                        .key("rules", arr(key("type", "deny").key("pattern", "/etc(/.*)?")))
+                        .key("denyAllDeletes", true)
+                        .get()), "paths-etc-again"),
+                Locator.wrapWithAlias(new JcrProperties().newInstance(obj()
+                        .key("properties", arr(key("name", "jcr:title").key("denyIfPresent", true)))
+                        .get()), "props-title"),
+                Locator.wrapWithAlias(new JcrProperties().newInstance(obj()
+                        .key("scopePaths", arr(key("type", "allow").key("prefix", "/apps/acme")))
+                        .key("properties", arr(key("name", "singleString").key("denyIfMultivalued", true)))
+                        .get()), "props-acme"),
+                Locator.wrapWithAlias(new JcrProperties().newInstance(obj()
+                        .key("denyNodeTypes", arr("nt:folder"))
+                        .get()), "props-folders"),
+                Locator.wrapWithAlias(new Subpackages().newInstance(obj()
+                        .key("rules", arr(key("type", "deny").key("pattern", "my_packages:sub_a.*")))
+                        .get()), "subpackages-a"),
+                new Subpackages().newInstance(obj().key("denyAll", true).get()));
+    }
+
+    static Map<String, List<String>> scan(final List<ProgressCheck> checks, final List<File> artifacts)
+            throws Exception {
+        final Map<String, List<String>> violations = new TreeMap<>();
+        for (CheckReport report : new OakMachine.Builder().withProgressChecks(checks).build()
+                .scanPackages(artifacts)) {
+            violations.put(report.getCheckName(), report.getViolations().stream()
+                    .map(violation -> violation.getSeverity() + " " + violation.getDescription() + " "
+                            + violation.getPackages())
+                    .collect(Collectors.toList()));
+        }
+        return violations;
+    }
+
+    @Test
+    public void testFusedScanEquivalence() throws Exception {
+        final List<File> artifacts = Arrays.asList(
+                TestPackageUtil.prepareTestPackage("test-package-with-etc.zip"),
+                TestPackageUtil.prepareTestPackage("subtest_with_content.zip"),
+                TestPackageUtil.prepareTestPackageFromFolder("playground.zip",
+                        new File("src/test/resources/jcr_prop_constraints_playground")));
+
+        final List<ProgressCheck> fusedChecks = Locator.fuseCompatibleChecks(newChecks());
+        assertEquals("expect fused check followed by echo", 2, fusedChecks.size());
+        assertTrue("expect fused check first", fusedChecks.get(0) instanceof FusedProgressCheck);
+        assertEquals("expect 8 reporters", 8, ((FusedProgressCheck) fusedChecks.get(0)).getReporters().size());
+
+        final Map<String, List<String>> expected = scan(newChecks(), artifacts);
+        final Map<String, List<String>> actual = scan(fusedChecks, artifacts);
+        assertEquals("expect same violations for each check", expected, actual);
+        for (String checkName : Arrays.asList("paths-etc", "paths-apps", "paths-etc-again", "props-title",
+                "props-acme", "props-folders", "subpackages-a")) {
+            assertFalse("expect violations for " + checkName, actual.get(checkName).isEmpty());
+        }
+    }
+
+    @Test
+    public void testIsFusable() {
+        assertTrue("paths", FusedProgressCheck.isFusable(new Paths().newInstance(obj().get())));
+        assertTrue("jcrProperties", FusedProgressCheck.isFusable(new JcrProperties().newInstance(obj().get())));
+        assertTrue("subpackages", FusedProgressCheck.isFusable(new Subpackages().newInstance(obj().get())));
+        assertFalse("echo", FusedProgressCheck.isFusable(new Echo()));
+        assertFalse("alias", FusedProgressCheck.isFusable(
+                Locator.wrapWithAlias(new Paths().newInstance(obj().get()), "alias")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFuse_notFusable() {
+        final ProgressCheck echo = new Echo();
+        FusedProgressCheck.fuse(Arrays.asList(echo), Arrays.asList(echo));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFuse_sizeMismatch() {
+        final ProgressCheck paths = new Paths().newInstance(obj().get());
+        FusedProgressCheck.fuse(Arrays.asList(paths, paths), Arrays.asList(paths));
+    }
+
+    @Test
+    public void testImportedPath_errorDoesNotStopOtherChecks() throws Exception {
+        final ProgressCheck props = new JcrProperties().newInstance(obj().get());
+        final ProgressCheck paths = new Paths().newInstance(obj()
+                .key("rules", arr(key("type", "deny").key("pattern", ".*")))
+                .get());
+        final ProgressCheck props2 = new JcrProperties().newInstance(obj().get());
+        final FusedProgressCheck fused = FusedProgressCheck.fuse(Arrays.asList(props, paths, props2),
+                Arrays.asList(props, paths, props2));
+        assertEquals("reporters", 3, fused.getReporters().size());
+        fused.startedScan();
+        FusedProgressCheck.FusedCheckException error = null;
+        try {
+            // no workspace filter has been provided by beforeExtract
+            fused.importedPath(PackageId.fromString("test"), "/foo", mock(Node.class), null);
+        } catch (final FusedProgressCheck.FusedCheckException e) {
+            error = e;
+        }
+        assertTrue("expect error", error != null);
+        assertEquals("expect an error for each failed check", Arrays.asList(props, props2),
+                error.getErrors().stream().map(Map.Entry::getKey).collect(Collectors.toList()));
+        assertTrue("expect original errors", error.getErrors().stream()
+                .allMatch(entry -> entry.getValue() instanceof NullPointerException));
+        assertEquals("expect paths violation", 1, paths.getReportedViolations().size());
+        assertEquals("expect fused violations", 1, fused.getReportedViolations().size());
+    }
+}
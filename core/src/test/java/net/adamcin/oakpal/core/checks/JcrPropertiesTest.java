@@ -23,10 +23,18 @@ import net.adamcin.oakpal.api.Severity;
 import net.adamcin.oakpal.core.CheckReport;
 import net.adamcin.oakpal.testing.TestPackageUtil;
 import net.adamcin.oakpal.testing.TestUtil;
+import org.apache.jackrabbit.JcrConstants;
+import org.apache.jackrabbit.vault.fs.config.MetaInf;
+import org.apache.jackrabbit.vault.packaging.PackageId;
 import org.junit.Assert;
 import org.junit.Test;
 
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
 import java.io.File;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.ResourceBundle;
 import java.util.regex.Pattern;
@@ -35,8 +43,15 @@ import static java.util.Collections.emptyList;
 import static net.adamcin.oakpal.api.JavaxJson.arr;
 import static net.adamcin.oakpal.api.JavaxJson.key;
 import static net.adamcin.oakpal.api.JavaxJson.obj;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class JcrPropertiesTest extends ProgressCheckTestBase {
 
@@ -288,4 +303,71 @@ public class JcrPropertiesTest extends ProgressCheckTestBase {
         assertSame("same key returned from constraints when not in bundle",
                 milliString, constraints.getString(milliString));
     }
+
+    static Node mockNode(final String primaryType, final String... mixinTypes) throws RepositoryException {
+        final Node node = mock(Node.class);
+        final Property primaryTypeProperty = mock(Property.class);
+        when(primaryTypeProperty.getString()).thenReturn(primaryType);
+        when(node.getProperty(JcrConstants.JCR_PRIMARYTYPE)).thenReturn(primaryTypeProperty);
+        if (mixinTypes.length > 0) {
+            final Value[] values = new Value[mixinTypes.length];
+            for (int i = 0; i < mixinTypes.length; i++) {
+                values[i] = mock(Value.class);
+                when(values[i].getString()).thenReturn(mixinTypes[i]);
+            }
+            final Property mixinTypesProperty = mock(Property.class);
+            when(mixinTypesProperty.getValues()).thenReturn(values);
+            when(node.hasProperty(JcrConstants.JCR_MIXINTYPES)).thenReturn(true);
+            when(node.getProperty(JcrConstants.JCR_MIXINTYPES)).thenReturn(mixinTypesProperty);
+        }
+        return node;
+    }
+
+    @Test
+    public void testGetNodeTypesKey() throws Exception {
+        assertEquals("primary only", Collections.singletonList("nt:folder"),
+                JcrProperties.Check.getNodeTypesKey(mockNode("nt:folder")));
+        assertEquals("sorted mixins", Arrays.asList("nt:unstructured", "mix:referenceable", "mix:title"),
+                JcrProperties.Check.getNodeTypesKey(mockNode("nt:unstructured", "mix:title", "mix:referenceable")));
+    }
+
+    @Test
+    public void testNodeTypeDecisionCache() throws Exception {
+        final JcrPropertyConstraints constraints = new JcrPropertyConstraints("prop", false,
+                false, false, null, emptyList(), Severity.MAJOR,
+                new JcrProperties.ResourceBundleHolder()::getResourceBundle);
+        final JcrProperties.Check check = new JcrProperties.Check(emptyList(),
+                Collections.singletonList("sling:OsgiConfig"), Collections.singletonList("mix:title"),
+                Collections.singletonList(constraints), new JcrProperties.ResourceBundleHolder());
+
+        final Node titled = mockNode("nt:unstructured", "mix:title", "mix:referenceable");
+        when(titled.isNodeType("mix:title")).thenReturn(true);
+        final Node titledReordered = mockNode("nt:unstructured", "mix:referenceable", "mix:title");
+        final Node untitled = mockNode("nt:unstructured");
+        final Node config = mockNode("sling:OsgiConfig");
+        when(config.isNodeType("sling:OsgiConfig")).thenReturn(true);
+
+        final JcrProperties.NodeTypeDecision titledDecision = check.getDecision(titled);
+        assertNull("titled is not denied", titledDecision.getDeniedNodeType());
+        assertEquals("titled is in scope", Collections.singletonList(constraints),
+                titledDecision.getApplicableConstraints());
+        assertSame("same decision for reordered mixins", titledDecision, check.getDecision(titledReordered));
+        verify(titledReordered, times(0)).isNodeType(anyString());
+        assertTrue("untitled is out of scope", check.getDecision(untitled).getApplicableConstraints().isEmpty());
+        assertEquals("config is denied", "sling:OsgiConfig", check.getDecision(config).getDeniedNodeType());
+        assertTrue("config has no constraints", check.getDecision(config).getApplicableConstraints().isEmpty());
+        verify(config, times(1)).isNodeType("sling:OsgiConfig");
+        assertEquals("expect 3 decisions", 3, check.getCachedDecisionCount());
+
+        final MetaInf metaInf = mock(MetaInf.class);
+        check.beforeExtract(PackageId.fromString("test"), null, null, metaInf, emptyList());
+        assertEquals("expect no decisions after beforeExtract", 0, check.getCachedDecisionCount());
+        check.getDecision(config);
+        verify(config, times(2)).isNodeType("sling:OsgiConfig");
+        check.appliedRepoInitScripts(PackageId.fromString("test"), emptyList(), null, null);
+        assertEquals("expect no decisions after repoinit", 0, check.getCachedDecisionCount());
+        check.getDecision(config);
+        check.startedScan();
+        assertEquals("expect no decisions after startedScan", 0, check.getCachedDecisionCount());
+    }
 }
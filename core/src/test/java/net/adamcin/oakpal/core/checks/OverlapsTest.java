@@ -17,13 +17,25 @@
 package net.adamcin.oakpal.core.checks;
 
 import net.adamcin.oakpal.api.ProgressCheck;
+import net.adamcin.oakpal.api.UnsubscribingCheck.PathSubscription;
 import net.adamcin.oakpal.core.CheckReport;
 import net.adamcin.oakpal.testing.TestUtil;
+import org.apache.jackrabbit.vault.fs.api.PathFilterSet;
+import org.apache.jackrabbit.vault.fs.config.DefaultWorkspaceFilter;
+import org.apache.jackrabbit.vault.fs.config.MetaInf;
+import org.apache.jackrabbit.vault.packaging.PackageId;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
 import static net.adamcin.oakpal.api.JavaxJson.obj;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class OverlapsTest extends ProgressCheckTestBase {
     @Test
@@ -61,4 +73,67 @@ public class OverlapsTest extends ProgressCheckTestBase {
                     .allMatch(viol -> !viol.getPackages().isEmpty()));
         });
     }
+
+    @Test
+    public void testFilterRootIndex() {
+        final PackageId rootPackage = PackageId.fromString("my_packages:root:1.0");
+        final PackageId appsPackage = PackageId.fromString("my_packages:apps:1.0");
+        final PackageId fooPackage = PackageId.fromString("my_packages:foo:1.0");
+        final Overlaps.FilterRootIndex index = new Overlaps.FilterRootIndex();
+        index.add("/", rootPackage);
+        index.add("/apps", appsPackage);
+        index.add("/apps/foo", fooPackage);
+        index.add("/apps/foo/", appsPackage);
+
+        assertEquals("root covers root", Collections.singleton(rootPackage), index.findCovering("/"));
+        assertEquals("apps covers apps", new LinkedHashSet<>(Arrays.asList(rootPackage, appsPackage)),
+                index.findCovering("/apps"));
+        assertEquals("foo covers foo descendant",
+                new LinkedHashSet<>(Arrays.asList(rootPackage, appsPackage, fooPackage)),
+                index.findCovering("/apps/foo/bar"));
+        assertEquals("foo does not cover sibling prefix", new LinkedHashSet<>(Arrays.asList(rootPackage, appsPackage)),
+                index.findCovering("/apps/foobar"));
+        assertEquals("only root covers content", Collections.singleton(rootPackage), index.findCovering("/content"));
+        index.clear();
+        assertTrue("cleared", index.findCovering("/apps/foo").isEmpty());
+    }
+
+    static MetaInf metaInfWithFilter(final String root) {
+        final DefaultWorkspaceFilter filter = new DefaultWorkspaceFilter();
+        filter.add(new PathFilterSet(root));
+        final MetaInf metaInf = mock(MetaInf.class);
+        when(metaInf.getFilter()).thenReturn(filter);
+        return metaInf;
+    }
+
+    @Test
+    public void testPathSubscription() throws Exception {
+        final PackageId fooPackage = PackageId.fromString("my_packages:tmp_foo:1.0");
+        final PackageId barPackage = PackageId.fromString("my_packages:tmp_foo_bar:1.0");
+        final Overlaps.Check check = new Overlaps.Check(false);
+        assertEquals("subscribed before scan", PathSubscription.SUBSCRIBED, check.getPathSubscription());
+        check.startedScan();
+        check.beforeExtract(fooPackage, null, null, metaInfWithFilter("/tmp/foo"), Collections.emptyList());
+        assertEquals("first package needs no path events", PathSubscription.UNSUBSCRIBED_FOR_PACKAGE,
+                check.getPathSubscription());
+        check.beforeExtract(barPackage, null, null, metaInfWithFilter("/tmp/foo/bar"), Collections.emptyList());
+        assertEquals("second package needs path events", PathSubscription.SUBSCRIBED, check.getPathSubscription());
+        check.importedPath(barPackage, "/tmp/foo/bar", null, null);
+        assertEquals("still subscribed after minor violation", PathSubscription.SUBSCRIBED,
+                check.getPathSubscription());
+        check.deletedPath(barPackage, "/tmp/foo/bar/baz", null);
+        assertEquals("unsubscribed after major violation", PathSubscription.UNSUBSCRIBED_FOR_PACKAGE,
+                check.getPathSubscription());
+        assertEquals("two violations", 2, check.getReportedViolations().size());
+        check.startedScan();
+        assertEquals("subscribed after restart", PathSubscription.SUBSCRIBED, check.getPathSubscription());
+
+        final Overlaps.Check reportAll = new Overlaps.Check(true);
+        reportAll.startedScan();
+        reportAll.beforeExtract(fooPackage, null, null, metaInfWithFilter("/tmp/foo"), Collections.emptyList());
+        reportAll.beforeExtract(barPackage, null, null, metaInfWithFilter("/tmp/foo/bar"), Collections.emptyList());
+        reportAll.deletedPath(barPackage, "/tmp/foo/bar/baz", null);
+        assertEquals("subscribed when reporting all overlaps", PathSubscription.SUBSCRIBED,
+                reportAll.getPathSubscription());
+    }
 }
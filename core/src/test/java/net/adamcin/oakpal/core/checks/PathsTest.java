@@ -19,6 +19,7 @@ package net.adamcin.oakpal.core.checks;
 import net.adamcin.oakpal.api.ProgressCheck;
 import net.adamcin.oakpal.api.Rule;
 import net.adamcin.oakpal.api.RuleType;
+import net.adamcin.oakpal.api.Rules;
 import net.adamcin.oakpal.api.Severity;
 import net.adamcin.oakpal.api.Violation;
 import net.adamcin.oakpal.core.CheckReport;
@@ -34,6 +35,7 @@ import java.util.regex.Pattern;
 import static java.util.Collections.singletonList;
 import static net.adamcin.oakpal.api.JavaxJson.arr;
 import static net.adamcin.oakpal.api.JavaxJson.key;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -126,6 +128,16 @@ public class PathsTest extends ProgressCheckTestBase {
                 deletesByRuleCheck.getReportedViolations().isEmpty());
     }
 
+    @Test
+    public void testDeletedPath_reportsRuleExpression() throws Exception {
+        final Paths.Check check = new Paths.Check(singletonList(Rules.prefix(RuleType.DENY, "/apps")),
+                false, Paths.DEFAULT_SEVERITY);
+        check.deletedPath(null, "/apps/foo", null);
+        assertEquals("expect prefix expression in description",
+                "deleted path /apps/foo matches deny rule /apps",
+                check.getReportedViolations().iterator().next().getDescription());
+    }
+
     @Test
     public void testDeletedPath_de() throws Exception {
         Paths.Check allDeletesCheck = new Paths.Check(Collections.emptyList(), true, Paths.DEFAULT_SEVERITY);
@@ -42,6 +42,7 @@ import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
+import java.util.stream.Stream;
 
 import static net.adamcin.oakpal.api.Fun.result1;
 import static net.adamcin.oakpal.core.opear.OpearFile.NAME_CLASS_PATH;
@@ -270,6 +271,133 @@ public class OpearFileTest {
         assertNotNull("checklist URL not null: " + printClassLoader(classLoader), embeddedChecklistUrl);
     }
 
+    @Test
+    public void testFromJar_atomicCacheAndEviction() throws Exception {
+        buildDeepTestJar();
+        final File cacheDir = new File("target/test-output/OpearFileTest/testFromJar_atomicCacheAndEviction/cache");
+        if (cacheDir.exists()) {
+            FileUtils.deleteDirectory(cacheDir);
+        }
+        final File lruDir = new File(cacheDir, "lru");
+        FileUtils.writeStringToFile(new File(lruDir, "content.txt"), "least recently used", StandardCharsets.UTF_8);
+        lruDir.setLastModified(System.currentTimeMillis() - 60000L);
+        final File abandonedDir = new File(cacheDir, OpearFile.CACHE_TEMP_PREFIX + "abandoned");
+        abandonedDir.mkdirs();
+        abandonedDir.setLastModified(System.currentTimeMillis() - OpearFile.CACHE_TEMP_MAX_AGE_MILLIS - 60000L);
+
+        final Result<OpearFile> opearResult = OpearFile.fromJar(new JarFile(deepTestTarget), cacheDir, 1L);
+        assertTrue("is successful", opearResult.isSuccess());
+        final String cacheKey = OpearFile.getHashCacheKey(deepTestTarget.getPath()).getOrDefault("");
+        assertTrue("expect cache dir in use is kept", new File(cacheDir, cacheKey).isDirectory());
+        assertFalse("expect lru dir is evicted", lruDir.exists());
+        assertFalse("expect abandoned temp dir is deleted", abandonedDir.exists());
+        assertArrayEquals("expect only the cache key dir", new String[]{cacheKey}, cacheDir.list());
+    }
+
+    @Test
+    public void testEvictCache_skipsLeasedDirs() throws Exception {
+        final File cacheDir = new File("target/test-output/OpearFileTest/testEvictCache_skipsLeasedDirs/cache");
+        if (cacheDir.exists()) {
+            FileUtils.deleteDirectory(cacheDir);
+        }
+        final File inUse = new File(cacheDir, "inUse");
+        final File leased = new File(cacheDir, "leased");
+        final File lruDir = new File(cacheDir, "lru");
+        for (File dir : Arrays.asList(inUse, leased, lruDir)) {
+            FileUtils.writeStringToFile(new File(dir, "content.txt"), dir.getName(), StandardCharsets.UTF_8);
+        }
+        inUse.setLastModified(System.currentTimeMillis());
+        leased.setLastModified(System.currentTimeMillis() - 60000L);
+        lruDir.setLastModified(System.currentTimeMillis() - 120000L);
+        assertTrue("expect lease", OpearFile.leaseCacheDir(leased));
+        assertTrue("expect lease file", new File(leased, OpearFile.CACHE_LEASE_FILE).isFile());
+        assertTrue("expect lease to be held", OpearFile.leaseCacheDir(leased));
+
+        OpearFile.evictCache(cacheDir, 1L, inUse);
+        assertTrue("expect dir in use is kept", inUse.isDirectory());
+        assertTrue("expect leased dir is kept", leased.isDirectory());
+        assertFalse("expect unleased lru dir is evicted", lruDir.exists());
+        assertArrayEquals("expect no evicted temp dir", new String[]{"inUse", "leased"},
+                Stream.of(cacheDir.list()).sorted().toArray(String[]::new));
+
+        OpearFile.releaseCacheDir(leased);
+        OpearFile.evictCache(cacheDir, 1L, inUse);
+        assertTrue("expect dir leased twice is kept after one release", leased.isDirectory());
+        OpearFile.releaseCacheDir(leased);
+        OpearFile.evictCache(cacheDir, 1L, inUse);
+        assertFalse("expect released dir is evicted", leased.exists());
+    }
+
+    @Test
+    public void testRelease() throws Exception {
+        buildDeepTestJar();
+        final File cacheDir = new File("target/test-output/OpearFileTest/testRelease/cache");
+        if (cacheDir.exists()) {
+            FileUtils.deleteDirectory(cacheDir);
+        }
+        final OpearFile opearFile = OpearFile.fromJar(new JarFile(deepTestTarget), cacheDir).getOrDefault(null);
+        assertNotNull("expect opear", opearFile);
+        final File inUse = new File(cacheDir, "inUse");
+        FileUtils.writeStringToFile(new File(inUse, "content.txt"), "inUse", StandardCharsets.UTF_8);
+        OpearFile.evictCache(cacheDir, 1L, inUse);
+        assertTrue("expect leased opear dir is kept", opearFile.cacheDir.isDirectory());
+        opearFile.release();
+        opearFile.release();
+        OpearFile.evictCache(cacheDir, 1L, inUse);
+        assertFalse("expect released opear dir is evicted", opearFile.cacheDir.exists());
+    }
+
+    @Test
+    public void testCacheJarAtomically_concurrentlyCached() throws Exception {
+        buildDeepTestJar();
+        final File cacheDir = new File(
+                "target/test-output/OpearFileTest/testCacheJarAtomically_concurrentlyCached/cache");
+        if (cacheDir.exists()) {
+            FileUtils.deleteDirectory(cacheDir);
+        }
+        final File winner = new File(cacheDir, "key/META-INF/MANIFEST.MF");
+        FileUtils.writeStringToFile(winner, "Manifest-Version: 1.0\n", StandardCharsets.UTF_8);
+        final Result<File> cached = OpearFile.cacheJarAtomically(new JarFile(deepTestTarget), cacheDir, "key");
+        assertEquals("expect the concurrently cached dir", new File(cacheDir, "key"), cached.getOrDefault(null));
+        assertArrayEquals("expect temp dir is deleted", new String[]{"key"}, cacheDir.list());
+        assertEquals("expect concurrently cached content is kept", "Manifest-Version: 1.0\n",
+                FileUtils.readFileToString(winner, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testFromJarInPlace() throws Exception {
+        final File inPlaceTarget = new File(testTarget, "folders_on_classpath.jar");
+        TestPackageUtil.buildJarFromDir(new File(baseDir, "folders_on_classpath"), inPlaceTarget,
+                Collections.emptyMap());
+        final Result<OpearFile> opearResult = OpearFile.fromJarInPlace(inPlaceTarget);
+        opearResult.throwCause(Exception.class);
+        final OpearFile opearFile = opearResult.getOrDefault(null);
+        assertNotNull("not null", opearFile);
+        assertArrayEquals("classpath should be", new String[]{"classes/", "test-classes/"},
+                opearFile.metadata.getPlanClassPath());
+
+        final URL planUrl = opearFile.getDefaultPlan();
+        assertEquals("expect jar url", "jar", planUrl.getProtocol());
+        assertTrue("expect plan url for plan.json: " + planUrl, planUrl.getPath().endsWith("!/plan.json"));
+        try (InputStream planStream = planUrl.openStream()) {
+            assertNotNull("expect plan content", planStream);
+        }
+        assertEquals("expect same plan url", planUrl, opearFile.getSpecificPlan("plan.json").getOrDefault(null));
+
+        final ClassLoader classLoader = opearFile.getPlanClassLoader(new URLClassLoader(new URL[0], null));
+        assertNotNull("expect script in classes", classLoader.getResource("script-in-classes.js"));
+        assertNotNull("expect script in test-classes", classLoader.getResource("script-in-test-classes.js"));
+    }
+
+    @Test
+    public void testFromJarInPlace_embeddedJar() throws Exception {
+        buildDeepTestJar();
+        assertTrue("expect failure for embedded jar on classpath",
+                OpearFile.fromJarInPlace(deepTestTarget).isFailure());
+        assertTrue("expect failure for non-jar",
+                OpearFile.fromJarInPlace(new File(baseDir, "deep_test_src/deep-plan.json")).isFailure());
+    }
+
     private String printClassLoader(final ClassLoader classLoader) {
         if (classLoader instanceof URLClassLoader) {
             return Arrays.toString(((URLClassLoader) classLoader).getURLs());
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.it;
+
+import net.adamcin.oakpal.api.PathAction;
+import net.adamcin.oakpal.api.ProgressCheck;
+import net.adamcin.oakpal.api.Violation;
+import net.adamcin.oakpal.core.OakpalPlan;
+import net.adamcin.oakpal.testing.PerfBaseline;
+import net.adamcin.oakpal.testing.PerfHarness;
+import net.adamcin.oakpal.testing.SyntheticPackage;
+import net.adamcin.oakpal.testing.TestPackageUtil;
+import org.apache.jackrabbit.vault.packaging.PackageId;
+import org.jetbrains.annotations.NotNull;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.jcr.Node;
+import javax.jcr.Session;
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measure scans of fixed packages under the basic plan and compare them to the checked-in
+ * {@code perf-baseline.properties}. Each measurement is also recorded to {@code target/perf/perf-baseline.properties}
+ * so that an intentional change in performance can be reviewed and copied over the checked-in baseline. The baseline
+ * is recorded on one machine, so this benchmark only runs in the {@code perf} profile, activated by
+ * {@code -Doakpal.perf=true}.
+ */
+public class ScanPerformanceIT {
+    static final File RECORD_FILE = new File("target/perf/perf-baseline.properties");
+    private static PerfBaseline baseline;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        baseline = PerfBaseline.fromResource(ScanPerformanceIT.class, "/perf-baseline.properties");
+    }
+
+    static final class PathCounter implements ProgressCheck {
+        private long count;
+
+        @Override
+        public void startedScan() {
+            count = 0L;
+        }
+
+        @Override
+        public void importedPath(final PackageId packageId, final String path, final Node node,
+                                 final PathAction action) {
+            count++;
+        }
+
+        @Override
+        public void deletedPath(final PackageId packageId, final String path, final Session inspectSession) {
+            count++;
+        }
+
+        @Override
+        public Collection<Violation> getReportedViolations() {
+            return Collections.emptyList();
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+
+    PerfHarness.Measurement measureBasicPlanScan(final @NotNull String name, final @NotNull File file)
+            throws Exception {
+        final OakpalPlan plan = OakpalPlan.fromJson(OakpalPlan.BASIC_PLAN_URL).getOrDefault(null);
+        final PerfHarness.Measurement measurement = PerfHarness.measure(name, 1, 3, () -> {
+            final PathCounter counter = new PathCounter();
+            plan.toOakMachineBuilder(null, getClass().getClassLoader())
+                    .withProgressCheck(counter)
+                    .build().scanPackage(file);
+            return counter.getCount();
+        });
+        PerfBaseline.record(RECORD_FILE, measurement);
+        return measurement;
+    }
+
+    @Test
+    public void testCaliperBasicPlan() throws Exception {
+        final PerfHarness.Measurement measurement =
+                measureBasicPlanScan("caliper-basic", TestPackageUtil.getCaliperPackage());
+        assertTrue("expect paths", measurement.getPathCount() > 0);
+        baseline.assertNoRegressions(measurement);
+    }
+
+    @Test
+    public void testSynthetic10kBasicPlan() throws Exception {
+        final File synthetic = TestPackageUtil.prepareSyntheticPackage(SyntheticPackage.builder()
+                .withPackageId("oakpal-synthetic", "synthetic-10k", "1.0")
+                .withNodeCount(10000).withDepth(4).withFanOut(10)
+                .withPropertyCount(5).withMultiValueSize(3)
+                .withBinaries(10, 10240)
+                .withAceCount(10)
+                .build());
+        final PerfHarness.Measurement measurement = measureBasicPlanScan("synthetic-10k-basic", synthetic);
+        assertTrue("expect at least 10k paths", measurement.getPathCount() >= 10000);
+        baseline.assertNoRegressions(measurement);
+    }
+}
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import net.adamcin.oakpal.api.Severity;
@@ -89,17 +90,37 @@ abstract class AbstractITestMojo extends AbstractCommonMojo {
     }
 
     protected void reactToReports(final @NotNull List<CheckReport> reports) throws MojoFailureException {
-        String errorMessage = String.format("** Violations were reported at or above severity: %s **", failOnSeverity);
+        final ReportReaction reaction = newReportReaction();
+        reports.forEach(reaction);
+        reaction.finish();
+    }
+
+    final ReportReaction newReportReaction() {
+        return new ReportReaction();
+    }
 
-        List<CheckReport> nonEmptyReports = reports.stream()
-                .filter(r -> !r.getViolations().isEmpty())
-                .collect(Collectors.toList());
-        boolean shouldFail = nonEmptyReports.stream().anyMatch(r -> !r.getViolations(failOnSeverity).isEmpty());
+    /**
+     * Logs each report as soon as it is accepted, and fails after the last report if any violation was reported at or
+     * above {@code failOnSeverity}, so that reports can be streamed from summary files without collecting them first.
+     */
+    final class ReportReaction implements Consumer<CheckReport> {
+        private boolean loggedHeader;
+        private boolean shouldFail;
 
-        if (!nonEmptyReports.isEmpty()) {
-            getLog().info("OakPAL Check Reports");
+        private ReportReaction() {
+            /* use newReportReaction() */
         }
-        for (CheckReport r : nonEmptyReports) {
+
+        @Override
+        public void accept(final CheckReport r) {
+            if (r.getViolations().isEmpty()) {
+                return;
+            }
+            if (!loggedHeader) {
+                getLog().info("OakPAL Check Reports");
+                loggedHeader = true;
+            }
+            shouldFail |= !r.getViolations(failOnSeverity).isEmpty();
             getLog().info(String.format("  %s", String.valueOf(r.getCheckName())));
             for (Violation v : r.getViolations()) {
                 Set<String> packageIds = v.getPackages().stream()
@@ -116,9 +137,13 @@ abstract class AbstractITestMojo extends AbstractCommonMojo {
             }
         }
 
-        if (shouldFail) {
-            getLog().error(errorMessage);
-            throw new MojoFailureException(errorMessage);
+        void finish() throws MojoFailureException {
+            if (shouldFail) {
+                String errorMessage = String.format("** Violations were reported at or above severity: %s **",
+                        failOnSeverity);
+                getLog().error(errorMessage);
+                throw new MojoFailureException(errorMessage);
+            }
         }
     }
 
@@ -21,25 +21,35 @@ import net.adamcin.oakpal.api.ProgressCheckFactory;
 import net.adamcin.oakpal.core.AbortedScanException;
 import net.adamcin.oakpal.core.CheckReport;
 import net.adamcin.oakpal.core.CheckSpec;
+import net.adamcin.oakpal.core.ChecklistPlanner;
 import net.adamcin.oakpal.core.DefaultErrorListener;
+import net.adamcin.oakpal.core.DiscoveryIndex;
 import net.adamcin.oakpal.core.FileBlobMemoryNodeStore;
 import net.adamcin.oakpal.core.ForcedRoot;
 import net.adamcin.oakpal.core.InstallHookPolicy;
 import net.adamcin.oakpal.core.JcrNs;
 import net.adamcin.oakpal.core.OakMachine;
+import net.adamcin.oakpal.core.OakpalPlan;
 import net.adamcin.oakpal.core.ReportMapper;
+import net.adamcin.oakpal.core.RepositoryBaseline;
 import net.adamcin.oakpal.maven.component.JsonConverter;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import javax.json.JsonObject;
 import java.io.File;
 import java.io.IOException;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import static net.adamcin.oakpal.api.JavaxJson.obj;
+
 /**
  * Base scan class defining scanner parameters.
  */
@@ -334,6 +344,78 @@ abstract class AbstractITestWithPlanMojo extends AbstractITestMojo implements Pl
     @Parameter(defaultValue = "${project.build.directory}/oakpal-plugin/blobs")
     protected String blobStorePath;
 
+    /**
+     * Set to true to stop the scan as soon as a violation at or above {@code failOnSeverity} is reported. No further
+     * packages are installed, and the plugin execution fails with the violations reported so far.
+     *
+     * @since 2.3.0
+     */
+    @Parameter(property = "failFast")
+    protected boolean failFast;
+
+    /**
+     * Specify a directory for the index of checklists and {@code Sling-Nodetypes} discovered on the scan class path.
+     * When the class path jars are unchanged since the last scan, the discovered checklists and node type definitions
+     * are read from the index instead of searching every jar manifest again. Set the same directory for multiple
+     * projects with similar class paths to share the index between them.
+     *
+     * @since 2.3.0
+     */
+    @Parameter(property = "oakpal.discoveryIndexDirectory",
+            defaultValue = "${project.build.directory}/oakpal-plugin/discovery")
+    protected File discoveryIndexDirectory;
+
+    /**
+     * Set to true to always search the scan class path for checklists and {@code Sling-Nodetypes}, ignoring
+     * {@code discoveryIndexDirectory}.
+     *
+     * @since 2.3.0
+     */
+    @Parameter(property = "oakpal.skipDiscoveryIndex")
+    protected boolean skipDiscoveryIndex;
+
+    /**
+     * Set to true to skip the scan when none of its inputs have changed since a previous scan, and evaluate the check
+     * reports of that scan instead. The inputs are the oakpal version, the effective plan, the content of the
+     * pre-install packages and repoinit files, the checklists on the scan class path with their CND files, the check
+     * scripts and the jars of the check classes, the scan options and the content of the scanned packages. The
+     * fingerprint of the inputs is written next to the {@code summaryFile}.
+     *
+     * @since 2.3.0
+     */
+    @Parameter(property = "oakpal.skipUnchangedScans")
+    protected boolean skipUnchangedScans;
+
+    /**
+     * Specify a directory to keep the summary reports of previous scans by fingerprint, which is checked when
+     * {@code skipUnchangedScans} is true and the {@code summaryFile} does not match. Set the same directory for
+     * multiple projects, or outside of the build directory, to reuse reports after a clean.
+     *
+     * @since 2.3.0
+     */
+    @Parameter(property = "oakpal.scanCacheDirectory")
+    protected File scanCacheDirectory;
+
+    /**
+     * Set to true to share the repository state after plan initialization between the modules of a build which scan
+     * with the same plan. The first module to scan with a plan initializes it as usual, which includes the node types,
+     * namespaces, privileges, forced roots and repoinit scripts of the plan and its checklists, and later modules
+     * start their scans from a copy of that state. Pre-install packages are still installed by every scan.
+     *
+     * @since 2.3.0
+     */
+    @Parameter(property = "oakpal.shareBaselines")
+    protected boolean shareBaselines;
+
+    /**
+     * Specify the maximum number of distinct plan baselines to keep in memory for the rest of the build when
+     * {@code shareBaselines} is true. The least recently used baseline is released first.
+     *
+     * @since 2.3.0
+     */
+    @Parameter(property = "oakpal.maxSharedBaselines", defaultValue = "2")
+    protected int maxSharedBaselines = 2;
+
     /**
      * Specify an inline repoinit script. This will be applied after all other state initialization parameters,
      * including {@code repoInitFiles}.
@@ -461,19 +543,29 @@ abstract class AbstractITestWithPlanMojo extends AbstractITestMojo implements Pl
         return runModes;
     }
 
+    @Override
+    public @Nullable DiscoveryIndex getDiscoveryIndex() {
+        if (skipDiscoveryIndex || discoveryIndexDirectory == null) {
+            return null;
+        }
+        return new DiscoveryIndex(discoveryIndexDirectory);
+    }
+
     protected void performScan(final @NotNull List<File> scanFiles) throws MojoFailureException {
-        List<CheckReport> reports;
+        final OakpalPlan plan = buildPlan();
+        final String fingerprint;
         try {
+            fingerprint = fingerprintScan(plan, scanFiles);
+        } catch (Exception e) {
+            throw new MojoFailureException("Failed to fingerprint scan inputs. " + e.getMessage(), e);
+        }
+        if (fingerprint != null && reuseUnchangedScan(fingerprint)) {
+            return;
+        }
 
-            final OakMachine.Builder machineBuilder = buildPlan().toOakMachineBuilder(new DefaultErrorListener(),
-                    Thread.currentThread().getContextClassLoader());
-            if (storeBlobs && blobStorePath != null && !blobStorePath.isEmpty()) {
-                machineBuilder.withNodeStoreSupplier(() -> new FileBlobMemoryNodeStore(blobStorePath));
-            }
-            if (silenceAllSubpackages) {
-                machineBuilder.withSubpackageSilencer((subpackageId, parentId) -> true);
-            }
-            final OakMachine machine = machineBuilder.build();
+        List<CheckReport> reports;
+        try {
+            final OakMachine machine = newOakMachineBuilder(plan, blobStorePath).build();
             reports = machine.scanPackages(scanFiles);
         } catch (AbortedScanException e) {
             String currentFilePath = e.getCurrentPackageFile()
@@ -483,13 +575,207 @@ abstract class AbstractITestWithPlanMojo extends AbstractITestMojo implements Pl
             throw new MojoFailureException("Failed to execute package scan. " + e.getMessage(), e);
         }
 
+        writeAndReactToReports(reports, fingerprint);
+    }
+
+    /**
+     * Compute the fingerprint of the scan inputs, if {@code skipUnchangedScans} is true.
+     *
+     * @param plan      the effective plan
+     * @param scanFiles the package files to scan
+     * @return the fingerprint, or null if {@code skipUnchangedScans} is false
+     * @throws Exception if an input can not be read
+     */
+    final @Nullable String fingerprintScan(final @NotNull OakpalPlan plan, final @NotNull List<File> scanFiles)
+            throws Exception {
+        if (!skipUnchangedScans) {
+            return null;
+        }
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        final DiscoveryIndex discoveryIndex = getDiscoveryIndex();
+        final Map<URL, List<JsonObject>> checklists = discoveryIndex != null
+                ? discoveryIndex.parseChecklists(classLoader)
+                : ChecklistPlanner.parseChecklists(classLoader);
+        final JsonObject scanOptions = obj()
+                .key("silenceAllSubpackages", silenceAllSubpackages)
+                .key("failFast").opt(failFast ? failOnSeverity : null)
+                .get();
+        return ScanFingerprint.compute(getClass().getName(), plan, checklists, classLoader, scanOptions,
+                scanFiles);
+    }
+
+    /**
+     * Evaluate the reports of a previous scan with the same fingerprint, if one is found.
+     *
+     * @param fingerprint the fingerprint of the scan inputs
+     * @return true if the reports of a previous scan were evaluated, and the scan should be skipped
+     * @throws MojoFailureException if the reports fail the build
+     */
+    final boolean reuseUnchangedScan(final @NotNull String fingerprint) throws MojoFailureException {
+        if (!ScanFingerprint.restoreSummary(fingerprint, summaryFile, scanCacheDirectory)) {
+            return false;
+        }
+        final List<CheckReport> reports;
+        try {
+            reports = ReportMapper.readReportsFromFile(summaryFile);
+        } catch (final Exception e) {
+            getLog().debug("Failed to read previous check report summary. Scanning again.", e);
+            return false;
+        }
+        getLog().info("Scan inputs are unchanged. Reusing check report summary " + summaryFile.getPath());
+        reactToReportsUnlessDeferred(reports);
+        return true;
+    }
+
+    /**
+     * Create a new machine builder for the plan, configured with the scanner parameters of this mojo.
+     *
+     * @param plan          the plan
+     * @param blobStorePath the blob store path to use if {@code storeBlobs} is true
+     * @return a new machine builder
+     * @throws Exception if the plan fails to load its checks
+     */
+    final OakMachine.Builder newOakMachineBuilder(final @NotNull OakpalPlan plan,
+                                                  final @Nullable String blobStorePath) throws Exception {
+        final OakMachine.Builder machineBuilder = plan.toOakMachineBuilder(new DefaultErrorListener(),
+                Thread.currentThread().getContextClassLoader(), getDiscoveryIndex());
+        return configureOakMachineBuilder(machineBuilder, blobStorePath, getSharedBaseline(plan, machineBuilder));
+    }
+
+    /**
+     * Create a new machine builder for the plan, configured with the scanner parameters of this mojo, starting each
+     * scan from the specified baseline.
+     *
+     * @param plan          the plan
+     * @param blobStorePath the blob store path to use if {@code storeBlobs} is true
+     * @param baseline      the baseline captured for the init stages of the plan, or null to run the init stages
+     * @return a new machine builder
+     * @throws Exception if the plan fails to load its checks
+     * @see #captureBaseline(OakpalPlan)
+     */
+    final OakMachine.Builder newOakMachineBuilder(final @NotNull OakpalPlan plan,
+                                                  final @Nullable String blobStorePath,
+                                                  final @Nullable RepositoryBaseline baseline) throws Exception {
+        return configureOakMachineBuilder(plan.toOakMachineBuilder(new DefaultErrorListener(),
+                Thread.currentThread().getContextClassLoader(), getDiscoveryIndex()), blobStorePath, baseline);
+    }
+
+    private OakMachine.Builder configureOakMachineBuilder(final @NotNull OakMachine.Builder machineBuilder,
+                                                          final @Nullable String blobStorePath,
+                                                          final @Nullable RepositoryBaseline baseline) {
+        if (baseline != null) {
+            machineBuilder.withBaseline(baseline);
+        }
+        if (storeBlobs && blobStorePath != null && !blobStorePath.isEmpty()) {
+            if (baseline != null) {
+                machineBuilder.withNodeStoreSupplier(() ->
+                        new FileBlobMemoryNodeStore(blobStorePath, baseline.getRoot()));
+            } else {
+                machineBuilder.withNodeStoreSupplier(() -> new FileBlobMemoryNodeStore(blobStorePath));
+            }
+        }
+        if (silenceAllSubpackages) {
+            machineBuilder.withSubpackageSilencer((subpackageId, parentId) -> true);
+        }
+        if (failFast) {
+            machineBuilder.withFailFastSeverity(failOnSeverity);
+        }
+        return machineBuilder;
+    }
+
+    /**
+     * Capture a baseline for the init stages of the plan, which is shared by the modules of the build if
+     * {@code shareBaselines} is true.
+     *
+     * @param plan the plan
+     * @return the baseline, or null if the plan reports initialization errors, which each scan should report instead
+     * @throws Exception if the baseline can not be captured
+     */
+    final @Nullable RepositoryBaseline captureBaseline(final @NotNull OakpalPlan plan) throws Exception {
+        final OakMachine.Builder machineBuilder = plan.toOakMachineBuilder(new DefaultErrorListener(),
+                Thread.currentThread().getContextClassLoader(), getDiscoveryIndex());
+        if (shareBaselines && getSession() != null) {
+            return getSharedBaseline(plan, machineBuilder);
+        }
+        return machineBuilder.build().captureBaseline();
+    }
+
+    /**
+     * Get the baseline shared by the modules of the build for the init stages of the plan, capturing it with the
+     * machine builder if no other module has yet, if {@code shareBaselines} is true.
+     *
+     * @param plan           the plan
+     * @param machineBuilder the machine builder for the plan, without a baseline
+     * @return the shared baseline, or null if baselines are not shared, or the plan reports initialization errors
+     * @throws Exception if the baseline can not be captured
+     */
+    final @Nullable RepositoryBaseline getSharedBaseline(final @NotNull OakpalPlan plan,
+                                                         final @NotNull OakMachine.Builder machineBuilder)
+            throws Exception {
+        if (!shareBaselines || getSession() == null) {
+            return null;
+        }
+        // the checks and pre-install packages are not part of the baseline
+        final OakpalPlan initPlan = new OakpalPlan.Builder(plan.getBase(), plan.getName())
+                .startingWithPlan(plan)
+                .withChecks(Collections.emptyList())
+                .withPreInstallUrls(Collections.emptyList())
+                .build();
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        final DiscoveryIndex discoveryIndex = getDiscoveryIndex();
+        final Map<URL, List<JsonObject>> checklists = discoveryIndex != null
+                ? discoveryIndex.parseChecklists(classLoader)
+                : ChecklistPlanner.parseChecklists(classLoader);
+        final String fingerprint = ScanFingerprint.compute("baseline", initPlan, checklists, classLoader,
+                obj().get(), Collections.emptyList());
+        final RepositoryBaseline baseline = BaselineCache.fromSession(getSession(), maxSharedBaselines)
+                .getOrCapture(fingerprint, () -> machineBuilder.build().captureBaseline());
+        if (baseline != null) {
+            getLog().debug("Starting scan from shared plan baseline " + fingerprint);
+        }
+        return baseline;
+    }
+
+    /**
+     * Write the reports to the {@code summaryFile}, and react to them unless {@code deferBuildFailure} is true.
+     *
+     * @param reports the check reports of the scan
+     * @throws MojoFailureException if the summary can not be written, or the reports fail the build
+     */
+    final void writeAndReactToReports(final @NotNull List<CheckReport> reports) throws MojoFailureException {
+        writeAndReactToReports(reports, null);
+    }
+
+    /**
+     * Write the reports to the {@code summaryFile} with the fingerprint of the scan inputs, if any, and react to them
+     * unless {@code deferBuildFailure} is true.
+     *
+     * @param reports     the check reports of the scan
+     * @param fingerprint the fingerprint of the scan inputs, or null
+     * @throws MojoFailureException if the summary can not be written, or the reports fail the build
+     */
+    final void writeAndReactToReports(final @NotNull List<CheckReport> reports, final @Nullable String fingerprint)
+            throws MojoFailureException {
         try {
+            ScanFingerprint.clearSummary(summaryFile);
             ReportMapper.writeReportsToFile(reports, summaryFile);
             getLog().info("Check report summary written to " + summaryFile.getPath());
         } catch (final IOException e) {
             throw new MojoFailureException("Failed to write summary reports.", e);
         }
 
+        if (fingerprint != null) {
+            try {
+                ScanFingerprint.storeSummary(fingerprint, summaryFile, scanCacheDirectory);
+            } catch (final IOException e) {
+                getLog().warn("Failed to store the fingerprint of the check report summary. " + e.getMessage());
+            }
+        }
+
+        reactToReportsUnlessDeferred(reports);
+    }
+
+    private void reactToReportsUnlessDeferred(final @NotNull List<CheckReport> reports) throws MojoFailureException {
         if (deferBuildFailure) {
             getLog().info("Evaluation of check reports has been deferred by 'deferBuildFailure=true'.");
         } else {
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.maven.mojo;
+
+import net.adamcin.oakpal.core.RepositoryBaseline;
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.SessionData;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Holds the repository baselines captured by the modules of a Maven build, by fingerprint of the plan init stages, so
+ * that modules with the same plan start from the same baseline instead of initializing the plan again. The cache is
+ * kept in the data of the repository session, and is released with it at the end of the build. Only the most recently
+ * used baselines are kept, to bound the memory held across modules. A plan which reports errors during
+ * initialization is cached with no baseline, so that every module scans it normally and reports the errors.
+ */
+final class BaselineCache {
+    private static final Object SESSION_DATA_KEY = BaselineCache.class.getName();
+
+    private final int maxEntries;
+    private final Map<String, FutureTask<Optional<RepositoryBaseline>>> baselines;
+
+    BaselineCache(final int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.baselines = new LinkedHashMap<String, FutureTask<Optional<RepositoryBaseline>>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    final Map.Entry<String, FutureTask<Optional<RepositoryBaseline>>> eldest) {
+                return size() > BaselineCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get the cache of the build session, or create it if none exists yet.
+     *
+     * @param session    the maven session
+     * @param maxEntries the number of baselines to keep, if the cache is created
+     * @return the cache of the session
+     */
+    static @NotNull BaselineCache fromSession(final @NotNull MavenSession session, final int maxEntries) {
+        final SessionData data = session.getRepositorySession().getData();
+        if (data.get(SESSION_DATA_KEY) == null) {
+            data.set(SESSION_DATA_KEY, null, new BaselineCache(maxEntries));
+        }
+        final Object cache = data.get(SESSION_DATA_KEY);
+        // another version of the plugin in the same build holds its own class, and does not share with this one
+        return cache instanceof BaselineCache ? (BaselineCache) cache : new BaselineCache(maxEntries);
+    }
+
+    /**
+     * Get the baseline for the fingerprint, or capture it if it is not cached. Concurrent modules with the same
+     * fingerprint wait for a single capture.
+     *
+     * @param fingerprint the fingerprint of the plan init stages
+     * @param capture     captures the baseline, or returns null if the plan reports errors during initialization
+     * @return the baseline, or null if the plan reported errors during initialization
+     * @throws Exception if the capture fails
+     */
+    @Nullable RepositoryBaseline getOrCapture(final @NotNull String fingerprint,
+                                              final @NotNull Callable<RepositoryBaseline> capture) throws Exception {
+        final FutureTask<Optional<RepositoryBaseline>> newTask =
+                new FutureTask<>(() -> Optional.ofNullable(capture.call()));
+        final FutureTask<Optional<RepositoryBaseline>> task;
+        synchronized (baselines) {
+            task = baselines.computeIfAbsent(fingerprint, key -> newTask);
+        }
+        if (task == newTask) {
+            newTask.run();
+        }
+        try {
+            return task.get().orElse(null);
+        } catch (final ExecutionException e) {
+            synchronized (baselines) {
+                baselines.remove(fingerprint, task);
+            }
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    int size() {
+        synchronized (baselines) {
+            return baselines.size();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package net.adamcin.oakpal.maven.mojo;
 
+import net.adamcin.oakpal.core.DiscoveryIndex;
 import net.adamcin.oakpal.core.ForcedRoot;
 import net.adamcin.oakpal.api.Fun;
 import net.adamcin.oakpal.core.JcrNs;
@@ -61,6 +62,16 @@ interface MojoWithPlanParams extends MojoWithCommonParams, MojoWithRepositoryPar
         return null;
     }
 
+    /**
+     * Override to provide an index of the checklists and Sling node types discovered on the container class path.
+     *
+     * @return a discovery index, or null to always search the class path
+     * @since 2.3.0
+     */
+    default @Nullable DiscoveryIndex getDiscoveryIndex() {
+        return null;
+    }
+
     /**
      * Return a list of package files to include as pre-install packages in the plan.
      *
@@ -184,8 +195,11 @@ interface MojoWithPlanParams extends MojoWithCommonParams, MojoWithRepositoryPar
         final NamespaceMapping planMapping = JsonCnd.toNamespaceMapping(params.getJcrNamespaces());
         planBuilder.withJcrPrivileges(JsonCnd.getPrivilegesFromJson(wrap(params.getJcrPrivileges()), planMapping));
 
+        final DiscoveryIndex discoveryIndex = getDiscoveryIndex();
         final NodeTypeSet nodeTypeSet = aggregateCnds(params, planMapping,
-                SlingNodetypesScanner::resolveNodeTypeDefinitions, SlingNodetypesScanner::findNodeTypeDefinitions);
+                SlingNodetypesScanner::resolveNodeTypeDefinitions, discoveryIndex != null
+                        ? discoveryIndex::findNodeTypeDefinitions
+                        : SlingNodetypesScanner::findNodeTypeDefinitions);
 
         final List<QNodeTypeDefinition> jcrNodetypes = new ArrayList<>(nodeTypeSet.getNodeTypes().values());
         planBuilder.withJcrNodetypes(jcrNodetypes);
@@ -2,6 +2,7 @@ package net.adamcin.oakpal.maven.mojo;
 
 import net.adamcin.oakpal.api.Result;
 import net.adamcin.oakpal.core.OakpalPlan;
+import net.adamcin.oakpal.core.RegistryBundle;
 import net.adamcin.oakpal.core.Util;
 import net.adamcin.oakpal.core.opear.Opear;
 import net.adamcin.oakpal.maven.component.OakpalComponentConfigurator;
@@ -36,6 +37,8 @@ import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.net.URI;
 import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -55,6 +58,7 @@ import static net.adamcin.oakpal.api.Fun.compose1;
 import static net.adamcin.oakpal.api.Fun.composeTest1;
 import static net.adamcin.oakpal.api.Fun.entriesToMap;
 import static net.adamcin.oakpal.api.Fun.inSet;
+import static net.adamcin.oakpal.api.Fun.result0;
 import static net.adamcin.oakpal.api.Fun.result1;
 import static net.adamcin.oakpal.api.Fun.testValue;
 import static net.adamcin.oakpal.api.Fun.uncheck0;
@@ -79,6 +83,7 @@ public class OpearPackageMojo extends AbstractCommonMojo {
     static final String OAKPAL_GROUP_ID = "net.adamcin.oakpal";
     static final String OAKPAL_API_ARTIFACT_ID = "oakpal-api";
     static final String OAKPAL_CORE_ARTIFACT_ID = "oakpal-core";
+    static final String REGISTRY_DIR = "registry";
 
     private static final Predicate<Artifact> TEST_IS_OAKPAL_API =
             composeTest1(Artifact::getGroupId, OAKPAL_GROUP_ID::equals)
@@ -110,6 +115,16 @@ public class OpearPackageMojo extends AbstractCommonMojo {
     @Parameter(defaultValue = "${project.build.directory}", required = true)
     File outputDirectory;
 
+    /**
+     * Set to true to precompile the JCR namespaces, privileges and node types of each plan and of its checklists into
+     * a registry bundle, which is stored under {@code registry/} in the opear and referenced by the plan. At scan time
+     * the bundle is registered in one step, instead of parsing the CND files and jcrNodetypes of the checklists.
+     *
+     * @since 2.3.0
+     */
+    @Parameter(property = "oakpal.opear.precompileRegistry")
+    boolean precompileRegistry;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         resolveDependencies(project.getDependencies(), true);
@@ -214,17 +229,7 @@ public class OpearPackageMojo extends AbstractCommonMojo {
         OpearArchiver opear = new OpearArchiver();
         opear.addFileSet(DefaultFileSet.fileSet(planPrep));
 
-        List<File> embeddedFiles = new ArrayList<>();
-        if ("jar".equals(project.getPackaging()) && project.getArtifact().getFile().exists()) {
-            if (project.getArtifact().getFile().isDirectory()) {
-                throw new Exception("cannot embed project artifact while it is a directory.");
-            }
-            embeddedFiles.add(project.getArtifact().getFile());
-        } else if (OPEAR.equals(project.getPackaging())
-                && new File(project.getBuild().getOutputDirectory()).isDirectory()) {
-            embeddedFiles.add(new File(project.getBuild().getOutputDirectory()));
-        }
-        embeddedFiles.addAll(getEmbeddedLibraries());
+        final List<File> embeddedFiles = getEmbeddedFiles();
         Map<String, File> destFiles = mapDestFileNames(new LinkedHashMap<>(), embeddedFiles, File::getName);
         final String scanClassPath = Util.escapeManifestHeaderValue(destFiles.entrySet().stream()
                 .map(entry -> prefix + entry.getKey())
@@ -247,6 +252,35 @@ public class OpearPackageMojo extends AbstractCommonMojo {
         return finalFile;
     }
 
+    List<File> getEmbeddedFiles() throws Exception {
+        List<File> embeddedFiles = new ArrayList<>();
+        if ("jar".equals(project.getPackaging()) && project.getArtifact().getFile().exists()) {
+            if (project.getArtifact().getFile().isDirectory()) {
+                throw new Exception("cannot embed project artifact while it is a directory.");
+            }
+            embeddedFiles.add(project.getArtifact().getFile());
+        } else if (OPEAR.equals(project.getPackaging())
+                && new File(project.getBuild().getOutputDirectory()).isDirectory()) {
+            embeddedFiles.add(new File(project.getBuild().getOutputDirectory()));
+        }
+        embeddedFiles.addAll(getEmbeddedLibraries());
+        return embeddedFiles;
+    }
+
+    /**
+     * Create the class loader for checklist discovery while precompiling registry bundles, which resembles the plan
+     * class loader of the assembled opear.
+     *
+     * @return a class loader of the embedded files
+     * @throws Exception if the embedded files cannot be resolved
+     */
+    ClassLoader getRegistryClassLoader() throws Exception {
+        final URL[] urls = getEmbeddedFiles().stream()
+                .map(compose1(File::toURI, uncheck1(URI::toURL)))
+                .toArray(URL[]::new);
+        return new URLClassLoader(urls, getClass().getClassLoader());
+    }
+
     static <T> Map<String, T> mapDestFileNames(final @NotNull Map<String, T> acc,
                                                final @NotNull List<T> files,
                                                final @NotNull Function<T, String> namer) {
@@ -305,6 +339,10 @@ public class OpearPackageMojo extends AbstractCommonMojo {
                 allPlansResult.map(allPlans -> allPlans.stream()
                         .map(plan -> rewritePlan(toDir, renamed, plan, plan.getName()))
                         .collect(Collectors.toList()))
+                        .flatMap(allPlans -> precompileRegistry
+                                ? result0(this::getRegistryClassLoader).get()
+                                .flatMap(classLoader -> precompileRegistries(toDir, allPlans, classLoader))
+                                : Result.success(allPlans))
                         .flatMap(allPlans -> copyPlans(toDir, allPlans)));
 
         return rewrittenResult.map(compose1(Map::keySet, ArrayList::new));
@@ -327,6 +365,39 @@ public class OpearPackageMojo extends AbstractCommonMojo {
                 .build();
     }
 
+    /**
+     * Compile a {@link RegistryBundle} for each plan into the {@code registry} directory, and reference it from a
+     * rewritten plan.
+     *
+     * @param toDir       the directory to write to
+     * @param plans       the rewritten plans
+     * @param classLoader the class loader for checklist discovery
+     * @return result containing the plans that reference their registry bundles
+     */
+    static Result<List<OakpalPlan>> precompileRegistries(final @NotNull File toDir,
+                                                         final @NotNull List<OakpalPlan> plans,
+                                                         final @NotNull ClassLoader classLoader) {
+        final File registryDir = new File(toDir, REGISTRY_DIR);
+        final Map<String, OakpalPlan> renamed = mapDestFileNames(new LinkedHashMap<>(), plans, OakpalPlan::getName);
+        final JsonWriterFactory writerFactory =
+                Json.createWriterFactory(Collections.singletonMap(JsonGenerator.PRETTY_PRINTING, true));
+        return renamed.entrySet().stream().map(result1(entry -> {
+            final OakpalPlan plan = entry.getValue();
+            final RegistryBundle registryBundle = RegistryBundle.compile(plan, classLoader);
+            final File bundleFile = new File(registryDir, entry.getKey());
+            registryDir.mkdirs();
+            try (OutputStreamWriter osw = new OutputStreamWriter(new FileOutputStream(bundleFile),
+                    StandardCharsets.UTF_8);
+                 JsonWriter writer = writerFactory.createWriter(osw)) {
+                writer.writeObject(registryBundle.toJson());
+            }
+            return new OakpalPlan.Builder(plan.getBase(), plan.getName())
+                    .startingWithPlan(plan)
+                    .withRegistryBundleUrl(bundleFile.toURI().toURL())
+                    .build();
+        })).collect(Result.tryCollect(Collectors.toList()));
+    }
+
     static Result<Map<String, OakpalPlan>> copyPlans(final @NotNull File toDir, final @NotNull List<OakpalPlan> plans) {
         final Map<String, OakpalPlan> renamed = mapDestFileNames(new LinkedHashMap<>(), plans, OakpalPlan::getName);
 
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.maven.mojo;
+
+import net.adamcin.oakpal.api.Violation;
+import net.adamcin.oakpal.core.AbortedScanException;
+import net.adamcin.oakpal.core.CheckReport;
+import net.adamcin.oakpal.core.OakMachine;
+import net.adamcin.oakpal.core.OakpalPlan;
+import net.adamcin.oakpal.core.RepositoryBaseline;
+import net.adamcin.oakpal.core.SimpleReport;
+import net.adamcin.oakpal.maven.component.OakpalComponentConfigurator;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Scans each of a list of artifacts on its own, by simulating installation of only that package on top of the
+ * configured plan, and listening for violations reported by the configured {@code checks}. Unlike {@code scan-many},
+ * the scanned packages do not see each other's content, so this goal is suited to validating a number of independent
+ * packages against a common platform baseline. The scans run in parallel, and their reports are merged into a single
+ * {@code summaryFile}, which can be evaluated later by the {@code verify} goal when {@code deferBuildFailure} is true.
+ *
+ * @since 2.3.0
+ */
+@Mojo(name = "scan-each", configurator = OakpalComponentConfigurator.HINT,
+        requiresDependencyResolution = ResolutionScope.TEST, defaultPhase = LifecyclePhase.INTEGRATION_TEST)
+public class ScanEachArtifactMojo extends AbstractITestWithPlanMojo {
+
+    /**
+     * Specifically skip this plugin's execution.
+     */
+    @Parameter(property = "oakpal.scan-each.skip")
+    boolean skip;
+
+    /**
+     * Specify a list of content-package artifacts to download and scan individually.
+     * <p>
+     * For example:
+     * <pre>
+     * &lt;scanArtifacts&gt;
+     *   &lt;scanArtifact&gt;
+     *     &lt;groupId&gt;com.acmecorp&lt;/groupId&gt;
+     *     &lt;artifactId&gt;tenant-one.apps&lt;/artifactId&gt;
+     *     &lt;version&gt;0.1.0-SNAPSHOT&lt;/version&gt;
+     *     &lt;type&gt;zip&lt;/type&gt;
+     *   &lt;/scanArtifact&gt;
+     *   &lt;scanArtifact&gt;
+     *     &lt;groupId&gt;com.acmecorp&lt;/groupId&gt;
+     *     &lt;artifactId&gt;tenant-two.apps&lt;/artifactId&gt;
+     *     &lt;version&gt;0.1.0-SNAPSHOT&lt;/version&gt;
+     *     &lt;type&gt;zip&lt;/type&gt;
+     *   &lt;/scanArtifact&gt;
+     * &lt;/scanArtifacts&gt;
+     * </pre>
+     */
+    @Parameter(name = "scanArtifacts")
+    List<Dependency> scanArtifacts = new ArrayList<>();
+
+    /**
+     * Specify a list of local package files to add to the list to scan individually.
+     * <p>
+     * For example:
+     * <pre>
+     * &lt;scanFiles&gt;
+     *   &lt;scanFile&gt;target/myPackages/firstPackage.zip&lt;/scanFile&gt;
+     *   &lt;scanFile&gt;target/myPackages/secondPackage.zip&lt;/scanFile&gt;
+     * &lt;/scanFiles&gt;
+     * </pre>
+     */
+    @Parameter(name = "scanFiles")
+    List<File> scanFiles = new ArrayList<>();
+
+    /**
+     * Specify the maximum number of scans to run at the same time. Each running scan holds its own in-memory
+     * repository, so lower this value if the plan baseline is large. When less than 1, the number of available
+     * processors is used.
+     */
+    @Parameter(property = "oakpal.scan-each.threads")
+    int threads;
+
+    @Override
+    protected boolean isIndividuallySkipped() {
+        return skip;
+    }
+
+    final List<File> listScanFiles() throws MojoFailureException {
+        List<File> resolvedArtifacts = new ArrayList<>();
+
+        if (scanArtifacts != null && !scanArtifacts.isEmpty()) {
+            resolvedArtifacts.addAll(resolveDependencies(scanArtifacts, false));
+        }
+
+        if (scanFiles != null && !scanFiles.isEmpty()) {
+            resolvedArtifacts.addAll(scanFiles);
+        }
+
+        return resolvedArtifacts;
+    }
+
+    final int getThreadCount(final int scanCount) {
+        final int maxThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return Math.max(1, Math.min(maxThreads, scanCount));
+    }
+
+    @Override
+    protected void executeGuardedIntegrationTest() throws MojoFailureException {
+        performScanEach(listScanFiles());
+    }
+
+    /**
+     * Scan each of the files on its own, and merge the reports. The init stages of the plan are run once, to capture a
+     * baseline from which each scan starts, and the machine for each scan is built on the thread that runs it.
+     *
+     * @param scanFiles the package files to scan
+     * @throws MojoFailureException if a scan fails, or the reports fail the build
+     */
+    final void performScanEach(final @NotNull List<File> scanFiles) throws MojoFailureException {
+        final OakpalPlan plan = buildPlan();
+        final String fingerprint;
+        try {
+            fingerprint = fingerprintScan(plan, scanFiles);
+        } catch (Exception e) {
+            throw new MojoFailureException("Failed to fingerprint scan inputs. " + e.getMessage(), e);
+        }
+        if (fingerprint != null && reuseUnchangedScan(fingerprint)) {
+            return;
+        }
+
+        final RepositoryBaseline baseline;
+        try {
+            baseline = captureBaseline(plan);
+        } catch (Exception e) {
+            throw new MojoFailureException("Failed to execute package scan. " + e.getMessage(), e);
+        }
+
+        final ClassLoader scanClassLoader = Thread.currentThread().getContextClassLoader();
+        final AtomicBoolean failedFast = new AtomicBoolean(false);
+        final ExecutorService executor = Executors.newFixedThreadPool(getThreadCount(scanFiles.size()));
+        final List<List<CheckReport>> scanReports = new ArrayList<>();
+        try {
+            final List<Future<List<CheckReport>>> futures = new ArrayList<>();
+            for (int i = 0; i < scanFiles.size(); i++) {
+                // blob files are not shared between the concurrent scans
+                final String scanBlobStorePath = blobStorePath != null && !blobStorePath.isEmpty()
+                        ? new File(blobStorePath, String.valueOf(i)).getPath()
+                        : blobStorePath;
+                final File scanFile = scanFiles.get(i);
+                futures.add(executor.submit(() -> scanOne(
+                        () -> newOakMachineBuilder(plan, scanBlobStorePath, baseline).build(),
+                        scanFile, scanClassLoader, failedFast)));
+            }
+            for (Future<List<CheckReport>> future : futures) {
+                scanReports.add(future.get());
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoFailureException("Interrupted while waiting for package scans.", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof AbortedScanException) {
+                String currentFilePath = ((AbortedScanException) e.getCause()).getCurrentPackageFile()
+                        .map(f -> "Failed package: " + f.getAbsolutePath()).orElse("");
+                throw new MojoFailureException("Failed to execute package scan. " + currentFilePath, e.getCause());
+            }
+            throw new MojoFailureException("Failed to execute package scan. " + e.getCause().getMessage(),
+                    e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        writeAndReactToReports(mergeReports(scanReports), fingerprint);
+    }
+
+    final List<CheckReport> scanOne(final @NotNull Callable<OakMachine> machineFactory,
+                                    final @NotNull File scanFile,
+                                    final @NotNull ClassLoader scanClassLoader,
+                                    final @NotNull AtomicBoolean failedFast) throws Exception {
+        if (failedFast.get()) {
+            getLog().info("Skipping scan of " + scanFile.getName() + " after a previous scan failed fast.");
+            return Collections.emptyList();
+        }
+        final Thread thread = Thread.currentThread();
+        final ClassLoader oldCl = thread.getContextClassLoader();
+        try {
+            thread.setContextClassLoader(scanClassLoader);
+            final OakMachine machine = machineFactory.call();
+            final List<CheckReport> reports = machine.scanPackages(Collections.singletonList(scanFile));
+            if (machine.isFailedFast()) {
+                failedFast.set(true);
+            }
+            getLog().info("Scanned " + scanFile.getName());
+            return reports;
+        } finally {
+            thread.setContextClassLoader(oldCl);
+        }
+    }
+
+    /**
+     * Merge the reports of each scan by check name, in scan order. Violations that are equal in more than one scan,
+     * like those reported during plan initialization, are only kept once.
+     *
+     * @param scanReports the reports of each scan
+     * @return the merged reports
+     */
+    static List<CheckReport> mergeReports(final @NotNull List<List<CheckReport>> scanReports) {
+        final Map<String, Set<Violation>> merged = new LinkedHashMap<>();
+        for (List<CheckReport> reports : scanReports) {
+            for (CheckReport report : reports) {
+                merged.computeIfAbsent(report.getCheckName(), key -> new LinkedHashSet<>())
+                        .addAll(report.getViolations());
+            }
+        }
+        return merged.entrySet().stream()
+                .map(entry -> new SimpleReport(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.maven.mojo;
+
+import net.adamcin.oakpal.core.CheckSpec;
+import net.adamcin.oakpal.core.Checklist;
+import net.adamcin.oakpal.core.OakMachine;
+import net.adamcin.oakpal.core.OakpalPlan;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.json.JsonObject;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Computes a digest of the effective inputs of a scan, which are the oakpal version, the effective plan json, the
+ * content of the urls referenced by the plan, the checklists found on the class path with their CND resources, the
+ * script resources and class path entries of the checks, the scan options and the content of the scanned package
+ * files, and finds summary reports of previous scans with the same fingerprint.
+ */
+final class ScanFingerprint {
+    static final String FINGERPRINT_SUFFIX = ".fingerprint";
+    private static final String CORE_POM_PROPERTIES = "/META-INF/maven/net.adamcin.oakpal/oakpal-core/pom.properties";
+
+    private final MessageDigest digest;
+
+    private ScanFingerprint() throws Exception {
+        this.digest = MessageDigest.getInstance("SHA-256");
+    }
+
+    /**
+     * Compute the fingerprint of a scan.
+     *
+     * @param goal        the name of the goal, so that different goals over the same files do not share reports
+     * @param plan        the effective plan
+     * @param checklists  the checklist json objects found on the class path, by manifest url
+     * @param classLoader the class loader of the checks
+     * @param scanOptions the json of any mojo options that change the reports, which are not part of the plan
+     * @param scanFiles   the package files to scan
+     * @return the fingerprint
+     * @throws Exception if a file or url can not be read
+     */
+    static String compute(final @NotNull String goal,
+                          final @NotNull OakpalPlan plan,
+                          final @NotNull Map<URL, List<JsonObject>> checklists,
+                          final @NotNull ClassLoader classLoader,
+                          final @NotNull JsonObject scanOptions,
+                          final @NotNull List<File> scanFiles) throws Exception {
+        final ScanFingerprint fingerprint = new ScanFingerprint();
+        fingerprint.update("goal", goal);
+        fingerprint.update("oakpal", getOakpalVersion());
+        fingerprint.update("plan", plan.toJson().toString());
+        final List<URL> planUrls = new ArrayList<>(plan.getPreInstallUrls());
+        planUrls.addAll(plan.getRepoInitUrls());
+        Optional.ofNullable(plan.getRegistryBundleUrl()).ifPresent(planUrls::add);
+        for (URL planUrl : planUrls) {
+            fingerprint.update("url", planUrl.toExternalForm());
+            try (InputStream input = planUrl.openStream()) {
+                fingerprint.update(input);
+            }
+        }
+        final List<CheckSpec> checkSpecs = new ArrayList<>(plan.getChecks());
+        final Set<URL> resourceUrls = new LinkedHashSet<>();
+        for (Map.Entry<URL, List<JsonObject>> entry : checklists.entrySet()) {
+            fingerprint.update("manifest", entry.getKey().toExternalForm());
+            for (JsonObject checklist : entry.getValue()) {
+                fingerprint.update("checklist", checklist.toString());
+                final Checklist parsed = Checklist.fromJson(entry.getKey().toExternalForm(), entry.getKey(),
+                        checklist);
+                resourceUrls.addAll(parsed.getCndUrls());
+                checkSpecs.addAll(parsed.getChecks());
+            }
+        }
+        for (CheckSpec checkSpec : checkSpecs) {
+            Optional.ofNullable(checkSpec.getImpl()).filter(impl -> !impl.isEmpty())
+                    .map(impl -> getCheckResource(impl, classLoader))
+                    .ifPresent(resourceUrls::add);
+        }
+        for (URL resourceUrl : resourceUrls) {
+            fingerprint.update("resource", resourceUrl.toExternalForm());
+            try (InputStream input = resourceUrl.openStream()) {
+                fingerprint.update(input);
+            }
+        }
+        fingerprint.update("options", scanOptions.toString());
+        for (File scanFile : scanFiles) {
+            fingerprint.update("scanFile", scanFile.getName());
+            try (InputStream input = Files.newInputStream(scanFile.toPath())) {
+                fingerprint.update(input);
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(fingerprint.digest.digest());
+    }
+
+    /**
+     * Find the resource that implements a check the way {@link net.adamcin.oakpal.core.Locator} loads it, which is
+     * the jar or class file of a check class, or the script of a script check.
+     *
+     * @param impl        the check impl
+     * @param classLoader the class loader of the checks
+     * @return the url of the jar, class file or script, or null if none is found
+     */
+    static @Nullable URL getCheckResource(final @NotNull String impl, final @NotNull ClassLoader classLoader) {
+        if (!impl.contains("/") && !impl.contains("\\")) {
+            final URL classUrl = classLoader.getResource(impl.replace('.', '/') + ".class");
+            if (classUrl != null) {
+                if ("jar".equals(classUrl.getProtocol())) {
+                    try {
+                        return ((JarURLConnection) classUrl.openConnection()).getJarFileURL();
+                    } catch (final IOException e) {
+                        return classUrl;
+                    }
+                }
+                return classUrl;
+            }
+        }
+        return classLoader.getResource(impl);
+    }
+
+    /**
+     * The version of oakpal-core, with the size and modification time of its jar, so that snapshot builds of oakpal
+     * change the fingerprint.
+     *
+     * @return the oakpal version
+     */
+    static String getOakpalVersion() {
+        final Properties pomProperties = new Properties();
+        try (InputStream input = OakMachine.class.getResourceAsStream(CORE_POM_PROPERTIES)) {
+            if (input != null) {
+                pomProperties.load(input);
+            }
+        } catch (final IOException e) {
+            // version remains unknown
+        }
+        final StringBuilder version = new StringBuilder(pomProperties.getProperty("version", "unknown"));
+        final CodeSource codeSource = OakMachine.class.getProtectionDomain().getCodeSource();
+        if (codeSource != null && codeSource.getLocation() != null
+                && "file".equals(codeSource.getLocation().getProtocol())) {
+            final File codeFile = new File(codeSource.getLocation().getPath());
+            if (codeFile.isFile()) {
+                version.append(':').append(codeFile.length()).append(':').append(codeFile.lastModified());
+            }
+        }
+        return version.toString();
+    }
+
+    private void update(final @NotNull String key, final @NotNull String value) {
+        digest.update(key.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '=');
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+    private void update(final @NotNull InputStream input) throws IOException {
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        digest.update((byte) '\n');
+    }
+
+    static File getFingerprintFile(final @NotNull File summaryFile) {
+        return new File(summaryFile.getParentFile(), summaryFile.getName() + FINGERPRINT_SUFFIX);
+    }
+
+    static File getCacheFile(final @NotNull File cacheDir, final @NotNull String fingerprint) {
+        return new File(cacheDir, fingerprint + ".json");
+    }
+
+    /**
+     * Find a summary report of a previous scan with the same fingerprint, either as the summary file itself, or in
+     * the cache directory, in which case it is copied to the summary file.
+     *
+     * @param fingerprint the fingerprint of the scan
+     * @param summaryFile the summary file
+     * @param cacheDir    the cache directory, if any
+     * @return true if the summary file now holds the reports of a previous scan with the same fingerprint
+     */
+    static boolean restoreSummary(final @NotNull String fingerprint,
+                                  final @NotNull File summaryFile,
+                                  final @Nullable File cacheDir) {
+        final File fingerprintFile = getFingerprintFile(summaryFile);
+        try {
+            if (summaryFile.isFile() && fingerprintFile.isFile()
+                    && fingerprint.equals(new String(Files.readAllBytes(fingerprintFile.toPath()),
+                    StandardCharsets.UTF_8).trim())) {
+                return true;
+            }
+            if (cacheDir != null && getCacheFile(cacheDir, fingerprint).isFile()) {
+                Files.copy(getCacheFile(cacheDir, fingerprint).toPath(), summaryFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+                Files.write(fingerprintFile.toPath(), fingerprint.getBytes(StandardCharsets.UTF_8));
+                return true;
+            }
+        } catch (final IOException e) {
+            return false;
+        }
+        return false;
+    }
+
+    /**
+     * Record the fingerprint next to a newly written summary file, and copy the summary file to the cache directory,
+     * if any.
+     *
+     * @param fingerprint the fingerprint of the scan
+     * @param summaryFile the summary file
+     * @param cacheDir    the cache directory, if any
+     * @throws IOException if the fingerprint or the cache file can not be written
+     */
+    static void storeSummary(final @NotNull String fingerprint,
+                             final @NotNull File summaryFile,
+                             final @Nullable File cacheDir) throws IOException {
+        Files.write(getFingerprintFile(summaryFile).toPath(), fingerprint.getBytes(StandardCharsets.UTF_8));
+        if (cacheDir != null) {
+            final Path cacheDirPath = Files.createDirectories(cacheDir.toPath());
+            final Path tempFile = Files.createTempFile(cacheDirPath, ".", ".tmp");
+            try {
+                Files.copy(summaryFile.toPath(), tempFile, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tempFile, getCacheFile(cacheDir, fingerprint).toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    /**
+     * Remove the fingerprint of a summary file, before a scan overwrites it.
+     *
+     * @param summaryFile the summary file
+     * @throws IOException if the fingerprint file can not be deleted
+     */
+    static void clearSummary(final @NotNull File summaryFile) throws IOException {
+        Files.deleteIfExists(getFingerprintFile(summaryFile).toPath());
+    }
+}
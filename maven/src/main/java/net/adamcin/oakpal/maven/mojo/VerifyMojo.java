@@ -18,8 +18,8 @@ package net.adamcin.oakpal.maven.mojo;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 import net.adamcin.oakpal.core.CheckReport;
 import net.adamcin.oakpal.core.ReportMapper;
@@ -62,29 +62,46 @@ public class VerifyMojo extends AbstractITestMojo {
 
     @Override
     void executeGuardedIntegrationTest() throws MojoFailureException {
-        reactToReports(collectReports());
+        final ReportReaction reaction = newReportReaction();
+        collectReports(reaction);
+        reaction.finish();
     }
 
     List<CheckReport> collectReports() throws MojoFailureException {
-        List<CheckReport> reports;
+        final List<CheckReport> reports = new ArrayList<>();
+        collectReports(reports::add);
+        return reports;
+    }
+
+    /**
+     * Pass the reports of each summary file to the consumer as they are read, so that the reports of all the files
+     * are never held in memory together.
+     *
+     * @param consumer the consumer of each report
+     * @throws MojoFailureException if a summary file can not be read
+     */
+    void collectReports(final Consumer<CheckReport> consumer) throws MojoFailureException {
         try {
-            reports = new ArrayList<>(readReportsFromFile(summaryFile));
+            readReportsFromFile(summaryFile, consumer);
             if (summaryFiles != null) {
                 for (File file : summaryFiles) {
-                    reports.addAll(readReportsFromFile(file));
+                    readReportsFromFile(file, consumer);
                 }
             }
         } catch (final Exception e) {
             throw new MojoFailureException("Failed to read check report summary file.", e);
         }
-        return reports;
     }
 
     static List<CheckReport> readReportsFromFile(final File summaryFile) throws Exception {
+        final List<CheckReport> reports = new ArrayList<>();
+        readReportsFromFile(summaryFile, reports::add);
+        return reports;
+    }
+
+    static void readReportsFromFile(final File summaryFile, final Consumer<CheckReport> consumer) throws Exception {
         if (summaryFile != null && summaryFile.exists()) {
-            return ReportMapper.readReportsFromFile(summaryFile);
-        } else {
-            return Collections.emptyList();
+            ReportMapper.readReportsFromFile(summaryFile, consumer);
         }
     }
 }
@@ -22,11 +22,18 @@ import net.adamcin.oakpal.core.CheckSpec;
 import net.adamcin.oakpal.core.ForcedRoot;
 import net.adamcin.oakpal.core.InstallHookPolicy;
 import net.adamcin.oakpal.core.JcrNs;
+import net.adamcin.oakpal.core.OakpalPlan;
 import net.adamcin.oakpal.api.Nothing;
 import net.adamcin.oakpal.core.ReportMapper;
+import net.adamcin.oakpal.core.RepositoryBaseline;
+import net.adamcin.oakpal.core.SimpleReport;
+import net.adamcin.oakpal.api.Severity;
+import net.adamcin.oakpal.api.SimpleViolation;
 import net.adamcin.oakpal.testing.TestPackageUtil;
 import org.apache.commons.io.FileUtils;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoFailureException;
+import org.eclipse.aether.DefaultRepositorySystemSession;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Before;
 import org.junit.Test;
@@ -43,9 +50,12 @@ import static net.adamcin.oakpal.api.JavaxJson.obj;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 
 public class AbstractITestWithPlanMojoTest {
     private final File testOutBaseDir = new File("target/test-out/AbstractITestWithPlanMojoTest");
@@ -285,4 +295,76 @@ public class AbstractITestWithPlanMojoTest {
         mojo.deferBuildFailure = true;
         scanWithViolations(mojo, summaryFile);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testReuseUnchangedScan() throws Exception {
+        final File testOutDir = new File(testOutBaseDir, "testReuseUnchangedScan");
+        FileUtils.deleteDirectory(testOutDir);
+        testOutDir.mkdirs();
+        AbstractITestWithPlanMojo mojo = newMojo();
+        mojo.summaryFile = new File(testOutDir, "summary.json");
+        mojo.scanCacheDirectory = new File(testOutDir, "cache");
+        assertNull("expect no fingerprint by default",
+                mojo.fingerprintScan(mojo.buildPlan(), Collections.emptyList()));
+        mojo.skipUnchangedScans = true;
+        final String fingerprint = mojo.fingerprintScan(mojo.buildPlan(), Collections.emptyList());
+        assertNotNull("expect fingerprint", fingerprint);
+        assertFalse("expect no previous scan", mojo.reuseUnchangedScan(fingerprint));
+
+        final List<CheckReport> reports = Collections.singletonList(
+                new SimpleReport("check", Collections.singletonList(new SimpleViolation(Severity.MAJOR, "fail"))));
+        mojo.deferBuildFailure = true;
+        mojo.writeAndReactToReports(reports, fingerprint);
+        assertTrue("expect reuse of summary", mojo.reuseUnchangedScan(fingerprint));
+        assertFalse("expect no reuse for other inputs", mojo.reuseUnchangedScan(fingerprint + "x"));
+
+        mojo.writeAndReactToReports(Collections.emptyList());
+        assertFalse("expect no reuse after unfingerprinted scan", mojo.reuseUnchangedScan(fingerprint + "x"));
+        assertTrue("expect reuse from cache", mojo.reuseUnchangedScan(fingerprint));
+        assertEquals("expect cached reports", reports, ReportMapper.readReportsFromFile(mojo.summaryFile));
+
+        mojo.deferBuildFailure = false;
+        assertTrue("expect failure for reused violations",
+                result0(() -> mojo.reuseUnchangedScan(fingerprint)).get().isFailure());
+    }
+
+    @Test
+    public void testGetSharedBaseline() throws Exception {
+        final AbstractITestWithPlanMojo mojo = newMojo();
+        mojo.session = mock(MavenSession.class);
+        doReturn(new DefaultRepositorySystemSession()).when(mojo.session).getRepositorySession();
+        final OakpalPlan plan = mojo.buildPlan();
+        assertNull("expect no baseline by default",
+                mojo.getSharedBaseline(plan, mojo.newOakMachineBuilder(plan, null)));
+        mojo.shareBaselines = true;
+        final RepositoryBaseline baseline = mojo.getSharedBaseline(plan, mojo.newOakMachineBuilder(plan, null));
+        assertNotNull("expect baseline", baseline);
+        assertSame("expect shared baseline", baseline,
+                mojo.getSharedBaseline(plan, mojo.newOakMachineBuilder(plan, null)));
+
+        final AbstractITestWithPlanMojo otherMojo = newMojo();
+        otherMojo.session = mojo.session;
+        otherMojo.shareBaselines = true;
+        final OakpalPlan otherPlan = otherMojo.buildPlan();
+        assertSame("expect baseline shared with other module", baseline,
+                otherMojo.getSharedBaseline(otherPlan, otherMojo.newOakMachineBuilder(otherPlan, null)));
+        otherMojo.forcedRoots = Collections.singletonList(new ForcedRoot().withPath("/foo"));
+        final OakpalPlan forcedRootPlan = otherMojo.buildPlan();
+        assertNotSame("expect other baseline for other init stages", baseline,
+                otherMojo.getSharedBaseline(forcedRootPlan, otherMojo.newOakMachineBuilder(forcedRootPlan, null)));
+    }
+
+    @Test
+    public void testCaptureBaseline() throws Exception {
+        final AbstractITestWithPlanMojo mojo = newMojo();
+        final OakpalPlan plan = mojo.buildPlan();
+        final RepositoryBaseline baseline = mojo.captureBaseline(plan);
+        assertNotNull("expect baseline", baseline);
+        assertNotSame("expect new baseline unless shared", baseline, mojo.captureBaseline(plan));
+
+        mojo.session = mock(MavenSession.class);
+        doReturn(new DefaultRepositorySystemSession()).when(mojo.session).getRepositorySession();
+        mojo.shareBaselines = true;
+        assertSame("expect shared baseline", mojo.captureBaseline(plan), mojo.captureBaseline(plan));
+    }
+}
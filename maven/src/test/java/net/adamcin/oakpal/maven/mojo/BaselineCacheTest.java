@@ -0,0 +1,99 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.maven.mojo;
+
+import net.adamcin.oakpal.core.OakMachine;
+import net.adamcin.oakpal.core.RepositoryBaseline;
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+public class BaselineCacheTest {
+
+    @Test
+    public void testFromSession() {
+        final MavenSession session = mock(MavenSession.class);
+        doReturn(new DefaultRepositorySystemSession()).when(session).getRepositorySession();
+        final BaselineCache cache = BaselineCache.fromSession(session, 2);
+        assertSame("expect same cache for session", cache, BaselineCache.fromSession(session, 2));
+
+        final MavenSession otherSession = mock(MavenSession.class);
+        doReturn(new DefaultRepositorySystemSession()).when(otherSession).getRepositorySession();
+        assertNotSame("expect other cache for other session", cache, BaselineCache.fromSession(otherSession, 2));
+    }
+
+    @Test
+    public void testGetOrCapture() throws Exception {
+        final RepositoryBaseline baseline = new OakMachine.Builder().build().captureBaseline();
+        assertNotNull("expect baseline", baseline);
+        final AtomicInteger captures = new AtomicInteger(0);
+        final BaselineCache cache = new BaselineCache(2);
+
+        assertSame("expect captured baseline", baseline, cache.getOrCapture("a", () -> {
+            captures.incrementAndGet();
+            return baseline;
+        }));
+        assertSame("expect cached baseline", baseline, cache.getOrCapture("a", () -> {
+            captures.incrementAndGet();
+            return null;
+        }));
+        assertEquals("expect one capture", 1, captures.get());
+
+        assertNull("expect no baseline", cache.getOrCapture("b", () -> {
+            captures.incrementAndGet();
+            return null;
+        }));
+        assertNull("expect cached absence of baseline", cache.getOrCapture("b", () -> {
+            captures.incrementAndGet();
+            return baseline;
+        }));
+        assertEquals("expect two captures", 2, captures.get());
+
+        // touch a, so that b is the least recently used
+        cache.getOrCapture("a", () -> null);
+        cache.getOrCapture("c", () -> baseline);
+        assertEquals("expect bounded size", 2, cache.size());
+        assertSame("expect a to be kept", baseline, cache.getOrCapture("a", () -> null));
+        assertSame("expect b to be captured again", baseline, cache.getOrCapture("b", () -> baseline));
+    }
+
+    @Test
+    public void testGetOrCapture_failed() throws Exception {
+        final BaselineCache cache = new BaselineCache(2);
+        try {
+            cache.getOrCapture("a", () -> {
+                throw new IOException("failed");
+            });
+            fail("expect IOException");
+        } catch (final IOException e) {
+            assertEquals("expect message", "failed", e.getMessage());
+        }
+        assertEquals("expect failed capture to be removed", 0, cache.size());
+    }
+}
@@ -19,6 +19,7 @@ package net.adamcin.oakpal.maven.mojo;
 import net.adamcin.oakpal.api.Fun;
 import net.adamcin.oakpal.api.JavaxJson;
 import net.adamcin.oakpal.core.OakpalPlan;
+import net.adamcin.oakpal.core.RegistryBundle;
 import net.adamcin.oakpal.api.Result;
 import net.adamcin.oakpal.core.Util;
 import net.adamcin.oakpal.testing.TestPackageUtil;
@@ -1077,6 +1078,35 @@ public class OpearPackageMojoTest {
         assertTrue("file exists: " + destFile, destFile.isFile());
     }
 
+    @Test
+    public void testPrecompileRegistries() throws Exception {
+        final File testOutDir = new File(testOutBaseDir, "testPrecompileRegistries");
+        FileUtils.deleteDirectory(testOutDir);
+        testOutDir.mkdirs();
+        final File copyTarget = new File(testOutDir, "copied");
+        copyTarget.mkdirs();
+        final String expectFilename = "sample-plan.json";
+        final URL samplePlanUrl = new File(srcDir, expectFilename).toURI().toURL();
+        final OakpalPlan rewritten = OpearPackageMojo.rewritePlan(copyTarget, Collections.emptyMap(),
+                new OakpalPlan.Builder(samplePlanUrl, expectFilename)
+                        .startingWithPlan(OakpalPlan.fromJson(samplePlanUrl).getOrDefault(null))
+                        .withPreInstallUrls(Collections.emptyList())
+                        .withRepoInitUrls(Collections.emptyList())
+                        .build(), expectFilename);
+
+        Result<List<OakpalPlan>> precompiled = OpearPackageMojo.precompileRegistries(copyTarget,
+                Collections.singletonList(rewritten), getClass().getClassLoader());
+        assertTrue("is success " + precompiled, precompiled.isSuccess());
+        final OakpalPlan plan = precompiled.getOrDefault(Collections.emptyList()).get(0);
+        final File bundleFile = new File(copyTarget, OpearPackageMojo.REGISTRY_DIR + "/" + expectFilename);
+        assertTrue("bundle exists: " + bundleFile, bundleFile.isFile());
+        assertEquals("expect bundle url", bundleFile.toURI().toURL(), plan.getRegistryBundleUrl());
+        assertEquals("expect relativized bundle url", OpearPackageMojo.REGISTRY_DIR + "/" + expectFilename,
+                plan.toJson().getString("registryBundle"));
+        assertTrue("expect precompiled node type", RegistryBundle.fromJson(bundleFile.toURI().toURL())
+                .getJcrNodetypes().stream().anyMatch(def -> "SimpleType".equals(def.getName().getLocalName())));
+    }
+
     @Test
     public void testGetBundleSymbolicName() {
         final OpearPackageMojo mojo = newMojo();
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.maven.mojo;
+
+import net.adamcin.oakpal.api.Severity;
+import net.adamcin.oakpal.api.SimpleViolation;
+import net.adamcin.oakpal.core.CheckReport;
+import net.adamcin.oakpal.core.CheckSpec;
+import net.adamcin.oakpal.core.OakMachine;
+import net.adamcin.oakpal.core.ReportMapper;
+import net.adamcin.oakpal.core.SimpleReport;
+import net.adamcin.oakpal.testing.TestPackageUtil;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static net.adamcin.oakpal.api.JavaxJson.key;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScanEachArtifactMojoTest {
+    private final File testOutBaseDir = new File("target/test-out/ScanEachArtifactMojoTest");
+
+    @Before
+    public void setUp() throws Exception {
+        testOutBaseDir.mkdirs();
+    }
+
+    static ScanEachArtifactMojo newMojo() {
+        ScanEachArtifactMojo mojo = new ScanEachArtifactMojo();
+        MockMojoLog log = new MockMojoLog();
+        mojo.setLog(log);
+        return mojo;
+    }
+
+    @Test
+    public void testIsIndividuallySkipped() {
+        ScanEachArtifactMojo mojo = newMojo();
+        assertFalse("is not skipped", mojo.isIndividuallySkipped());
+        mojo.skip = true;
+        assertTrue("is skipped", mojo.isIndividuallySkipped());
+    }
+
+    @Test
+    public void testGetThreadCount() {
+        ScanEachArtifactMojo mojo = newMojo();
+        assertEquals("expect one thread for no scans", 1, mojo.getThreadCount(0));
+        mojo.threads = 4;
+        assertEquals("expect no more threads than scans", 2, mojo.getThreadCount(2));
+        assertEquals("expect configured threads", 4, mojo.getThreadCount(10));
+    }
+
+    @Test
+    public void testMergeReports() {
+        final SimpleViolation first = new SimpleViolation(Severity.MAJOR, "first");
+        final SimpleViolation second = new SimpleViolation(Severity.MINOR, "second");
+        final List<CheckReport> merged = ScanEachArtifactMojo.mergeReports(Arrays.asList(
+                Arrays.asList(new SimpleReport("a", Collections.singletonList(first)),
+                        new SimpleReport("b", Collections.emptyList())),
+                Collections.singletonList(new SimpleReport("a", Arrays.asList(first, second)))));
+        assertEquals("expect merged reports", Arrays.asList(
+                new SimpleReport("a", Arrays.asList(first, second)),
+                new SimpleReport("b", Collections.emptyList())), merged);
+    }
+
+    @Test
+    public void testScanOne_skipsBuildAfterFailedFast() throws Exception {
+        ScanEachArtifactMojo mojo = newMojo();
+        final Callable<OakMachine> unbuildable = () -> {
+            throw new IllegalStateException("machine should not be built");
+        };
+        assertEquals("expect no reports after failed fast", Collections.emptyList(),
+                mojo.scanOne(unbuildable, TestPackageUtil.prepareTestPackage("tmp_foo_bar.zip"),
+                        getClass().getClassLoader(), new AtomicBoolean(true)));
+    }
+
+    @Test
+    public void testPerformScanEach() throws Exception {
+        final File testOutDir = new File(testOutBaseDir, "testPerformScanEach");
+        FileUtils.deleteDirectory(testOutDir);
+        testOutDir.mkdirs();
+        ScanEachArtifactMojo mojo = newMojo();
+        mojo.summaryFile = new File(testOutDir, "summary.json");
+        mojo.deferBuildFailure = true;
+        mojo.threads = 2;
+        mojo.checks.add(CheckSpec.fromJson(key("name", "failer")
+                .key("inlineScript", "function afterExtract(packageId){ oakpal.majorViolation(\"fail\", packageId);}")
+                .get()));
+        mojo.scanFiles = Arrays.asList(TestPackageUtil.prepareTestPackage("tmp_foo_bar.zip"),
+                TestPackageUtil.prepareTestPackage("package_1.0.zip"));
+        mojo.executeGuardedIntegrationTest();
+
+        final Optional<CheckReport> report = ReportMapper.readReportsFromFile(mojo.summaryFile).stream()
+                .filter(checkReport -> "failer".equals(checkReport.getCheckName())).findFirst();
+        assertTrue("failer is present", report.isPresent());
+        assertEquals("expect a violation for each package", 2, report.get().getViolations().size());
+    }
+
+    @Test(expected = MojoFailureException.class)
+    public void testPerformScanEach_abortedScan() throws Exception {
+        final File testOutDir = new File(testOutBaseDir, "testPerformScanEach_abortedScan");
+        FileUtils.deleteDirectory(testOutDir);
+        testOutDir.mkdirs();
+        ScanEachArtifactMojo mojo = newMojo();
+        mojo.summaryFile = new File(testOutDir, "summary.json");
+        mojo.performScanEach(Arrays.asList(TestPackageUtil.prepareTestPackage("tmp_foo_bar.zip"),
+                TestPackageUtil.prepareTestPackage("unfiltered_package.zip")));
+    }
+}
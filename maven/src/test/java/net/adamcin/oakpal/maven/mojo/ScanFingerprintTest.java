@@ -0,0 +1,144 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.maven.mojo;
+
+import net.adamcin.oakpal.core.CheckSpec;
+import net.adamcin.oakpal.core.OakpalPlan;
+import net.adamcin.oakpal.core.checks.Paths;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.json.JsonObject;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static net.adamcin.oakpal.api.JavaxJson.arr;
+import static net.adamcin.oakpal.api.JavaxJson.key;
+import static net.adamcin.oakpal.api.JavaxJson.obj;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ScanFingerprintTest {
+    private final File testOutBaseDir = new File("target/test-out/ScanFingerprintTest");
+
+    @Before
+    public void setUp() throws Exception {
+        testOutBaseDir.mkdirs();
+    }
+
+    @Test
+    public void testCompute() throws Exception {
+        final File testOutDir = new File(testOutBaseDir, "testCompute");
+        FileUtils.deleteDirectory(testOutDir);
+        testOutDir.mkdirs();
+        final File scanFile = new File(testOutDir, "package.zip");
+        FileUtils.writeStringToFile(scanFile, "first", StandardCharsets.UTF_8);
+        final OakpalPlan plan = new OakpalPlan.Builder(null, null).build();
+        final JsonObject options = obj().get();
+        final ClassLoader classLoader = getClass().getClassLoader();
+
+        final String first = ScanFingerprint.compute("scan", plan, Collections.emptyMap(), classLoader, options,
+                Collections.singletonList(scanFile));
+        assertEquals("expect same fingerprint for same inputs", first, ScanFingerprint.compute("scan", plan,
+                Collections.emptyMap(), classLoader, options, Collections.singletonList(scanFile)));
+        assertNotEquals("expect different fingerprint for goal", first, ScanFingerprint.compute("scan-many", plan,
+                Collections.emptyMap(), classLoader, options, Collections.singletonList(scanFile)));
+        assertNotEquals("expect different fingerprint for options", first, ScanFingerprint.compute("scan", plan,
+                Collections.emptyMap(), classLoader, key("failFast", "MAJOR").get(), Collections.singletonList(scanFile)));
+        assertNotEquals("expect different fingerprint for plan", first, ScanFingerprint.compute("scan",
+                new OakpalPlan.Builder(null, null).withChecklists(Collections.singletonList("basic")).build(),
+                Collections.emptyMap(), classLoader, options, Collections.singletonList(scanFile)));
+
+        FileUtils.writeStringToFile(scanFile, "second", StandardCharsets.UTF_8);
+        assertNotEquals("expect different fingerprint for package content", first, ScanFingerprint.compute("scan",
+                plan, Collections.emptyMap(), classLoader, options, Collections.singletonList(scanFile)));
+    }
+
+    @Test
+    public void testCompute_checkResources() throws Exception {
+        final File testOutDir = new File(testOutBaseDir, "testCompute_checkResources");
+        FileUtils.deleteDirectory(testOutDir);
+        final File classDir = new File(testOutDir, "classes");
+        final File scriptFile = new File(classDir, "checks/check.js");
+        final File cndFile = new File(classDir, "checks/nodetypes.cnd");
+        FileUtils.writeStringToFile(scriptFile, "function afterExtract(packageId) {}", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(cndFile, "<foo = 'http://foo.com'>", StandardCharsets.UTF_8);
+        final OakpalPlan plan = new OakpalPlan.Builder(null, null)
+                .withChecks(Collections.singletonList(CheckSpec.fromJson(key("impl", "checks/check.js").get())))
+                .build();
+        final Map<URL, List<JsonObject>> checklists = Collections.singletonMap(
+                new File(classDir, "META-INF/MANIFEST.MF").toURI().toURL(),
+                Collections.singletonList(key("cndUrls", arr(cndFile.toURI().toURL().toExternalForm())).get()));
+        final JsonObject options = obj().get();
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classDir.toURI().toURL()}, null)) {
+            final String first = ScanFingerprint.compute("scan", plan, checklists, classLoader, options,
+                    Collections.emptyList());
+            FileUtils.writeStringToFile(scriptFile, "function afterExtract(packageId) { oakpal.minorViolation(); }",
+                    StandardCharsets.UTF_8);
+            final String second = ScanFingerprint.compute("scan", plan, checklists, classLoader, options,
+                    Collections.emptyList());
+            assertNotEquals("expect different fingerprint for script content", first, second);
+            FileUtils.writeStringToFile(cndFile, "<bar = 'http://bar.com'>", StandardCharsets.UTF_8);
+            assertNotEquals("expect different fingerprint for cnd content", second, ScanFingerprint.compute("scan",
+                    plan, checklists, classLoader, options, Collections.emptyList()));
+        }
+    }
+
+    @Test
+    public void testGetCheckResource() throws Exception {
+        final ClassLoader classLoader = getClass().getClassLoader();
+        final URL jarUrl = ScanFingerprint.getCheckResource(Paths.class.getName(), classLoader);
+        assertNotNull("expect check class url", jarUrl);
+        assertEquals("expect code source of check class",
+                Paths.class.getProtectionDomain().getCodeSource().getLocation().toExternalForm(),
+                jarUrl.toExternalForm());
+        assertNull("expect no url for unknown impl",
+                ScanFingerprint.getCheckResource("com.example.NoSuchCheck", classLoader));
+    }
+
+    @Test
+    public void testRestoreSummary() throws Exception {
+        final File testOutDir = new File(testOutBaseDir, "testRestoreSummary");
+        FileUtils.deleteDirectory(testOutDir);
+        testOutDir.mkdirs();
+        final File cacheDir = new File(testOutDir, "cache");
+        final File summaryFile = new File(testOutDir, "summary.json");
+        FileUtils.writeStringToFile(summaryFile, "[]", StandardCharsets.UTF_8);
+
+        assertFalse("expect no fingerprint yet", ScanFingerprint.restoreSummary("abc", summaryFile, cacheDir));
+        ScanFingerprint.storeSummary("abc", summaryFile, cacheDir);
+        assertTrue("expect same fingerprint", ScanFingerprint.restoreSummary("abc", summaryFile, cacheDir));
+        assertFalse("expect other fingerprint", ScanFingerprint.restoreSummary("def", summaryFile, cacheDir));
+
+        ScanFingerprint.clearSummary(summaryFile);
+        summaryFile.delete();
+        assertTrue("expect summary from cache", ScanFingerprint.restoreSummary("abc", summaryFile, cacheDir));
+        assertEquals("expect cached summary", "[]", FileUtils.readFileToString(summaryFile, StandardCharsets.UTF_8));
+        assertTrue("expect summary without cache", ScanFingerprint.restoreSummary("abc", summaryFile, null));
+    }
+}
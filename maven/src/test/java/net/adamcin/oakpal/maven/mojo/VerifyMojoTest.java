@@ -16,18 +16,26 @@
 
 package net.adamcin.oakpal.maven.mojo;
 
+import net.adamcin.oakpal.api.Severity;
+import net.adamcin.oakpal.api.SimpleViolation;
 import net.adamcin.oakpal.core.CheckReport;
+import net.adamcin.oakpal.core.ReportMapper;
+import net.adamcin.oakpal.core.SimpleReport;
 import org.apache.commons.io.FileUtils;
 import org.apache.maven.plugin.MojoFailureException;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class VerifyMojoTest {
 
@@ -99,4 +107,33 @@ public class VerifyMojoTest {
         mojo.summaryFiles.add(addSummaryFile);
         mojo.executeGuardedIntegrationTest();
     }
+
+    @Test
+    public void testExecuteGuardedIntegrationTest_mergeSummaryFiles() throws Exception {
+        final File testOutDir = new File(testOutBaseDir, "testExecuteGuardedIntegrationTest_mergeSummaryFiles");
+        FileUtils.deleteDirectory(testOutDir);
+        testOutDir.mkdirs();
+        final File summaryFile = new File(testOutDir, "summary.json");
+        final File addSummaryFile = new File(testOutDir, "summary2.ndjson");
+        ReportMapper.writeReportsToFile(Collections.singletonList(new SimpleReport("first",
+                Collections.singletonList(new SimpleViolation(Severity.MINOR, "minor")))), summaryFile);
+        ReportMapper.writeReportsToFile(Collections.singletonList(new SimpleReport("second",
+                Collections.singletonList(new SimpleViolation(Severity.MAJOR, "major")))), addSummaryFile);
+
+        final VerifyMojo mojo = newMojo();
+        mojo.summaryFile = summaryFile;
+        mojo.summaryFiles.add(addSummaryFile);
+        assertEquals("expect reports of both files", Arrays.asList("first", "second"),
+                mojo.collectReports().stream().map(CheckReport::getCheckName).collect(Collectors.toList()));
+        try {
+            mojo.executeGuardedIntegrationTest();
+            fail("expect failure for major violation");
+        } catch (final MojoFailureException e) {
+            final MockMojoLog log = (MockMojoLog) mojo.getLog();
+            assertTrue("expect minor violation logged", log.entries.stream()
+                    .anyMatch(entry -> entry.isInfo() && entry.message.contains("minor")));
+            assertTrue("expect major violation logged", log.entries.stream()
+                    .anyMatch(entry -> entry.isError() && entry.message.contains("major")));
+        }
+    }
 }
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.testing;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * A checked-in performance baseline in {@link Properties} format, keyed by {@link PerfHarness.Measurement} name.
+ * <pre>
+ *     # default tolerance for all metrics, as a ratio of the baseline value
+ *     tolerance=0.20
+ *     # default tolerance for one metric
+ *     tolerance.wallTimeMillis=0.50
+ *     caliper-default.wallTimeMillis=4200
+ *     caliper-default.allocatedBytes=1500000000
+ *     caliper-default.peakHeapBytes=400000000
+ *     caliper-default.pathsPerSecond=350.0
+ *     # per-measurement tolerance for one metric
+ *     caliper-default.tolerance.peakHeapBytes=1.0
+ * </pre>
+ * A measurement regresses when its wall time, allocated bytes, or peak heap exceed the baseline value by more than the
+ * tolerance, or when its paths per second fall below the baseline value by more than the tolerance. Metrics without a
+ * baseline value are not compared.
+ */
+public final class PerfBaseline {
+    public static final double DEFAULT_TOLERANCE = 0.20D;
+    static final String KEY_TOLERANCE = "tolerance";
+    static final String METRIC_WALL_TIME = "wallTimeMillis";
+    static final String METRIC_ALLOCATED = "allocatedBytes";
+    static final String METRIC_PEAK_HEAP = "peakHeapBytes";
+    static final String METRIC_PATHS_PER_SECOND = "pathsPerSecond";
+    static final String METRIC_PATH_COUNT = "pathCount";
+
+    private static final Logger log = LoggerFactory.getLogger(PerfBaseline.class);
+
+    private final Properties properties;
+
+    private PerfBaseline(final @NotNull Properties properties) {
+        this.properties = properties;
+    }
+
+    public static PerfBaseline fromProperties(final @NotNull Properties properties) {
+        final Properties copy = new Properties();
+        copy.putAll(properties);
+        return new PerfBaseline(copy);
+    }
+
+    public static PerfBaseline fromFile(final @NotNull File file) throws IOException {
+        final Properties properties = new Properties();
+        if (file.exists()) {
+            try (InputStream input = new FileInputStream(file)) {
+                properties.load(input);
+            }
+        }
+        return new PerfBaseline(properties);
+    }
+
+    public static PerfBaseline fromResource(final @NotNull Class<?> context, final @NotNull String resourceName)
+            throws IOException {
+        final Properties properties = new Properties();
+        try (InputStream input = context.getResourceAsStream(resourceName)) {
+            if (input == null) {
+                throw new IOException("failed to open resource as stream: " + resourceName);
+            }
+            properties.load(input);
+        }
+        return new PerfBaseline(properties);
+    }
+
+    double getTolerance(final @NotNull String name, final @NotNull String metric) {
+        final String value = properties.getProperty(name + "." + KEY_TOLERANCE + "." + metric,
+                properties.getProperty(KEY_TOLERANCE + "." + metric,
+                        properties.getProperty(KEY_TOLERANCE)));
+        return value != null ? Double.parseDouble(value.trim()) : DEFAULT_TOLERANCE;
+    }
+
+    Double getBaseline(final @NotNull String name, final @NotNull String metric) {
+        final String value = properties.getProperty(name + "." + metric);
+        return value != null ? Double.valueOf(value.trim()) : null;
+    }
+
+    /**
+     * Compare the measurement against the baseline and return a description of each regression.
+     *
+     * @param measurement the measurement
+     * @return a list of regression descriptions, empty if none regressed
+     */
+    public List<String> findRegressions(final @NotNull PerfHarness.Measurement measurement) {
+        final List<String> regressions = new ArrayList<>();
+        checkCeiling(regressions, measurement, METRIC_WALL_TIME, measurement.getWallTimeMillis());
+        if (measurement.getAllocatedBytes() >= 0) {
+            checkCeiling(regressions, measurement, METRIC_ALLOCATED, measurement.getAllocatedBytes());
+        }
+        checkCeiling(regressions, measurement, METRIC_PEAK_HEAP, measurement.getPeakHeapBytes());
+        final Double floor = getBaseline(measurement.getName(), METRIC_PATHS_PER_SECOND);
+        if (floor != null) {
+            final double tolerance = getTolerance(measurement.getName(), METRIC_PATHS_PER_SECOND);
+            final double limit = floor * (1.0D - tolerance);
+            if (measurement.getPathsPerSecond() < limit) {
+                regressions.add(String.format("%s.%s: %.1f is below baseline %.1f by more than %.0f%%",
+                        measurement.getName(), METRIC_PATHS_PER_SECOND, measurement.getPathsPerSecond(), floor,
+                        tolerance * 100));
+            }
+        }
+        return regressions;
+    }
+
+    private void checkCeiling(final @NotNull List<String> regressions,
+                              final @NotNull PerfHarness.Measurement measurement,
+                              final @NotNull String metric,
+                              final long value) {
+        final Double ceiling = getBaseline(measurement.getName(), metric);
+        if (ceiling != null) {
+            final double tolerance = getTolerance(measurement.getName(), metric);
+            final double limit = ceiling * (1.0D + tolerance);
+            if (value > limit) {
+                regressions.add(String.format("%s.%s: %d exceeds baseline %.0f by more than %.0f%%",
+                        measurement.getName(), metric, value, ceiling, tolerance * 100));
+            }
+        }
+    }
+
+    /**
+     * Throw an {@link AssertionError} listing all regressions of the measurement against this baseline.
+     *
+     * @param measurement the measurement
+     */
+    public void assertNoRegressions(final @NotNull PerfHarness.Measurement measurement) {
+        final List<String> regressions = findRegressions(measurement);
+        if (!regressions.isEmpty()) {
+            throw new AssertionError("performance regression detected for " + measurement
+                    + ":\n  " + String.join("\n  ", regressions));
+        }
+        log.info("no regressions detected for {}", measurement.getName());
+    }
+
+    /**
+     * Write the measurement into the baseline file, preserving any other keys, so that a new baseline can be reviewed
+     * and checked in.
+     *
+     * @param baselineFile the baseline file to create or update
+     * @param measurement  the measurement to record
+     * @throws IOException for errors reading or writing the file
+     */
+    public static void record(final @NotNull File baselineFile, final @NotNull PerfHarness.Measurement measurement)
+            throws IOException {
+        final Properties properties = fromFile(baselineFile).properties;
+        final String name = measurement.getName();
+        properties.setProperty(name + "." + METRIC_WALL_TIME, Long.toString(measurement.getWallTimeMillis()));
+        if (measurement.getAllocatedBytes() >= 0) {
+            properties.setProperty(name + "." + METRIC_ALLOCATED, Long.toString(measurement.getAllocatedBytes()));
+        }
+        properties.setProperty(name + "." + METRIC_PEAK_HEAP, Long.toString(measurement.getPeakHeapBytes()));
+        properties.setProperty(name + "." + METRIC_PATHS_PER_SECOND,
+                String.format(Locale.ROOT, "%.1f", measurement.getPathsPerSecond()));
+        properties.setProperty(name + "." + METRIC_PATH_COUNT, Long.toString(measurement.getPathCount()));
+        final File parentDir = baselineFile.getAbsoluteFile().getParentFile();
+        if (!parentDir.isDirectory() && !parentDir.mkdirs()) {
+            throw new IOException("failed to create parent directory: " + parentDir.getAbsolutePath());
+        }
+        try (OutputStream output = new FileOutputStream(baselineFile)) {
+            properties.store(output, "oakpal performance baseline");
+        }
+    }
+}
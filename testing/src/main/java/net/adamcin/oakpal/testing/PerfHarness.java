@@ -0,0 +1,199 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.testing;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Measures repeated executions of a scan body, recording wall time, bytes allocated by the calling thread, peak heap
+ * usage, and paths per second. Use with {@link PerfBaseline} to fail a test when a measurement regresses beyond the
+ * tolerances of a checked-in baseline file.
+ * <pre>
+ *     final PerfHarness.Measurement measurement = PerfHarness.measure("caliper-default", 1, 3, () -&gt; {
+ *         final AtomicLong paths = new AtomicLong();
+ *         new OakMachine.Builder().withProgressCheck(new ProgressCheck() {
+ *             public void importedPath(PackageId packageId, String path, Node node, PathAction action) {
+ *                 paths.incrementAndGet();
+ *             }
+ *             public Collection&lt;Violation&gt; getReportedViolations() {
+ *                 return Collections.emptyList();
+ *             }
+ *         }).build().scanPackage(TestPackageUtil.getCaliperPackage());
+ *         return paths.get();
+ *     });
+ *     PerfBaseline.fromResource(getClass(), "/perf-baseline.properties").assertNoRegressions(measurement);
+ * </pre>
+ */
+public final class PerfHarness {
+    private PerfHarness() {
+        /* no constructor */
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(PerfHarness.class);
+
+    /**
+     * A scan to measure, which returns the number of paths that it processed.
+     */
+    @FunctionalInterface
+    public interface ScanBody {
+        long scan() throws Exception;
+    }
+
+    /**
+     * Immutable result of a measurement.
+     */
+    public static final class Measurement {
+        private final String name;
+        private final long wallTimeMillis;
+        private final long allocatedBytes;
+        private final long peakHeapBytes;
+        private final long pathCount;
+
+        public Measurement(final @NotNull String name, final long wallTimeMillis, final long allocatedBytes,
+                           final long peakHeapBytes, final long pathCount) {
+            this.name = name;
+            this.wallTimeMillis = wallTimeMillis;
+            this.allocatedBytes = allocatedBytes;
+            this.peakHeapBytes = peakHeapBytes;
+            this.pathCount = pathCount;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getWallTimeMillis() {
+            return wallTimeMillis;
+        }
+
+        /**
+         * Bytes allocated by the scanning thread, or -1 if the JVM does not support thread allocation accounting.
+         *
+         * @return the allocated bytes
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public long getPeakHeapBytes() {
+            return peakHeapBytes;
+        }
+
+        public long getPathCount() {
+            return pathCount;
+        }
+
+        public double getPathsPerSecond() {
+            return wallTimeMillis > 0 ? pathCount * 1000.0D / wallTimeMillis : pathCount * 1000.0D;
+        }
+
+        @Override
+        public String toString() {
+            return name + " {wallTimeMillis=" + wallTimeMillis
+                    + ", allocatedBytes=" + allocatedBytes
+                    + ", peakHeapBytes=" + peakHeapBytes
+                    + ", pathCount=" + pathCount
+                    + ", pathsPerSecond=" + String.format("%.1f", getPathsPerSecond()) + "}";
+        }
+    }
+
+    /**
+     * Execute the scan body {@code warmups} times without measuring, then {@code iterations} times with measurement,
+     * and return the median wall time and allocation, the maximum peak heap, and the path count of the last
+     * iteration.
+     *
+     * @param name       the measurement name, used as the key in a {@link PerfBaseline}
+     * @param warmups    the number of unmeasured executions
+     * @param iterations the number of measured executions, at least 1
+     * @param body       the scan body
+     * @return the measurement
+     * @throws Exception if the scan body throws
+     */
+    public static Measurement measure(final @NotNull String name, final int warmups, final int iterations,
+                                      final @NotNull ScanBody body) throws Exception {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be at least 1");
+        }
+        for (int i = 0; i < warmups; i++) {
+            body.scan();
+        }
+        final List<Long> wallTimes = new ArrayList<>();
+        final List<Long> allocations = new ArrayList<>();
+        long peakHeap = 0L;
+        long pathCount = 0L;
+        for (int i = 0; i < iterations; i++) {
+            System.gc();
+            resetPeakHeap();
+            final long allocatedBefore = getAllocatedBytes();
+            final long start = System.nanoTime();
+            pathCount = body.scan();
+            wallTimes.add((System.nanoTime() - start) / 1000000L);
+            final long allocatedAfter = getAllocatedBytes();
+            allocations.add(allocatedBefore < 0 || allocatedAfter < 0 ? -1L : allocatedAfter - allocatedBefore);
+            peakHeap = Math.max(peakHeap, getPeakHeap());
+        }
+        final Measurement measurement = new Measurement(name, median(wallTimes), median(allocations), peakHeap,
+                pathCount);
+        log.info("measured {}", measurement);
+        return measurement;
+    }
+
+    static long median(final @NotNull List<Long> values) {
+        final List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    static long getAllocatedBytes() {
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1L;
+    }
+
+    static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    static long getPeakHeap() {
+        long peak = 0L;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,696 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.testing;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Parameterized FileVault package generator for scale testing. The package content is derived entirely from the
+ * builder parameters and the random {@code seed}, so that two instances built with the same parameters write
+ * byte-identical zip files. Content is streamed directly to the target {@link OutputStream} without staging anything
+ * on disk, which keeps generation of 1M-node packages practical.
+ * <p>
+ * Layout of a generated package:
+ * <ul>
+ * <li>{@code rootPath}: an {@code nt:unstructured} tree of {@code nodeCount} descendant nodes, filled depth-first
+ * to at most {@code depth} levels with at most {@code fanOut} children per node. Nodes at the deepest level are
+ * serialized inline in their parent's {@code .content.xml}. Every node gets {@code propertyCount} single-valued
+ * string properties, plus one multi-valued property when {@code multiValueSize} is greater than zero.</li>
+ * <li>{@code rootPath/binaries}: {@code binaryCount} {@code nt:file} nodes of {@code binarySize} bytes each.</li>
+ * <li>{@code rootPath/rep:policy}: an ACL with {@code aceCount} entries for the {@code everyone} principal.</li>
+ * <li>{@code /apps/<name>/config}: {@code osgiConfigCount} OSGi factory configs and {@code repoInitCount}
+ * RepositoryInitializer factory configs as {@code .cfg.json} files.</li>
+ * <li>{@code /etc/packages/<group>/<name>-<version>.zip}: each configured subpackage, itself generated in a
+ * streaming fashion.</li>
+ * </ul>
+ */
+public final class SyntheticPackage {
+    static final long ENTRY_TIME = 1577836800000L; // 2020-01-01T00:00:00Z
+    static final String JCR_ROOT = "jcr_root";
+    static final String REPOINIT_FACTORY_PID = "org.apache.sling.jcr.repoinit.RepositoryInitializer";
+    static final String OSGI_FACTORY_PID = "net.adamcin.oakpal.testing.SyntheticConfig";
+    private static final char[] ALPHANUM = "abcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+    private static final String DOCVIEW_NAMESPACES = "xmlns:jcr=\"http://www.jcp.org/jcr/1.0\" "
+            + "xmlns:nt=\"http://www.jcp.org/jcr/nt/1.0\" xmlns:rep=\"internal\"";
+
+    private final String group;
+    private final String name;
+    private final String version;
+    private final String rootPath;
+    private final long seed;
+    private final int nodeCount;
+    private final int depth;
+    private final int fanOut;
+    private final int propertyCount;
+    private final int multiValueSize;
+    private final int valueLength;
+    private final int binaryCount;
+    private final int binarySize;
+    private final int aceCount;
+    private final int osgiConfigCount;
+    private final int repoInitCount;
+    private final List<SyntheticPackage> subpackages;
+
+    private SyntheticPackage(final Builder builder) {
+        this.group = builder.group;
+        this.name = builder.name;
+        this.version = builder.version;
+        this.rootPath = builder.rootPath != null ? builder.rootPath : "/content/" + builder.name;
+        this.seed = builder.seed;
+        this.nodeCount = builder.nodeCount;
+        this.depth = builder.depth;
+        this.fanOut = builder.fanOut;
+        this.propertyCount = builder.propertyCount;
+        this.multiValueSize = builder.multiValueSize;
+        this.valueLength = builder.valueLength;
+        this.binaryCount = builder.binaryCount;
+        this.binarySize = builder.binarySize;
+        this.aceCount = builder.aceCount;
+        this.osgiConfigCount = builder.osgiConfigCount;
+        this.repoInitCount = builder.repoInitCount;
+        this.subpackages = Collections.unmodifiableList(new ArrayList<>(builder.subpackages));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder for {@link SyntheticPackage}. All counts default to zero except for {@code depth} and {@code fanOut},
+     * which default to 6 and 10, respectively, which is sufficient capacity for a 1M-node tree.
+     */
+    public static final class Builder {
+        private String group = "oakpal-synthetic";
+        private String name = "synthetic";
+        private String version = "1.0";
+        private String rootPath;
+        private long seed = 0L;
+        private int nodeCount;
+        private int depth = 6;
+        private int fanOut = 10;
+        private int propertyCount;
+        private int multiValueSize;
+        private int valueLength = 16;
+        private int binaryCount;
+        private int binarySize;
+        private int aceCount;
+        private int osgiConfigCount;
+        private int repoInitCount;
+        private final List<SyntheticPackage> subpackages = new ArrayList<>();
+
+        private Builder() {
+            /* use SyntheticPackage.builder() */
+        }
+
+        /**
+         * Set the package group, name, and version.
+         *
+         * @param group   the package group
+         * @param name    the package name
+         * @param version the package version
+         * @return my builder self
+         */
+        public Builder withPackageId(final @NotNull String group, final @NotNull String name,
+                                     final @NotNull String version) {
+            this.group = group;
+            this.name = name;
+            this.version = version;
+            return this;
+        }
+
+        /**
+         * Set the root path of the generated node tree. Defaults to {@code /content/<name>}.
+         *
+         * @param rootPath the absolute root path of the generated tree
+         * @return my builder self
+         */
+        public Builder withRootPath(final @NotNull String rootPath) {
+            this.rootPath = rootPath;
+            return this;
+        }
+
+        /**
+         * Set the seed for generated property values and binary content.
+         *
+         * @param seed the random seed
+         * @return my builder self
+         */
+        public Builder withSeed(final long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Set the number of nodes to generate below the root node.
+         *
+         * @param nodeCount the number of descendant nodes
+         * @return my builder self
+         */
+        public Builder withNodeCount(final int nodeCount) {
+            this.nodeCount = nodeCount;
+            return this;
+        }
+
+        /**
+         * Set the maximum depth of the generated tree below the root node.
+         *
+         * @param depth the maximum depth
+         * @return my builder self
+         */
+        public Builder withDepth(final int depth) {
+            this.depth = depth;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of children of each node.
+         *
+         * @param fanOut the maximum number of children per node
+         * @return my builder self
+         */
+        public Builder withFanOut(final int fanOut) {
+            this.fanOut = fanOut;
+            return this;
+        }
+
+        /**
+         * Set the number of single-valued string properties of each node.
+         *
+         * @param propertyCount the number of properties per node
+         * @return my builder self
+         */
+        public Builder withPropertyCount(final int propertyCount) {
+            this.propertyCount = propertyCount;
+            return this;
+        }
+
+        /**
+         * Set the number of values of the multi-valued property added to each node. Zero omits the property.
+         *
+         * @param multiValueSize the number of values
+         * @return my builder self
+         */
+        public Builder withMultiValueSize(final int multiValueSize) {
+            this.multiValueSize = multiValueSize;
+            return this;
+        }
+
+        /**
+         * Set the length of each generated string value.
+         *
+         * @param valueLength the number of characters per value
+         * @return my builder self
+         */
+        public Builder withValueLength(final int valueLength) {
+            this.valueLength = valueLength;
+            return this;
+        }
+
+        /**
+         * Set the number and size of generated {@code nt:file} binaries.
+         *
+         * @param binaryCount the number of binaries
+         * @param binarySize  the size of each binary in bytes
+         * @return my builder self
+         */
+        public Builder withBinaries(final int binaryCount, final int binarySize) {
+            this.binaryCount = binaryCount;
+            this.binarySize = binarySize;
+            return this;
+        }
+
+        /**
+         * Set the number of access control entries on the root node.
+         *
+         * @param aceCount the number of ACEs
+         * @return my builder self
+         */
+        public Builder withAceCount(final int aceCount) {
+            this.aceCount = aceCount;
+            return this;
+        }
+
+        /**
+         * Set the number of OSGi factory configurations under {@code /apps/<name>/config}.
+         *
+         * @param osgiConfigCount the number of OSGi configs
+         * @return my builder self
+         */
+        public Builder withOsgiConfigCount(final int osgiConfigCount) {
+            this.osgiConfigCount = osgiConfigCount;
+            return this;
+        }
+
+        /**
+         * Set the number of RepositoryInitializer factory configurations under {@code /apps/<name>/config}. Each
+         * script creates a single path under {@code /var/<name>}.
+         *
+         * @param repoInitCount the number of repoinit configs
+         * @return my builder self
+         */
+        public Builder withRepoInitCount(final int repoInitCount) {
+            this.repoInitCount = repoInitCount;
+            return this;
+        }
+
+        /**
+         * Add subpackages to embed under {@code /etc/packages}. Nest subpackages by adding subpackages that have
+         * their own subpackages.
+         *
+         * @param subpackage the subpackages to embed
+         * @return my builder self
+         */
+        public Builder withSubpackage(final @NotNull SyntheticPackage... subpackage) {
+            this.subpackages.addAll(Arrays.asList(subpackage));
+            return this;
+        }
+
+        /**
+         * Build the package definition.
+         *
+         * @return the package definition
+         * @throws IllegalArgumentException if a parameter is out of range, or if {@code depth} and {@code fanOut} do
+         *                                  not provide the capacity for {@code nodeCount}
+         */
+        public SyntheticPackage build() {
+            if (nodeCount < 0 || propertyCount < 0 || multiValueSize < 0 || valueLength < 1 || binaryCount < 0
+                    || binarySize < 0 || aceCount < 0 || osgiConfigCount < 0 || repoInitCount < 0) {
+                throw new IllegalArgumentException("counts must not be negative and valueLength must be positive");
+            }
+            if (rootPath != null && (!rootPath.startsWith("/") || rootPath.endsWith("/"))) {
+                throw new IllegalArgumentException("rootPath must be absolute and must not be the root node: "
+                        + rootPath);
+            }
+            if (nodeCount > 0 && capacity(depth, fanOut) < nodeCount) {
+                throw new IllegalArgumentException("depth " + depth + " and fanOut " + fanOut
+                        + " can not hold nodeCount " + nodeCount);
+            }
+            return new SyntheticPackage(this);
+        }
+    }
+
+    static long capacity(final int depth, final int fanOut) {
+        long capacity = 0L;
+        long levelSize = 1L;
+        for (int level = 0; level < depth && fanOut > 0; level++) {
+            levelSize = levelSize * fanOut;
+            capacity += levelSize;
+            if (capacity >= Integer.MAX_VALUE) {
+                return Integer.MAX_VALUE;
+            }
+        }
+        return capacity;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getRootPath() {
+        return rootPath;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public List<SyntheticPackage> getSubpackages() {
+        return subpackages;
+    }
+
+    /**
+     * Get the conventional file name for this package.
+     *
+     * @return {@code <name>-<version>.zip}
+     */
+    public String getFileName() {
+        return name + "-" + version + ".zip";
+    }
+
+    /**
+     * Get a file name which is unique to the generator parameters of this package and of its subpackages, so that a
+     * previously written file can be reused only if it was generated with the same parameters.
+     *
+     * @return {@code <name>-<version>-<parameters hash>.zip}
+     */
+    String getParameterizedFileName() {
+        return name + "-" + version + "-" + getParametersHash() + ".zip";
+    }
+
+    String getParametersHash() {
+        final StringBuilder parameters = new StringBuilder()
+                .append(group).append('\n').append(name).append('\n').append(version).append('\n')
+                .append(rootPath).append('\n').append(seed);
+        for (final long parameter : new long[]{nodeCount, depth, fanOut, propertyCount, multiValueSize, valueLength,
+                binaryCount, binarySize, aceCount, osgiConfigCount, repoInitCount}) {
+            parameters.append(',').append(parameter);
+        }
+        for (final SyntheticPackage subpackage : subpackages) {
+            parameters.append('\n').append(subpackage.getParametersHash());
+        }
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(parameters.toString().getBytes(StandardCharsets.UTF_8));
+            final StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 6; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Get the JCR path where this package is embedded when it is added as a subpackage.
+     *
+     * @return {@code /etc/packages/<group>/<name>-<version>.zip}
+     */
+    public String getInstallPath() {
+        return "/etc/packages/" + group + "/" + getFileName();
+    }
+
+    String getAppsPath() {
+        return "/apps/" + name;
+    }
+
+    /**
+     * Write the package to a file, creating parent directories as necessary.
+     *
+     * @param file the target file
+     * @return the target file
+     * @throws IOException for errors writing the file
+     */
+    public File writeToFile(final @NotNull File file) throws IOException {
+        final File parentDir = file.getAbsoluteFile().getParentFile();
+        if (!parentDir.isDirectory() && !parentDir.mkdirs()) {
+            throw new IOException("failed to create parent target directory: " + parentDir.getAbsolutePath());
+        }
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+            writeTo(out);
+        }
+        return file;
+    }
+
+    /**
+     * Write the package as a zip to the provided stream. The stream is not closed.
+     *
+     * @param out the target stream
+     * @throws IOException for errors writing to the stream
+     */
+    public void writeTo(final @NotNull OutputStream out) throws IOException {
+        final ZipOutputStream zos = new ZipOutputStream(new FilterOutputStream(out) {
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                out.write(b, off, len);
+            }
+        });
+        new PackageWriter(zos).write();
+        zos.finish();
+        zos.flush();
+    }
+
+    /**
+     * Holds the per-write state, so that a single package definition may be written concurrently.
+     */
+    private final class PackageWriter {
+        private final ZipOutputStream zos;
+        private final Random random = new Random(seed);
+        private final Set<String> dirs = new HashSet<>();
+        private final StringBuilder buffer = new StringBuilder();
+        private int remaining = nodeCount;
+
+        private PackageWriter(final ZipOutputStream zos) {
+            this.zos = zos;
+        }
+
+        void write() throws IOException {
+            writeMetaInf();
+            writeAncestors(rootPath, true);
+            final String rootDir = JCR_ROOT + rootPath + "/";
+            putDir(rootDir);
+            writeNode(rootDir, 0);
+            if (aceCount > 0) {
+                writePolicy(rootDir);
+            }
+            if (binaryCount > 0) {
+                writeBinaries(rootDir + "binaries/");
+            }
+            if (osgiConfigCount > 0 || repoInitCount > 0) {
+                writeConfigs();
+            }
+            for (SyntheticPackage subpackage : subpackages) {
+                writeSubpackage(subpackage);
+            }
+        }
+
+        void writeMetaInf() throws IOException {
+            putDir("META-INF/");
+            putDir("META-INF/vault/");
+            final StringBuilder filter = new StringBuilder()
+                    .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                    .append("<workspaceFilter version=\"1.0\">\n")
+                    .append("    <filter root=\"").append(escape(rootPath)).append("\"/>\n");
+            if (osgiConfigCount > 0 || repoInitCount > 0) {
+                filter.append("    <filter root=\"").append(escape(getAppsPath())).append("\"/>\n");
+            }
+            for (SyntheticPackage subpackage : subpackages) {
+                filter.append("    <filter root=\"").append(escape(subpackage.getInstallPath())).append("\"/>\n");
+            }
+            filter.append("</workspaceFilter>\n");
+            putText("META-INF/vault/filter.xml", filter);
+
+            final StringBuilder props = new StringBuilder()
+                    .append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n")
+                    .append("<!DOCTYPE properties SYSTEM \"http://java.sun.com/dtd/properties.dtd\">\n")
+                    .append("<properties>\n")
+                    .append("    <comment>FileVault Package Properties</comment>\n")
+                    .append("    <entry key=\"group\">").append(escape(group)).append("</entry>\n")
+                    .append("    <entry key=\"name\">").append(escape(name)).append("</entry>\n")
+                    .append("    <entry key=\"version\">").append(escape(version)).append("</entry>\n")
+                    .append("    <entry key=\"packageFormatVersion\">2</entry>\n")
+                    .append("    <entry key=\"requiresRoot\">false</entry>\n");
+            if (aceCount > 0) {
+                props.append("    <entry key=\"acHandling\">merge</entry>\n");
+            }
+            props.append("</properties>\n");
+            putText("META-INF/vault/properties.xml", props);
+        }
+
+        void writeAncestors(final String path, final boolean withDocView) throws IOException {
+            final String[] segments = path.substring(1).split("/");
+            final StringBuilder dir = new StringBuilder(JCR_ROOT).append("/");
+            putDir(dir.toString());
+            for (int i = 0; i < segments.length - 1; i++) {
+                dir.append(segments[i]).append("/");
+                if (putDir(dir.toString()) && withDocView) {
+                    putText(dir + ".content.xml", new StringBuilder()
+                            .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                            .append("<jcr:root ").append(DOCVIEW_NAMESPACES)
+                            .append(" jcr:primaryType=\"nt:unstructured\"/>\n"));
+                }
+            }
+        }
+
+        /**
+         * Write the .content.xml for the node at the given folder, then recurse into any folder children. Children at
+         * the deepest level are written inline.
+         *
+         * @param dir   the zip folder for the node
+         * @param level the depth of the node below the root node
+         * @throws IOException for zip errors
+         */
+        void writeNode(final String dir, final int level) throws IOException {
+            final int childCount = level < depth ? Math.min(fanOut, remaining) : 0;
+            final boolean inlineChildren = level + 1 == depth;
+            buffer.setLength(0);
+            buffer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                    .append("<jcr:root ").append(DOCVIEW_NAMESPACES).append(" jcr:primaryType=\"nt:unstructured\"");
+            if (level == 0 && aceCount > 0) {
+                buffer.append(" jcr:mixinTypes=\"[rep:AccessControllable]\"");
+            }
+            appendProperties(buffer);
+            if (inlineChildren && childCount > 0) {
+                buffer.append(">\n");
+                for (int i = 0; i < childCount; i++) {
+                    remaining--;
+                    buffer.append("    <node-").append(i).append(" jcr:primaryType=\"nt:unstructured\"");
+                    appendProperties(buffer);
+                    buffer.append("/>\n");
+                }
+                buffer.append("</jcr:root>\n");
+            } else {
+                buffer.append("/>\n");
+            }
+            putText(dir + ".content.xml", buffer);
+            if (!inlineChildren) {
+                for (int i = 0; i < childCount && remaining > 0; i++) {
+                    remaining--;
+                    final String childDir = dir + "node-" + i + "/";
+                    putEntry(childDir);
+                    zos.closeEntry();
+                    writeNode(childDir, level + 1);
+                }
+            }
+        }
+
+        void appendProperties(final StringBuilder sb) {
+            for (int i = 0; i < propertyCount; i++) {
+                sb.append(" prop").append(i).append("=\"");
+                appendValue(sb);
+                sb.append("\"");
+            }
+            if (multiValueSize > 0) {
+                sb.append(" multi=\"[");
+                for (int i = 0; i < multiValueSize; i++) {
+                    if (i > 0) {
+                        sb.append(",");
+                    }
+                    appendValue(sb);
+                }
+                sb.append("]\"");
+            }
+        }
+
+        void appendValue(final StringBuilder sb) {
+            for (int i = 0; i < valueLength; i++) {
+                sb.append(ALPHANUM[random.nextInt(ALPHANUM.length)]);
+            }
+        }
+
+        void writePolicy(final String rootDir) throws IOException {
+            final StringBuilder policy = new StringBuilder()
+                    .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                    .append("<jcr:root ").append(DOCVIEW_NAMESPACES).append(" jcr:primaryType=\"rep:ACL\">\n");
+            for (int i = 0; i < aceCount; i++) {
+                final boolean allow = i % 2 == 0;
+                policy.append("    <").append(allow ? "allow" : "deny").append(i)
+                        .append(" jcr:primaryType=\"").append(allow ? "rep:GrantACE" : "rep:DenyACE")
+                        .append("\" rep:principalName=\"everyone\" rep:privileges=\"{Name}[jcr:read]\">\n")
+                        .append("        <rep:restrictions jcr:primaryType=\"rep:Restrictions\" rep:glob=\"/ace-")
+                        .append(i).append("\"/>\n")
+                        .append("    </").append(allow ? "allow" : "deny").append(i).append(">\n");
+            }
+            policy.append("</jcr:root>\n");
+            putText(rootDir + "_rep_policy.xml", policy);
+        }
+
+        void writeBinaries(final String binariesDir) throws IOException {
+            putDir(binariesDir);
+            final byte[] chunk = new byte[Math.min(Math.max(binarySize, 1), 1 << 16)];
+            for (int i = 0; i < binaryCount; i++) {
+                putEntry(binariesDir + "binary-" + i + ".bin");
+                final Random binaryRandom = new Random(seed + i);
+                int written = 0;
+                while (written < binarySize) {
+                    binaryRandom.nextBytes(chunk);
+                    final int len = Math.min(chunk.length, binarySize - written);
+                    zos.write(chunk, 0, len);
+                    written += len;
+                }
+                zos.closeEntry();
+            }
+        }
+
+        void writeConfigs() throws IOException {
+            writeAncestors(getAppsPath() + "/config", false);
+            final String configDir = JCR_ROOT + getAppsPath() + "/config/";
+            putDir(JCR_ROOT + getAppsPath() + "/");
+            putDir(configDir);
+            for (int i = 0; i < osgiConfigCount; i++) {
+                final StringBuilder json = new StringBuilder("{\n");
+                json.append("  \"index:Integer\": ").append(i);
+                for (int p = 0; p < propertyCount; p++) {
+                    json.append(",\n  \"prop").append(p).append("\": \"");
+                    appendValue(json);
+                    json.append("\"");
+                }
+                json.append("\n}\n");
+                putText(configDir + OSGI_FACTORY_PID + "~" + name + "-" + i + ".cfg.json", json);
+            }
+            for (int i = 0; i < repoInitCount; i++) {
+                final StringBuilder json = new StringBuilder("{\n")
+                        .append("  \"scripts\": [\n")
+                        .append("    \"create path (nt:unstructured) /var/").append(name)
+                        .append("/repoinit-").append(i).append("\"\n")
+                        .append("  ]\n")
+                        .append("}\n");
+                putText(configDir + REPOINIT_FACTORY_PID + "~" + name + "-" + i + ".cfg.json", json);
+            }
+        }
+
+        void writeSubpackage(final SyntheticPackage subpackage) throws IOException {
+            writeAncestors(subpackage.getInstallPath(), false);
+            putEntry(JCR_ROOT + subpackage.getInstallPath());
+            subpackage.writeTo(zos);
+            zos.closeEntry();
+        }
+
+        boolean putDir(final String dirName) throws IOException {
+            if (dirs.add(dirName)) {
+                putEntry(dirName);
+                zos.closeEntry();
+                return true;
+            }
+            return false;
+        }
+
+        void putText(final String entryName, final CharSequence content) throws IOException {
+            putEntry(entryName);
+            zos.write(content.toString().getBytes(StandardCharsets.UTF_8));
+            zos.closeEntry();
+        }
+
+        void putEntry(final String entryName) throws IOException {
+            final ZipEntry entry = new ZipEntry(entryName);
+            entry.setTime(ENTRY_TIME);
+            zos.putNextEntry(entry);
+        }
+    }
+
+    static String escape(final String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+                .replace("\"", "&quot;");
+    }
+}
@@ -29,8 +29,10 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Properties;
@@ -92,6 +94,30 @@ public final class TestPackageUtil {
         return file;
     }
 
+    /**
+     * Write a {@link SyntheticPackage} to the test packages directory, unless a file generated with the same
+     * parameters already exists. The file name includes a hash of the generator parameters. The package is written to
+     * a temp file first, and then moved into place, so that an interrupted run does not leave a truncated package.
+     *
+     * @param syntheticPackage the synthetic package definition
+     * @return the package file
+     * @throws IOException for errors writing the package
+     */
+    public static File prepareSyntheticPackage(final @NotNull SyntheticPackage syntheticPackage) throws IOException {
+        final File file = new File(testPackagesRoot.toFile(), syntheticPackage.getParameterizedFileName());
+        if (!file.exists()) {
+            final Path tempFile = Files.createTempFile(Files.createDirectories(testPackagesRoot),
+                    "." + file.getName(), ".tmp");
+            try {
+                syntheticPackage.writeToFile(tempFile.toFile());
+                Files.move(tempFile, file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+        return file;
+    }
+
     public static File getCaliperPackage() {
         return Paths.get("target/test-classes/oakpal-caliper.all.zip").toFile();
     }
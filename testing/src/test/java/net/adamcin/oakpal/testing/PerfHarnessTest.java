@@ -0,0 +1,123 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.testing;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PerfHarnessTest {
+    final File baseDir = new File("target/test-out/PerfHarnessTest");
+
+    @Test
+    public void testMeasure() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final PerfHarness.Measurement measurement = PerfHarness.measure("testMeasure", 2, 3, () -> {
+            calls.incrementAndGet();
+            final byte[] garbage = new byte[1 << 20];
+            return garbage.length > 0 ? 100L : 0L;
+        });
+        assertEquals("warmups and iterations", 5, calls.get());
+        assertEquals("name", "testMeasure", measurement.getName());
+        assertEquals("pathCount", 100L, measurement.getPathCount());
+        assertTrue("peak heap", measurement.getPeakHeapBytes() > 0);
+        assertTrue("allocated or unsupported", measurement.getAllocatedBytes() >= (1 << 20)
+                || measurement.getAllocatedBytes() == -1L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMeasure_noIterations() throws Exception {
+        PerfHarness.measure("testMeasure_noIterations", 0, 0, () -> 0L);
+    }
+
+    @Test
+    public void testMedian() {
+        assertEquals(2L, PerfHarness.median(Arrays.asList(3L, 1L, 2L)));
+        assertEquals(5L, PerfHarness.median(Arrays.asList(5L)));
+    }
+
+    @Test
+    public void testPathsPerSecond() {
+        assertEquals(500.0D, new PerfHarness.Measurement("a", 2000L, 0L, 0L, 1000L).getPathsPerSecond(), 0.01D);
+        assertEquals(1000.0D, new PerfHarness.Measurement("a", 0L, 0L, 0L, 1L).getPathsPerSecond(), 0.01D);
+    }
+
+    @Test
+    public void testFindRegressions() {
+        final Properties props = new Properties();
+        props.setProperty("tolerance", "0.2");
+        props.setProperty("tolerance.peakHeapBytes", "1.0");
+        props.setProperty("scan.wallTimeMillis", "1000");
+        props.setProperty("scan.allocatedBytes", "1000");
+        props.setProperty("scan.peakHeapBytes", "1000");
+        props.setProperty("scan.pathsPerSecond", "100.0");
+        props.setProperty("scan.tolerance.allocatedBytes", "0.5");
+        final PerfBaseline baseline = PerfBaseline.fromProperties(props);
+
+        assertTrue("within tolerance", baseline.findRegressions(
+                new PerfHarness.Measurement("scan", 1200L, 1500L, 2000L, 100L)).isEmpty());
+        assertTrue("unknown measurement", baseline.findRegressions(
+                new PerfHarness.Measurement("other", 999999L, 999999L, 999999L, 1L)).isEmpty());
+        assertTrue("unsupported allocation", baseline.findRegressions(
+                new PerfHarness.Measurement("scan", 1000L, -1L, 1000L, 100L)).isEmpty());
+
+        final List<String> regressions = baseline.findRegressions(
+                new PerfHarness.Measurement("scan", 1300L, 1600L, 2100L, 100L));
+        assertEquals("regressions: " + regressions, 4, regressions.size());
+        assertTrue("wall time", regressions.get(0).startsWith("scan.wallTimeMillis"));
+        assertTrue("allocated", regressions.get(1).startsWith("scan.allocatedBytes"));
+        assertTrue("peak heap", regressions.get(2).startsWith("scan.peakHeapBytes"));
+        assertTrue("paths per second", regressions.get(3).startsWith("scan.pathsPerSecond"));
+    }
+
+    @Test(expected = AssertionError.class)
+    public void testAssertNoRegressions() {
+        final Properties props = new Properties();
+        props.setProperty("scan.wallTimeMillis", "1000");
+        PerfBaseline.fromProperties(props)
+                .assertNoRegressions(new PerfHarness.Measurement("scan", 1201L, 0L, 0L, 0L));
+    }
+
+    @Test
+    public void testRecord() throws Exception {
+        final File baselineFile = new File(baseDir, "testRecord/baseline.properties");
+        baselineFile.delete();
+        PerfBaseline.record(baselineFile, new PerfHarness.Measurement("first", 1000L, 2000L, 3000L, 500L));
+        PerfBaseline.record(baselineFile, new PerfHarness.Measurement("second", 10L, -1L, 30L, 5L));
+        final PerfBaseline baseline = PerfBaseline.fromFile(baselineFile);
+        assertEquals(Double.valueOf(1000.0D), baseline.getBaseline("first", "wallTimeMillis"));
+        assertEquals(Double.valueOf(500.0D), baseline.getBaseline("first", "pathsPerSecond"));
+        assertEquals(Double.valueOf(30.0D), baseline.getBaseline("second", "peakHeapBytes"));
+        assertEquals(null, baseline.getBaseline("second", "allocatedBytes"));
+        assertEquals(PerfBaseline.DEFAULT_TOLERANCE, baseline.getTolerance("first", "wallTimeMillis"), 0.001D);
+        assertTrue("measurement matches its own baseline", baseline.findRegressions(
+                new PerfHarness.Measurement("first", 1000L, 2000L, 3000L, 500L)).isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void testFromResource_missing() throws Exception {
+        PerfBaseline.fromResource(getClass(), "/no/such/baseline.properties");
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2024 Mark Adamcin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.adamcin.oakpal.testing;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SyntheticPackageTest {
+
+    static Map<String, byte[]> readEntries(final byte[] zipBytes) throws Exception {
+        final Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zipBytes))) {
+            for (ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+                entries.put(entry.getName(), IOUtils.toByteArray(zis));
+            }
+        }
+        return entries;
+    }
+
+    static byte[] write(final SyntheticPackage syntheticPackage) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        syntheticPackage.writeTo(out);
+        return out.toByteArray();
+    }
+
+    static int countNodes(final Map<String, byte[]> entries, final String rootDir) {
+        final Pattern nodeElement = Pattern.compile("<node-\\d+ ");
+        int count = 0;
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            if (entry.getKey().startsWith(rootDir) && !entry.getKey().equals(rootDir)
+                    && entry.getKey().endsWith("/") && entry.getKey().matches(".*/node-\\d+/$")) {
+                count++;
+            }
+            if (entry.getKey().startsWith(rootDir) && entry.getKey().endsWith("/.content.xml")) {
+                final Matcher matcher = nodeElement.matcher(new String(entry.getValue(), StandardCharsets.UTF_8));
+                while (matcher.find()) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testCapacity() {
+        assertEquals(0L, SyntheticPackage.capacity(0, 10));
+        assertEquals(0L, SyntheticPackage.capacity(3, 0));
+        assertEquals(10L, SyntheticPackage.capacity(1, 10));
+        assertEquals(1111110L, SyntheticPackage.capacity(6, 10));
+        assertEquals((long) Integer.MAX_VALUE, SyntheticPackage.capacity(100, 100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuild_insufficientCapacity() {
+        SyntheticPackage.builder().withNodeCount(100).withDepth(2).withFanOut(5).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuild_negativeCount() {
+        SyntheticPackage.builder().withPropertyCount(-1).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuild_relativeRootPath() {
+        SyntheticPackage.builder().withRootPath("content/foo").build();
+    }
+
+    @Test
+    public void testWriteTo_nodeCount() throws Exception {
+        for (int depth = 1; depth <= 4; depth++) {
+            final SyntheticPackage syntheticPackage = SyntheticPackage.builder()
+                    .withNodeCount(97).withDepth(depth).withFanOut(100).withPropertyCount(2).withMultiValueSize(3)
+                    .build();
+            final Map<String, byte[]> entries = readEntries(write(syntheticPackage));
+            assertEquals("node count at depth " + depth, 97,
+                    countNodes(entries, "jcr_root/content/synthetic/"));
+        }
+        final SyntheticPackage deep = SyntheticPackage.builder()
+                .withNodeCount(1000).withDepth(4).withFanOut(6).build();
+        assertEquals("node count for deep tree", 1000,
+                countNodes(readEntries(write(deep)), "jcr_root/content/synthetic/"));
+    }
+
+    @Test
+    public void testWriteTo_reproducible() throws Exception {
+        final SyntheticPackage.Builder builder = SyntheticPackage.builder()
+                .withNodeCount(500).withDepth(3).withFanOut(10).withPropertyCount(3).withMultiValueSize(2)
+                .withBinaries(3, 100000).withAceCount(4).withOsgiConfigCount(2).withRepoInitCount(2);
+        assertArrayEquals("same parameters, same bytes", write(builder.build()), write(builder.build()));
+        final byte[] otherSeed = write(builder.withSeed(42L).build());
+        assertFalse("different seed, different bytes",
+                Arrays.equals(write(builder.withSeed(0L).build()), otherSeed));
+    }
+
+    @Test
+    public void testWriteTo_installables() throws Exception {
+        final SyntheticPackage nested = SyntheticPackage.builder()
+                .withPackageId("synthetic", "nested", "1.0").withNodeCount(5).build();
+        final SyntheticPackage sub = SyntheticPackage.builder()
+                .withPackageId("synthetic", "sub", "1.0").withNodeCount(5).withSubpackage(nested).build();
+        final SyntheticPackage syntheticPackage = SyntheticPackage.builder()
+                .withPackageId("synthetic", "parent", "1.0")
+                .withRootPath("/content/parent/tree")
+                .withNodeCount(5).withDepth(1)
+                .withBinaries(2, 10)
+                .withAceCount(3)
+                .withOsgiConfigCount(2)
+                .withRepoInitCount(1)
+                .withSubpackage(sub)
+                .build();
+
+        final Map<String, byte[]> entries = readEntries(write(syntheticPackage));
+        final String filter = new String(entries.get("META-INF/vault/filter.xml"), StandardCharsets.UTF_8);
+        assertTrue("filter contains root", filter.contains("<filter root=\"/content/parent/tree\"/>"));
+        assertTrue("filter contains apps", filter.contains("<filter root=\"/apps/parent\"/>"));
+        assertTrue("filter contains sub", filter.contains("<filter root=\"/etc/packages/synthetic/sub-1.0.zip\"/>"));
+        final String props = new String(entries.get("META-INF/vault/properties.xml"), StandardCharsets.UTF_8);
+        assertTrue("props contains acHandling", props.contains("<entry key=\"acHandling\">merge</entry>"));
+        assertTrue("ancestor docview", entries.containsKey("jcr_root/content/parent/.content.xml"));
+        assertEquals("binary size", 10,
+                entries.get("jcr_root/content/parent/tree/binaries/binary-1.bin").length);
+        final String policy = new String(entries.get("jcr_root/content/parent/tree/_rep_policy.xml"),
+                StandardCharsets.UTF_8);
+        assertTrue("policy has last ace", policy.contains("<allow2 "));
+        assertTrue("osgi config", entries.containsKey("jcr_root/apps/parent/config/"
+                + SyntheticPackage.OSGI_FACTORY_PID + "~parent-1.cfg.json"));
+        final String repoInit = new String(entries.get("jcr_root/apps/parent/config/"
+                + SyntheticPackage.REPOINIT_FACTORY_PID + "~parent-0.cfg.json"), StandardCharsets.UTF_8);
+        assertTrue("repoinit script", repoInit.contains("create path (nt:unstructured) /var/parent/repoinit-0"));
+
+        final Map<String, byte[]> subEntries = readEntries(entries.get("jcr_root/etc/packages/synthetic/sub-1.0.zip"));
+        assertTrue("sub has nested", subEntries.containsKey("jcr_root/etc/packages/synthetic/nested-1.0.zip"));
+        final Map<String, byte[]> nestedEntries =
+                readEntries(subEntries.get("jcr_root/etc/packages/synthetic/nested-1.0.zip"));
+        assertEquals("nested node count", 5, countNodes(nestedEntries, "jcr_root/content/nested/"));
+    }
+
+    @Test
+    public void testPrepareSyntheticPackage() throws Exception {
+        final SyntheticPackage syntheticPackage = SyntheticPackage.builder()
+                .withPackageId("synthetic", "testPrepareSyntheticPackage", "1.0")
+                .withNodeCount(10).build();
+        TestPackageUtil.deleteTestPackage(syntheticPackage.getParameterizedFileName());
+        final File file = TestPackageUtil.prepareSyntheticPackage(syntheticPackage);
+        assertTrue("file should exist", file.isFile());
+        assertEquals("same file on second call", file, TestPackageUtil.prepareSyntheticPackage(syntheticPackage));
+        assertEquals("same file for same parameters", file, TestPackageUtil.prepareSyntheticPackage(
+                SyntheticPackage.builder()
+                        .withPackageId("synthetic", "testPrepareSyntheticPackage", "1.0")
+                        .withNodeCount(10).build()));
+
+        final File changed = TestPackageUtil.prepareSyntheticPackage(SyntheticPackage.builder()
+                .withPackageId("synthetic", "testPrepareSyntheticPackage", "1.0")
+                .withNodeCount(20).build());
+        assertNotEquals("other file for other parameters", file, changed);
+        assertTrue("changed file should exist", changed.isFile());
+        assertEquals("expect changed node count", 20, countNodes(readEntries(Files.readAllBytes(changed.toPath())),
+                "jcr_root/content/testPrepareSyntheticPackage/"));
+    }
+}